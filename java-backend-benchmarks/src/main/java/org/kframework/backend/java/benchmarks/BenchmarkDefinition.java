@@ -0,0 +1,161 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.benchmarks;
+
+import com.google.common.io.Resources;
+import org.kframework.attributes.Source;
+import org.kframework.backend.Backends;
+import org.kframework.backend.java.compile.KOREtoBackendKIL;
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.GlobalContext;
+import org.kframework.backend.java.kil.KItem;
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.KList;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.java.symbolic.InitializeRewriter;
+import org.kframework.backend.java.symbolic.JavaBackend;
+import org.kframework.backend.java.symbolic.JavaExecutionOptions;
+import org.kframework.backend.java.util.Profiler2;
+import org.kframework.builtin.Sorts;
+import org.kframework.compile.ExpandMacros;
+import org.kframework.compile.ResolveSemanticCasts;
+import org.kframework.kompile.CompiledDefinition;
+import org.kframework.kompile.Kompile;
+import org.kframework.kompile.KompileOptions;
+import org.kframework.kore.K;
+import org.kframework.kprove.KProveOptions;
+import org.kframework.krun.KRunOptions;
+import org.kframework.krun.ioserver.filesystem.portable.PortableFileSystem;
+import org.kframework.main.GlobalOptions;
+import org.kframework.unparser.KPrint;
+import org.kframework.utils.BinaryLoader;
+import org.kframework.utils.errorsystem.KExceptionManager;
+import org.kframework.utils.file.FileUtil;
+import org.kframework.utils.options.OuterParsingOptions;
+import org.kframework.utils.options.SMTOptions;
+import org.kframework.utils.options.SMTSolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.kframework.kore.KORE.*;
+
+/**
+ * A definition checked in with the benchmarks, kompiled with the Java backend and initialized as krun would, once per
+ * JVM. The function cache is disabled and Z3 is not invoked, so that the benchmarks measure the same work on every
+ * invocation, independently of the solver installed.
+ */
+public class BenchmarkDefinition {
+
+    private static final Map<String, BenchmarkDefinition> definitions = new HashMap<>();
+
+    public final CompiledDefinition compiledDefinition;
+    public final Definition definition;
+    public final GlobalContext global;
+    public final TermContext termContext;
+    public final KOREtoBackendKIL converter;
+    private final FileUtil files;
+    private final KompileOptions kompileOptions;
+    private final KExceptionManager kem;
+
+    /**
+     * @param name the name of a definition in this package, without its .k extension.
+     */
+    public static synchronized BenchmarkDefinition get(String name) {
+        return definitions.computeIfAbsent(name, BenchmarkDefinition::new);
+    }
+
+    private BenchmarkDefinition(String name) {
+        GlobalOptions globalOptions = new GlobalOptions();
+        kem = new KExceptionManager(globalOptions);
+        try {
+            File root = Files.createTempDirectory("k-benchmark-" + name).toFile();
+            File tempDir = new File(root, "tmp");
+            tempDir.mkdirs();
+            File kompiledDir = new File(root, name + "-kompiled");
+            kompiledDir.mkdirs();
+            files = new FileUtil(tempDir, root, root, kompiledDir, globalOptions, System.getenv());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        files.saveToDefinitionDirectory(name + ".k", resource(name + ".k"));
+
+        kompileOptions = new KompileOptions();
+        kompileOptions.backend = Backends.JAVA;
+        kompileOptions.outerParsing = new OuterParsingOptions(files.resolveDefinitionDirectory(name + ".k"));
+        JavaBackend backend = new JavaBackend(kem, files, globalOptions, kompileOptions);
+        String mainModule = name.toUpperCase();
+        compiledDefinition = new Kompile(kompileOptions, files, kem, false).run(
+                files.resolveDefinitionDirectory(name + ".k"), mainModule, mainModule + "-SYNTAX",
+                backend.steps(), backend.excludedModuleTags());
+
+        JavaExecutionOptions javaExecutionOptions = new JavaExecutionOptions();
+        javaExecutionOptions.cacheFunctions = false;
+        SMTOptions smtOptions = new SMTOptions();
+        smtOptions.smt = SMTSolver.NONE;
+        KRunOptions krunOptions = new KRunOptions();
+        InitializeRewriter initializeRewriter = new InitializeRewriter(
+                new PortableFileSystem(kem, files, krunOptions),
+                globalOptions,
+                kem,
+                smtOptions,
+                krunOptions,
+                new KProveOptions(),
+                kompileOptions,
+                javaExecutionOptions,
+                files,
+                new InitializeRewriter.InitializeDefinition(),
+                new KPrint(compiledDefinition),
+                new Profiler2(javaExecutionOptions, System.nanoTime()),
+                new BinaryLoader(kem));
+        InitializeRewriter.SymbolicRewriterGlue rewriter = (InitializeRewriter.SymbolicRewriterGlue)
+                initializeRewriter.apply(compiledDefinition.getKompiledDefinition());
+        definition = rewriter.definition;
+        global = rewriter.rewritingContext;
+        global.setExecutionPhase(true);
+        termContext = TermContext.builder(global).freshCounter(0).build();
+        converter = new KOREtoBackendKIL(rewriter.module, definition, global, false);
+        termContext.setKOREtoBackendKILConverter(converter);
+    }
+
+    static String resource(String name) {
+        try {
+            return Resources.toString(Resources.getResource(BenchmarkDefinition.class, name), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the evaluated initial configuration of {@code program}, as built by krun.
+     */
+    public Term initialConfiguration(String program) {
+        K pgm = compiledDefinition.parseSingleTerm(
+                compiledDefinition.programParsingModuleFor(compiledDefinition.mainSyntaxModuleName(), kem).get(),
+                compiledDefinition.programStartSymbol, kem, program, Source.apply("benchmark"));
+        K config = KApply(compiledDefinition.topCellInitializer,
+                KApply(KLabel("_Map_"),
+                        KApply(KLabel(".Map")),
+                        KApply(KLabel("_|->_"), KToken("$PGM", Sorts.KConfigVar()), pgm)));
+        ExpandMacros macroExpander = ExpandMacros.forNonSentences(compiledDefinition.executionModule(), files,
+                kompileOptions, false);
+        return converter.convert(macroExpander.expand(new ResolveSemanticCasts(true).resolve(config)))
+                .evaluate(termContext);
+    }
+
+    public KLabelConstant label(String label) {
+        return KLabelConstant.of(KLabel(label), definition);
+    }
+
+    /**
+     * @return the unevaluated application of {@code label} to {@code arguments}.
+     */
+    public KItem apply(String label, Term... arguments) {
+        return KItem.of(label(label), KList.concatenate(arguments), global);
+    }
+}
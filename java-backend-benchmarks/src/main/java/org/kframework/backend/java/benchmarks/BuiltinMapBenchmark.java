@@ -0,0 +1,101 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.benchmarks;
+
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.kil.BuiltinMap;
+import org.kframework.backend.java.kil.Sort;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.symbolic.ConjunctiveFormula;
+import org.kframework.backend.java.symbolic.FastRuleMatcher;
+import org.kframework.backend.java.symbolic.Substitution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matches and unifies map patterns against a map of {@code size} entries, as done for cells holding maps.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xss64m", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class BuiltinMapBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private BenchmarkDefinition maps;
+    private Term concreteMap;
+    private Term framedMap;
+    private Term concreteKeyPattern;
+    private Term symbolicKeyPattern;
+    private Term framedPattern;
+
+    @Setup
+    public void setUp() {
+        maps = BenchmarkDefinition.get("maps");
+        BuiltinMap.Builder builder = BuiltinMap.builder(maps.global);
+        for (int i = 0; i < size; i++) {
+            builder.put(IntToken.of(i), IntToken.of(i * i));
+        }
+        concreteMap = builder.build();
+
+        builder = BuiltinMap.builder(maps.global);
+        for (int i = 0; i < size; i++) {
+            builder.put(IntToken.of(i), new Variable("V" + i, Sort.INT));
+        }
+        builder.concatenate(new Variable("M1", Sort.MAP));
+        framedMap = builder.build();
+
+        builder = BuiltinMap.builder(maps.global);
+        builder.put(IntToken.of(size / 2), new Variable("V", Sort.INT));
+        builder.concatenate(new Variable("M", Sort.MAP));
+        concreteKeyPattern = builder.build();
+
+        builder = BuiltinMap.builder(maps.global);
+        builder.put(new Variable("K", Sort.INT), IntToken.of((size / 2) * (size / 2)));
+        builder.concatenate(new Variable("M", Sort.MAP));
+        symbolicKeyPattern = builder.build();
+
+        builder = BuiltinMap.builder(maps.global);
+        for (int i = 0; i < size; i += 2) {
+            builder.put(IntToken.of(i), new Variable("W" + i, Sort.INT));
+        }
+        builder.concatenate(new Variable("M2", Sort.MAP));
+        framedPattern = builder.build();
+    }
+
+    @Benchmark
+    public List<Substitution<Variable, Term>> matchConcreteKey() {
+        return FastRuleMatcher.match(concreteMap, concreteKeyPattern, maps.termContext);
+    }
+
+    @Benchmark
+    public ConjunctiveFormula unifyConcreteKey() {
+        return FastRuleMatcher.unify(concreteMap, concreteKeyPattern, maps.termContext);
+    }
+
+    @Benchmark
+    public ConjunctiveFormula unifySymbolicKey() {
+        return FastRuleMatcher.unify(concreteMap, symbolicKeyPattern, maps.termContext);
+    }
+
+    @Benchmark
+    public ConjunctiveFormula unifyFrames() {
+        return FastRuleMatcher.unify(framedMap, framedPattern, maps.termContext);
+    }
+}
@@ -0,0 +1,72 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.benchmarks;
+
+import org.kframework.backend.java.kil.ConstrainedTerm;
+import org.kframework.backend.java.symbolic.FastRuleMatcher;
+import org.kframework.backend.java.symbolic.SymbolicRewriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matches the rules of IMP against each state of the execution of a loop, as one rewrite step does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xss64m", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class FastRuleMatcherBenchmark {
+
+    private static final int MAX_STATES = 500;
+
+    private BenchmarkDefinition imp;
+    private List<ConstrainedTerm> states;
+    private List<String> transitions;
+    private FastRuleMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        imp = BenchmarkDefinition.get("imp");
+        transitions = imp.compiledDefinition.kompileOptions.transition;
+        SymbolicRewriter rewriter = new SymbolicRewriter(imp.global, transitions, imp.converter);
+        states = new ArrayList<>();
+        ConstrainedTerm state = new ConstrainedTerm(
+                imp.initialConfiguration(BenchmarkDefinition.resource("sum.imp")), imp.termContext);
+        while (state != null && states.size() < MAX_STATES) {
+            states.add(state);
+            List<ConstrainedTerm> results = rewriter.fastComputeRewriteStep(state, true, false, false,
+                    states.size(), state);
+            state = results.isEmpty() ? null : results.get(0);
+        }
+        matcher = new FastRuleMatcher(imp.global);
+    }
+
+    @Benchmark
+    public void matchRulePattern(Blackhole blackhole) {
+        for (int i = 0; i < states.size(); i++) {
+            blackhole.consume(matcher.matchRulePattern(states.get(i), false, true, transitions, false,
+                    imp.termContext, i));
+        }
+    }
+
+    @Benchmark
+    public void matchWithAutomaton(Blackhole blackhole) {
+        for (ConstrainedTerm state : states) {
+            blackhole.consume(matcher.matchWithAutomaton(state, imp.definition.mainAutomaton()));
+        }
+    }
+}
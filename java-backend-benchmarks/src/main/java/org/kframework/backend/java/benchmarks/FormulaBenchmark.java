@@ -0,0 +1,80 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.benchmarks;
+
+import org.kframework.backend.java.builtins.BoolToken;
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.kil.Sort;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.symbolic.ConjunctiveFormula;
+import org.kframework.backend.java.symbolic.KILtoSMTLib;
+import org.kframework.backend.java.util.FormulaContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simplifies integer constraints and checks implications between them, as done for the path conditions of proofs.
+ * The left-hand side binds {@code Y_i = X_i +Int 1} under {@code X_i >Int i}, and the right-hand side requires
+ * {@code Y_i >Int i}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xss64m", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class FormulaBenchmark {
+
+    @Param({"5", "50"})
+    public int size;
+
+    private BenchmarkDefinition imp;
+    private ConjunctiveFormula left;
+    private ConjunctiveFormula right;
+    private ConjunctiveFormula unsimplified;
+
+    @Setup
+    public void setUp() {
+        imp = BenchmarkDefinition.get("imp");
+        left = ConjunctiveFormula.of(imp.global);
+        right = ConjunctiveFormula.of(imp.global);
+        unsimplified = ConjunctiveFormula.of(imp.global);
+        for (int i = 0; i < size; i++) {
+            Variable x = new Variable("X" + i, Sort.INT);
+            Variable y = new Variable("Y" + i, Sort.INT);
+            left = left.add(imp.apply("_>Int_", x, IntToken.of(i)), BoolToken.TRUE)
+                    .add(y, imp.apply("_+Int_", x, IntToken.of(1)));
+            right = right.add(imp.apply("_>Int_", y, IntToken.of(i)), BoolToken.TRUE);
+            unsimplified = unsimplified
+                    .add(imp.apply("_+Int_", x, IntToken.of(1)), imp.apply("_+Int_", IntToken.of(1), y))
+                    .add(imp.apply("_==Int_", x, IntToken.of(i)), BoolToken.TRUE);
+        }
+    }
+
+    @Benchmark
+    public ConjunctiveFormula simplify() {
+        return unsimplified.simplify(imp.termContext);
+    }
+
+    @Benchmark
+    public boolean implies() {
+        return left.implies(right, Collections.emptySet(),
+                new FormulaContext(FormulaContext.Kind.EquivImplication, null, imp.global));
+    }
+
+    @Benchmark
+    public CharSequence translateImplication() {
+        return KILtoSMTLib.translateImplication(left, right, Collections.emptySet());
+    }
+}
@@ -0,0 +1,78 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.benchmarks;
+
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.kil.BuiltinList;
+import org.kframework.backend.java.kil.Term;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates recursive functions over maps and lists with {@code KItem.resolveFunctionAndAnywhere}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xss64m", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class FunctionEvaluationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private BenchmarkDefinition maps;
+    private BenchmarkDefinition lists;
+    private Term map;
+    private Term list;
+
+    @Setup
+    public void setUp() {
+        maps = BenchmarkDefinition.get("maps");
+        lists = BenchmarkDefinition.get("lists");
+        map = maps.apply("fill", IntToken.of(size)).resolveFunctionAndAnywhere(maps.termContext);
+        list = lists.apply("range", IntToken.of(size)).resolveFunctionAndAnywhere(lists.termContext);
+    }
+
+    @Benchmark
+    public Term fillMap() {
+        return maps.apply("fill", IntToken.of(size)).resolveFunctionAndAnywhere(maps.termContext);
+    }
+
+    @Benchmark
+    public Term sumMap() {
+        return maps.apply("sumMap", map, IntToken.of(size)).resolveFunctionAndAnywhere(maps.termContext);
+    }
+
+    @Benchmark
+    public Term incrementMap() {
+        return maps.apply("incrementAll", map, IntToken.of(size)).resolveFunctionAndAnywhere(maps.termContext);
+    }
+
+    @Benchmark
+    public Term rangeList() {
+        return lists.apply("range", IntToken.of(size)).resolveFunctionAndAnywhere(lists.termContext);
+    }
+
+    @Benchmark
+    public Term sumList() {
+        return lists.apply("sumList", list).resolveFunctionAndAnywhere(lists.termContext);
+    }
+
+    @Benchmark
+    public Term reverseList() {
+        return lists.apply("reverse", list, BuiltinList.builder(lists.global).build())
+                .resolveFunctionAndAnywhere(lists.termContext);
+    }
+}
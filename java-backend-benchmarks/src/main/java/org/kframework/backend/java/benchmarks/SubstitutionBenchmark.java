@@ -0,0 +1,76 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.benchmarks;
+
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.kil.BuiltinList;
+import org.kframework.backend.java.kil.Sort;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.Variable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies substitutions to a list of {@code size} elements {@code pair(X_i, X_i +Int Y_i)}, as done when building
+ * the right-hand sides of rules. The partial substitution only binds the {@code X_i}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xss64m", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class SubstitutionBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private BenchmarkDefinition lists;
+    private Term term;
+    private Map<Variable, Term> substitution;
+    private Map<Variable, Term> partialSubstitution;
+
+    @Setup
+    public void setUp() {
+        lists = BenchmarkDefinition.get("lists");
+        BuiltinList.Builder builder = BuiltinList.builder(lists.global);
+        substitution = new HashMap<>();
+        partialSubstitution = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Variable x = new Variable("X" + i, Sort.INT);
+            Variable y = new Variable("Y" + i, Sort.INT);
+            builder.add(lists.apply("pair", x, lists.apply("_+Int_", x, y)));
+            substitution.put(x, IntToken.of(i));
+            substitution.put(y, IntToken.of(2 * i));
+            partialSubstitution.put(x, IntToken.of(i));
+        }
+        term = builder.build();
+    }
+
+    @Benchmark
+    public Term substitute() {
+        return term.substitute(substitution);
+    }
+
+    @Benchmark
+    public Term substitutePartially() {
+        return term.substitute(partialSubstitution);
+    }
+
+    @Benchmark
+    public Term substituteAndEvaluate() {
+        return term.substituteAndEvaluate(substitution, lists.termContext);
+    }
+}
@@ -5,34 +5,42 @@ import com.google.common.collect.ImmutableList;
 import org.kframework.backend.java.symbolic.Transformer;
 import org.kframework.backend.java.symbolic.Visitor;
 import org.kframework.backend.java.util.Constants;
+import org.kframework.backend.java.util.PersistentVector;
 import org.kframework.builtin.KLabels;
 import org.kframework.backend.java.utils.BitSet;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 
 /**
  * Class representing an associative list.
+ * <p>
+ * The children are held in a {@link PersistentVector}, so that concatenating, slicing and updating lists shares
+ * structure with the original lists instead of copying them.
  */
 public class BuiltinList extends Collection implements CollectionInternalRepresentation {
 
     /**
      * Flattened list of children.
      */
-    public final ImmutableList<Term> children;
+    public final PersistentVector<Term> children;
     public final Sort sort;
     public final KLabelConstant operatorKLabel;
     public final KLabelConstant unitKLabel;
     private final GlobalContext global;
 
-    private final ElementTailSplit elementTailSplits[];
+    /**
+     * Allocated on the first call to {@link #splitElementTail}, which only happens for rule patterns.
+     */
+    private transient ElementTailSplit elementTailSplits[];
 
     /**
      * Private constructor used by {@link BuiltinList.Builder}.
      */
     private BuiltinList(
-            ImmutableList<Term> children,
+            PersistentVector<Term> children,
             Sort sort,
             KLabelConstant operatorKLabel,
             KLabelConstant unitKLabel,
@@ -43,8 +51,6 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
         this.operatorKLabel = operatorKLabel;
         this.unitKLabel = unitKLabel;
         this.global = global;
-
-        elementTailSplits = new ElementTailSplit[children.size()];
     }
 
     /**
@@ -76,6 +82,9 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
      * Returns the element component and the tail component of the list child on position index.
      */
     public ElementTailSplit splitElementTail(int index, int bitSetLength) {
+        if (elementTailSplits == null) {
+            elementTailSplits = new ElementTailSplit[children.size()];
+        }
         if (elementTailSplits[index] == null) {
             BitSet emptyListMask = BitSet.apply(bitSetLength);
             emptyListMask.makeOnes(bitSetLength);
@@ -164,7 +173,7 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
 
     public Term range(int beginIndex, int endIndex) {
         return BuiltinList.builder(sort, operatorKLabel, unitKLabel, global)
-                .addAll(children.subList(beginIndex, endIndex))
+                .addFlattened(children.subList(beginIndex, endIndex))
                 .build();
     }
 
@@ -298,7 +307,11 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
 
     public static class Builder {
 
-        private final ImmutableList.Builder<Term> childrenBuilder = new ImmutableList.Builder<>();
+        private PersistentVector<Term> children = PersistentVector.empty();
+        /**
+         * Elements added since the last concatenation of a list, appended to {@code children} as one chunk.
+         */
+        private final List<Term> pendingChildren = new ArrayList<>();
         private final Sort sort;
         private final KLabelConstant operatorKLabel;
         private final KLabelConstant unitKLabel;
@@ -315,15 +328,31 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
             if (term instanceof BuiltinList && sort.equals(term.sort())
                     && operatorKLabel.equals(((BuiltinList) term).operatorKLabel)
                     && unitKLabel.equals(((BuiltinList) term).unitKLabel)) {
-                return addAll(((BuiltinList) term).children);
+                return addFlattened(((BuiltinList) term).children);
             } else {
                 //assert global.getDefinition().subsorts().isSubsortedEq(sort, term.sort()) :
                 //        "unexpected term: " + term + " of sort " + term.sort() + " added to list of sort " + sort;
-                childrenBuilder.add(term);
+                pendingChildren.add(term);
                 return this;
             }
         }
 
+        /**
+         * Appends the children of a list, which are already flattened, without copying them.
+         */
+        private Builder addFlattened(PersistentVector<Term> terms) {
+            flushPendingChildren();
+            children = children.concat(terms);
+            return this;
+        }
+
+        private void flushPendingChildren() {
+            if (!pendingChildren.isEmpty()) {
+                children = children.concat(PersistentVector.copyOf(pendingChildren));
+                pendingChildren.clear();
+            }
+        }
+
         public Builder addAll(List<Term> terms) {
             terms.forEach(this::add);
             return this;
@@ -337,8 +366,9 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
         }
 
         public Term build() {
+            flushPendingChildren();
             BuiltinList builtinList = new BuiltinList(
-                    childrenBuilder.build(),
+                    children,
                     sort,
                     operatorKLabel,
                     unitKLabel,
@@ -362,7 +392,7 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
      */
     public static class SingletonBuiltinList extends BuiltinList {
         private SingletonBuiltinList(Term child, GlobalContext global, Sort sort, KLabelConstant operatorKLabel, KLabelConstant unitKLabel) {
-            super(ImmutableList.of(child), sort, operatorKLabel, unitKLabel, global);
+            super(PersistentVector.of(child), sort, operatorKLabel, unitKLabel, global);
         }
     }
 
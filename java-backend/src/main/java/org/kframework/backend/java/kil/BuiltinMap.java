@@ -4,17 +4,16 @@ package org.kframework.backend.java.kil;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.Lists;
-import org.apache.commons.collections4.map.UnmodifiableMap;
 import org.apache.commons.lang3.tuple.Triple;
 import org.kframework.backend.java.symbolic.Transformer;
 import org.kframework.backend.java.symbolic.Visitor;
 import org.kframework.backend.java.util.Constants;
+import org.kframework.backend.java.util.PersistentHashMap;
 import org.kframework.builtin.KLabels;
 import org.kframework.utils.errorsystem.KEMException;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -22,18 +21,21 @@ import java.util.stream.Collectors;
 
 /**
  * Class representing a map.
+ * <p>
+ * The entries are held in a {@link PersistentHashMap}, so that updating a map shares structure with the original one
+ * instead of copying all its entries.
  *
  * @author AndreiS
  */
 public class BuiltinMap extends AssociativeCommutativeCollection {
 
-    private final UnmodifiableMap<Term, Term> entries;
+    private final PersistentHashMap<Term, Term> entries;
 
     /**
      * Private efficient constructor used by {@link BuiltinMap.Builder}.
      */
     private BuiltinMap(
-            UnmodifiableMap<Term, Term> entries,
+            PersistentHashMap<Term, Term> entries,
             ImmutableMultiset<KItem> collectionPatterns,
             ImmutableMultiset<Term> collectionFunctions,
             ImmutableMultiset<Variable> collectionVariables,
@@ -63,7 +65,7 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
         return entries.get(key);
     }
 
-    public UnmodifiableMap<Term, Term> getEntries() {
+    public Map<Term, Term> getEntries() {
         return entries;
     }
 
@@ -168,7 +170,7 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
 
     public static class Builder {
 
-        private final Map<Term, Term> entries = new HashMap<>();
+        private PersistentHashMap<Term, Term> entries = PersistentHashMap.empty();
         private final ImmutableMultiset.Builder<KItem> patternsBuilder = new ImmutableMultiset.Builder<>();
         private final ImmutableMultiset.Builder<Term> functionsBuilder = new ImmutableMultiset.Builder<>();
         private final ImmutableMultiset.Builder<Variable> variablesBuilder = new ImmutableMultiset.Builder<>();
@@ -179,7 +181,7 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
         }
 
         public void put(Term key, Term value) {
-            entries.put(key, value);
+            entries = entries.plus(key, value);
         }
 
         /**
@@ -187,15 +189,17 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
          * built.
          */
         public void putAll(Map<? extends Term, ? extends Term> map) {
-            entries.putAll(map);
+            entries = entries.plusAll(map);
         }
 
         public Term remove(Term key) {
-            return entries.remove(key);
+            Term value = entries.get(key);
+            entries = entries.minus(key);
+            return value;
         }
 
         public Map<Term, Term> getEntries() {
-            return UnmodifiableMap.unmodifiableMap(entries);
+            return entries;
         }
 
         private void concatenate(Term term, boolean update) {
@@ -208,13 +212,13 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
             if (term instanceof BuiltinMap) {
                 BuiltinMap map = (BuiltinMap) term;
 
-                if (!update && entries.keySet().stream().anyMatch(key -> map.entries.containsKey(key) && !entries.get(key).equals(map.entries.get(key)))) {
+                if (!update && hasClashingKeys(entries, map.entries)) {
                     List<Triple<Term, Term, Term>> clashingKeys = entries.keySet().stream().filter(map.entries::containsKey).map(k -> Triple.of(k, entries.get(k), map.entries.get(k))).collect(Collectors.toList());
                     throw KEMException.criticalError("failed to concatenate maps with common keys: "
                             + clashingKeys);
                 }
 
-                entries.putAll(map.entries);
+                entries = entries.plusAll(map.entries);
                 patternsBuilder.addAll(map.collectionPatterns);
                 functionsBuilder.addAll(map.collectionFunctions);
                 variablesBuilder.addAll(map.collectionVariables);
@@ -229,6 +233,16 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
             }
         }
 
+        private static boolean hasClashingKeys(Map<Term, Term> entries, Map<Term, Term> otherEntries) {
+            if (entries.size() > otherEntries.size()) {
+                return hasClashingKeys(otherEntries, entries);
+            }
+            return entries.entrySet().stream().anyMatch(entry -> {
+                Term otherValue = otherEntries.get(entry.getKey());
+                return otherValue != null && !entry.getValue().equals(otherValue);
+            });
+        }
+
         /**
          * Concatenates terms of sort Map to this builder.
          */
@@ -257,12 +271,8 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
         }
 
         public Term build() {
-            // YilongL: Guava's ImmutableMap.copyOf(entries) is not smart enough
-            // to avoid actually copying the entries, because entries is not an
-            // ImmutableMap yet; using Apache's decorate method because it would
-            // avoid creating nesting wrappers
             BuiltinMap builtinMap = new BuiltinMap(
-                    (UnmodifiableMap<Term, Term>) UnmodifiableMap.unmodifiableMap(entries),
+                    entries,
                     patternsBuilder.build(),
                     functionsBuilder.build(),
                     variablesBuilder.build(),
@@ -3,31 +3,33 @@ package org.kframework.backend.java.kil;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMultiset;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import org.kframework.backend.java.symbolic.Transformer;
 import org.kframework.backend.java.symbolic.Visitor;
 import org.kframework.backend.java.util.Constants;
+import org.kframework.backend.java.util.PersistentHashSet;
 import org.kframework.utils.errorsystem.KEMException;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 
 /**
  * Class representing a set.
+ * <p>
+ * The elements are held in a {@link PersistentHashSet}, so that updating a set shares structure with the original one
+ * instead of copying all its elements.
  *
  * @author AndreiS
  */
 public class BuiltinSet extends AssociativeCommutativeCollection {
 
-    private final ImmutableSet<Term> elements;
+    private final PersistentHashSet<Term> elements;
 
     private BuiltinSet(
-            ImmutableSet<Term> elements,
+            PersistentHashSet<Term> elements,
             ImmutableMultiset<KItem> collectionPatterns,
             ImmutableMultiset<Term> collectionFunctions,
             ImmutableMultiset<Variable> collectionVariables,
@@ -156,7 +158,7 @@ public class BuiltinSet extends AssociativeCommutativeCollection {
 
     public static class Builder {
 
-        private final Set<Term> elements = new HashSet<>();
+        private PersistentHashSet<Term> elements = PersistentHashSet.empty();
         private final ImmutableMultiset.Builder<KItem> patternsBuilder = new ImmutableMultiset.Builder<>();
         private final ImmutableMultiset.Builder<Term> functionsBuilder = new ImmutableMultiset.Builder<>();
         private final ImmutableMultiset.Builder<Variable> variablesBuilder = new ImmutableMultiset.Builder<>();
@@ -167,16 +169,22 @@ public class BuiltinSet extends AssociativeCommutativeCollection {
         }
 
         public boolean add(Term element) {
-            return elements.add(element);
+            PersistentHashSet<Term> oldElements = elements;
+            elements = elements.plus(element);
+            return elements != oldElements;
         }
 
         public <T extends Term> boolean addAll(Collection<T> elements) {
             // elements refers to the one in the outer class
-            return this.elements.addAll(elements);
+            PersistentHashSet<Term> oldElements = this.elements;
+            this.elements = this.elements.plusAll(elements);
+            return this.elements != oldElements;
         }
 
         public boolean remove(Term element) {
-            return elements.remove(element);
+            PersistentHashSet<Term> oldElements = elements;
+            elements = elements.minus(element);
+            return elements != oldElements;
         }
 
         /**
@@ -192,7 +200,7 @@ public class BuiltinSet extends AssociativeCommutativeCollection {
 
                 if (term instanceof BuiltinSet) {
                     BuiltinSet set = (BuiltinSet) term;
-                    elements.addAll(set.elements);
+                    elements = elements.plusAll(set.elements);
                     patternsBuilder.addAll(set.collectionPatterns);
                     functionsBuilder.addAll(set.collectionFunctions);
                     variablesBuilder.addAll(set.collectionVariables);
@@ -210,7 +218,7 @@ public class BuiltinSet extends AssociativeCommutativeCollection {
 
         public Term build() {
             BuiltinSet builtinSet = new BuiltinSet(
-                    ImmutableSet.copyOf(elements),
+                    elements,
                     patternsBuilder.build(),
                     functionsBuilder.build(),
                     variablesBuilder.build(),
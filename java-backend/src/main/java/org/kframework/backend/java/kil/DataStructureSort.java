@@ -4,9 +4,10 @@ package org.kframework.backend.java.kil;
 import org.kframework.kore.KLabel;
 import org.kframework.kore.Sort;
 
+import java.io.Serializable;
 import java.util.HashMap;
 
-public class DataStructureSort {
+public class DataStructureSort implements Serializable {
     private final KLabel klabel;
     private final KLabel element;
     private final KLabel unit;
@@ -13,6 +13,8 @@ import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import org.kframework.attributes.Att;
 import org.kframework.backend.java.compile.KOREtoBackendKIL;
+import org.kframework.backend.java.rewritemachine.CompiledRHS;
+import org.kframework.backend.java.symbolic.BottomUpVisitor;
 import org.kframework.backend.java.symbolic.JavaBackend;
 import org.kframework.backend.java.symbolic.Transformer;
 import org.kframework.backend.java.symbolic.Visitor;
@@ -40,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
@@ -90,6 +93,14 @@ public class Definition extends JavaSymbolicObject {
     private final Multimap<KLabelConstant, Rule> anywhereRules = ArrayListMultimap.create();
     private final Multimap<KLabelConstant, Rule> patternRules = ArrayListMultimap.create();
     private final List<Rule> patternFoldingRules = new ArrayList<>();
+    /**
+     * the indices of {@link #functionRules}, built lazily at the first evaluation of each function
+     */
+    private transient Map<KLabelConstant, FunctionRuleIndex> functionRuleIndices;
+    /**
+     * the compiled right-hand sides of the rewrites in {@link #automatons}, built when the automatons are added
+     */
+    private transient Map<Term, CompiledRHS> compiledRHSs;
 
     private final Set<KLabelConstant> kLabels = new LinkedHashSet<>();
     private final Set<KLabelConstant> kLabelsPublic = Collections.unmodifiableSet(kLabels);
@@ -110,7 +121,7 @@ public class Definition extends JavaSymbolicObject {
 
     public final Map<Integer, Integer> reverseRuleTable = new HashMap<>();
 
-    private final Map<KItem.CacheTableColKey, KItem.CacheTableValue> sortCacheTable = new HashMap<>();
+    private transient Map<KItem.CacheTableColKey, KItem.CacheTableValue> sortCacheTable;
 
     public Definition(org.kframework.definition.Module module, KExceptionManager kem) {
         this.kem = kem;
@@ -262,6 +273,16 @@ public class Definition extends JavaSymbolicObject {
     public void addKoreAutomaton(org.kframework.definition.RuleOrClaim rule, KOREtoBackendKIL transformer, Module module) {
         Rule convertedRule = transformer.convert(module, rule);
         automatons.put(getFirstContainedAttribute(convertedRule, automatonAttributes), convertedRule);
+        convertedRule.leftHandSide().accept(new BottomUpVisitor() {
+            @Override
+            public void visit(InnerRHSRewrite innerRHSRewrite) {
+                for (Term rhs : innerRHSRewrite.theRHS) {
+                    if (rhs != null) {
+                        compiledRHS(rhs);
+                    }
+                }
+            }
+        });
     }
 
     public boolean containsAnyAttribute(org.kframework.definition.RuleOrClaim rule, Set<String> attributeNames) {
@@ -295,6 +316,7 @@ public class Definition extends JavaSymbolicObject {
     public void addRule(Rule rule) {
         if (rule.isFunction()) {
             functionRules.put(rule.definedKLabel(), rule);
+            functionRuleIndices().remove(rule.definedKLabel());
             if (rule.isSortPredicate()) {
                 sortPredicateRules.put((KLabelConstant) rule.sortPredicateArgument().kLabel(), rule);
             }
@@ -344,6 +366,36 @@ public class Definition extends JavaSymbolicObject {
         return functionRules;
     }
 
+    /**
+     * @return the index used to select the rules of {@link #functionRules()} that may apply to a call of
+     * {@code kLabel}.
+     */
+    public FunctionRuleIndex functionRuleIndex(KLabelConstant kLabel) {
+        return functionRuleIndices().computeIfAbsent(kLabel, l -> new FunctionRuleIndex(functionRules.get(l)));
+    }
+
+    private synchronized Map<KLabelConstant, FunctionRuleIndex> functionRuleIndices() {
+        if (functionRuleIndices == null) {
+            functionRuleIndices = new ConcurrentHashMap<>();
+        }
+        return functionRuleIndices;
+    }
+
+    /**
+     * Returns the compiled form of the right-hand side {@code rhs} of a rewrite, compiling it if it is not in the
+     * automatons added to this definition.
+     */
+    public CompiledRHS compiledRHS(Term rhs) {
+        return compiledRHSs().computeIfAbsent(rhs, CompiledRHS::compile);
+    }
+
+    private synchronized Map<Term, CompiledRHS> compiledRHSs() {
+        if (compiledRHSs == null) {
+            compiledRHSs = new ConcurrentHashMap<>();
+        }
+        return compiledRHSs;
+    }
+
     public Multimap<KLabelConstant, Rule> anywhereRules() {
         return anywhereRules;
     }
@@ -390,15 +442,24 @@ public class Definition extends JavaSymbolicObject {
     }
 
     public KItem.CacheTableValue getSortCacheValue(KItem.CacheTableColKey key) {
-        synchronized (sortCacheTable) {
-            return sortCacheTable.get(key);
+        Map<KItem.CacheTableColKey, KItem.CacheTableValue> table = sortCacheTable();
+        synchronized (table) {
+            return table.get(key);
         }
     }
 
     public void putSortCacheValue(KItem.CacheTableColKey key, KItem.CacheTableValue value) {
-        synchronized (sortCacheTable) {
-            sortCacheTable.put(key, value);
+        Map<KItem.CacheTableColKey, KItem.CacheTableValue> table = sortCacheTable();
+        synchronized (table) {
+            table.put(key, value);
+        }
+    }
+
+    private synchronized Map<KItem.CacheTableColKey, KItem.CacheTableValue> sortCacheTable() {
+        if (sortCacheTable == null) {
+            sortCacheTable = new HashMap<>();
         }
+        return sortCacheTable;
     }
 
     // added from context
@@ -1,27 +1,161 @@
 package org.kframework.backend.java.kil;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
 import org.kframework.backend.java.symbolic.ConjunctiveFormula;
+import org.kframework.backend.java.util.BoundedCache;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
+ * Results of function evaluations, keyed by the evaluated term and the constraint it was evaluated under, or null
+ * for ground terms.
+ * <p>
+ * By default the cache is unbounded, and results under a non-null constraint are stored in one row per evaluated
+ * term, which {@link Term} keeps a pointer to. With a maximum size or soft references, results are stored in a
+ * {@link BoundedCache} instead, whose size bound applies to the number of (term, constraint) entries. Terms then keep
+ * no pointers, which would keep evicted or reclaimed results reachable.
+ * <p>
+ * The counts of entries, hits and misses can be read from other threads than the ones using the cache, e.g. by the
+ * metrics exporter.
+ *
  * @author Denis Bogdanas
  * Created on 29-Jan-19.
  */
 public class FunctionCache {
 
-    final Table<JavaSymbolicObject<?>, ConjunctiveFormula, Term> evaluationCache = HashBasedTable.create();
-    final Map<JavaSymbolicObject<?>, Term> nullConstraintEvalCache = new HashMap<>();
+    private static final class Key {
+        private final JavaSymbolicObject<?> term;
+        private final ConjunctiveFormula constraint;
+        private final int hashCode;
+
+        private Key(JavaSymbolicObject<?> term, ConjunctiveFormula constraint) {
+            this.term = term;
+            this.constraint = constraint;
+            this.hashCode = term.hashCode() * 31 + Objects.hashCode(constraint);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return hashCode == key.hashCode && term.equals(key.term) && Objects.equals(constraint, key.constraint);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private final boolean concurrent;
+    /**
+     * null if the cache is unbounded
+     */
+    private final BoundedCache<Key, Term> boundedCache;
+    final Map<JavaSymbolicObject<?>, Map<ConjunctiveFormula, Term>> evaluationCache;
+    final Map<JavaSymbolicObject<?>, Term> nullConstraintEvalCache;
+
+    /**
+     * Number of entries in the unbounded maps, kept apart so that reading it does not iterate them.
+     */
+    private final AtomicInteger entries = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public FunctionCache() {
+        this(0, false, false);
+    }
+
+    /**
+     * @param maxSize    Maximum number of entries in the cache, 0 if unbounded.
+     * @param concurrent Whether the cache is shared between threads, e.g. when proving claims in parallel.
+     */
+    public FunctionCache(int maxSize, boolean softValues, boolean concurrent) {
+        this.concurrent = concurrent;
+        boundedCache = maxSize > 0 || softValues ? new BoundedCache<>(maxSize, softValues, concurrent) : null;
+        evaluationCache = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        nullConstraintEvalCache = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+    }
+
+    /**
+     * @return true if results are stored in a {@link BoundedCache}, so terms must not keep pointers to them.
+     */
+    boolean isBounded() {
+        return boundedCache != null;
+    }
+
+    /**
+     * @return the result of evaluating {@code term} under {@code constraint}, or null if it is not cached.
+     */
+    Term get(JavaSymbolicObject<?> term, ConjunctiveFormula constraint) {
+        return boundedCache.get(new Key(term, constraint));
+    }
+
+    void put(JavaSymbolicObject<?> term, ConjunctiveFormula constraint, Term result) {
+        boundedCache.put(new Key(term, constraint), result);
+    }
+
+    /**
+     * @return the cached row of evaluation results for {@code term}, or null if there is none.
+     */
+    Map<ConjunctiveFormula, Term> getRow(JavaSymbolicObject<?> term) {
+        return evaluationCache.get(term);
+    }
+
+    Map<ConjunctiveFormula, Term> getOrCreateRow(JavaSymbolicObject<?> term) {
+        return evaluationCache.computeIfAbsent(term, t -> concurrent ? new ConcurrentHashMap<>() : new HashMap<>());
+    }
+
+    void putNullConstraintResult(JavaSymbolicObject<?> term, Term result) {
+        if (nullConstraintEvalCache.put(term, result) == null) {
+            entries.incrementAndGet();
+        }
+    }
+
+    void putInRow(Map<ConjunctiveFormula, Term> row, ConjunctiveFormula constraint, Term result) {
+        if (row.put(constraint, result) == null) {
+            entries.incrementAndGet();
+        }
+    }
+
+    void recordLookup(boolean hit) {
+        if (hit) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+    }
 
     public void clear() {
+        if (boundedCache != null) {
+            boundedCache.clear();
+        }
         evaluationCache.clear();
         nullConstraintEvalCache.clear();
+        entries.set(0);
     }
 
     public int size() {
-        return evaluationCache.size() + nullConstraintEvalCache.size();
+        if (boundedCache != null) {
+            return boundedCache.size();
+        }
+        return entries.get();
+    }
+
+    public long hits() {
+        return boundedCache != null ? boundedCache.hits() : hits.sum();
+    }
+
+    public long misses() {
+        return boundedCache != null ? boundedCache.misses() : misses.sum();
+    }
+
+    public long evictions() {
+        return boundedCache != null ? boundedCache.evictions() : 0;
     }
 }
@@ -0,0 +1,132 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.kil;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the function rules of one {@link KLabelConstant}, used to select the candidate rules for a function call
+ * without running the pattern matcher on every rule.
+ * <p>
+ * For each argument position, a rule is either indexed by the head of its left-hand side argument at that position,
+ * when the argument is a token or a {@link KItem} whose label is a constructor, or is a wildcard otherwise. A call
+ * argument that is a token or a constructor {@link KItem} can then only be matched by the wildcard rules and the rules
+ * indexed by the same head. Any other call argument (variables, unevaluated functions, collections) selects all rules.
+ * <p>
+ * Candidates are returned in the order of {@link Definition#functionRules()}, so that the first-match semantics,
+ * {@code [owise]} and {@code [concrete]} rules are handled exactly as without the index.
+ */
+public final class FunctionRuleIndex {
+
+    private final List<Rule> rules;
+    private final int arity;
+    /**
+     * Positions having at least one rule indexed by a head.
+     */
+    private final int[] indexedPositions;
+    private final List<Map<Object, BitSet>> rulesByHead = new ArrayList<>();
+    private final List<BitSet> wildcardRules = new ArrayList<>();
+
+    FunctionRuleIndex(Collection<Rule> rules) {
+        this.rules = new ArrayList<>(rules);
+        this.arity = commonArity(this.rules);
+
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < arity; i++) {
+            Map<Object, BitSet> byHead = new HashMap<>();
+            BitSet wildcards = new BitSet(this.rules.size());
+            for (int r = 0; r < this.rules.size(); r++) {
+                Object head = head(arguments(this.rules.get(r).leftHandSide()).get(i));
+                if (head == null) {
+                    wildcards.set(r);
+                } else {
+                    byHead.computeIfAbsent(head, h -> new BitSet(this.rules.size())).set(r);
+                }
+            }
+            rulesByHead.add(byHead);
+            wildcardRules.add(wildcards);
+            if (!byHead.isEmpty()) {
+                positions.add(i);
+            }
+        }
+        indexedPositions = positions.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * @return the rules that may match a call with the given arguments, in definition order.
+     */
+    public List<Rule> candidates(KList kList) {
+        List<Term> args = kList.getContents();
+        if (indexedPositions.length == 0 || args.size() != arity) {
+            return rules;
+        }
+        BitSet candidates = null;
+        for (int i : indexedPositions) {
+            Object head = head(args.get(i));
+            if (head == null) {
+                continue;
+            }
+            BitSet matching = (BitSet) wildcardRules.get(i).clone();
+            BitSet byHead = rulesByHead.get(i).get(head);
+            if (byHead != null) {
+                matching.or(byHead);
+            }
+            if (candidates == null) {
+                candidates = matching;
+            } else {
+                candidates.and(matching);
+            }
+        }
+        if (candidates == null) {
+            return rules;
+        }
+        List<Rule> result = new ArrayList<>(candidates.cardinality());
+        for (int r = candidates.nextSetBit(0); r >= 0; r = candidates.nextSetBit(r + 1)) {
+            result.add(rules.get(r));
+        }
+        return result;
+    }
+
+    /**
+     * @return the common number of arguments of the left-hand sides of {@code rules}, or 0 if they differ or cannot
+     * be determined, in which case no position is indexed.
+     */
+    private static int commonArity(List<Rule> rules) {
+        int arity = -1;
+        for (Rule rule : rules) {
+            List<Term> args = arguments(rule.leftHandSide());
+            if (args == null || (arity != -1 && arity != args.size())) {
+                return 0;
+            }
+            arity = args.size();
+        }
+        return Math.max(arity, 0);
+    }
+
+    private static List<Term> arguments(Term leftHandSide) {
+        if (leftHandSide instanceof KItem && ((KItem) leftHandSide).kList() instanceof KList) {
+            return ((KList) ((KItem) leftHandSide).kList()).getContents();
+        }
+        return null;
+    }
+
+    /**
+     * @return the head symbol of {@code term} if it can only be matched by a pattern with the same head, or null.
+     */
+    private static Object head(Term term) {
+        if (term instanceof Token) {
+            return term;
+        }
+        if (term instanceof KItem && ((KItem) term).kLabel() instanceof KLabelConstant) {
+            KLabelConstant kLabel = (KLabelConstant) ((KItem) term).kLabel();
+            if (kLabel.isConstructor() && !kLabel.isPattern()) {
+                return kLabel;
+            }
+        }
+        return null;
+    }
+}
@@ -2,6 +2,8 @@
 
 package org.kframework.backend.java.kil;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import org.kframework.backend.java.kil.KItem.KItemOperations;
 import org.kframework.backend.java.symbolic.BuiltinFunction;
 import org.kframework.backend.java.symbolic.Equality.EqualityOperations;
@@ -24,12 +26,15 @@ import org.kframework.utils.errorsystem.KExceptionManager;
 import org.kframework.utils.file.FileUtil;
 import org.kframework.utils.options.SMTOptions;
 
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.lang.invoke.MethodHandle;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.Formatter;
 import java.util.Map;
+import java.util.function.Supplier;
 
 public class GlobalContext implements Serializable {
     private Definition def;
@@ -48,9 +53,13 @@ public class GlobalContext implements Serializable {
     public final transient Profiler2 profiler;
     public final StateLog stateLog;
     public final PrettyPrinter prettyPrinter;
-    public final transient FunctionCache functionCache = new FunctionCache();
-    public final transient FormulaSimplificationCache formulaCache = new FormulaSimplificationCache();
-    public final transient ToStringCache toStringCache = new ToStringCache();
+    public final transient FunctionCache functionCache;
+    public final transient FormulaSimplificationCache formulaCache;
+    public final transient ToStringCache toStringCache;
+    /**
+     * Table of hash-consed ground {@link KItem}s, or null if --hash-cons-terms is disabled.
+     */
+    public final transient Interner<KItem> kItemInterner;
 
     private boolean isExecutionPhase = true;
 
@@ -80,6 +89,13 @@ public class GlobalContext implements Serializable {
         this.kem = kem;
         this.hookProvider = hookProvider;
         this.files = files;
+        boolean concurrentCaches = javaExecutionOptions.parallelClaims > 1 || javaExecutionOptions.parallelSearch > 1;
+        this.functionCache = new FunctionCache(javaExecutionOptions.cacheFunctionsMaxSize,
+                javaExecutionOptions.cacheSoftReferences, concurrentCaches);
+        this.formulaCache = new FormulaSimplificationCache(javaExecutionOptions.cacheFormulasMaxSize,
+                javaExecutionOptions.cacheSoftReferences, concurrentCaches);
+        this.toStringCache = new ToStringCache(concurrentCaches);
+        this.kItemInterner = javaExecutionOptions.hashConsTerms ? Interners.newWeakInterner() : null;
         this.equalityOps = new EqualityOperations(() -> def);
         prettyPrinter = new PrettyPrinter(kprint, coreDefinition);
         this.stateLog = new StateLog(javaExecutionOptions, files, prettyPrinter);
@@ -102,6 +118,44 @@ public class GlobalContext implements Serializable {
         return b;
     }
 
+    /**
+     * The context that {@link GlobalContext}s are resolved to during {@link #readWithContext}.
+     */
+    private static final ThreadLocal<GlobalContext> deserializationContext = new ThreadLocal<>();
+
+    /**
+     * Runs {@code reader} on the current thread, resolving every {@code GlobalContext} referenced by the objects it
+     * deserializes to this context. Only a placeholder is serialized in place of a {@code GlobalContext}, since most
+     * of its state belongs to the running process.
+     */
+    public <T> T readWithContext(Supplier<T> reader) {
+        GlobalContext previous = deserializationContext.get();
+        deserializationContext.set(this);
+        try {
+            return reader.get();
+        } finally {
+            if (previous == null) {
+                deserializationContext.remove();
+            } else {
+                deserializationContext.set(previous);
+            }
+        }
+    }
+
+    private Object writeReplace() {
+        return new SerializedForm();
+    }
+
+    private static final class SerializedForm implements Serializable {
+        private Object readResolve() throws ObjectStreamException {
+            GlobalContext global = deserializationContext.get();
+            if (global == null) {
+                throw new InvalidObjectException("GlobalContext can only be deserialized within readWithContext");
+            }
+            return global;
+        }
+    }
+
     public void setDefinition(Definition def) {
         this.def = def;
     }
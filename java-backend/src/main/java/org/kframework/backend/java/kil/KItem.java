@@ -31,6 +31,7 @@ import org.kframework.utils.errorsystem.KException.ExceptionType;
 import org.kframework.utils.errorsystem.KExceptionManager;
 
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.Arrays;
 import java.util.Collection;
@@ -82,7 +83,7 @@ public class KItem extends Term implements KItemRepresentation {
     private Boolean anywhereApplicable = null;
 
     private BitSet[] childrenDontCareRuleMask = null;
-    private final Profiler2 profiler;
+    private transient Profiler2 profiler;
     private boolean evaluatedRecursively = false;
 
     public static KItem of(Term kLabel, Term kList, GlobalContext global) {
@@ -103,7 +104,13 @@ public class KItem extends Term implements KItemRepresentation {
         kList = KCollection.upKind(kList, Kind.KLIST);
 
         // TODO(yilongli): break the dependency on the Tool object
-        return new KItem(kLabel, kList, global, global.stage, att, childrenDontCareRuleMask);
+        KItem kItem = new KItem(kLabel, kList, global, global.stage, att, childrenDontCareRuleMask);
+        /* share structurally equal ground terms, so that equality checks between them are reference comparisons;
+         * rule patterns carry rule masks and are never shared */
+        if (global.kItemInterner != null && childrenDontCareRuleMask == null && kItem.isGround()) {
+            return global.kItemInterner.intern(kItem);
+        }
+        return kItem;
     }
 
     public KItem(KLabel kLabel, Term kList, GlobalContext global, Sort sort, boolean isExactSort, Att att) {
@@ -431,6 +438,7 @@ public class KItem extends Term implements KItemRepresentation {
             kItem.profiler.evaluateFunctionNanoTimer.start();
             KLabelConstant kLabelConstant = (KLabelConstant) kItem.kLabel;
             Profiler.startTimer(Profiler.getTimerForFunction(kLabelConstant));
+            kItem.profiler.ruleProfiler.enter(kLabelConstant);
             int nestingLevel = kItem.profiler.evaluateFunctionNanoTimer.getLevel();
             kItem.global.newLogIndent(nestingLevel - 1);
 
@@ -491,7 +499,12 @@ public class KItem extends Term implements KItemRepresentation {
 
                     // an argument is concrete if it doesn't contain variables or unresolved functions
                     boolean isConcrete = kList.getContents().stream().filter(elem -> !elem.isGround() || !elem.isNormal()).collect(Collectors.toList()).isEmpty();
-                    for (Rule rule : rulesForKLabel) {
+                    // auditing reports every rule attempted, so it bypasses the index
+                    Collection<Rule> candidateRules = RuleAuditing.getAuditingRule() != null || RuleAuditing.isAuditBegun()
+                            ? rulesForKLabel
+                            : definition.functionRuleIndex(kLabelConstant).candidates(kList);
+                    for (Rule rule : candidateRules) {
+                        kItem.profiler.ruleProfiler.enter(rule);
                         try {
                             if (rule == RuleAuditing.getAuditingRule()) {
                                 RuleAuditing.beginAudit();
@@ -585,6 +598,7 @@ public class KItem extends Term implements KItemRepresentation {
                             addDetailedStackFrame(newExc, kItem, rule, context);
                             throw newExc;
                         } finally {
+                            kItem.profiler.ruleProfiler.exit();
                             if (RuleAuditing.isAuditBegun()) {
                                 if (RuleAuditing.getAuditingRule() == rule) {
                                     RuleAuditing.endAudit();
@@ -614,6 +628,7 @@ public class KItem extends Term implements KItemRepresentation {
                 return kItem;
             } finally {
                 kItem.global.restorePreviousLogIndent();
+                kItem.profiler.ruleProfiler.exit();
                 Profiler.stopTimer(Profiler.getTimerForFunction(kLabelConstant));
                 kItem.profiler.evaluateFunctionNanoTimer.stop();
             }
@@ -719,6 +734,7 @@ public class KItem extends Term implements KItemRepresentation {
             /* TODO(YilongL): make KLabelConstant dependent on Definition and store
              * anywhere rules in KLabelConstant */
             for (Rule rule : definition.anywhereRules().get(kLabelConstant)) {
+                profiler.ruleProfiler.enter(rule);
                 try {
                     if (rule == RuleAuditing.getAuditingRule()) {
                         RuleAuditing.beginAudit();
@@ -745,6 +761,7 @@ public class KItem extends Term implements KItemRepresentation {
                     profiler.applyAnywhereRuleCounter.increment();
                     return rightHandSide;
                 } finally {
+                    profiler.ruleProfiler.exit();
                     if (RuleAuditing.isAuditBegun()) {
                         if (RuleAuditing.getAuditingRule() == rule) {
                             RuleAuditing.endAudit();
@@ -947,6 +964,11 @@ public class KItem extends Term implements KItemRepresentation {
         out.defaultWriteObject();
     }
 
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        profiler = global.profiler;
+    }
+
     static final class CacheTableValue {
 
         final Sort sort;
@@ -280,7 +280,8 @@ public class KLabelConstant extends KLabel implements org.kframework.kore.KLabel
             throw KEMException.criticalError("The ordinal for klabel: " + label + " is " + localCache.get(label).ordinal +
                     " in the cache and " + this.ordinal + " serialized.");
         }
-        // TODO: fix bug: ordinals from deserialized objects may overlap with those of newly created objects
+        // keep the ordinals of newly created objects from overlapping those of deserialized ones
+        maxOrdinal.accumulateAndGet(ordinal + 1, Math::max);
         return localCache.computeIfAbsent(label, l -> this);
     }
 
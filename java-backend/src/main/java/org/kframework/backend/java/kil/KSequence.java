@@ -6,8 +6,10 @@ import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.kframework.backend.java.symbolic.Transformer;
 import org.kframework.backend.java.symbolic.Visitor;
+import org.kframework.backend.java.util.PersistentVector;
 import org.kframework.kore.K;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -32,9 +34,9 @@ public class KSequence extends KCollection implements org.kframework.kore.KSeque
 
     private static final String SEPARATOR_NAME = " ~> ";
     private static final String IDENTITY_NAME = "." + Kind.K;
-    public static final KSequence EMPTY = new KSequence(ImmutableList.<Term>of(), null, ImmutableList.<Variable>of());
+    public static final KSequence EMPTY = new KSequence(PersistentVector.<Term>empty(), null, ImmutableList.<Variable>of());
 
-    private final ImmutableList<Term> contents;
+    private final PersistentVector<Term> contents;
 
     /**
      * List of variables of sort K in {@link KSequence#contents}.
@@ -48,7 +50,7 @@ public class KSequence extends KCollection implements org.kframework.kore.KSeque
      */
     public static KSequence frame(Variable variable) {
         assert variable.kind().equals(Kind.K);
-        return new KSequence(ImmutableList.of(), variable, ImmutableList.<Variable>of());
+        return new KSequence(PersistentVector.empty(), variable, ImmutableList.<Variable>of());
     }
 
     /**
@@ -58,7 +60,7 @@ public class KSequence extends KCollection implements org.kframework.kore.KSeque
      */
     public static KSequence singleton(Term term) {
         assert term.kind().equals(Kind.KITEM);
-        return new KSequence(ImmutableList.of(term), null, ImmutableList.<Variable>of());
+        return new KSequence(PersistentVector.of(term), null, ImmutableList.<Variable>of());
     }
 
     /**
@@ -81,7 +83,7 @@ public class KSequence extends KCollection implements org.kframework.kore.KSeque
         }
     }
 
-    private KSequence(ImmutableList<Term> contents, Variable frame, ImmutableList<Variable> kSequenceVariables) {
+    private KSequence(PersistentVector<Term> contents, Variable frame, ImmutableList<Variable> kSequenceVariables) {
         super(frame, Kind.K);
         this.contents = contents;
         this.kSequenceVariables = kSequenceVariables;
@@ -182,33 +184,45 @@ public class KSequence extends KCollection implements org.kframework.kore.KSeque
 
     public static class Builder {
 
-        private final ImmutableList.Builder<Term> contentsBuilder = ImmutableList.builder();
+        private PersistentVector<Term> contents = PersistentVector.empty();
+        /**
+         * Terms added since the last concatenation of a KSequence, appended to {@code contents} as one chunk.
+         */
+        private final List<Term> pendingContents = new ArrayList<>();
         private final ImmutableList.Builder<Variable> variablesBuilder = ImmutableList.builder();
         private Variable frame = null;
 
+        private void flushPendingContents() {
+            if (!pendingContents.isEmpty()) {
+                contents = contents.concat(PersistentVector.copyOf(pendingContents));
+                pendingContents.clear();
+            }
+        }
+
         public void concatenate(Term term) {
             if (frame != null && !term.equals(EMPTY)) {
-                contentsBuilder.add(frame);
+                pendingContents.add(frame);
                 variablesBuilder.add(frame);
                 frame = null;
             }
 
             if (term instanceof KSequence) {
                 KSequence kseq = (KSequence) term;
-                contentsBuilder.addAll(kseq.contents);
+                flushPendingContents();
+                contents = contents.concat(kseq.contents);
                 frame = kseq.frame;
             } else if (term instanceof Variable) {
                 assert term.sort().equals(Sort.KSEQUENCE) || term.kind().equals(Kind.KITEM);
                 if (term.sort().equals(Sort.KSEQUENCE)) {
                     frame = (Variable) term;
                 } else {
-                    contentsBuilder.add(term);
+                    pendingContents.add(term);
                 }
             } else if (term.kind().equals(Kind.KITEM)) {
-                contentsBuilder.add(term);
+                pendingContents.add(term);
             } else if (term instanceof KItemProjection) {
                 // TODO(AndreiS): fix KItem projection
-                contentsBuilder.add(term);
+                pendingContents.add(term);
             } else {
                 assert false : "unexpected concatenated term" + term;
             }
@@ -218,7 +232,7 @@ public class KSequence extends KCollection implements org.kframework.kore.KSeque
          * Returns a newly-created canonicalized KSequence based on the contents of the builder.
          */
         public Term build() {
-            ImmutableList<Term> contents = contentsBuilder.build();
+            flushPendingContents();
             if (frame != null) {
                 variablesBuilder.add(frame);
             }
@@ -111,7 +111,8 @@ public final class Sort implements org.kframework.kore.Sort, Serializable {
             throw KEMException.criticalError("The ordinal for sort: " + name + " is " + cache.get(name).ordinal +
                     " in the cache and " + this.ordinal + " serialized.");
         }
-        // TODO: fix bug: ordinals from deserialized objects may overlap with those of newly created objects
+        // keep the ordinals of newly created objects from overlapping those of deserialized ones
+        maxOrdinal.accumulateAndGet(ordinal + 1, Math::max);
         return cache.computeIfAbsent(name, x -> this);
     }
 
@@ -23,7 +23,7 @@ import java.util.Map;
 public abstract class Term extends JavaSymbolicObject<Term> implements Comparable<Term>,
         org.kframework.kore.K {
 
-    //For performance improvement. Faster than accessing evaluationCache directly.
+    //For performance improvement, when the function cache is unbounded. Faster than accessing it directly.
     private transient Map<ConjunctiveFormula, Term> evaluationCacheRow;
     private transient Term nullConstraintEvalResult;
 
@@ -132,28 +132,38 @@ public abstract class Term extends JavaSymbolicObject<Term> implements Comparabl
     }
 
     Term cacheGet(ConjunctiveFormula constraint, TermContext context) {
+        FunctionCache functionCache = context.global().functionCache;
+        if (functionCache.isBounded()) {
+            return functionCache.get(this, constraint);
+        }
+        Term result;
         if (constraint == null) {
             if (nullConstraintEvalResult == null) {
-                nullConstraintEvalResult = context.global().functionCache.nullConstraintEvalCache.get(this);
+                nullConstraintEvalResult = functionCache.nullConstraintEvalCache.get(this);
             }
-            return nullConstraintEvalResult;
+            result = nullConstraintEvalResult;
         } else {
             if (evaluationCacheRow == null) {
-                evaluationCacheRow = context.global().functionCache.evaluationCache.row(this);
+                evaluationCacheRow = functionCache.getRow(this);
             }
-            return evaluationCacheRow.get(constraint);
+            result = evaluationCacheRow != null ? evaluationCacheRow.get(constraint) : null;
         }
+        functionCache.recordLookup(result != null);
+        return result;
     }
 
     void cachePut(ConjunctiveFormula constraint, Term result, TermContext context) {
-        if (constraint == null) {
-            context.global().functionCache.nullConstraintEvalCache.put(this, result);
+        FunctionCache functionCache = context.global().functionCache;
+        if (functionCache.isBounded()) {
+            functionCache.put(this, constraint, result);
+        } else if (constraint == null) {
+            functionCache.putNullConstraintResult(this, result);
             nullConstraintEvalResult = result;
         } else {
             if (evaluationCacheRow == null) {
-                evaluationCacheRow = context.global().functionCache.evaluationCache.row(this);
+                evaluationCacheRow = functionCache.getOrCreateRow(this);
             }
-            evaluationCacheRow.put(constraint, result);
+            functionCache.putInRow(evaluationCacheRow, constraint, result);
         }
     }
 
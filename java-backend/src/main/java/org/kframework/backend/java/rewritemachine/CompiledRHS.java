@@ -0,0 +1,310 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.rewritemachine;
+
+import org.kframework.backend.java.kil.BuiltinList;
+import org.kframework.backend.java.kil.BuiltinMap;
+import org.kframework.backend.java.kil.BuiltinSet;
+import org.kframework.backend.java.kil.GlobalContext;
+import org.kframework.backend.java.kil.Hole;
+import org.kframework.backend.java.kil.InjectedKLabel;
+import org.kframework.backend.java.kil.KCollection;
+import org.kframework.backend.java.kil.KItem;
+import org.kframework.backend.java.kil.KItemProjection;
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.KLabelInjection;
+import org.kframework.backend.java.kil.KList;
+import org.kframework.backend.java.kil.KSequence;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.java.kil.Token;
+import org.kframework.backend.java.kil.Variable;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The right-hand side of a rewrite compiled to an array of {@link RHSInstruction}s. The variables of the right-hand
+ * side are numbered, and the instructions are executed against a flat array holding the value of each variable.
+ * <p>
+ * Ground subterms are pushed as they are, and constructed subterms none of whose children is changed by the
+ * substitution are shared with the right-hand side instead of being copied.
+ * <p>
+ * Right-hand sides which the instructions cannot represent (e.g., binders) fall back to
+ * {@link Term#substituteAndEvaluate(Map, TermContext)}.
+ */
+public final class CompiledRHS implements Serializable {
+
+    private final Term rhs;
+    /**
+     * the instructions, or {@code null} if the right-hand side is not compiled
+     */
+    private final RHSInstruction[] instructions;
+    /**
+     * the slot of the variable substituted by each {@code SUBST} instruction
+     */
+    private final int[] slots;
+    private final Variable[] variables;
+    private final int maxStackSize;
+
+    private CompiledRHS(Term rhs, RHSInstruction[] instructions, int[] slots, Variable[] variables, int maxStackSize) {
+        this.rhs = rhs;
+        this.instructions = instructions;
+        this.slots = slots;
+        this.variables = variables;
+        this.maxStackSize = maxStackSize;
+    }
+
+    public static CompiledRHS compile(Term rhs) {
+        if (!isCompilable(rhs)) {
+            return new CompiledRHS(rhs, null, null, null, 0);
+        }
+
+        GenerateRHSInstructions visitor = new GenerateRHSInstructions();
+        rhs.accept(visitor);
+        List<RHSInstruction> instructionList = visitor.getInstructions();
+
+        RHSInstruction[] instructions = instructionList.toArray(new RHSInstruction[instructionList.size()]);
+        int[] slots = new int[instructions.length];
+        Map<Variable, Integer> variableSlots = new HashMap<>();
+        int stackSize = 0;
+        int maxStackSize = 0;
+        for (int i = 0; i < instructions.length; i++) {
+            RHSInstruction instruction = instructions[i];
+            switch (instruction.type()) {
+            case SUBST:
+                Variable variable = (Variable) instruction.term();
+                slots[i] = variableSlots.computeIfAbsent(variable, v -> variableSlots.size());
+                stackSize++;
+                break;
+            case PUSH:
+                stackSize++;
+                break;
+            case CONSTRUCT:
+                stackSize -= arity(instruction.constructor()) - 1;
+                break;
+            default:
+                break;
+            }
+            maxStackSize = Math.max(maxStackSize, stackSize);
+        }
+        assert stackSize == 1 : "unbalanced instructions for " + rhs;
+
+        Variable[] variables = new Variable[variableSlots.size()];
+        variableSlots.forEach((variable, slot) -> variables[slot] = variable);
+        return new CompiledRHS(rhs, instructions, slots, variables, maxStackSize);
+    }
+
+    /**
+     * Returns the variables of the right-hand side, indexed by their slot.
+     */
+    public Variable[] variables() {
+        return variables;
+    }
+
+    public boolean isCompiled() {
+        return instructions != null;
+    }
+
+    /**
+     * Constructs the right-hand side, evaluating the functions in it, under the given substitution.
+     */
+    public Term construct(Map<Variable, ? extends Term> substitution, TermContext context) {
+        if (instructions == null) {
+            return rhs.substituteAndEvaluate(substitution, context);
+        }
+
+        Term[] values = new Term[variables.length];
+        for (int i = 0; i < variables.length; i++) {
+            Term value = substitution.get(variables[i]);
+            values[i] = value != null ? value : variables[i];
+        }
+        return construct(values, context);
+    }
+
+    /**
+     * Constructs the right-hand side, evaluating the functions in it, given the value of each variable slot. Unbound
+     * variables hold themselves.
+     */
+    public Term construct(Term[] values, TermContext context) {
+        assert instructions != null;
+        if (instructions.length == 1) {
+            return instructions[0].type() == RHSInstruction.Type.SUBST ? values[slots[0]] : instructions[0].term();
+        }
+
+        GlobalContext global = context.global();
+        Term[] stack = new Term[maxStackSize];
+        /* whether each term on the stack is the corresponding subterm of the right-hand side */
+        boolean[] unchanged = new boolean[maxStackSize];
+        int top = 0;
+        for (int pc = 0; pc < instructions.length; pc++) {
+            RHSInstruction instruction = instructions[pc];
+            switch (instruction.type()) {
+            case PUSH:
+                stack[top] = instruction.term();
+                unchanged[top++] = true;
+                break;
+            case SUBST:
+                Term value = values[slots[pc]];
+                stack[top] = value;
+                unchanged[top++] = value == instruction.term();
+                break;
+            case CONSTRUCT:
+                RHSInstruction.Constructor constructor = instruction.constructor();
+                int arity = arity(constructor);
+                boolean allUnchanged = true;
+                for (int i = top - arity; i < top; i++) {
+                    allUnchanged &= unchanged[i];
+                }
+                Term term = allUnchanged ? instruction.term() : construct(constructor, stack, top, global);
+                top -= arity;
+                stack[top] = term;
+                unchanged[top++] = allUnchanged;
+                break;
+            case EVAL:
+                KItem kItem = (KItem) stack[top - 1];
+                Term result = kItem.resolveFunctionAndAnywhere(context);
+                stack[top - 1] = result;
+                unchanged[top - 1] &= result == kItem;
+                break;
+            case PROJECT:
+                KItemProjection projection = (KItemProjection) stack[top - 1];
+                Term projected = projection.evaluateProjection();
+                stack[top - 1] = projected;
+                unchanged[top - 1] &= projected == projection;
+                break;
+            default:
+                throw new AssertionError("unreachable");
+            }
+        }
+        assert top == 1;
+        return stack[0];
+    }
+
+    /**
+     * Constructs a term from the topmost {@code arity(constructor)} terms on the stack, popping them in the same
+     * order as {@link org.kframework.backend.java.util.RewriteEngineUtils#construct}.
+     */
+    private static Term construct(RHSInstruction.Constructor constructor, Term[] stack, int top, GlobalContext global) {
+        switch (constructor.type()) {
+        case BUILTIN_LIST:
+            BuiltinList.Builder listBuilder = BuiltinList.builder(constructor.assocListSort,
+                    constructor.assocListOperator, constructor.assocListUnit, global);
+            for (int i = 0; i < constructor.size1(); i++) {
+                listBuilder.add(stack[--top]);
+            }
+            return listBuilder.build();
+        case BUILTIN_MAP:
+            BuiltinMap.Builder mapBuilder = BuiltinMap.builder(global);
+            for (int i = 0; i < constructor.size1(); i++) {
+                Term key = stack[--top];
+                Term value = stack[--top];
+                mapBuilder.put(key, value);
+            }
+            for (int i = 0; i < constructor.size2(); i++) {
+                mapBuilder.concatenate(stack[--top]);
+            }
+            return mapBuilder.build();
+        case BUILTIN_SET:
+            BuiltinSet.Builder setBuilder = BuiltinSet.builder(global);
+            for (int i = 0; i < constructor.size1(); i++) {
+                setBuilder.add(stack[--top]);
+            }
+            for (int i = 0; i < constructor.size2(); i++) {
+                setBuilder.concatenate(stack[--top]);
+            }
+            return setBuilder.build();
+        case KITEM:
+            Term kLabel = stack[--top];
+            Term kList = stack[--top];
+            return KItem.of(kLabel, kList, global, constructor.att());
+        case KITEM_PROJECTION:
+            return new KItemProjection(constructor.kind(), stack[--top]);
+        case KLABEL_INJECTION:
+            return new KLabelInjection(stack[--top]);
+        case INJECTED_KLABEL:
+            return new InjectedKLabel(stack[--top]);
+        case KLIST:
+            KList.Builder kListBuilder = KList.builder();
+            for (int i = 0; i < constructor.size1(); i++) {
+                kListBuilder.concatenate(stack[--top]);
+            }
+            return kListBuilder.build();
+        case KSEQUENCE:
+            KSequence.Builder kSequenceBuilder = KSequence.builder();
+            for (int i = 0; i < constructor.size1(); i++) {
+                kSequenceBuilder.concatenate(stack[--top]);
+            }
+            return kSequenceBuilder.build();
+        default:
+            throw new AssertionError("unreachable");
+        }
+    }
+
+    private static int arity(RHSInstruction.Constructor constructor) {
+        switch (constructor.type()) {
+        case BUILTIN_MAP:
+            return 2 * constructor.size1() + constructor.size2();
+        case BUILTIN_SET:
+            return constructor.size1() + constructor.size2();
+        case KITEM:
+            return 2;
+        case KITEM_PROJECTION:
+        case KLABEL_INJECTION:
+        case INJECTED_KLABEL:
+            return 1;
+        default:
+            return constructor.size1();
+        }
+    }
+
+    /**
+     * Checks that the instructions generated by {@link GenerateRHSInstructions} construct the given term the same
+     * way as {@link Term#substituteAndEvaluate(Map, TermContext)}.
+     */
+    private static boolean isCompilable(Term term) {
+        if (term instanceof Variable || term instanceof Token || term instanceof KLabelConstant || term instanceof Hole) {
+            return true;
+        }
+        if (term.isGround() && term.isNormal()) {
+            return term instanceof BuiltinList || term instanceof BuiltinMap || term instanceof BuiltinSet
+                    || term instanceof KItem || term instanceof KList || term instanceof KSequence
+                    || term instanceof KItemProjection || term instanceof KLabelInjection
+                    || term instanceof InjectedKLabel;
+        }
+
+        if (term instanceof KItem) {
+            KItem kItem = (KItem) term;
+            if (kItem.kLabel() instanceof KLabelConstant && ((KLabelConstant) kItem.kLabel()).isMetaBinder()) {
+                return false;
+            }
+            return isCompilable(kItem.kLabel()) && isCompilable(kItem.kList());
+        } else if (term instanceof BuiltinList) {
+            return ((BuiltinList) term).children.stream().allMatch(CompiledRHS::isCompilable);
+        } else if (term instanceof BuiltinMap) {
+            BuiltinMap map = (BuiltinMap) term;
+            return map.baseTerms().stream().allMatch(CompiledRHS::isCompilable)
+                    && map.getEntries().entrySet().stream()
+                            .allMatch(e -> isCompilable(e.getKey()) && isCompilable(e.getValue()));
+        } else if (term instanceof BuiltinSet) {
+            BuiltinSet set = (BuiltinSet) term;
+            return set.baseTerms().stream().allMatch(CompiledRHS::isCompilable)
+                    && set.elements().stream().allMatch(CompiledRHS::isCompilable);
+        } else if (term instanceof KList || term instanceof KSequence) {
+            for (Term child : (KCollection) term) {
+                if (!isCompilable(child)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (term instanceof KItemProjection) {
+            return isCompilable(((KItemProjection) term).term());
+        } else if (term instanceof KLabelInjection) {
+            return isCompilable(((KLabelInjection) term).term());
+        } else if (term instanceof InjectedKLabel) {
+            return isCompilable(((InjectedKLabel) term).injectedKLabel());
+        }
+        return false;
+    }
+}
@@ -24,7 +24,7 @@ public class GenerateRHSInstructions extends BottomUpVisitor {
             for (int i = node.size() - 1; i >= 0; i--) {
                 node.get(i).accept(this);
             }
-            rhsSchedule.add(RHSInstruction.CONSTRUCT(new Constructor(ConstructorType.BUILTIN_LIST, node.size(), node.sort, node.operatorKLabel, node.unitKLabel)));
+            rhsSchedule.add(RHSInstruction.CONSTRUCT(new Constructor(ConstructorType.BUILTIN_LIST, node.size(), node.sort, node.operatorKLabel, node.unitKLabel), node));
         }
     }
 
@@ -45,7 +45,7 @@ public class GenerateRHSInstructions extends BottomUpVisitor {
                 sizeElem++;
             }
             rhsSchedule.add(RHSInstruction.CONSTRUCT(new Constructor(
-                    ConstructorType.BUILTIN_MAP, sizeElem, sizeBase)));
+                    ConstructorType.BUILTIN_MAP, sizeElem, sizeBase), node));
         }
     }
 
@@ -65,7 +65,7 @@ public class GenerateRHSInstructions extends BottomUpVisitor {
                 sizeElem++;
             }
             rhsSchedule.add(RHSInstruction.CONSTRUCT(new Constructor(
-                    ConstructorType.BUILTIN_SET, sizeElem, sizeBase)));
+                    ConstructorType.BUILTIN_SET, sizeElem, sizeBase), node));
         }
     }
 
@@ -82,7 +82,7 @@ public class GenerateRHSInstructions extends BottomUpVisitor {
             node.kList().accept(this);
             node.kLabel().accept(this);
             rhsSchedule.add(RHSInstruction.CONSTRUCT(
-                    new Constructor(ConstructorType.KITEM, node.att())));
+                    new Constructor(ConstructorType.KITEM, node.att()), node));
             rhsSchedule.add(RHSInstruction.EVAL);
         }
     }
@@ -108,7 +108,7 @@ public class GenerateRHSInstructions extends BottomUpVisitor {
                 size++;
             }
             rhsSchedule.add(RHSInstruction.CONSTRUCT(new Constructor(
-                    ConstructorType.KLIST, size)));
+                    ConstructorType.KLIST, size), node));
         }
     }
 
@@ -129,7 +129,7 @@ public class GenerateRHSInstructions extends BottomUpVisitor {
             }
             final int size2 = size;
             rhsSchedule.add(RHSInstruction.CONSTRUCT(new Constructor(
-                    ConstructorType.KSEQUENCE, size2)));
+                    ConstructorType.KSEQUENCE, size2), node));
         }
     }
 
@@ -140,7 +140,7 @@ public class GenerateRHSInstructions extends BottomUpVisitor {
         } else {
             node.term().accept(this);
             rhsSchedule.add(RHSInstruction.CONSTRUCT(new Constructor(
-                    ConstructorType.KITEM_PROJECTION, node.kind())));
+                    ConstructorType.KITEM_PROJECTION, node.kind()), node));
             rhsSchedule.add(RHSInstruction.PROJECT);
         }
     }
@@ -152,7 +152,7 @@ public class GenerateRHSInstructions extends BottomUpVisitor {
         } else {
             node.term().accept(this);
             rhsSchedule.add(RHSInstruction.CONSTRUCT(
-                    new Constructor(ConstructorType.KLABEL_INJECTION)));
+                    new Constructor(ConstructorType.KLABEL_INJECTION), node));
         }
     }
 
@@ -163,7 +163,7 @@ public class GenerateRHSInstructions extends BottomUpVisitor {
         } else {
             node.injectedKLabel().accept(this);
             rhsSchedule.add(RHSInstruction.CONSTRUCT(
-                    new Constructor(ConstructorType.INJECTED_KLABEL)));
+                    new Constructor(ConstructorType.INJECTED_KLABEL), node));
         }
     }
 
@@ -153,6 +153,14 @@ public final class RHSInstruction implements Serializable {
         return new RHSInstruction(Type.CONSTRUCT, null, constructor);
     }
 
+    /**
+     * Constructs a term as {@link #CONSTRUCT(Constructor)}, remembering the term of the right-hand side being
+     * constructed so that it can be shared when none of its subterms is changed by the substitution.
+     */
+    public static RHSInstruction CONSTRUCT(Constructor constructor, Term template) {
+        return new RHSInstruction(Type.CONSTRUCT, template, constructor);
+    }
+
     public static RHSInstruction PUSH(Term term) {
         return new RHSInstruction(Type.PUSH, term, null);
     }
@@ -170,6 +178,9 @@ public final class RHSInstruction implements Serializable {
         return type;
     }
 
+    /**
+     * Returns the pushed term, the substituted variable, or the template of a constructed term.
+     */
     public Term term() {
         return term;
     }
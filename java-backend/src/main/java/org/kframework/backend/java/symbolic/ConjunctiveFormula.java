@@ -109,7 +109,7 @@ public class ConjunctiveFormula extends Term implements CollectionInternalRepres
 
     private final Equality falsifyingEquality;
 
-    private transient final GlobalContext global;
+    private final GlobalContext global;
 
     public ConjunctiveFormula(
             Substitution<Variable, Term> substitution,
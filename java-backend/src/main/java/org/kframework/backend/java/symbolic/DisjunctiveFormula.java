@@ -27,7 +27,7 @@ public class DisjunctiveFormula extends Term implements CollectionInternalRepres
 
     private final PersistentUniqueList<ConjunctiveFormula> conjunctions;
 
-    private transient final GlobalContext global;
+    private final GlobalContext global;
 
     public DisjunctiveFormula(Collection<ConjunctiveFormula> conjunctions, GlobalContext global) {
         super(Kind.KITEM);
@@ -39,6 +39,7 @@ import org.kframework.kore.KApply;
 import org.kframework.utils.errorsystem.KEMException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -78,6 +79,15 @@ public class FastRuleMatcher {
     private boolean continuousSimplification = true;
     private TermContext context;
 
+    /**
+     * The bindings of pattern variables found by {@link #matchWithAutomaton} for each rule. They are kept in arrays
+     * reused across match attempts, and are added to {@link #constraints} only for the rules which match.
+     */
+    private final Variable[][] boundVariables;
+    private final Term[][] boundTerms;
+    private final int[] bindingCounts;
+    private boolean deferBindings = false;
+
     public static ConjunctiveFormula unify(Term term, Term otherTerm, TermContext context) {
         return new FastRuleMatcher(context.global(), 1).unifyEquality(term, otherTerm, false, false, true, context, false);
     }
@@ -100,6 +110,9 @@ public class FastRuleMatcher {
         this.definition = definition;
         constraints = new ConjunctiveFormula[this.ruleCount];
         ruleMask = makeAllRuleBits(ruleCount);
+        boundVariables = new Variable[this.ruleCount][];
+        boundTerms = new Term[this.ruleCount][];
+        bindingCounts = new int[this.ruleCount];
     }
 
     static BitSet makeAllRuleBits(int size) {
@@ -126,7 +139,13 @@ public class FastRuleMatcher {
                     "==========================================\n", step);
         }
         Rule automaton = definition.mainAutomaton();
-        List<Pair<Rule, Integer>> automatonMatchedRules = matchWithAutomaton(subject, automaton);
+        List<Pair<Rule, Integer>> automatonMatchedRules;
+        global.profiler.ruleProfiler.enter("rule automaton");
+        try {
+            automatonMatchedRules = matchWithAutomaton(subject, automaton);
+        } finally {
+            global.profiler.ruleProfiler.exit();
+        }
 
         if (global.javaExecutionOptions.logRulesPublic) {
             System.err.format("\nRegular rule application, rules matched by automaton: %d\n" +
@@ -157,14 +176,20 @@ public class FastRuleMatcher {
             }
             FormulaContext formulaContext = new FormulaContext(FormulaContext.Kind.RegularRule, rule, context.global());
             global.stateLog.log(StateLog.LogEvent.RULEATTEMPT, rule.toKRewrite(), subject.term(), subject.constraint());
-            List<Triple<ConjunctiveFormula, Boolean, Map<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>>> ruleResults = ConstrainedTerm.evaluateConstraints(
-                    constraints[i],
-                    subject.constraint(),
-                    patternConstraint,
-                    Sets.union(getLeftHandSide(automaton.leftHandSide(), i).variableSet(), patternConstraint.variableSet()).stream()
-                            .filter(v -> !v.name().equals(KOREtoBackendKIL.THE_VARIABLE))
-                            .collect(Collectors.toSet()),
-                    context, formulaContext);
+            List<Triple<ConjunctiveFormula, Boolean, Map<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>>> ruleResults;
+            global.profiler.ruleProfiler.enter(rule);
+            try {
+                ruleResults = ConstrainedTerm.evaluateConstraints(
+                        constraints[i],
+                        subject.constraint(),
+                        patternConstraint,
+                        Sets.union(getLeftHandSide(automaton.leftHandSide(), i).variableSet(), patternConstraint.variableSet()).stream()
+                                .filter(v -> !v.name().equals(KOREtoBackendKIL.THE_VARIABLE))
+                                .collect(Collectors.toSet()),
+                        context, formulaContext);
+            } finally {
+                global.profiler.ruleProfiler.exit();
+            }
             for (Triple<ConjunctiveFormula, Boolean, Map<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>> triple : ruleResults) {
                 RuleMatchResult result = new RuleMatchResult(triple.getLeft(), triple.getMiddle(), triple.getRight(), i);
                 if (transitions.stream().anyMatch(rule.att()::contains)) {
@@ -196,18 +221,99 @@ public class FastRuleMatcher {
      * @return rules matching the subject
      */
     public List<Pair<Rule, Integer>> matchWithAutomaton(ConstrainedTerm subject, Rule automaton) {
-        ruleMask.stream().forEach(i -> constraints[i] = ConjunctiveFormula.of(subject.termContext().global()));
+        ConjunctiveFormula emptyConstraint = ConjunctiveFormula.of(subject.termContext().global());
+        ruleMask.stream().forEach(i -> constraints[i] = emptyConstraint);
+        // in case a previous match was interrupted by an exception
+        clearDeferredBindings();
         empty = BitSet.apply(ruleCount);
-        BitSet matchingRuleBits =
-                matchAndLog(subject.term(), automaton.leftHandSide(), ruleMask, List(), false);
+        BitSet matchingRuleBits;
+        deferBindings = true;
+        try {
+            matchingRuleBits = matchAndLog(subject.term(), automaton.leftHandSide(), ruleMask, List(), false);
+        } finally {
+            deferBindings = false;
+        }
 
         List<Pair<Rule, Integer>> result = new ArrayList<>();
         for (int i = matchingRuleBits.nextSetBit(0); i >= 0; i = matchingRuleBits.nextSetBit(i + 1)) {
-            result.add(new ImmutablePair<>(definition.ruleTable.get(i), i));
+            if (addDeferredBindings(i)) {
+                result.add(new ImmutablePair<>(definition.ruleTable.get(i), i));
+            }
         }
+        clearDeferredBindings();
         return result;
     }
 
+    /**
+     * Drops the bindings recorded for the rules which failed to match, so that the reused arrays do not retain the
+     * subject after the match.
+     */
+    private void clearDeferredBindings() {
+        for (int i = 0; i < ruleCount; i++) {
+            int count = bindingCounts[i];
+            if (count > 0) {
+                Arrays.fill(boundTerms[i], 0, count, null);
+                bindingCounts[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Records the binding of {@code variable} to {@code term} for rule {@code i} without building a constraint.
+     *
+     * @return false if the variable is already bound to a different concrete term
+     */
+    private boolean deferBinding(int i, Variable variable, Term term) {
+        Variable[] variables = boundVariables[i];
+        Term[] terms = boundTerms[i];
+        int count = bindingCounts[i];
+        for (int j = 0; j < count; j++) {
+            if (variables[j].equals(variable)) {
+                if (terms[j].equals(term)) {
+                    return true;
+                }
+                if (terms[j].isGround() && terms[j].isNormal() && term.isGround() && term.isNormal()) {
+                    return false;
+                }
+                /* the symbolic bindings are unified when added to the constraint */
+                break;
+            }
+        }
+
+        if (variables == null || count == variables.length) {
+            int length = variables == null ? 8 : 2 * count;
+            variables = boundVariables[i] = variables == null ? new Variable[length] : Arrays.copyOf(variables, length);
+            terms = boundTerms[i] = terms == null ? new Term[length] : Arrays.copyOf(terms, length);
+        }
+        variables[count] = variable;
+        terms[count] = term;
+        bindingCounts[i] = count + 1;
+        return true;
+    }
+
+    /**
+     * Adds the bindings recorded by {@link #deferBinding} for rule {@code i} to its constraint.
+     *
+     * @return false if the resulting constraint is false
+     */
+    private boolean addDeferredBindings(int i) {
+        int count = bindingCounts[i];
+        if (count == 0) {
+            return true;
+        }
+
+        for (int j = 0; j < count; j++) {
+            constraints[i] = constraints[i].add(boundVariables[i][j], boundTerms[i][j]);
+            /* do not retain the subject after the match */
+            boundTerms[i][j] = null;
+        }
+        bindingCounts[i] = 0;
+        if (continuousSimplification) {
+            constraints[i] = constraints[i].simplify();
+        }
+        return !constraints[i].isFalse();
+    }
+
     public static class RuleMatchResult {
         public final ConjunctiveFormula constraint;
         public final boolean isMatching;
@@ -543,6 +649,9 @@ public class FastRuleMatcher {
         }
 
         ListMultimap<Integer, ConjunctiveFormula> nestedConstraints = ArrayListMultimap.create();
+        /* the bindings of each choice are part of its nested constraint */
+        boolean oldDeferBindings = deferBindings;
+        deferBindings = false;
         for (int i = subjectIndex; i <= subject.size(); i++) {
             ConjunctiveFormula[] oldConstraints = constraints;
             constraints = new ConjunctiveFormula[constraints.length];
@@ -569,6 +678,7 @@ public class FastRuleMatcher {
             constraints = oldConstraints;
             ruleMask = oldRuleMask;
         }
+        deferBindings = oldDeferBindings;
 
         ruleMask = BitSet.apply(ruleCount);
         for (Map.Entry<Integer, Collection<ConjunctiveFormula>> entry : nestedConstraints.asMap().entrySet()) {
@@ -605,6 +715,13 @@ public class FastRuleMatcher {
         }
 
         for (int i = ruleMask.nextSetBit(0); i >= 0; i = ruleMask.nextSetBit(i + 1)) {
+            if (deferBindings) {
+                if (!deferBinding(i, variable, term)) {
+                    ruleMask.clear(i);
+                }
+                continue;
+            }
+
             constraints[i] = constraints[i].add(variable, term);
             if (continuousSimplification) {
                 constraints[i] = constraints[i].simplify();
@@ -0,0 +1,249 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.kframework.backend.java.kil.AssociativeCommutativeCollection;
+import org.kframework.backend.java.kil.BuiltinList;
+import org.kframework.backend.java.kil.BuiltinMap;
+import org.kframework.backend.java.kil.BuiltinSet;
+import org.kframework.backend.java.kil.ConstrainedTerm;
+import org.kframework.backend.java.kil.KCollection;
+import org.kframework.backend.java.kil.KItem;
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.util.FingerprintSet;
+
+import java.io.File;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A set of visited states that only remembers a 128-bit structural fingerprint of the term and constraint of each
+ * {@link ConstrainedTerm}, in an off-heap {@link FingerprintSet}. Equal constrained terms have equal fingerprints;
+ * two different constrained terms have the same fingerprint with probability about 2^-128, in which case the second
+ * one is wrongly reported as already visited (see {@link #collisionProbability()}).
+ * <p>
+ * Only {@link #add}, {@link #contains} and {@link #size} are supported; the states themselves cannot be iterated.
+ */
+public class FingerprintedStateSet extends AbstractSet<ConstrainedTerm> {
+
+    /**
+     * the fingerprints of the terms fingerprinted so far, compared by identity and kept only while they are reachable
+     */
+    private static final Cache<Term, long[]> termFingerprints = CacheBuilder.newBuilder().weakKeys().build();
+
+    private final FingerprintSet fingerprints;
+
+    public FingerprintedStateSet(long inMemoryLimit, File spillDirectory) {
+        fingerprints = new FingerprintSet(inMemoryLimit, spillDirectory);
+    }
+
+    @Override
+    public boolean add(ConstrainedTerm constrainedTerm) {
+        Fingerprint fingerprint = fingerprint(constrainedTerm);
+        return fingerprints.add(fingerprint.high, fingerprint.low);
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        if (!(object instanceof ConstrainedTerm)) {
+            return false;
+        }
+        Fingerprint fingerprint = fingerprint((ConstrainedTerm) object);
+        return fingerprints.contains(fingerprint.high, fingerprint.low);
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(fingerprints.size(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Iterator<ConstrainedTerm> iterator() {
+        throw new UnsupportedOperationException("visited states are only stored as fingerprints");
+    }
+
+    public double collisionProbability() {
+        return fingerprints.collisionProbability();
+    }
+
+    @Override
+    public String toString() {
+        return fingerprints.size() + " state fingerprints in " + (fingerprints.tableBytes() >> 20) + " MB "
+                + (fingerprints.isSpilled() ? "memory-mapped" : "off-heap")
+                + ", collision probability " + collisionProbability();
+    }
+
+    /**
+     * A 128-bit hash under construction, combining its inputs in order.
+     */
+    private static final class Fingerprint {
+        long high;
+        long low;
+
+        Fingerprint(Class<?> tag) {
+            high = 0x6A09E667F3BCC908L;
+            low = 0xBB67AE8584CAA73BL;
+            add(tag.getName());
+        }
+
+        Fingerprint(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        Fingerprint add(long highValue, long lowValue) {
+            high = mix(high * 0x9E3779B97F4A7C15L + highValue);
+            low = mix((low ^ lowValue) * 0xC2B2AE3D27D4EB4FL + Long.rotateLeft(highValue, 29));
+            return this;
+        }
+
+        Fingerprint add(Fingerprint fingerprint) {
+            return add(fingerprint.high, fingerprint.low);
+        }
+
+        Fingerprint add(String string) {
+            long highValue = 0xCBF29CE484222325L;
+            long lowValue = string.length();
+            for (int i = 0; i < string.length(); i++) {
+                char c = string.charAt(i);
+                highValue = (highValue ^ c) * 0x100000001B3L;
+                lowValue = Long.rotateLeft(lowValue + c, 17) * 0x87C37B91114253D5L;
+            }
+            return add(mix(highValue), mix(lowValue));
+        }
+
+        /**
+         * Adds the fingerprints of the given terms irrespective of their order.
+         */
+        Fingerprint addUnordered(Iterable<? extends Term> terms) {
+            long highSum = 0;
+            long lowSum = 0;
+            long count = 0;
+            for (Term term : terms) {
+                Fingerprint fingerprint = fingerprint(term);
+                highSum += fingerprint.high;
+                lowSum += fingerprint.low;
+                count++;
+            }
+            return add(highSum, lowSum).add(count, count);
+        }
+
+        Fingerprint addOrdered(Iterable<? extends Term> terms) {
+            long count = 0;
+            for (Term term : terms) {
+                add(fingerprint(term));
+                count++;
+            }
+            return add(count, count);
+        }
+
+        /**
+         * The finalization step of MurmurHash3.
+         */
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+            h *= 0xC4CEB9FE1A85EC53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+
+    private static Fingerprint fingerprint(ConstrainedTerm constrainedTerm) {
+        return new Fingerprint(ConstrainedTerm.class)
+                .add(fingerprint(constrainedTerm.term()))
+                .add(fingerprint(constrainedTerm.constraint()));
+    }
+
+    /**
+     * Returns the fingerprint of {@code term}, which is computed once per term object, as long as the term is
+     * reachable.
+     */
+    private static Fingerprint fingerprint(Term term) {
+        long[] cached = termFingerprints.getIfPresent(term);
+        if (cached != null) {
+            return new Fingerprint(cached[0], cached[1]);
+        }
+        Fingerprint fingerprint = computeFingerprint(term);
+        termFingerprints.put(term, new long[]{fingerprint.high, fingerprint.low});
+        return fingerprint;
+    }
+
+    /**
+     * Computes a fingerprint of {@code term} following its structure. Terms that are equal have the same
+     * fingerprint: unordered collections are combined commutatively, and terms not handled below are fingerprinted
+     * by their string representation.
+     */
+    private static Fingerprint computeFingerprint(Term term) {
+        // variables are equal irrespective of their class
+        Fingerprint fingerprint = new Fingerprint(term instanceof Variable ? Variable.class : term.getClass());
+        if (term instanceof KItem) {
+            KItem kItem = (KItem) term;
+            return fingerprint.add(fingerprint(kItem.kLabel())).add(fingerprint(kItem.kList()));
+        } else if (term instanceof KLabelConstant) {
+            return fingerprint.add(((KLabelConstant) term).label());
+        } else if (term instanceof Variable) {
+            Variable variable = (Variable) term;
+            return fingerprint.add(variable.name()).add(variable.sort().toString());
+        } else if (term instanceof KCollection) {
+            KCollection kCollection = (KCollection) term;
+            fingerprint.addOrdered(kCollection.getContents());
+            return kCollection.hasFrame() ? fingerprint.add(fingerprint(kCollection.frame())) : fingerprint;
+        } else if (term instanceof BuiltinList) {
+            BuiltinList list = (BuiltinList) term;
+            return fingerprint.add(list.sort().toString())
+                    .add(fingerprint(list.operatorKLabel))
+                    .add(fingerprint(list.unitKLabel))
+                    .addOrdered(list.children);
+        } else if (term instanceof BuiltinMap) {
+            BuiltinMap map = (BuiltinMap) term;
+            long highSum = 0;
+            long lowSum = 0;
+            for (Map.Entry<Term, Term> entry : map.getEntries().entrySet()) {
+                Fingerprint entryFingerprint = new Fingerprint(Map.Entry.class)
+                        .add(fingerprint(entry.getKey()))
+                        .add(fingerprint(entry.getValue()));
+                highSum += entryFingerprint.high;
+                lowSum += entryFingerprint.low;
+            }
+            fingerprint.add(highSum, lowSum).add(map.getEntries().size(), map.getEntries().size());
+            return addBaseTerms(fingerprint, map);
+        } else if (term instanceof BuiltinSet) {
+            BuiltinSet set = (BuiltinSet) term;
+            return addBaseTerms(fingerprint.addUnordered(set.elements()), set);
+        } else if (term instanceof ConjunctiveFormula) {
+            ConjunctiveFormula formula = (ConjunctiveFormula) term;
+            long highSum = 0;
+            long lowSum = 0;
+            for (Map.Entry<Variable, Term> entry : formula.substitution().entrySet()) {
+                Fingerprint entryFingerprint = new Fingerprint(Map.Entry.class)
+                        .add(fingerprint(entry.getKey()))
+                        .add(fingerprint(entry.getValue()));
+                highSum += entryFingerprint.high;
+                lowSum += entryFingerprint.low;
+            }
+            fingerprint.add(highSum, lowSum).add(formula.substitution().size(), formula.substitution().size());
+            for (Equality equality : formula.equalities()) {
+                fingerprint.add(fingerprint(equality.leftHandSide())).add(fingerprint(equality.rightHandSide()));
+            }
+            fingerprint.add(formula.equalities().size(), formula.equalities().size());
+            return fingerprint.addOrdered(formula.disjunctions());
+        } else if (term instanceof DisjunctiveFormula) {
+            return fingerprint.addOrdered(((DisjunctiveFormula) term).conjunctions());
+        } else {
+            return fingerprint.add(term.toString());
+        }
+    }
+
+    private static Fingerprint addBaseTerms(Fingerprint fingerprint, AssociativeCommutativeCollection collection) {
+        return fingerprint
+                .addUnordered(collection.collectionPatterns())
+                .addUnordered(collection.collectionFunctions())
+                .addUnordered(collection.collectionVariables());
+    }
+}
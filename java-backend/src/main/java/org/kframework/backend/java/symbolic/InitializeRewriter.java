@@ -2,6 +2,8 @@
 package org.kframework.backend.java.symbolic;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.inject.Inject;
 import org.kframework.RewriterResult;
 import org.kframework.attributes.Att;
@@ -13,6 +15,7 @@ import org.kframework.backend.java.kil.GlobalContext;
 import org.kframework.backend.java.kil.KItem;
 import org.kframework.backend.java.kil.KLabelConstant;
 import org.kframework.backend.java.kil.KList;
+import org.kframework.backend.java.kil.Sort;
 import org.kframework.backend.java.kil.Term;
 import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.util.HookProvider;
@@ -24,6 +27,7 @@ import org.kframework.compile.ExpandMacros;
 import org.kframework.compile.ResolveSemanticCasts;
 import org.kframework.definition.Module;
 import org.kframework.definition.Rule;
+import org.kframework.definition.Sentence;
 import org.kframework.kompile.KompileOptions;
 import org.kframework.kore.K;
 import org.kframework.kore.KApply;
@@ -35,21 +39,35 @@ import org.kframework.main.GlobalOptions;
 import org.kframework.rewriter.Rewriter;
 import org.kframework.rewriter.SearchType;
 import org.kframework.unparser.KPrint;
+import org.kframework.utils.BinaryLoader;
+import org.kframework.utils.BinarySections;
 import org.kframework.utils.errorsystem.KEMException;
+import org.kframework.utils.errorsystem.KException.ExceptionType;
 import org.kframework.utils.errorsystem.KExceptionManager;
 import org.kframework.utils.file.FileUtil;
+import org.kframework.utils.file.JarInfo;
 import org.kframework.utils.options.SMTOptions;
 import scala.Function1;
 import scala.Tuple2;
 import scala.collection.JavaConversions;
 
 import javax.annotation.Nullable;
+import java.io.File;
+import java.io.Serializable;
 import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -75,6 +93,9 @@ public class InitializeRewriter implements Function<org.kframework.definition.De
     private final KPrint kprint;
     private final Profiler2 profiler;
     private final JavaExecutionOptions javaExecutionOptions;
+    private final BinaryLoader loader;
+
+    private static final String DEFINITION_CACHE = "java-backend-definition.bin";
 
     @Inject
     public InitializeRewriter(
@@ -89,7 +110,8 @@ public class InitializeRewriter implements Function<org.kframework.definition.De
             FileUtil files,
             InitializeDefinition initializeDefinition,
             KPrint kprint,
-            Profiler2 profiler) {
+            Profiler2 profiler,
+            BinaryLoader loader) {
         this.fs = fs;
         this.globalOptions = globalOptions;
         this.kem = kem;
@@ -104,6 +126,7 @@ public class InitializeRewriter implements Function<org.kframework.definition.De
         this.initializeDefinition = initializeDefinition;
         this.kprint = kprint;
         this.profiler = profiler;
+        this.loader = loader;
         chainOptions();
     }
 
@@ -118,13 +141,109 @@ public class InitializeRewriter implements Function<org.kframework.definition.De
     @Override
     public synchronized Rewriter apply(org.kframework.definition.Definition def) {
         GlobalContext initializingContext = newGlobalContext(def, Stage.INITIALIZING);
-        Definition definition = initializeDefinition.invoke(def.mainModule(), kem, initializingContext);
+        Definition definition = javaExecutionOptions.cacheDefinition
+                ? loadOrInitializeDefinition(def.mainModule(), initializingContext)
+                : initializeDefinition.invoke(def.mainModule(), kem, initializingContext);
         GlobalContext rewritingContext = newGlobalContext(def, Stage.REWRITING);
         rewritingContext.setDefinition(definition);
+        profiler.startMetricsExport(rewritingContext);
 
         return new SymbolicRewriterGlue(definition, def.mainModule(), rewritingContext);
     }
 
+    /**
+     * Loads the backend definition of {@code module} saved in the kompiled directory by a previous run with
+     * --cache-definition, or initializes it and saves it for later runs. Terms of the loaded definition refer to
+     * {@code initializingContext}, as if they had been built by {@link InitializeDefinition#invoke}.
+     */
+    private Definition loadOrInitializeDefinition(Module module, GlobalContext initializingContext) {
+        File cacheFile = files.resolveKompiled(DEFINITION_CACHE);
+        DefinitionCacheKey key = new DefinitionCacheKey(module, transitions, hookProvider.keySet());
+        if (BinarySections.isSectioned(cacheFile)) {
+            try {
+                BinarySections sections = loader.loadSectionsOrDie(cacheFile);
+                if (key.equals(sections.load("key", DefinitionCacheKey.class))) {
+                    Definition definition = initializingContext.readWithContext(
+                            () -> sections.load("definition", Definition.class));
+                    definition.setKem(kem);
+                    initializingContext.setDefinition(definition);
+                    return definition;
+                }
+            } catch (KEMException e) {
+                kem.registerInternalWarning(ExceptionType.INVALIDATED_CACHE,
+                        "Invalidating serialized cache due to corruption.", e);
+            }
+        }
+        Definition definition = initializeDefinition.invoke(module, kem, initializingContext);
+        Map<String, Object> sections = new LinkedHashMap<>();
+        sections.put("key", key);
+        sections.put("definition", definition);
+        loader.saveSectionsCache(cacheFile, sections);
+        return definition;
+    }
+
+    /**
+     * Identifies what a cached definition was built from: a hash of the contents of the module, of the options and
+     * hooks of the backend, and of the code of the backend itself. Sorts and klabels are numbered in order of
+     * creation, so the numbers already in use must also match for the cached ones to be valid in this process.
+     */
+    static final class DefinitionCacheKey implements Serializable {
+        private final String moduleName;
+        private final String contentHash;
+        private final int sortOrdinal;
+        private final int kLabelOrdinal;
+
+        DefinitionCacheKey(Module module, List<String> transitions, Set<String> hooks) {
+            this.moduleName = module.name();
+            this.contentHash = contentHash(module, transitions, hooks);
+            this.sortOrdinal = Sort.maxOrdinal.get();
+            this.kLabelOrdinal = KLabelConstant.maxOrdinal.get();
+        }
+
+        /**
+         * Hashes the sentences of the module and its imports by their textual form, which, unlike
+         * {@link Module#hashCode}, changes whenever a rule or production does.
+         */
+        private static String contentHash(Module module, List<String> transitions, Set<String> hooks) {
+            Hasher hasher = Hashing.sha256().newHasher();
+            hasher.putString(JarInfo.getCodeVersion(InitializeRewriter.class), StandardCharsets.UTF_8).putInt(0);
+            hasher.putString(module.name(), StandardCharsets.UTF_8).putInt(0);
+            hasher.putString(module.att().toString(), StandardCharsets.UTF_8).putInt(0);
+            List<String> sentences = JavaConversions.setAsJavaSet(module.sentences()).stream()
+                    .map(Sentence::toString)
+                    .sorted()
+                    .collect(Collectors.toList());
+            for (String sentence : sentences) {
+                hasher.putString(sentence, StandardCharsets.UTF_8).putInt(0);
+            }
+            hasher.putInt(sentences.size());
+            for (String transition : transitions) {
+                hasher.putString(transition, StandardCharsets.UTF_8).putInt(0);
+            }
+            hasher.putInt(transitions.size());
+            for (String hook : hooks.stream().sorted().collect(Collectors.toList())) {
+                hasher.putString(hook, StandardCharsets.UTF_8).putInt(0);
+            }
+            return hasher.putInt(hooks.size()).hash().toString();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            DefinitionCacheKey that = (DefinitionCacheKey) o;
+            return sortOrdinal == that.sortOrdinal
+                    && kLabelOrdinal == that.kLabelOrdinal
+                    && moduleName.equals(that.moduleName)
+                    && contentHash.equals(that.contentHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return ((moduleName.hashCode() * 31 + contentHash.hashCode()) * 31 + sortOrdinal) * 31 + kLabelOrdinal;
+        }
+    }
+
     public GlobalContext newGlobalContext(org.kframework.definition.Definition def, Stage stage) {
         return new GlobalContext(fs, globalOptions, krunOptions, kproveOptions, javaExecutionOptions, kem, smtOptions,
                 hookProvider, files, stage, profiler, kprint, def);
@@ -236,32 +355,15 @@ public class InitializeRewriter implements Function<org.kframework.definition.De
             }
 
             rewritingContext.setExecutionPhase(true);
-            List<ConstrainedTerm> proofResults = proofObligationRules.stream()
+            List<org.kframework.backend.java.kil.Rule> claims = proofObligationRules.stream()
                     .filter(r -> !r.att().contains(Att.TRUSTED()))
-                    .map(r -> {
-                        //Build LHS with fully evaluated constraint. Then expand patterns.
-                        ConjunctiveFormula constraint = processProofRules.getEvaluatedConstraint(r);
-                        ConstrainedTerm lhs = new ConstrainedTerm(r.leftHandSide(), constraint, termContext);
-                        termContext.setTopConstraint(constraint);
-                        lhs = lhs.expandPatterns(true);
-
-                        //Build RHS with fully evaluated ensures. RHS term is already evaluated.
-                        ConjunctiveFormula ensures = (ConjunctiveFormula) processProofRules.evaluate(
-                                ConjunctiveFormula.of(termContext.global()).addAll(r.ensures()), constraint, termContext);
-                        ConstrainedTerm rhs = new ConstrainedTerm(
-                                r.rightHandSide(), ensures, TermContext.builder(termContext.global()).build());
-
-                        termContext.setInitialLhsVariables(lhs.variableSet());
-                        termContext.setTopConstraint(null);
-                        if (rewritingContext.javaExecutionOptions.cacheFunctionsOptimized) {
-                            rewritingContext.functionCache.clear();
-                        }
-                        rewritingContext.stateLog.log(StateLog.LogEvent.REACHINIT,   lhs.term(), lhs.constraint());
-                        rewritingContext.stateLog.log(StateLog.LogEvent.REACHTARGET, rhs.term(), rhs.constraint());
-                        return rewriter.proveRule(r, lhs, rhs, kem, javaBoundaryPattern);
-                    })
-                    .flatMap(List::stream)
                     .collect(Collectors.toList());
+            List<ConstrainedTerm> proofResults = javaExecutionOptions.parallelClaims > 1
+                    ? proveClaimsInParallel(claims, specModule, javaBoundaryPattern)
+                    : claims.stream()
+                            .map(r -> proveClaim(r, processProofRules, termContext, rewriter, javaBoundaryPattern))
+                            .flatMap(List::stream)
+                            .collect(Collectors.toList());
 
             for (ConstrainedTerm res: proofResults) {
                 rewritingContext.stateLog.log(StateLog.LogEvent.REACHUNPROVED, res.term(), res.constraint());
@@ -281,6 +383,78 @@ public class InitializeRewriter implements Function<org.kframework.definition.De
             return new RewriterResult(Optional.empty(), Optional.of(exit), result);
         }
 
+        private List<ConstrainedTerm> proveClaim(org.kframework.backend.java.kil.Rule r,
+                                                 ProcessProofRules processProofRules, TermContext termContext,
+                                                 SymbolicRewriter rewriter,
+                                                 @Nullable org.kframework.backend.java.kil.Rule javaBoundaryPattern) {
+            //Build LHS with fully evaluated constraint. Then expand patterns.
+            ConjunctiveFormula constraint = processProofRules.getEvaluatedConstraint(r, termContext);
+            ConstrainedTerm lhs = new ConstrainedTerm(r.leftHandSide(), constraint, termContext);
+            termContext.setTopConstraint(constraint);
+            lhs = lhs.expandPatterns(true);
+
+            //Build RHS with fully evaluated ensures. RHS term is already evaluated.
+            ConjunctiveFormula ensures = (ConjunctiveFormula) processProofRules.evaluate(
+                    ConjunctiveFormula.of(termContext.global()).addAll(r.ensures()), constraint, termContext);
+            ConstrainedTerm rhs = new ConstrainedTerm(
+                    r.rightHandSide(), ensures, TermContext.builder(termContext.global()).build());
+
+            termContext.setInitialLhsVariables(lhs.variableSet());
+            termContext.setTopConstraint(null);
+            // the function cache is shared by the workers of --parallel-claims, which may be using it
+            if (rewritingContext.javaExecutionOptions.cacheFunctionsOptimized
+                    && rewritingContext.javaExecutionOptions.parallelClaims <= 1) {
+                rewritingContext.functionCache.clear();
+            }
+            rewritingContext.stateLog.log(StateLog.LogEvent.REACHINIT,   lhs.term(), lhs.constraint());
+            rewritingContext.stateLog.log(StateLog.LogEvent.REACHTARGET, rhs.term(), rhs.constraint());
+            return rewriter.proveRule(r, lhs, rhs, kem, javaBoundaryPattern);
+        }
+
+        /**
+         * Proves each claim on a pool of {@code javaExecutionOptions.parallelClaims} worker threads. Every claim gets
+         * its own {@link TermContext} (and thus its own fresh counter and top constraint), its own converter and its
+         * own {@link SymbolicRewriter}. The definition and the {@link GlobalContext} caches are shared.
+         * <p>
+         * Results are concatenated in the order of {@code claims}, regardless of the order in which proofs finish.
+         */
+        private List<ConstrainedTerm> proveClaimsInParallel(List<org.kframework.backend.java.kil.Rule> claims,
+                                                            Module specModule,
+                                                            @Nullable Rule boundaryPattern) {
+            ExecutorService pool = Executors.newFixedThreadPool(
+                    Math.min(javaExecutionOptions.parallelClaims, Math.max(claims.size(), 1)));
+            try {
+                List<Future<List<ConstrainedTerm>>> futures = new ArrayList<>();
+                for (org.kframework.backend.java.kil.Rule claim : claims) {
+                    futures.add(pool.submit(() -> {
+                        ProcessProofRules workerRules = new ProcessProofRules(specModule, false);
+                        SymbolicRewriter workerRewriter =
+                                new SymbolicRewriter(rewritingContext, transitions, workerRules.converter);
+                        return proveClaim(claim, workerRules, workerRules.termContext, workerRewriter,
+                                convertToJavaPattern(workerRules.converter, boundaryPattern));
+                    }));
+                }
+                List<ConstrainedTerm> proofResults = new ArrayList<>();
+                for (Future<List<ConstrainedTerm>> future : futures) {
+                    proofResults.addAll(future.get());
+                }
+                return proofResults;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw KEMException.criticalError("Interrupted while proving claims in parallel", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw KEMException.criticalError("Exception while proving claims in parallel", cause);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
         @Override
         public RewriterResult bmc(Module mod) {
             throw new UnsupportedOperationException();
@@ -359,10 +533,20 @@ public class InitializeRewriter implements Function<org.kframework.definition.De
             private final List<org.kframework.backend.java.kil.Rule> specRules;
 
             public ProcessProofRules(Module specModule) {
+                this(specModule, true);
+            }
+
+            /**
+             * @param processClaims Whether to convert and pre-evaluate the claims of {@code specModule}. Worker
+             *                      threads of parallel proving only need the converter and the term context.
+             */
+            public ProcessProofRules(Module specModule, boolean processClaims) {
                 converter = new KOREtoBackendKIL(module, definition, rewritingContext, false);
                 termContext = TermContext.builder(rewritingContext).freshCounter(initCounterValue).build();
                 termContext.setKOREtoBackendKILConverter(converter);
-                specRules = definition.addKoreClaims(specModule, converter, this::evaluateRule);
+                specRules = processClaims
+                            ? definition.addKoreClaims(specModule, converter, this::evaluateRule)
+                            : Collections.emptyList();
             }
 
             private org.kframework.backend.java.kil.Rule evaluateRule(org.kframework.backend.java.kil.Rule rule) {
@@ -392,6 +576,11 @@ public class InitializeRewriter implements Function<org.kframework.definition.De
             }
 
             private ConjunctiveFormula getEvaluatedConstraint(org.kframework.backend.java.kil.Rule rule) {
+                return getEvaluatedConstraint(rule, termContext);
+            }
+
+            private ConjunctiveFormula getEvaluatedConstraint(org.kframework.backend.java.kil.Rule rule,
+                                                              TermContext termContext) {
                 termContext.setTopConstraint(null);
                 //We need this ConsTerm only to evaluate the constraint. That's why we use an empty first argument.
                 ConstrainedTerm constraintHolder = new ConstrainedTerm(
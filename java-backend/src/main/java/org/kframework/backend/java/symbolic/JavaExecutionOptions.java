@@ -53,11 +53,60 @@ public final class JavaExecutionOptions {
     @Parameter(names="--cache-formulas", description="Cache results of ConjunctiveFormula.simplify().")
     public boolean cacheFormulas = false;
 
+    @Parameter(names="--cache-func-max-size", description="Maximum number of function evaluation results " +
+            "cached, counting each evaluated term once per constraint. When the limit is reached, least recently " +
+            "used entries are evicted. Default is 0, i.e. unbounded.")
+    public int cacheFunctionsMaxSize = 0;
+
+    @Parameter(names="--cache-formulas-max-size", description="Maximum number of entries in the cache used by " +
+            "--cache-formulas. When the limit is reached, least recently used entries are evicted. " +
+            "Default is 0, i.e. unbounded.")
+    public int cacheFormulasMaxSize = 0;
+
+    @Parameter(names="--cache-soft-references", description="Hold the values of function and formula caches " +
+            "through soft references, so that they are reclaimed by the garbage collector under memory pressure " +
+            "instead of causing OutOfMemoryError.")
+    public boolean cacheSoftReferences = false;
+
     @Parameter(names="--cache-tostring",
             description="Cache toString() result for KItem, Equality and DisjunctiveFormula. " +
                     "Speeds up logging but eats more memory.", arity = 1)
     public boolean cacheToString = true;
 
+    @Parameter(names="--hash-cons-terms", description="Share structurally equal ground terms built during " +
+            "execution through a weak global table, so that they are compared by reference and allocated once. " +
+            "Uses less memory and speeds up caches on executions with many repeated subterms, at the cost of a " +
+            "table lookup for each new term. Source attributes of the first occurrence of a term are kept.")
+    public boolean hashConsTerms = false;
+
+    @Parameter(names="--cache-definition", description="Save the rules, automaton and indices that the Java " +
+            "backend builds from the kompiled definition to the kompiled directory on the first run, and load them " +
+            "on later runs instead of building them again. They are built again when the main module changes.")
+    public boolean cacheDefinition = false;
+
+    @Parameter(names="--parallel-claims", description="Number of claims in the specification module to prove " +
+            "concurrently. Each claim is proved on its own worker thread, with its own term context. Results are " +
+            "reported in the order claims appear in the specification. Default is 1, i.e. sequential proving.")
+    public int parallelClaims = 1;
+
+    @Parameter(names="--parallel-search", description="Number of threads used by --search to expand the states " +
+            "of each breadth-first level concurrently. Fresh constants are numbered along each path instead of by " +
+            "one shared counter, so their names may differ from the sequential search. Results are reported in " +
+            "the order the sequential search finds them. Default is 1, i.e. sequential search.")
+    public int parallelSearch = 1;
+
+    @Parameter(names="--fingerprint-states", description="Remember the states visited by --search and by proofs " +
+            "only by 128-bit fingerprints of their term and constraint, stored outside the Java heap. Uses much " +
+            "less memory on large explorations, at the cost of a tiny probability of wrongly treating a new state " +
+            "as visited; a bound on this probability is reported by --statistics for searches and by --verbose for " +
+            "proofs.")
+    public boolean fingerprintStates = false;
+
+    @Parameter(names="--fingerprint-memory", description="Size in MB up to which the fingerprint table of " +
+            "--fingerprint-states is kept in direct memory, growing as needed; at most a third of the JVM's " +
+            "-XX:MaxDirectMemorySize is used. Larger tables are memory-mapped from a temporary file.")
+    public int fingerprintMemory = 64;
+
     @Parameter(names="--format-failures", description="Format failure final states. By default they are printed all " +
             "on one line, using ConstrainedTerm.toString(). If option is enabled, they are printed a bit nicer, " +
             "using custom ConjunctiveFormula formatter, but still fast. Disabled by default for output compatibility " +
@@ -145,6 +194,25 @@ public final class JavaExecutionOptions {
                     "WARNING: Execution time with this option is longer because System.gc() is invoked in 3 places.")
     public boolean profileMemAdv = false;
 
+    @Parameter(names="--metrics-file", description="Periodically export profiling metrics: timers, Z3 queries and " +
+            "latencies, cache sizes, proof queue size and JVM memory. Each snapshot is appended to the given file " +
+            "as a line of JSON, and written to <file>.prom in the OpenMetrics text format.")
+    public String metricsFile;
+
+    @Parameter(names="--metrics-port", description="Serve the last snapshot of the metrics of --metrics-file in " +
+            "the OpenMetrics text format over HTTP, on the given port of 127.0.0.1.")
+    public Integer metricsPort;
+
+    @Parameter(names="--metrics-interval", description="Seconds between two snapshots of --metrics-file and " +
+            "--metrics-port. Must be at least 1.")
+    public int metricsInterval = 10;
+
+    @Parameter(names="--profile-rules", description="Attribute the time, allocated memory and invocations of " +
+            "rewriting, function evaluation and SMT queries to the rules and functions responsible. On exit, write " +
+            "the profile to the given file in the collapsed-stack format of flame graphs, the allocations to " +
+            "<file>.alloc, and a summary per rule and function to <file>.summary.")
+    public String profileRules;
+
     @Parameter(names="--skip-invoking-backend", description="Skip invoking the Java Backend.")
     public boolean skipInvokingBackend = false;
 
@@ -45,6 +45,7 @@ public class SMTOperations {
 
         IndentingFormatter log = constraint.globalContext().log();
         boolean result = false;
+        constraint.globalContext().profiler.ruleProfiler.enter("smt checkUnsat");
         try {
             constraint.globalContext().profiler.queryBuildTimer.start();
             CharSequence query;
@@ -73,6 +74,8 @@ public class SMTOperations {
         } catch (KEMException e) {
             e.exception.formatTraceFrame("\nwhile checking satisfiability for:\n%s", constraint.toStringMultiline());
             throw e;
+        } finally {
+            constraint.globalContext().profiler.ruleProfiler.exit();
         }
         return result;
     }
@@ -87,6 +90,7 @@ public class SMTOperations {
             Set<Variable> existentialQuantVars, FormulaContext formulaContext) {
         if (smtOptions.smt == SMTSolver.Z3) {
             IndentingFormatter log = left.globalContext().log();
+            left.globalContext().profiler.ruleProfiler.enter("smt impliesSMT");
             try {
                 left.globalContext().profiler.queryBuildTimer.start();
                 CharSequence query;
@@ -122,6 +126,8 @@ public class SMTOperations {
                 e.exception.formatTraceFrame("\nwhile proving implication LHS:\n%s\nRHS:\n%s",
                         left.toStringMultiline(), right.toStringMultiline());
                 throw e;
+            } finally {
+                left.globalContext().profiler.ruleProfiler.exit();
             }
         }
         return false;
@@ -54,6 +54,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -340,7 +344,7 @@ public class SymbolicRewriter {
      */
     private Term buildRHS(Term subject, Substitution<Variable, Term> substitution, scala.collection.immutable.List<Pair<Integer, Integer>> path, Term rhs, TermContext context) {
         if (path.isEmpty()) {
-            return rhs.substituteAndEvaluate(substitution, context);
+            return definition.compiledRHS(rhs).construct(substitution, context);
         } else {
             if (subject instanceof KItem) {
                 KItem kItemSubject = (KItem) subject;
@@ -352,13 +356,16 @@ public class SymbolicRewriter {
                         .resolveFunctionAndAnywhere(context);
             } else if (subject instanceof BuiltinList) {
                 BuiltinList builtinListSubject = (BuiltinList) subject;
-                List<Term> newContents = new ArrayList<>(builtinListSubject.children);
+                int index = path.head().getLeft();
                 //noinspection RedundantCast
-                newContents.set(path.head().getLeft(), buildRHS(newContents.get(path.head().getLeft()), substitution,
-                        (scala.collection.immutable.List<Pair<Integer, Integer>>) path.tail(), rhs, context));
+                Term newChild = buildRHS(builtinListSubject.get(index), substitution,
+                        (scala.collection.immutable.List<Pair<Integer, Integer>>) path.tail(), rhs, context);
+                // the unchanged parts of the list are shared, not copied
                 return BuiltinList
                         .builder(builtinListSubject.sort, builtinListSubject.operatorKLabel, builtinListSubject.unitKLabel, builtinListSubject.globalContext())
-                        .addAll(newContents)
+                        .add(builtinListSubject.range(0, index))
+                        .add(newChild)
+                        .add(builtinListSubject.range(index + 1, builtinListSubject.size()))
                         .build();
             } else {
                 throw new AssertionError("unexpected rewrite in subject: " + subject);
@@ -372,7 +379,7 @@ public class SymbolicRewriter {
      */
     private Term buildRHS(Term subject, Substitution<Variable, Term> substitution, List<Pair<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>> rewrites, TermContext context) {
         if (rewrites.size() == 1 && rewrites.get(0).getLeft().isEmpty()) {
-            return rewrites.get(0).getRight().substituteAndEvaluate(substitution, context);
+            return definition.compiledRHS(rewrites.get(0).getRight()).construct(substitution, context);
         }
 
         Map<Pair<Integer, Integer>, List<Pair<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>>> commonPath = rewrites.stream().collect(Collectors.groupingBy(rw -> rw.getLeft().head()));
@@ -479,17 +486,24 @@ public class SymbolicRewriter {
         assert Sets.intersection(subject.term().variableSet(),
                 subject.constraint().substitution().keySet()).isEmpty();
         assert pattern.requires().stream().allMatch(BoolToken.TRUE::equals) && pattern.lookups().getKComponents().isEmpty();
+        searchResults.addAll(searchMatches(subject, pattern, context));
+        return searchResults.size() == bound;
+    }
+
+    /**
+     * @return the search results contributed by {@code subject}, i.e. its matches of the search pattern.
+     */
+    private static List<K> searchMatches(ConstrainedTerm subject, Rule pattern, TermContext context) {
         List<Substitution<Variable, Term>> discoveredSearchResults = FastRuleMatcher.match(
                 subject.term(),
                 pattern.leftHandSide(),
                 subject.termContext());
-        if (!discoveredSearchResults.isEmpty()) {
-            for (Substitution<Variable, Term> searchResult : discoveredSearchResults) {
-                ConjunctiveFormula conjunct = new ConjunctiveFormula(searchResult, subject.constraint().equalities(), PersistentUniqueList.empty(), subject.constraint().truthValue(), context.global());
-                searchResults.add(conjunct);
-            }
+        List<K> searchResults = new ArrayList<>(discoveredSearchResults.size());
+        for (Substitution<Variable, Term> searchResult : discoveredSearchResults) {
+            ConjunctiveFormula conjunct = new ConjunctiveFormula(searchResult, subject.constraint().equalities(), PersistentUniqueList.empty(), subject.constraint().truthValue(), context.global());
+            searchResults.add(conjunct);
         }
-        return searchResults.size() == bound;
+        return searchResults;
     }
 
     /**
@@ -508,10 +522,13 @@ public class SymbolicRewriter {
             int depth,
             SearchType searchType,
             TermContext context) {
+        if (global.javaExecutionOptions.parallelSearch > 1 && depth != 0) {
+            return parallelSearch(initialTerm, pattern, bound, depth, searchType, context);
+        }
         stopwatch.start();
 
         List<K> searchResults = new ArrayList<>();
-        Set<ConstrainedTerm> visited = Sets.newHashSet();
+        Set<ConstrainedTerm> visited = newVisitedSet(Sets::newHashSet);
 
         ConstrainedTerm initCnstrTerm = new ConstrainedTerm(initialTerm, context);
 
@@ -595,10 +612,206 @@ public class SymbolicRewriter {
         stopwatch.stop();
         if (context.global().krunOptions.statistics) {
             System.err.println("[" + visited.size() + "states, " + step + "steps, " + stopwatch + "]");
+            if (visited instanceof FingerprintedStateSet) {
+                System.err.println("[" + visited + "]");
+            }
+        }
+        return disjunctResults(searchResults);
+    }
+
+    /**
+     * A state of the search frontier.
+     */
+    private static final class SearchNode {
+        final ConstrainedTerm term;
+        final int depth;
+        /**
+         * Value of the fresh counter after the step that produced this state.
+         */
+        final long freshCounter;
+
+        SearchNode(ConstrainedTerm term, int depth, long freshCounter) {
+            this.term = term;
+            this.depth = depth;
+            this.freshCounter = freshCounter;
+        }
+    }
+
+    /**
+     * The outcome of one rewrite step on a {@link SearchNode}, computed by a worker thread.
+     */
+    private static final class SearchExpansion {
+        final List<ConstrainedTerm> results;
+        /**
+         * Whether each result was already visited at a previous level.
+         */
+        final boolean[] visitedBefore;
+        /**
+         * The pattern matches of each result, or null if results are not matched at this depth.
+         */
+        final List<List<K>> resultMatches;
+        /**
+         * The pattern matches of the expanded state if it is final and only final states are matched, otherwise null.
+         */
+        final List<K> finalMatches;
+        final Set<ConstrainedTerm> newSuperheated;
+        final long freshCounter;
+
+        SearchExpansion(List<ConstrainedTerm> results, boolean[] visitedBefore, List<List<K>> resultMatches,
+                        List<K> finalMatches, Set<ConstrainedTerm> newSuperheated, long freshCounter) {
+            this.results = results;
+            this.visitedBefore = visitedBefore;
+            this.resultMatches = resultMatches;
+            this.finalMatches = finalMatches;
+            this.newSuperheated = newSuperheated;
+            this.freshCounter = freshCounter;
+        }
+    }
+
+    /**
+     * Breadth-first search expanding the states of each level in parallel, on a work-stealing
+     * {@link ForkJoinPool} of --parallel-search threads, each with its own rewriter and term context.
+     * <p>
+     * The successors and pattern matches of a level are computed concurrently, against the visited set of the
+     * previous levels, and then merged in the order of the level, so that the order of the results, the number of
+     * explored states and the handling of {@code depth}, {@code bound} and {@code searchType} are the same as in
+     * {@link #search} and independent of thread scheduling. Fresh constants are numbered along each path, from the
+     * counter value of the state being expanded, instead of from a single counter shared by all states. Their names,
+     * and hence the results, may thus differ from those of {@link #search} when rules generate fresh constants.
+     */
+    private K parallelSearch(
+            Term initialTerm,
+            Rule pattern,
+            int bound,
+            int depth,
+            SearchType searchType,
+            TermContext context) {
+        stopwatch.start();
+
+        List<K> searchResults = new ArrayList<>();
+        Set<ConstrainedTerm> visited = newVisitedSet(ConcurrentHashMap::newKeySet);
+
+        ConstrainedTerm initCnstrTerm = new ConstrainedTerm(initialTerm, context);
+        visited.add(initCnstrTerm);
+
+        if (searchType == SearchType.ONE) {
+            depth = 1;
+        }
+        int step = 0;
+        if (searchType != SearchType.STAR || !addSearchResult(searchResults, initCnstrTerm, pattern, bound, context)) {
+            ThreadLocal<SymbolicRewriter> workers = ThreadLocal.withInitial(
+                    () -> new SymbolicRewriter(global, transitions, constructor));
+            ForkJoinPool pool = new ForkJoinPool(global.javaExecutionOptions.parallelSearch);
+            try {
+                List<SearchNode> level = Collections.singletonList(
+                        new SearchNode(initCnstrTerm, 0, context.getCounterValue()));
+                Set<ConstrainedTerm> levelSuperheated = Collections.emptySet();
+            label:
+                for (step = 0; !level.isEmpty(); ++step) {
+                    int currentStep = step;
+                    int maxDepth = depth;
+                    List<SearchNode> currentLevel = level;
+                    Set<ConstrainedTerm> currentSuperheated = levelSuperheated;
+                    SearchExpansion[] expansions = pool.submit(() -> currentLevel.parallelStream()
+                            .map(node -> workers.get().expandSearchNode(node, currentStep, maxDepth, searchType,
+                                    pattern, visited, currentSuperheated, initCnstrTerm, context))
+                            .toArray(SearchExpansion[]::new)).get();
+
+                    List<SearchNode> nextLevel = new ArrayList<>();
+                    levelSuperheated = new HashSet<>();
+                    for (int i = 0; i < expansions.length; i++) {
+                        SearchNode node = currentLevel.get(i);
+                        SearchExpansion expansion = expansions[i];
+                        levelSuperheated.addAll(expansion.newSuperheated);
+                        if (expansion.finalMatches != null) {
+                            searchResults.addAll(expansion.finalMatches);
+                            if (searchResults.size() == bound) {
+                                break label;
+                            }
+                        }
+                        for (int j = 0; j < expansion.results.size(); j++) {
+                            ConstrainedTerm result = expansion.results.get(j);
+                            if (node.depth + 1 != depth && !expansion.visitedBefore[j] && visited.add(result)) {
+                                nextLevel.add(new SearchNode(result, node.depth + 1, expansion.freshCounter));
+                            }
+                            if (expansion.resultMatches != null) {
+                                searchResults.addAll(expansion.resultMatches.get(j));
+                                if (searchResults.size() == bound) {
+                                    break label;
+                                }
+                            }
+                        }
+                    }
+                    level = nextLevel;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw KEMException.criticalError("Interrupted during parallel search", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw KEMException.criticalError("Exception during parallel search", cause);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        stopwatch.stop();
+        if (context.global().krunOptions.statistics) {
+            System.err.println("[" + visited.size() + "states, " + step + "steps, " + stopwatch + "]");
+            if (visited instanceof FingerprintedStateSet) {
+                System.err.println("[" + visited + "]");
+            }
         }
         return disjunctResults(searchResults);
     }
 
+    /**
+     * Computes the successors of {@code node} and their pattern matches. Called on the worker thread owning this
+     * rewriter; only reads {@code visited}.
+     */
+    private SearchExpansion expandSearchNode(
+            SearchNode node,
+            int step,
+            int depth,
+            SearchType searchType,
+            Rule pattern,
+            Set<ConstrainedTerm> visited,
+            Set<ConstrainedTerm> levelSuperheated,
+            ConstrainedTerm initTerm,
+            TermContext context) {
+        superheated.clear();
+        superheated.addAll(levelSuperheated);
+        newSuperheated.clear();
+
+        TermContext workerContext = TermContext.builder(global).freshCounter(node.freshCounter).build();
+        workerContext.setKOREtoBackendKILConverter(context.getKOREtoBackendKILConverter());
+        ConstrainedTerm subject = new ConstrainedTerm(node.term.term(), node.term.constraint(), workerContext);
+
+        List<ConstrainedTerm> results = computeRewriteStep(subject, step, false, initTerm);
+
+        List<K> finalMatches = results.isEmpty() && searchType == SearchType.FINAL
+                ? searchMatches(subject, pattern, context)
+                : null;
+        boolean matchResults = searchType != SearchType.FINAL || node.depth + 1 == depth;
+        List<List<K>> resultMatches = matchResults ? new ArrayList<>(results.size()) : null;
+        boolean[] visitedBefore = new boolean[results.size()];
+        for (int i = 0; i < results.size(); i++) {
+            ConstrainedTerm result = results.get(i);
+            // also computes the hash code of the result off the merging thread
+            visitedBefore[i] = visited.contains(result);
+            if (matchResults) {
+                resultMatches.add(searchMatches(result, pattern, context));
+            }
+        }
+        return new SearchExpansion(results, visitedBefore, resultMatches, finalMatches,
+                new HashSet<>(newSuperheated), workerContext.getCounterValue());
+    }
+
     private K kApplyConversion(K k) {
         if (k instanceof KItem) {
             KItem kItem = (KItem) k;
@@ -636,7 +849,7 @@ public class SymbolicRewriter {
         List<ConstrainedTerm> proofResults = new ArrayList<>();
         List<ConstrainedTerm> successResults = new ArrayList<>();
         int successPaths = 0;
-        Set<ConstrainedTerm> visited = new HashSet<>();
+        Set<ConstrainedTerm> visited = newVisitedSet(HashSet::new);
         List<ConstrainedTerm> queue = new ArrayList<>();
         List<ConstrainedTerm> nextQueue = new ArrayList<>();
 
@@ -665,6 +878,7 @@ public class SymbolicRewriter {
         boolean nextStepLogEnabled = false;
         boolean originalLog = global.javaExecutionOptions.log;
         prevStats = new TimeMemoryEntry(false);
+        long publishedQueueSize = 0;
         while (!queue.isEmpty()) {
             step++;
             int v = 0;
@@ -678,6 +892,9 @@ public class SymbolicRewriter {
                 boolean alreadyLogged = false;
                 try {
                     v++;
+                    long queueSize = queue.size() - v + nextQueue.size();
+                    global.profiler.proofQueueSize.addAndGet(queueSize - publishedQueueSize);
+                    publishedQueueSize = queueSize;
                     term.termContext().setTopConstraint(null); //To remove leftover constraint from previous step
                     boolean boundaryCellsMatchTarget =
                             boundaryCellsMatchTarget(term, boundaryPattern, targetBoundarySub, step);
@@ -810,6 +1027,7 @@ public class SymbolicRewriter {
 
             global.javaExecutionOptions.log = originalLog;
         }
+        global.profiler.proofQueueSize.addAndGet(-publishedQueueSize);
 
         List<ConstrainedTerm> tweakedProofResults =
                 printFormattedFailuresAndGetTweakedResults(initialTerm, proofResults);
@@ -817,10 +1035,25 @@ public class SymbolicRewriter {
         printSuccessPCDiff(initialTerm, successResults);
         if (global.globalOptions.verbose) {
             printSummaryBox(rule, proofResults, successPaths, step, 0);
+            if (visited instanceof FingerprintedStateSet) {
+                System.err.println("Visited states: " + visited);
+            }
         }
         return tweakedProofResults;
     }
 
+    /**
+     * Returns an empty set of visited states: a {@link FingerprintedStateSet} if {@code --fingerprint-states} is
+     * set, otherwise a new exact set.
+     */
+    private Set<ConstrainedTerm> newVisitedSet(Supplier<Set<ConstrainedTerm>> exactSet) {
+        if (global.javaExecutionOptions.fingerprintStates) {
+            return new FingerprintedStateSet((long) global.javaExecutionOptions.fingerprintMemory << 20,
+                    global.files.resolveTemp("."));
+        }
+        return exactSet.get();
+    }
+
     /**
      * Print formatted failure final states, when {@code javaExecutionOptions.formatFailures} is true.
      *
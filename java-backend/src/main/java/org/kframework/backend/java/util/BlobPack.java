@@ -0,0 +1,76 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import com.google.common.hash.Hashing;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An append-only store of content-addressed blobs, kept in two files: {@code <name>.pack}, holding the contents of
+ * the blobs one after the other, and {@code <name>.idx}, holding one line {@code <id> <offset> <length>} per blob,
+ * where {@code <id>} is the hex 128-bit MurmurHash3 of its contents. Blobs already in an existing pack are not written
+ * again.
+ */
+public class BlobPack {
+
+    private final OutputStream pack;
+    private final PrintWriter index;
+    private final Set<String> ids = new HashSet<>();
+    private long offset;
+
+    public BlobPack(File directory, String name) throws IOException {
+        File packFile = new File(directory, name + ".pack");
+        File indexFile = new File(directory, name + ".idx");
+        if (indexFile.exists()) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(indexFile))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.indexOf(' ') > 0) {
+                        ids.add(line.substring(0, line.indexOf(' ')));
+                    }
+                }
+            }
+        }
+        offset = packFile.length();
+        pack = new BufferedOutputStream(new FileOutputStream(packFile, true));
+        index = new PrintWriter(new BufferedOutputStream(new FileOutputStream(indexFile, true)));
+    }
+
+    /**
+     * Appends {@code contents} to the pack, unless it is already there.
+     *
+     * @return the id of the blob.
+     */
+    public String write(byte[] contents) throws IOException {
+        String id = Hashing.murmur3_128().hashBytes(contents).toString();
+        if (ids.add(id)) {
+            pack.write(contents);
+            index.println(id + " " + offset + " " + contents.length);
+            offset += contents.length;
+        }
+        return id;
+    }
+
+    /**
+     * Flushes the pack before the index, so that the index never refers to missing contents.
+     */
+    public void flush() throws IOException {
+        pack.flush();
+        index.flush();
+    }
+
+    public void close() throws IOException {
+        flush();
+        pack.close();
+        index.close();
+    }
+}
@@ -0,0 +1,169 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache map with a configurable eviction policy, used for the runtime caches of the Java backend.
+ * <ul>
+ * <li>If {@code maxSize} is 0, the cache is unbounded, like a plain map.</li>
+ * <li>Otherwise, once the cache holds {@code maxSize} entries, the least recently used entry is evicted on each
+ * insertion.</li>
+ * <li>If {@code softValues} is true, values are held through {@link SoftReference}s, so the garbage collector may
+ * reclaim them before an {@link OutOfMemoryError} is thrown. The entries of reclaimed values, keys included, are
+ * removed on the next access, and count as evictions.</li>
+ * </ul>
+ * The cache keeps counts of entries, hits, misses and evictions, reported by {@link Profiler2}. They can be read from
+ * other threads than the ones using the cache, e.g. by the metrics exporter.
+ */
+public class BoundedCache<K, V> {
+
+    private final Map<K, Object> map;
+    private final boolean softValues;
+    private final ReferenceQueue<V> reclaimed = new ReferenceQueue<>();
+
+    private final AtomicInteger entries = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param concurrent Whether the cache is shared between threads.
+     */
+    public BoundedCache(int maxSize, boolean softValues, boolean concurrent) {
+        this.softValues = softValues;
+        if (maxSize <= 0) {
+            map = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        } else {
+            Map<K, Object> lru = new LinkedHashMap<K, Object>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Object> eldest) {
+                    if (size() > maxSize) {
+                        entries.decrementAndGet();
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+            // access-ordered maps are modified by get, so they need locking even for reads
+            map = concurrent ? Collections.synchronizedMap(lru) : lru;
+        }
+    }
+
+    /**
+     * A soft reference remembering its key, so that the entry can be removed once the value is reclaimed.
+     */
+    private static final class SoftValue<K, V> extends SoftReference<V> {
+        private final K key;
+
+        private SoftValue(K key, V value, ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+    }
+
+    public static <K, V> BoundedCache<K, V> unbounded() {
+        return new BoundedCache<>(0, false, false);
+    }
+
+    /**
+     * @return the cached value, or null if there is none.
+     */
+    public V get(K key) {
+        removeReclaimed();
+        V value = unwrap(key, map.get(key));
+        if (value != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        removeReclaimed();
+        if (map.put(key, softValues ? new SoftValue<>(key, value, reclaimed) : value) == null) {
+            entries.incrementAndGet();
+        }
+    }
+
+    private void removeReclaimed() {
+        if (!softValues) {
+            return;
+        }
+        Reference<? extends V> reference;
+        while ((reference = reclaimed.poll()) != null) {
+            if (map.remove(((SoftValue<?, ?>) reference).key, reference)) {
+                entries.decrementAndGet();
+                evictions.increment();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V unwrap(K key, Object value) {
+        if (value instanceof SoftReference) {
+            V referent = ((SoftReference<V>) value).get();
+            if (referent == null) {
+                if (map.remove(key, value)) {
+                    entries.decrementAndGet();
+                }
+                evictions.increment();
+            }
+            return referent;
+        }
+        return (V) value;
+    }
+
+    public void clear() {
+        map.clear();
+        entries.set(0);
+    }
+
+    public int size() {
+        return entries.get();
+    }
+
+    /**
+     * Iterates over the cached values still present. Used for statistics only.
+     */
+    public Iterable<V> values() {
+        List<V> values = new ArrayList<>();
+        synchronized (map) {
+            for (Map.Entry<K, Object> entry : map.entrySet()) {
+                Object value = entry.getValue();
+                @SuppressWarnings("unchecked")
+                V v = value instanceof SoftReference ? ((SoftReference<V>) value).get() : (V) value;
+                if (v != null) {
+                    values.add(v);
+                }
+            }
+        }
+        return values;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+}
@@ -8,24 +8,24 @@ import org.apache.commons.lang3.mutable.MutableInt;
  */
 public class Counter {
     private String name;
-    private MutableInt level;
+    private ThreadLocal<MutableInt> level;
     private int countTop;
     private int countRecursive;
 
-    protected Counter(String name, MutableInt levelHolder) {
+    protected Counter(String name, ThreadLocal<MutableInt> levelHolder) {
         this.name = name;
         this.level = levelHolder;
     }
 
-    protected Counter(String name, MutableInt level, int countTop, int countRecursive) {
+    protected Counter(String name, ThreadLocal<MutableInt> level, int countTop, int countRecursive) {
         this.name = name;
         this.level = level;
         this.countTop = countTop;
         this.countRecursive = countRecursive;
     }
 
-    public void increment() {
-        if (level.intValue() == 1) {
+    public synchronized void increment() {
+        if (level.get().intValue() == 1) {
             countTop++;
         } else {
             countRecursive++;
@@ -36,11 +36,11 @@ public class Counter {
         return name;
     }
 
-    public int getCountTop() {
+    public synchronized int getCountTop() {
         return countTop;
     }
 
-    public int getCountRecursive() {
+    public synchronized int getCountRecursive() {
         return countRecursive;
     }
 }
@@ -2,14 +2,20 @@
 package org.kframework.backend.java.util;
 
 import org.apache.commons.lang3.mutable.MutableInt;
+import org.apache.commons.lang3.mutable.MutableLong;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * A stopwatch that can be reentered recursively. Also counts the number of top-level invocations.
  * Time counted in nanoseconds, but displayed in ms.
+ * <p>
+ * Nesting level and start time are tracked per thread, so that the same stopwatch can be used concurrently, e.g. when
+ * proving claims in parallel. Accumulated durations and counts are shared. Counters and sub-timers may be read while
+ * they are added, e.g. by the metrics exporter.
  *
  * @author Denis Bogdanas
  * Created on 24-Jul-18.
@@ -18,28 +24,29 @@ public class CounterStopwatch implements Comparable<CounterStopwatch> {
 
     private final String name;
     private long duration;
-    private long lastStartNano;
+    private final ThreadLocal<MutableLong> lastStartNano = ThreadLocal.withInitial(MutableLong::new);
 
-    private final MutableInt level;
+    private final ThreadLocal<MutableInt> level;
     private int countTop;
     private int countRecursive;
-    private List<Counter> counters = new ArrayList<>();
-    private List<CounterStopwatch> subTimers = new ArrayList<>();
+    private final List<Counter> counters = new CopyOnWriteArrayList<>();
+    private final List<CounterStopwatch> subTimers = new CopyOnWriteArrayList<>();
 
     public CounterStopwatch(String name) {
-        this(name, new MutableInt());
+        this(name, newLevelHolder());
     }
 
     /**
      * @param levelHolder Allows several Stopwatches share the same levelHolder, when they profile mutually recursive
      *                    functions.
      */
-    public CounterStopwatch(String name, MutableInt levelHolder) {
+    public CounterStopwatch(String name, ThreadLocal<MutableInt> levelHolder) {
         this.name = name;
         this.level = levelHolder;
     }
 
-    protected CounterStopwatch(String name, MutableInt level, long duration, int countTop, int countRecursive) {
+    protected CounterStopwatch(String name, ThreadLocal<MutableInt> level, long duration, int countTop,
+                               int countRecursive) {
         this.name = name;
         this.level = level;
         this.duration = duration;
@@ -47,12 +54,21 @@ public class CounterStopwatch implements Comparable<CounterStopwatch> {
         this.countRecursive = countRecursive;
     }
 
+    public static ThreadLocal<MutableInt> newLevelHolder() {
+        return ThreadLocal.withInitial(MutableInt::new);
+    }
+
     public void start() {
+        MutableInt level = this.level.get();
         if (level.intValue() == 0) {
-            lastStartNano = System.nanoTime();
-            countTop++;
+            lastStartNano.get().setValue(System.nanoTime());
+            synchronized (this) {
+                countTop++;
+            }
         } else {
-            countRecursive++;
+            synchronized (this) {
+                countRecursive++;
+            }
         }
         level.increment();
     }
@@ -61,13 +77,7 @@ public class CounterStopwatch implements Comparable<CounterStopwatch> {
      * Should be called in a finally block to avoid exceptions leaving the level incremented.
      */
     public void stop() {
-        level.decrement();
-        int level = this.level.intValue();
-        if (level == 0) {
-            duration += (System.nanoTime() - lastStartNano);
-        } else if (level < 0) {
-            throw new AssertionError("Unable to stop timer: " + name + "\nTimer already stopped.");
-        }
+        stopAndGetDuration();
     }
 
     /**
@@ -76,11 +86,14 @@ public class CounterStopwatch implements Comparable<CounterStopwatch> {
      * Should be called in a finally block to avoid exceptions leaving the level incremented.
      */
     public long stopAndGetDuration() {
-        level.decrement();
-        int level = this.level.intValue();
+        MutableInt levelHolder = this.level.get();
+        levelHolder.decrement();
+        int level = levelHolder.intValue();
         if (level == 0) {
-            long lastDuration = System.nanoTime() - lastStartNano;
-            this.duration += lastDuration;
+            long lastDuration = System.nanoTime() - lastStartNano.get().longValue();
+            synchronized (this) {
+                this.duration += lastDuration;
+            }
             return lastDuration;
         } else if (level < 0) {
             throw new AssertionError("Unable to stop timer: " + name + "\nTimer already stopped.");
@@ -88,38 +101,41 @@ public class CounterStopwatch implements Comparable<CounterStopwatch> {
         return 0;
     }
 
-    public void reset() {
-        level.setValue(0);
+    public synchronized void reset() {
+        level.get().setValue(0);
         duration = 0;
     }
 
     @Override
     public String toString() {
-        return String.format("%8.3f s", (double) duration / 1000000000);
+        return String.format("%8.3f s", (double) getDuration() / 1000000000);
     }
 
     @Override
     public int compareTo(CounterStopwatch o) {
-        return Long.compare(duration, o.duration);
+        return Long.compare(getDuration(), o.getDuration());
     }
 
-    public int getCountTop() {
+    public synchronized int getCountTop() {
         return countTop;
     }
 
-    public int getCountRecursive() {
+    public synchronized int getCountRecursive() {
         return countRecursive;
     }
 
-    public long getDuration() {
+    public synchronized long getDuration() {
         return duration;
     }
 
+    /**
+     * @return the nesting level of this stopwatch on the current thread.
+     */
     public int getLevel() {
-        return level.intValue();
+        return level.get().intValue();
     }
 
-    public MutableInt getSharedLevelHolder() {
+    public ThreadLocal<MutableInt> getSharedLevelHolder() {
         return level;
     }
 
@@ -129,8 +145,8 @@ public class CounterStopwatch implements Comparable<CounterStopwatch> {
 
     public CounterStopwatch minus(CounterStopwatch other) {
         CounterStopwatch result = new CounterStopwatch("");
-        result.countTop = this.countTop - other.countTop;
-        result.duration = this.duration - other.duration;
+        result.countTop = this.getCountTop() - other.getCountTop();
+        result.duration = this.getDuration() - other.getDuration();
         return result;
     }
 
@@ -142,8 +158,12 @@ public class CounterStopwatch implements Comparable<CounterStopwatch> {
 
     private Counter leftoverCounter(String name) {
         return new Counter(name, level,
-                countTop - counters.stream().mapToInt(Counter::getCountTop).sum(),
-                countRecursive - counters.stream().mapToInt(Counter::getCountRecursive).sum());
+                getCountTop() - counters.stream().mapToInt(Counter::getCountTop).sum(),
+                getCountRecursive() - counters.stream().mapToInt(Counter::getCountRecursive).sum());
+    }
+
+    public List<Counter> getCounters() {
+        return Collections.unmodifiableList(counters);
     }
 
     public List<Counter> getCounters(String leftoverCounterName) {
@@ -155,21 +175,25 @@ public class CounterStopwatch implements Comparable<CounterStopwatch> {
         return result;
     }
 
-    public CounterStopwatch newSubTimer(String name, MutableInt levelHolder) {
+    public CounterStopwatch newSubTimer(String name, ThreadLocal<MutableInt> levelHolder) {
         CounterStopwatch subTimer = new CounterStopwatch(name, levelHolder);
         subTimers.add(subTimer);
         return subTimer;
     }
 
     public CounterStopwatch newSubTimer(String name) {
-        return newSubTimer(name, new MutableInt());
+        return newSubTimer(name, newLevelHolder());
     }
 
     private CounterStopwatch leftoverTimer(String name) {
-        return new CounterStopwatch(name, new MutableInt(),
-                duration - subTimers.stream().mapToLong(CounterStopwatch::getDuration).sum(),
-                countTop - subTimers.stream().mapToInt(CounterStopwatch::getCountTop).sum(),
-                countRecursive - subTimers.stream().mapToInt(CounterStopwatch::getCountRecursive).sum());
+        return new CounterStopwatch(name, newLevelHolder(),
+                getDuration() - subTimers.stream().mapToLong(CounterStopwatch::getDuration).sum(),
+                getCountTop() - subTimers.stream().mapToInt(CounterStopwatch::getCountTop).sum(),
+                getCountRecursive() - subTimers.stream().mapToInt(CounterStopwatch::getCountRecursive).sum());
+    }
+
+    public List<CounterStopwatch> getSubTimers() {
+        return Collections.unmodifiableList(subTimers);
     }
 
     public List<CounterStopwatch> getSubTimers(String leftoverTimerName) {
@@ -0,0 +1,256 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.kframework.utils.errorsystem.KEMException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A set of 128-bit fingerprints stored outside the Java heap, in an open-addressing hash table with linear probing.
+ * Each fingerprint takes 16 bytes of table space, regardless of the size of the object it stands for.
+ * <p>
+ * The table starts small and doubles when it gets full. It lives in direct buffers as long as it fits in the given
+ * in-memory limit, which is capped at a third of the maximum direct memory of the JVM, so that the old and the new
+ * table both fit in half of it while the table is resized. Larger tables are memory-mapped from a temporary file in
+ * the given spill directory, so that the operating system can page them out. The file is deleted as soon as it is
+ * mapped, and the mapping is released when the table is garbage collected.
+ * <p>
+ * All operations are synchronized.
+ */
+public final class FingerprintSet {
+
+    private static final int SLOT_BYTES = 16;
+    /**
+     * log2 of the number of slots of a segment; segments are at most 1 GiB so that they can be addressed by a buffer.
+     */
+    private static final int SEGMENT_SHIFT = 26;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    /**
+     * Maximum load factor, as numerator over 4.
+     */
+    private static final int MAX_LOAD_QUARTERS = 3;
+
+    private final long inMemoryLimit;
+    private final File spillDirectory;
+
+    private LongBuffer[] segments;
+    private long capacity;
+    private long size = 0;
+    /**
+     * The all-zero fingerprint marks empty slots, so it is tracked separately.
+     */
+    private boolean containsZero = false;
+    private boolean spilled = false;
+
+    /**
+     * @param inMemoryLimit  the size in bytes up to which the table is kept in direct memory, if the JVM allows it
+     * @param spillDirectory the directory of the file backing larger tables
+     */
+    public FingerprintSet(long inMemoryLimit, File spillDirectory) {
+        this(inMemoryLimit, spillDirectory, maxDirectMemory());
+    }
+
+    FingerprintSet(long inMemoryLimit, File spillDirectory, long maxDirectMemory) {
+        this.inMemoryLimit = Math.min(inMemoryLimit, maxDirectMemory / 3);
+        this.spillDirectory = spillDirectory;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Adds the fingerprint {@code (high, low)}.
+     *
+     * @return true if the set did not already contain it
+     */
+    public synchronized boolean add(long high, long low) {
+        if (high == 0 && low == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        if (!insert(high, low)) {
+            return false;
+        }
+        size++;
+        if (size * 4 > capacity * MAX_LOAD_QUARTERS) {
+            resize();
+        }
+        return true;
+    }
+
+    public synchronized boolean contains(long high, long low) {
+        if (high == 0 && low == 0) {
+            return containsZero;
+        }
+        long mask = capacity - 1;
+        for (long slot = low & mask; ; slot = (slot + 1) & mask) {
+            LongBuffer segment = segments[(int) (slot >>> SEGMENT_SHIFT)];
+            int offset = (int) (slot & SEGMENT_MASK) * 2;
+            long slotHigh = segment.get(offset);
+            long slotLow = segment.get(offset + 1);
+            if (slotHigh == high && slotLow == low) {
+                return true;
+            }
+            if (slotHigh == 0 && slotLow == 0) {
+                return false;
+            }
+        }
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * @return the size in bytes of the table
+     */
+    public synchronized long tableBytes() {
+        return capacity * SLOT_BYTES;
+    }
+
+    /**
+     * @return whether the table is backed by a memory-mapped file
+     */
+    public synchronized boolean isSpilled() {
+        return spilled;
+    }
+
+    /**
+     * Returns the probability that two of the objects added so far have the same fingerprint, assuming
+     * fingerprints are uniformly distributed; by the birthday bound, n(n-1)/2 * 2^-128 for n elements.
+     * This bounds the probability that {@link #add} wrongly reported a new object as already present.
+     */
+    public synchronized double collisionProbability() {
+        return Math.min(1.0, (double) size * (size - 1) / 2 * Math.pow(2, -128));
+    }
+
+    /**
+     * Returns the maximum amount of direct memory of the JVM: the value of {@code -XX:MaxDirectMemorySize} if it is
+     * given, otherwise the maximum heap size, which is what the JVM defaults to.
+     */
+    static long maxDirectMemory() {
+        long max = Runtime.getRuntime().maxMemory();
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("-XX:MaxDirectMemorySize=")) {
+                max = parseSize(argument.substring("-XX:MaxDirectMemorySize=".length()), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Parses a JVM size such as {@code 512m}, returning {@code fallback} if it is malformed.
+     */
+    static long parseSize(String size, long fallback) {
+        if (size.isEmpty()) {
+            return fallback;
+        }
+        int shift;
+        switch (Character.toLowerCase(size.charAt(size.length() - 1))) {
+        case 'k':
+            shift = 10;
+            break;
+        case 'm':
+            shift = 20;
+            break;
+        case 'g':
+            shift = 30;
+            break;
+        case 't':
+            shift = 40;
+            break;
+        default:
+            shift = 0;
+        }
+        try {
+            long value = Long.parseLong(shift == 0 ? size : size.substring(0, size.length() - 1));
+            return value < 0 || value > Long.MAX_VALUE >> shift ? fallback : value << shift;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Stores the non-zero fingerprint {@code (high, low)} in the table.
+     *
+     * @return false if it was already there
+     */
+    private boolean insert(long high, long low) {
+        long mask = capacity - 1;
+        for (long slot = low & mask; ; slot = (slot + 1) & mask) {
+            LongBuffer segment = segments[(int) (slot >>> SEGMENT_SHIFT)];
+            int offset = (int) (slot & SEGMENT_MASK) * 2;
+            long slotHigh = segment.get(offset);
+            long slotLow = segment.get(offset + 1);
+            if (slotHigh == high && slotLow == low) {
+                return false;
+            }
+            if (slotHigh == 0 && slotLow == 0) {
+                segment.put(offset, high);
+                segment.put(offset + 1, low);
+                return true;
+            }
+        }
+    }
+
+    private void resize() {
+        LongBuffer[] oldSegments = segments;
+        long oldCapacity = capacity;
+        allocate(oldCapacity * 2);
+        for (long slot = 0; slot < oldCapacity; slot++) {
+            LongBuffer segment = oldSegments[(int) (slot >>> SEGMENT_SHIFT)];
+            int offset = (int) (slot & SEGMENT_MASK) * 2;
+            long high = segment.get(offset);
+            long low = segment.get(offset + 1);
+            if (high != 0 || low != 0) {
+                insert(high, low);
+            }
+        }
+    }
+
+    private void allocate(long newCapacity) {
+        long segmentSlots = Math.min(newCapacity, 1L << SEGMENT_SHIFT);
+        int segmentCount = (int) (newCapacity / segmentSlots);
+        long bytes = newCapacity * SLOT_BYTES;
+        LongBuffer[] newSegments = new LongBuffer[segmentCount];
+        if (bytes <= inMemoryLimit) {
+            for (int i = 0; i < segmentCount; i++) {
+                newSegments[i] = ByteBuffer.allocateDirect((int) (segmentSlots * SLOT_BYTES))
+                        .order(ByteOrder.nativeOrder()).asLongBuffer();
+            }
+        } else {
+            try {
+                File file = File.createTempFile("fingerprints", ".bin", spillDirectory);
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(bytes);
+                    FileChannel channel = raf.getChannel();
+                    for (int i = 0; i < segmentCount; i++) {
+                        newSegments[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                                i * segmentSlots * SLOT_BYTES, segmentSlots * SLOT_BYTES)
+                                .order(ByteOrder.nativeOrder()).asLongBuffer();
+                    }
+                } finally {
+                    // mappings stay valid after the file is closed and deleted
+                    if (!file.delete()) {
+                        file.deleteOnExit();
+                    }
+                }
+            } catch (IOException e) {
+                throw KEMException.criticalError("Could not map the fingerprint table to a file in " + spillDirectory, e);
+            }
+            spilled = true;
+        }
+        segments = newSegments;
+        capacity = newCapacity;
+    }
+}
@@ -5,8 +5,6 @@ import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.kil.Variable;
 import org.kframework.backend.java.symbolic.ConjunctiveFormula;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
@@ -51,7 +49,19 @@ public class FormulaSimplificationCache {
         }
     }
 
-    private Map<Entry, ConjunctiveFormula> evaluationCache = new HashMap<>();
+    private final BoundedCache<Entry, ConjunctiveFormula> evaluationCache;
+
+    public FormulaSimplificationCache() {
+        this(0, false, false);
+    }
+
+    /**
+     * @param maxSize    Maximum number of entries in the cache, 0 if unbounded.
+     * @param concurrent Whether the cache is shared between threads, e.g. when proving claims in parallel.
+     */
+    public FormulaSimplificationCache(int maxSize, boolean softValues, boolean concurrent) {
+        evaluationCache = new BoundedCache<>(maxSize, softValues, concurrent);
+    }
 
     public ConjunctiveFormula cacheGet(ConjunctiveFormula formula, boolean patternFolding,
                                        boolean partialSimplification,
@@ -84,4 +94,16 @@ public class FormulaSimplificationCache {
     public int size() {
         return evaluationCache.size();
     }
+
+    public long hits() {
+        return evaluationCache.hits();
+    }
+
+    public long misses() {
+        return evaluationCache.misses();
+    }
+
+    public long evictions() {
+        return evaluationCache.evictions();
+    }
 }
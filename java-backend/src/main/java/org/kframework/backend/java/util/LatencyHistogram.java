@@ -0,0 +1,51 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations, with fixed buckets from 1 ms to 1 minute. Thread-safe.
+ */
+public class LatencyHistogram {
+
+    /**
+     * The upper bounds of the buckets, in seconds. The last bucket has no upper bound.
+     */
+    private static final double[] BOUNDS = {0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10, 60};
+
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS.length + 1);
+    private final AtomicLong sumNano = new AtomicLong();
+
+    public void record(long durationNano) {
+        double seconds = durationNano / 1e9;
+        int bucket = 0;
+        while (bucket < BOUNDS.length && seconds > BOUNDS[bucket]) {
+            bucket++;
+        }
+        counts.incrementAndGet(bucket);
+        sumNano.addAndGet(durationNano);
+    }
+
+    public static double[] bounds() {
+        return BOUNDS.clone();
+    }
+
+    /**
+     * @return for each bucket, the number of durations less than or equal to its upper bound, followed by the total
+     * number of durations.
+     */
+    public long[] cumulativeCounts() {
+        long[] result = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < result.length; i++) {
+            total += counts.get(i);
+            result[i] = total;
+        }
+        return result;
+    }
+
+    public double sumSeconds() {
+        return sumNano.get() / 1e9;
+    }
+}
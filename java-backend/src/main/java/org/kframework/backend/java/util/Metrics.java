@@ -0,0 +1,161 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObjectBuilder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A snapshot of metrics, grouped into families of samples, that can be rendered in the OpenMetrics text format or
+ * as one line of JSON. All metric names are prefixed with {@code k_java_}.
+ */
+public class Metrics {
+
+    private static final String PREFIX = "k_java_";
+
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    private static final class Family {
+        final String name;
+        final String type;
+        final String help;
+        final List<Sample> samples = new ArrayList<>();
+
+        Family(String name, String type, String help) {
+            this.name = name;
+            this.type = type;
+            this.help = help;
+        }
+    }
+
+    private static final class Sample {
+        final String name;
+        final String[] labels;
+        final double value;
+
+        Sample(String name, String[] labels, double value) {
+            this.name = name;
+            this.labels = labels;
+            this.value = value;
+        }
+    }
+
+    private Family family(String name, String type, String help) {
+        return families.computeIfAbsent(name, n -> new Family(PREFIX + n, type, help));
+    }
+
+    /**
+     * @param labels alternating label names and values.
+     */
+    public void gauge(String name, String help, double value, String... labels) {
+        Family family = family(name, "gauge", help);
+        family.samples.add(new Sample(family.name, labels, value));
+    }
+
+    /**
+     * @param name the name of the counter, ending with {@code _total}.
+     */
+    public void counter(String name, String help, double value, String... labels) {
+        assert name.endsWith("_total");
+        Family family = family(name.substring(0, name.length() - "_total".length()), "counter", help);
+        family.samples.add(new Sample(family.name + "_total", labels, value));
+    }
+
+    public void histogram(String name, String help, LatencyHistogram histogram, String... labels) {
+        Family family = family(name, "histogram", help);
+        double[] bounds = LatencyHistogram.bounds();
+        long[] counts = histogram.cumulativeCounts();
+        for (int i = 0; i < counts.length; i++) {
+            String[] bucketLabels = new String[labels.length + 2];
+            System.arraycopy(labels, 0, bucketLabels, 0, labels.length);
+            bucketLabels[labels.length] = "le";
+            bucketLabels[labels.length + 1] = i < bounds.length ? Double.toString(bounds[i]) : "+Inf";
+            family.samples.add(new Sample(family.name + "_bucket", bucketLabels, counts[i]));
+        }
+        family.samples.add(new Sample(family.name + "_count", labels, counts[counts.length - 1]));
+        family.samples.add(new Sample(family.name + "_sum", labels, histogram.sumSeconds()));
+    }
+
+    /**
+     * Adds the time and invocation counts of {@code timer}, its counters and, recursively, its sub-timers. Each
+     * timer is labelled with its path from the top-level timer.
+     */
+    public void timer(CounterStopwatch timer, String parentPath) {
+        String path = parentPath.isEmpty() ? timer.getName() : parentPath + "/" + timer.getName();
+        counter("timer_seconds_total", "Time spent in profiled operations.", timer.getDuration() / 1e9,
+                "timer", path);
+        counter("timer_invocations_total", "Invocations of profiled operations, top-level or recursive.",
+                timer.getCountTop(), "timer", path, "level", "top");
+        counter("timer_invocations_total", "Invocations of profiled operations, top-level or recursive.",
+                timer.getCountRecursive(), "timer", path, "level", "recursive");
+        for (Counter counter : timer.getCounters()) {
+            counter("timer_events_total", "Outcomes of profiled operations.", counter.getCountTop(),
+                    "timer", path, "event", counter.getName(), "level", "top");
+            counter("timer_events_total", "Outcomes of profiled operations.", counter.getCountRecursive(),
+                    "timer", path, "event", counter.getName(), "level", "recursive");
+        }
+        for (CounterStopwatch subTimer : timer.getSubTimers()) {
+            timer(subTimer, path);
+        }
+    }
+
+    public String toOpenMetrics() {
+        StringBuilder sb = new StringBuilder();
+        for (Family family : families.values()) {
+            sb.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            sb.append("# HELP ").append(family.name).append(' ').append(escape(family.help)).append('\n');
+            for (Sample sample : family.samples) {
+                sb.append(sample.name);
+                if (sample.labels.length > 0) {
+                    sb.append('{');
+                    for (int i = 0; i < sample.labels.length; i += 2) {
+                        if (i > 0) {
+                            sb.append(',');
+                        }
+                        sb.append(sample.labels[i]).append("=\"").append(escape(sample.labels[i + 1])).append('"');
+                    }
+                    sb.append('}');
+                }
+                sb.append(' ').append(format(sample.value)).append('\n');
+            }
+        }
+        return sb.append("# EOF\n").toString();
+    }
+
+    /**
+     * @return a JSON object holding {@code timestamp} and the list of samples, each with its name, labels and value.
+     */
+    public String toJson(long timestampMillis) {
+        JsonArrayBuilder samples = Json.createArrayBuilder();
+        for (Family family : families.values()) {
+            for (Sample sample : family.samples) {
+                JsonObjectBuilder labels = Json.createObjectBuilder();
+                for (int i = 0; i < sample.labels.length; i += 2) {
+                    labels.add(sample.labels[i], sample.labels[i + 1]);
+                }
+                samples.add(Json.createObjectBuilder()
+                        .add("name", sample.name)
+                        .add("labels", labels)
+                        .add("value", sample.value));
+            }
+        }
+        return Json.createObjectBuilder()
+                .add("timestamp", timestampMillis)
+                .add("metrics", samples)
+                .build().toString();
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15
+                ? Long.toString((long) value)
+                : Double.toString(value);
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
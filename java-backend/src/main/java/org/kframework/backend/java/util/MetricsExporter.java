@@ -0,0 +1,117 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.kframework.utils.errorsystem.KEMException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Periodically takes a snapshot of {@link Metrics} while the backend runs, and exports it:
+ * <ul>
+ * <li>to a file, by appending the snapshot as one line of JSON, and replacing {@code <file>.prom} with the snapshot
+ * in the OpenMetrics text format;</li>
+ * <li>to a local port, by answering every HTTP request on 127.0.0.1 with the last snapshot in the OpenMetrics text
+ * format.</li>
+ * </ul>
+ * A last snapshot is exported when the JVM exits.
+ */
+public class MetricsExporter {
+
+    private final Supplier<Metrics> snapshots;
+    private final File jsonFile;
+    private final File openMetricsFile;
+    private final ServerSocket server;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "MetricsExporter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile String lastOpenMetrics = new Metrics().toOpenMetrics();
+
+    /**
+     * @param file the file to export to, or null.
+     * @param port the port to serve snapshots on, or null.
+     */
+    public MetricsExporter(Supplier<Metrics> snapshots, String file, Integer port) {
+        this.snapshots = snapshots;
+        this.jsonFile = file == null ? null : new File(file);
+        this.openMetricsFile = file == null ? null : new File(file + ".prom");
+        try {
+            this.server = port == null ? null : new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not listen for metrics requests on port " + port, e);
+        }
+    }
+
+    public void start(int intervalSeconds) {
+        executor.scheduleAtFixedRate(this::export, 0, intervalSeconds, TimeUnit.SECONDS);
+        if (server != null) {
+            Thread thread = new Thread(this::serve, "MetricsServer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::export));
+    }
+
+    private synchronized void export() {
+        try {
+            Metrics metrics = snapshots.get();
+            lastOpenMetrics = metrics.toOpenMetrics();
+            if (jsonFile != null) {
+                try (PrintWriter out = new PrintWriter(new FileOutputStream(jsonFile, true))) {
+                    out.println(metrics.toJson(System.currentTimeMillis()));
+                }
+                Path tempFile = Files.createTempFile(openMetricsFile.getAbsoluteFile().getParentFile().toPath(),
+                        "tmp", ".prom");
+                Files.write(tempFile, lastOpenMetrics.getBytes(StandardCharsets.UTF_8));
+                Files.move(tempFile, openMetricsFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+            // DISABLE EXCEPTION CHECKSTYLE
+        } catch (IOException | RuntimeException e) {
+            // ENABLE EXCEPTION CHECKSTYLE
+            // a failed snapshot must neither stop the next ones nor the execution
+            System.err.println("Could not export metrics: " + e);
+        }
+    }
+
+    private void serve() {
+        while (!server.isClosed()) {
+            try (Socket socket = server.accept()) {
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                String line;
+                while ((line = in.readLine()) != null && !line.isEmpty()) {
+                    // skip the request and its headers
+                }
+                byte[] body = lastOpenMetrics.getBytes(StandardCharsets.UTF_8);
+                OutputStream out = socket.getOutputStream();
+                out.write(("HTTP/1.0 200 OK\r\n"
+                        + "Content-Type: application/openmetrics-text; version=1.0.0; charset=utf-8\r\n"
+                        + "Content-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.write(body);
+                out.flush();
+            } catch (IOException e) {
+                // the client went away; keep serving
+            }
+        }
+    }
+}
@@ -0,0 +1,608 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable hash map implemented as a compressed hash-array mapped prefix tree (CHAMP). {@link #plus} and
+ * {@link #minus} return a new map sharing all the subtrees not on the path to the updated key, so updates take
+ * O(log n) time and allocation instead of copying the whole map.
+ * <p>
+ * The tree is kept in canonical form: a slot holds an entry if exactly one key of the map falls in it, and a subtree
+ * if several keys do. Two equal maps therefore have the same shape, and {@link #equals} compares them node by node,
+ * skipping the subtrees they share. The hash code is maintained incrementally.
+ * <p>
+ * Neither keys nor values can be null. The {@link Map} mutators throw {@link UnsupportedOperationException}.
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> implements Serializable {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    /**
+     * Bitmap nodes are at shifts 0, 5, ..., 30, and collision nodes below them.
+     */
+    private static final int MAX_DEPTH = 8;
+
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(BitmapNode.EMPTY, 0, 0);
+
+    private final Node root;
+    private final int size;
+    private final int hashCode;
+
+    private transient Set<Entry<K, V>> entrySet;
+
+    private PersistentHashMap(Node root, int size, int hashCode) {
+        this.root = root;
+        this.size = size;
+        this.hashCode = hashCode;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentHashMap) {
+            return (PersistentHashMap<K, V>) map;
+        }
+        return PersistentHashMap.<K, V>empty().plusAll(map);
+    }
+
+    /**
+     * @return a map with the same entries as this one, except that {@code key} is mapped to {@code value}.
+     */
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        Change change = new Change();
+        int keyHash = key.hashCode();
+        Node newRoot = root.put(key, value, spread(keyHash), 0, change);
+        if (newRoot == root) {
+            return this;
+        }
+        int newHashCode = hashCode + (keyHash ^ value.hashCode());
+        if (change.oldValue != null) {
+            return new PersistentHashMap<>(newRoot, size, newHashCode - (keyHash ^ change.oldValue.hashCode()));
+        }
+        return new PersistentHashMap<>(newRoot, size + 1, newHashCode);
+    }
+
+    /**
+     * @return a map with the same entries as this one, except for {@code key}.
+     */
+    public PersistentHashMap<K, V> minus(Object key) {
+        Change change = new Change();
+        int keyHash = key.hashCode();
+        Node newRoot = root.remove(key, spread(keyHash), 0, change);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<>(newRoot, size - 1, hashCode - (keyHash ^ change.oldValue.hashCode()));
+    }
+
+    /**
+     * @return a map with the entries of this map and of {@code map}; on common keys, the values of {@code map} win.
+     */
+    @SuppressWarnings("unchecked")
+    public PersistentHashMap<K, V> plusAll(Map<? extends K, ? extends V> map) {
+        if (map.isEmpty()) {
+            return this;
+        }
+        if (map instanceof PersistentHashMap) {
+            PersistentHashMap<K, V> other = (PersistentHashMap<K, V>) map;
+            if (isEmpty()) {
+                return other;
+            }
+            if (other.size > size) {
+                // insert the smaller map into the larger one, keeping the values of the larger one
+                PersistentHashMap<K, V> result = other;
+                for (Entry<K, V> entry : entrySet()) {
+                    if (!other.containsKey(entry.getKey())) {
+                        result = result.plus(entry.getKey(), entry.getValue());
+                    }
+                }
+                return result;
+            }
+        }
+        PersistentHashMap<K, V> result = this;
+        for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            result = result.plus(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        return key == null ? null : (V) root.get(key, spread(key.hashCode()), 0);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (object instanceof PersistentHashMap) {
+            PersistentHashMap<?, ?> map = (PersistentHashMap<?, ?>) object;
+            return size == map.size && hashCode == map.hashCode && root.equivalent(map.root);
+        }
+        return super.equals(object);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /**
+     * The outcome of an update, filled in by the nodes: the value previously associated to the key, if any.
+     */
+    private static final class Change {
+        Object oldValue;
+    }
+
+    private abstract static class Node implements Serializable {
+
+        abstract Object get(Object key, int hash, int shift);
+
+        /**
+         * @return the updated node, or this node if the key is already mapped to the same value.
+         */
+        abstract Node put(Object key, Object value, int hash, int shift, Change change);
+
+        /**
+         * @return the updated node, or this node if the key is absent.
+         */
+        abstract Node remove(Object key, int hash, int shift, Change change);
+
+        abstract int payloadArity();
+
+        abstract Object key(int index);
+
+        abstract Object value(int index);
+
+        abstract int nodeArity();
+
+        abstract Node node(int index);
+
+        abstract boolean equivalent(Node other);
+
+        final boolean isSingleton() {
+            return payloadArity() == 1 && nodeArity() == 0;
+        }
+    }
+
+    /**
+     * A node with up to 32 slots, each holding either an entry or a subtree. The content array holds the entries
+     * first, as key-value pairs in slot order, and then the subtrees, in reverse slot order.
+     */
+    private static final class BitmapNode extends Node {
+
+        static final BitmapNode EMPTY = new BitmapNode(0, 0, new Object[0]);
+
+        private final int dataMap;
+        private final int nodeMap;
+        private final Object[] content;
+
+        BitmapNode(int dataMap, int nodeMap, Object[] content) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.content = content;
+        }
+
+        private int dataIndex(int bit) {
+            return Integer.bitCount(dataMap & (bit - 1));
+        }
+
+        private int nodeIndex(int bit) {
+            return content.length - 1 - Integer.bitCount(nodeMap & (bit - 1));
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int index = dataIndex(bit);
+                return key.equals(content[2 * index]) ? content[2 * index + 1] : null;
+            }
+            if ((nodeMap & bit) != 0) {
+                return ((Node) content[nodeIndex(bit)]).get(key, hash, shift + BITS);
+            }
+            return null;
+        }
+
+        @Override
+        Node put(Object key, Object value, int hash, int shift, Change change) {
+            int bit = bit(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int index = dataIndex(bit);
+                Object currentKey = content[2 * index];
+                Object currentValue = content[2 * index + 1];
+                if (key.equals(currentKey)) {
+                    if (value == currentValue) {
+                        return this;
+                    }
+                    change.oldValue = currentValue;
+                    Object[] newContent = content.clone();
+                    newContent[2 * index + 1] = value;
+                    return new BitmapNode(dataMap, nodeMap, newContent);
+                }
+                Node subNode = merge(
+                        currentKey, currentValue, spread(currentKey.hashCode()),
+                        key, value, hash,
+                        shift + BITS);
+                return copyAndMigrateToNode(bit, subNode);
+            }
+            if ((nodeMap & bit) != 0) {
+                int index = nodeIndex(bit);
+                Node subNode = (Node) content[index];
+                Node newSubNode = subNode.put(key, value, hash, shift + BITS, change);
+                if (newSubNode == subNode) {
+                    return this;
+                }
+                Object[] newContent = content.clone();
+                newContent[index] = newSubNode;
+                return new BitmapNode(dataMap, nodeMap, newContent);
+            }
+            int index = 2 * dataIndex(bit);
+            Object[] newContent = new Object[content.length + 2];
+            System.arraycopy(content, 0, newContent, 0, index);
+            newContent[index] = key;
+            newContent[index + 1] = value;
+            System.arraycopy(content, index, newContent, index + 2, content.length - index);
+            return new BitmapNode(dataMap | bit, nodeMap, newContent);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift, Change change) {
+            int bit = bit(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int index = dataIndex(bit);
+                if (!key.equals(content[2 * index])) {
+                    return this;
+                }
+                change.oldValue = content[2 * index + 1];
+                if (payloadArity() == 2 && nodeArity() == 0 && shift != 0) {
+                    // the remaining entry is inlined by the parent, which only looks at its key and value
+                    int other = 1 - index;
+                    return new BitmapNode(bit(spread(content[2 * other].hashCode()), shift), 0,
+                            new Object[]{content[2 * other], content[2 * other + 1]});
+                }
+                Object[] newContent = new Object[content.length - 2];
+                System.arraycopy(content, 0, newContent, 0, 2 * index);
+                System.arraycopy(content, 2 * index + 2, newContent, 2 * index, content.length - 2 * index - 2);
+                return new BitmapNode(dataMap ^ bit, nodeMap, newContent);
+            }
+            if ((nodeMap & bit) != 0) {
+                int index = nodeIndex(bit);
+                Node subNode = (Node) content[index];
+                Node newSubNode = subNode.remove(key, hash, shift + BITS, change);
+                if (newSubNode == subNode) {
+                    return this;
+                }
+                if (newSubNode.isSingleton()) {
+                    if (payloadArity() == 0 && nodeArity() == 1 && shift != 0) {
+                        // let the parent inline the remaining entry
+                        return newSubNode;
+                    }
+                    return copyAndMigrateToData(bit, newSubNode.key(0), newSubNode.value(0));
+                }
+                Object[] newContent = content.clone();
+                newContent[index] = newSubNode;
+                return new BitmapNode(dataMap, nodeMap, newContent);
+            }
+            return this;
+        }
+
+        private Node copyAndMigrateToNode(int bit, Node subNode) {
+            int oldIndex = 2 * dataIndex(bit);
+            int newIndex = content.length - 2 - Integer.bitCount(nodeMap & (bit - 1));
+            Object[] newContent = new Object[content.length - 1];
+            System.arraycopy(content, 0, newContent, 0, oldIndex);
+            System.arraycopy(content, oldIndex + 2, newContent, oldIndex, newIndex - oldIndex);
+            newContent[newIndex] = subNode;
+            System.arraycopy(content, newIndex + 2, newContent, newIndex + 1, content.length - newIndex - 2);
+            return new BitmapNode(dataMap ^ bit, nodeMap | bit, newContent);
+        }
+
+        private Node copyAndMigrateToData(int bit, Object key, Object value) {
+            int oldIndex = nodeIndex(bit);
+            int newIndex = 2 * dataIndex(bit);
+            Object[] newContent = new Object[content.length + 1];
+            System.arraycopy(content, 0, newContent, 0, newIndex);
+            newContent[newIndex] = key;
+            newContent[newIndex + 1] = value;
+            System.arraycopy(content, newIndex, newContent, newIndex + 2, oldIndex - newIndex);
+            System.arraycopy(content, oldIndex + 1, newContent, oldIndex + 2, content.length - oldIndex - 1);
+            return new BitmapNode(dataMap | bit, nodeMap ^ bit, newContent);
+        }
+
+        @Override
+        int payloadArity() {
+            return Integer.bitCount(dataMap);
+        }
+
+        @Override
+        Object key(int index) {
+            return content[2 * index];
+        }
+
+        @Override
+        Object value(int index) {
+            return content[2 * index + 1];
+        }
+
+        @Override
+        int nodeArity() {
+            return Integer.bitCount(nodeMap);
+        }
+
+        @Override
+        Node node(int index) {
+            return (Node) content[content.length - 1 - index];
+        }
+
+        @Override
+        boolean equivalent(Node other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof BitmapNode)) {
+                return false;
+            }
+            BitmapNode node = (BitmapNode) other;
+            if (dataMap != node.dataMap || nodeMap != node.nodeMap) {
+                return false;
+            }
+            int dataLength = 2 * payloadArity();
+            for (int i = 0; i < dataLength; i++) {
+                if (content[i] != node.content[i] && !content[i].equals(node.content[i])) {
+                    return false;
+                }
+            }
+            for (int i = dataLength; i < content.length; i++) {
+                if (!((Node) content[i]).equivalent((Node) node.content[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A node holding the entries whose keys have the same hash.
+     */
+    private static final class CollisionNode extends Node {
+
+        private final int hash;
+        private final Object[] content;
+
+        CollisionNode(int hash, Object[] content) {
+            this.hash = hash;
+            this.content = content;
+        }
+
+        private int find(Object key) {
+            for (int i = 0; i < content.length; i += 2) {
+                if (key.equals(content[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            int index = find(key);
+            return index < 0 ? null : content[index + 1];
+        }
+
+        @Override
+        Node put(Object key, Object value, int hash, int shift, Change change) {
+            int index = find(key);
+            if (index >= 0) {
+                if (content[index + 1] == value) {
+                    return this;
+                }
+                change.oldValue = content[index + 1];
+                Object[] newContent = content.clone();
+                newContent[index + 1] = value;
+                return new CollisionNode(hash, newContent);
+            }
+            Object[] newContent = Arrays.copyOf(content, content.length + 2);
+            newContent[content.length] = key;
+            newContent[content.length + 1] = value;
+            return new CollisionNode(hash, newContent);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift, Change change) {
+            int index = find(key);
+            if (index < 0) {
+                return this;
+            }
+            change.oldValue = content[index + 1];
+            Object[] newContent = new Object[content.length - 2];
+            System.arraycopy(content, 0, newContent, 0, index);
+            System.arraycopy(content, index + 2, newContent, index, content.length - index - 2);
+            if (newContent.length == 2) {
+                // inlined by the parent
+                return new BitmapNode(1, 0, newContent);
+            }
+            return new CollisionNode(hash, newContent);
+        }
+
+        @Override
+        int payloadArity() {
+            return content.length / 2;
+        }
+
+        @Override
+        Object key(int index) {
+            return content[2 * index];
+        }
+
+        @Override
+        Object value(int index) {
+            return content[2 * index + 1];
+        }
+
+        @Override
+        int nodeArity() {
+            return 0;
+        }
+
+        @Override
+        Node node(int index) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        @Override
+        boolean equivalent(Node other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof CollisionNode)) {
+                return false;
+            }
+            CollisionNode node = (CollisionNode) other;
+            if (hash != node.hash || content.length != node.content.length) {
+                return false;
+            }
+            // entries are in insertion order
+            for (int i = 0; i < content.length; i += 2) {
+                Object value = node.get(content[i], hash, 0);
+                if (value == null || !value.equals(content[i + 1])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static Node merge(Object key0, Object value0, int hash0, Object key1, Object value1, int hash1, int shift) {
+        if (shift >= Integer.SIZE) {
+            return new CollisionNode(hash0, new Object[]{key0, value0, key1, value1});
+        }
+        int mask0 = (hash0 >>> shift) & MASK;
+        int mask1 = (hash1 >>> shift) & MASK;
+        if (mask0 == mask1) {
+            Node subNode = merge(key0, value0, hash0, key1, value1, hash1, shift + BITS);
+            return new BitmapNode(0, 1 << mask0, new Object[]{subNode});
+        }
+        Object[] content = mask0 < mask1
+                ? new Object[]{key0, value0, key1, value1}
+                : new Object[]{key1, value1, key0, value0};
+        return new BitmapNode((1 << mask0) | (1 << mask1), 0, content);
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<K, V>> {
+
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            return new EntryIterator<>(root);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object object) {
+            if (!(object instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> entry = (Entry<?, ?>) object;
+            V value = get(entry.getKey());
+            return value != null && value.equals(entry.getValue());
+        }
+    }
+
+    /**
+     * Depth-first iterator: the entries of a node come before the entries of its subtrees.
+     */
+    private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+
+        private final Node[] nodes = new Node[MAX_DEPTH];
+        private final int[] nodeCursors = new int[MAX_DEPTH];
+        private int depth = 0;
+        private Node dataNode;
+        private int dataCursor = 0;
+
+        EntryIterator(Node root) {
+            nodes[0] = root;
+            dataNode = root;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (dataCursor == dataNode.payloadArity()) {
+                while (depth >= 0 && nodeCursors[depth] == nodes[depth].nodeArity()) {
+                    depth--;
+                }
+                if (depth < 0) {
+                    return false;
+                }
+                Node child = nodes[depth].node(nodeCursors[depth]++);
+                depth++;
+                nodes[depth] = child;
+                nodeCursors[depth] = 0;
+                dataNode = child;
+                dataCursor = 0;
+            }
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> entry = new SimpleImmutableEntry<>(
+                    (K) dataNode.key(dataCursor),
+                    (V) dataNode.value(dataCursor));
+            dataCursor++;
+            return entry;
+        }
+    }
+}
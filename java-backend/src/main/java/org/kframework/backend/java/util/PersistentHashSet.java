@@ -0,0 +1,109 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * An immutable hash set backed by a {@link PersistentHashMap} mapping each element to itself. Updates share structure
+ * with the original set and take O(log n) time; the hash code is maintained incrementally.
+ * <p>
+ * Elements cannot be null. The {@link java.util.Set} mutators throw {@link UnsupportedOperationException}.
+ */
+public final class PersistentHashSet<E> extends AbstractSet<E> implements Serializable {
+
+    private static final PersistentHashSet<?> EMPTY = new PersistentHashSet<>(PersistentHashMap.empty(), 0);
+
+    private final PersistentHashMap<E, E> map;
+    private final int hashCode;
+
+    private PersistentHashSet(PersistentHashMap<E, E> map, int hashCode) {
+        this.map = map;
+        this.hashCode = hashCode;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentHashSet<E> empty() {
+        return (PersistentHashSet<E>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentHashSet<E> copyOf(Collection<? extends E> elements) {
+        if (elements instanceof PersistentHashSet) {
+            return (PersistentHashSet<E>) elements;
+        }
+        return PersistentHashSet.<E>empty().plusAll(elements);
+    }
+
+    /**
+     * @return a set with the elements of this one and {@code element}; this set if it already contains
+     * {@code element}.
+     */
+    public PersistentHashSet<E> plus(E element) {
+        if (map.containsKey(element)) {
+            return this;
+        }
+        return new PersistentHashSet<>(map.plus(element, element), hashCode + element.hashCode());
+    }
+
+    /**
+     * @return a set with the elements of this one except {@code element}.
+     */
+    public PersistentHashSet<E> minus(Object element) {
+        PersistentHashMap<E, E> newMap = map.minus(element);
+        if (newMap == map) {
+            return this;
+        }
+        return new PersistentHashSet<>(newMap, hashCode - element.hashCode());
+    }
+
+    @SuppressWarnings("unchecked")
+    public PersistentHashSet<E> plusAll(Collection<? extends E> elements) {
+        if (elements instanceof PersistentHashSet) {
+            PersistentHashSet<E> other = (PersistentHashSet<E>) elements;
+            if (other.size() > size()) {
+                // insert the smaller set into the larger one
+                return other.plusAll(this);
+            }
+        }
+        PersistentHashSet<E> result = this;
+        for (E element : elements) {
+            result = result.plus(element);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return map.containsKey(object);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return map.keySet().iterator();
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (object instanceof PersistentHashSet) {
+            PersistentHashSet<?> set = (PersistentHashSet<?>) object;
+            return hashCode == set.hashCode && map.equals(set.map);
+        }
+        return super.equals(object);
+    }
+}
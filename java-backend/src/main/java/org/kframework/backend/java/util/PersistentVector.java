@@ -0,0 +1,409 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable list implemented as a height-balanced tree of small arrays, in the style of a rope. Concatenation,
+ * slicing ({@link #subList}) and indexed update ({@link #with}) share all the untouched subtrees and take O(log n)
+ * time; indexed access takes O(log n) and iteration O(1) amortized per element.
+ * <p>
+ * Unlike a relaxed radix balanced tree, subtrees are balanced by height (as in AVL trees) instead of by radix, which
+ * keeps concatenation and slicing simple at the price of binary instead of 32-way inner nodes. The list hash code is
+ * computed per subtree and combined on concatenation, so it is computed at most once for shared subtrees.
+ * <p>
+ * Elements cannot be null. The {@link List} mutators throw {@link UnsupportedOperationException}.
+ */
+public final class PersistentVector<E> extends AbstractList<E> implements Serializable {
+
+    /**
+     * Maximum number of elements of a leaf.
+     */
+    private static final int LEAF_SIZE = 32;
+
+    private static final Leaf EMPTY_LEAF = new Leaf(new Object[0]);
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(EMPTY_LEAF);
+
+    private final Node root;
+
+    private PersistentVector(Node root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>) EMPTY;
+    }
+
+    public static <E> PersistentVector<E> of(E element) {
+        return new PersistentVector<>(new Leaf(new Object[]{element}));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> copyOf(Collection<? extends E> elements) {
+        if (elements instanceof PersistentVector) {
+            return (PersistentVector<E>) elements;
+        }
+        if (elements.isEmpty()) {
+            return empty();
+        }
+        Object[] array = elements.toArray();
+        Leaf[] leaves = new Leaf[(array.length + LEAF_SIZE - 1) / LEAF_SIZE];
+        for (int i = 0; i < leaves.length; i++) {
+            leaves[i] = new Leaf(Arrays.copyOfRange(array, i * LEAF_SIZE, Math.min((i + 1) * LEAF_SIZE, array.length)));
+        }
+        return new PersistentVector<>(balanced(leaves, 0, leaves.length));
+    }
+
+    private static Node balanced(Leaf[] leaves, int from, int to) {
+        if (to - from == 1) {
+            return leaves[from];
+        }
+        int middle = (from + to) >>> 1;
+        return new Branch(balanced(leaves, from, middle), balanced(leaves, middle, to));
+    }
+
+    /**
+     * @return the concatenation of this list and {@code other}.
+     */
+    public PersistentVector<E> concat(PersistentVector<? extends E> other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            @SuppressWarnings("unchecked")
+            PersistentVector<E> result = (PersistentVector<E>) other;
+            return result;
+        }
+        return new PersistentVector<>(join(root, other.root));
+    }
+
+    /**
+     * @return a list with the same elements as this one, except that the element at {@code index} is
+     * {@code element}.
+     */
+    public PersistentVector<E> with(int index, E element) {
+        checkIndex(index);
+        return new PersistentVector<>(root.with(index, element));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkIndex(index);
+        return (E) root.get(index);
+    }
+
+    /**
+     * @return the elements from {@code fromIndex}, inclusive, to {@code toIndex}, exclusive, as a
+     * {@link PersistentVector} sharing structure with this one.
+     */
+    @Override
+    public PersistentVector<E> subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", size: " + size());
+        }
+        if (fromIndex == 0 && toIndex == size()) {
+            return this;
+        }
+        return fromIndex == toIndex ? empty() : new PersistentVector<>(slice(root, fromIndex, toIndex));
+    }
+
+    @Override
+    public int size() {
+        return root.size();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new ElementIterator<>(root);
+    }
+
+    @Override
+    public int hashCode() {
+        return root.hash();
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (object instanceof PersistentVector) {
+            PersistentVector<?> other = (PersistentVector<?>) object;
+            if (root == other.root) {
+                return true;
+            }
+            if (size() != other.size() || hashCode() != other.hashCode()) {
+                return false;
+            }
+        }
+        if (!(object instanceof List) || size() != ((List<?>) object).size()) {
+            return false;
+        }
+        Iterator<?> otherIterator = ((List<?>) object).iterator();
+        for (E element : this) {
+            if (!element.equals(otherIterator.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+        }
+    }
+
+    private abstract static class Node implements Serializable {
+        /**
+         * The list hash code of the elements of this subtree, or 0 if not computed yet.
+         */
+        private int hash;
+
+        abstract int size();
+
+        abstract int height();
+
+        abstract Object get(int index);
+
+        abstract Node with(int index, Object element);
+
+        abstract int computeHash();
+
+        final int hash() {
+            int h = hash;
+            if (h == 0) {
+                h = computeHash();
+                hash = h;
+            }
+            return h;
+        }
+    }
+
+    private static final class Leaf extends Node {
+        private final Object[] elements;
+
+        Leaf(Object[] elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        int size() {
+            return elements.length;
+        }
+
+        @Override
+        int height() {
+            return 0;
+        }
+
+        @Override
+        Object get(int index) {
+            return elements[index];
+        }
+
+        @Override
+        Node with(int index, Object element) {
+            Object[] newElements = elements.clone();
+            newElements[index] = element;
+            return new Leaf(newElements);
+        }
+
+        @Override
+        int computeHash() {
+            return Arrays.hashCode(elements);
+        }
+    }
+
+    private static final class Branch extends Node {
+        private final Node left;
+        private final Node right;
+        private final int size;
+        private final int height;
+
+        Branch(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+            this.size = left.size() + right.size();
+            this.height = Math.max(left.height(), right.height()) + 1;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        int height() {
+            return height;
+        }
+
+        @Override
+        Object get(int index) {
+            Node node = this;
+            while (node instanceof Branch) {
+                Branch branch = (Branch) node;
+                int leftSize = branch.left.size();
+                if (index < leftSize) {
+                    node = branch.left;
+                } else {
+                    node = branch.right;
+                    index -= leftSize;
+                }
+            }
+            return node.get(index);
+        }
+
+        @Override
+        Node with(int index, Object element) {
+            int leftSize = left.size();
+            return index < leftSize
+                    ? new Branch(left.with(index, element), right)
+                    : new Branch(left, right.with(index - leftSize, element));
+        }
+
+        @Override
+        int computeHash() {
+            // for lists a and b, hash(a ++ b) = hash(a) * 31^|b| + hash(b) - 31^|b|
+            int power = power31(right.size());
+            return left.hash() * power + right.hash() - power;
+        }
+    }
+
+    private static int power31(int exponent) {
+        int result = 1;
+        int base = 31;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+            exponent >>= 1;
+        }
+        return result;
+    }
+
+    /**
+     * Concatenates two trees, rebalancing along the right spine of the taller one (or the left spine of the shorter
+     * one) in time proportional to the difference of their heights.
+     */
+    private static Node join(Node left, Node right) {
+        if (left.size() == 0) {
+            return right;
+        }
+        if (right.size() == 0) {
+            return left;
+        }
+        if (left instanceof Leaf && right instanceof Leaf && left.size() + right.size() <= LEAF_SIZE) {
+            Object[] elements = Arrays.copyOf(((Leaf) left).elements, left.size() + right.size());
+            System.arraycopy(((Leaf) right).elements, 0, elements, left.size(), right.size());
+            return new Leaf(elements);
+        }
+        if (left.height() > right.height() + 1) {
+            return joinRight((Branch) left, right);
+        }
+        if (right.height() > left.height() + 1) {
+            return joinLeft(left, (Branch) right);
+        }
+        return new Branch(left, right);
+    }
+
+    private static Node joinRight(Branch left, Node right) {
+        Node joined = left.right.height() <= right.height() + 1
+                ? join(left.right, right)
+                : joinRight((Branch) left.right, right);
+        if (joined.height() <= left.left.height() + 1) {
+            return new Branch(left.left, joined);
+        }
+        // joined is two levels taller than left.left
+        Branch branch = (Branch) joined;
+        if (branch.left.height() > branch.right.height()) {
+            Branch inner = (Branch) branch.left;
+            return new Branch(new Branch(left.left, inner.left), new Branch(inner.right, branch.right));
+        }
+        return new Branch(new Branch(left.left, branch.left), branch.right);
+    }
+
+    private static Node joinLeft(Node left, Branch right) {
+        Node joined = right.left.height() <= left.height() + 1
+                ? join(left, right.left)
+                : joinLeft(left, (Branch) right.left);
+        if (joined.height() <= right.right.height() + 1) {
+            return new Branch(joined, right.right);
+        }
+        // joined is two levels taller than right.right
+        Branch branch = (Branch) joined;
+        if (branch.right.height() > branch.left.height()) {
+            Branch inner = (Branch) branch.right;
+            return new Branch(new Branch(branch.left, inner.left), new Branch(inner.right, right.right));
+        }
+        return new Branch(branch.left, new Branch(branch.right, right.right));
+    }
+
+    private static Node slice(Node node, int from, int to) {
+        if (from == 0 && to == node.size()) {
+            return node;
+        }
+        if (from >= to) {
+            return EMPTY_LEAF;
+        }
+        if (node instanceof Leaf) {
+            return new Leaf(Arrays.copyOfRange(((Leaf) node).elements, from, to));
+        }
+        Branch branch = (Branch) node;
+        int leftSize = branch.left.size();
+        if (to <= leftSize) {
+            return slice(branch.left, from, to);
+        }
+        if (from >= leftSize) {
+            return slice(branch.right, from - leftSize, to - leftSize);
+        }
+        return join(slice(branch.left, from, leftSize), slice(branch.right, 0, to - leftSize));
+    }
+
+    private static final class ElementIterator<E> implements Iterator<E> {
+        private final Deque<Node> stack = new ArrayDeque<>();
+        private Leaf leaf = EMPTY_LEAF;
+        private int cursor = 0;
+
+        ElementIterator(Node root) {
+            stack.push(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (cursor == leaf.size()) {
+                if (stack.isEmpty()) {
+                    return false;
+                }
+                Node node = stack.pop();
+                while (node instanceof Branch) {
+                    stack.push(((Branch) node).right);
+                    node = ((Branch) node).left;
+                }
+                leaf = (Leaf) node;
+                cursor = 0;
+            }
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return (E) leaf.elements[cursor++];
+        }
+    }
+}
@@ -6,15 +6,19 @@ import com.google.inject.Inject;
 import org.kframework.backend.java.kil.GlobalContext;
 import org.kframework.backend.java.symbolic.JavaExecutionOptions;
 import org.kframework.main.Main;
+import org.kframework.utils.errorsystem.KEMException;
 import org.kframework.utils.inject.RequestScoped;
 import org.kframework.utils.inject.StartTime;
 
+import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BinaryOperator;
 import java.util.stream.Collectors;
 
@@ -59,6 +63,15 @@ public class Profiler2 {
 
     final Map<FormulaContext.Kind, Z3Profiler> z3Profilers = createZ3Profilers();
 
+    /**
+     * The number of states waiting to be explored by the running proofs.
+     */
+    public final AtomicLong proofQueueSize = new AtomicLong();
+
+    public final RuleProfiler ruleProfiler;
+
+    private MetricsExporter metricsExporter;
+
     private Map<FormulaContext.Kind, Z3Profiler> createZ3Profilers() {
         BinaryOperator<Z3Profiler> throwingMerger = (u, v) -> {
             throw new IllegalStateException(String.format("Duplicate key %s", u));
@@ -71,6 +84,7 @@ public class Profiler2 {
     @Inject
     public Profiler2(JavaExecutionOptions javaExecutionOptions, @StartTime Long startTimeNano) {
         this.javaExecutionOptions = javaExecutionOptions;
+        this.ruleProfiler = new RuleProfiler(javaExecutionOptions.profileRules);
         this.startStats = new TimeMemoryEntry(startTimeNano);
         this.jvmInitStats = Main.isNailgun()
                             ? startStats
@@ -166,9 +180,15 @@ public class Profiler2 {
     }
 
     private void printCacheStats(TimeMemoryEntry currentStats, boolean afterExecution, GlobalContext context) {
+        if (!javaExecutionOptions.profileMemAdv) {
+            return;
+        }
+        printCacheCounters("Function cache", context.functionCache.hits(), context.functionCache.misses(),
+                context.functionCache.evictions());
+        printCacheCounters("Formula cache ", context.formulaCache.hits(), context.formulaCache.misses(),
+                context.formulaCache.evictions());
         //Measure cache after initialization phase only if it's going to be cleared by --cache-func-optimized.
-        if (javaExecutionOptions.profileMemAdv &&
-                (afterExecution || javaExecutionOptions.cacheFunctionsOptimized)) {
+        if (afterExecution || javaExecutionOptions.cacheFunctionsOptimized) {
             int funcCacheSize = context.functionCache.size();
             int formulaCacheSize = context.formulaCache.size();
             int toStringCacheSize = context.toStringCache.size();
@@ -192,6 +212,13 @@ public class Profiler2 {
         }
     }
 
+    private static void printCacheCounters(String name, long hits, long misses, long evictions) {
+        if (hits + misses == 0) {
+            return;
+        }
+        System.err.format("%s: %10d hits, %10d misses, %10d evictions\n", name, hits, misses, evictions);
+    }
+
     private TimeMemoryEntry[] getIntermediateStats(TimeMemoryEntry... mainStats) {
         ArrayList<TimeMemoryEntry> list = Lists.newArrayList(mainStats);
         list.addAll(cacheMeasuringStats);
@@ -213,6 +240,74 @@ public class Profiler2 {
         }
     }
 
+    /**
+     * Starts exporting {@link #metrics} if {@code --metrics-file} or {@code --metrics-port} is set. Only the first
+     * context is exported if called several times.
+     */
+    public synchronized void startMetricsExport(GlobalContext context) {
+        if (metricsExporter != null
+                || (javaExecutionOptions.metricsFile == null && javaExecutionOptions.metricsPort == null)) {
+            return;
+        }
+        if (javaExecutionOptions.metricsInterval < 1) {
+            throw KEMException.criticalError("Option `--metrics-interval` must be at least 1 second, got "
+                    + javaExecutionOptions.metricsInterval + ".");
+        }
+        metricsExporter = new MetricsExporter(() -> metrics(context), javaExecutionOptions.metricsFile,
+                javaExecutionOptions.metricsPort);
+        metricsExporter.start(javaExecutionOptions.metricsInterval);
+    }
+
+    /**
+     * @return a snapshot of the timers, Z3 statistics, caches of {@code context}, proof queue and JVM memory.
+     */
+    public Metrics metrics(GlobalContext context) {
+        Metrics metrics = new Metrics();
+        metrics.gauge("uptime_seconds", "Time since the JVM started.",
+                ManagementFactory.getRuntimeMXBean().getUptime() / 1e3);
+        metrics.timer(resFuncNanoTimer, "");
+        metrics.timer(logOverheadTimer, "");
+        metrics.timer(queryBuildTimer, "");
+        metrics.timer(impliesSMTTimer, "");
+        for (Map.Entry<FormulaContext.Kind, Z3Profiler> entry : z3Profilers.entrySet()) {
+            entry.getValue().addMetrics(metrics, entry.getKey().name());
+        }
+
+        metrics.gauge("proof_queue_size", "States waiting to be explored by the running proofs.",
+                proofQueueSize.get());
+
+        metrics.gauge("cache_entries", "Entries in the runtime caches.", context.functionCache.size(),
+                "cache", "function");
+        metrics.gauge("cache_entries", "Entries in the runtime caches.", context.formulaCache.size(),
+                "cache", "formula");
+        metrics.gauge("cache_entries", "Entries in the runtime caches.", context.toStringCache.size(),
+                "cache", "toString");
+        metrics.counter("cache_hits_total", "Runtime cache hits.", context.functionCache.hits(),
+                "cache", "function");
+        metrics.counter("cache_hits_total", "Runtime cache hits.", context.formulaCache.hits(),
+                "cache", "formula");
+        metrics.counter("cache_misses_total", "Runtime cache misses.", context.functionCache.misses(),
+                "cache", "function");
+        metrics.counter("cache_misses_total", "Runtime cache misses.", context.formulaCache.misses(),
+                "cache", "formula");
+        metrics.counter("cache_evictions_total", "Runtime cache evictions.", context.functionCache.evictions(),
+                "cache", "function");
+        metrics.counter("cache_evictions_total", "Runtime cache evictions.", context.formulaCache.evictions(),
+                "cache", "formula");
+
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        metrics.gauge("jvm_heap_bytes", "JVM heap memory.", heap.getUsed(), "area", "used");
+        metrics.gauge("jvm_heap_bytes", "JVM heap memory.", heap.getCommitted(), "area", "committed");
+        metrics.gauge("jvm_heap_bytes", "JVM heap memory.", heap.getMax(), "area", "max");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            metrics.counter("jvm_gc_collections_total", "Garbage collections.", gc.getCollectionCount(),
+                    "gc", gc.getName());
+            metrics.counter("jvm_gc_seconds_total", "Time spent in garbage collections.",
+                    gc.getCollectionTime() / 1e3, "gc", gc.getName());
+        }
+        return metrics;
+    }
+
     public String stepLogString(TimeMemoryEntry currentStats, TimeMemoryEntry prevStats) {
         return currentStats.stepLogString(initStats, prevStats);
     }
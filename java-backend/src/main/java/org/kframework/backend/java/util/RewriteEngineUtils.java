@@ -29,9 +29,9 @@ import org.kframework.backend.java.symbolic.PatternMatcher;
 import org.kframework.backend.java.symbolic.RuleAuditing;
 import org.kframework.backend.java.symbolic.Substitution;
 
+import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.Deque;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -208,7 +208,7 @@ public class RewriteEngineUtils {
             }
         }
 
-        Deque<Term> stack = new LinkedList<>();
+        Deque<Term> stack = new ArrayDeque<>();
         for (RHSInstruction instruction : rhsInstructions) {
             switch (instruction.type()) {
             case PUSH:
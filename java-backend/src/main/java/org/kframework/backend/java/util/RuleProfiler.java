@@ -0,0 +1,253 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.kframework.attributes.Location;
+import org.kframework.backend.java.kil.KLabelConstant;
+import org.kframework.backend.java.kil.Rule;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Attributes time, allocated memory and invocation counts to the rules, functions and SMT queries of the Java
+ * backend, without sampling. Every profiled operation is bracketed by {@link #enter} and {@link #exit}, which maintain
+ * a calling context tree per thread. When the JVM exits, three files are written:
+ * <ul>
+ * <li>{@code <file>}: the self time of each stack, in microseconds, in the collapsed-stack format of flame graphs;</li>
+ * <li>{@code <file>.alloc}: the self allocated bytes of each stack, in the same format;</li>
+ * <li>{@code <file>.summary}: the self and total time and allocated memory, and invocation counts of each frame,
+ * sorted by self time. The total of a recursive frame only counts its outermost invocations.</li>
+ * </ul>
+ * A frame is a {@link Rule}, named after its source location, a {@link KLabelConstant}, for the evaluation of a
+ * function, or a {@link String} naming an operation.
+ */
+public class RuleProfiler {
+
+    private final boolean enabled;
+    private final com.sun.management.ThreadMXBean allocationBean;
+    private final List<ThreadProfile> threads = new ArrayList<>();
+    private final ThreadLocal<ThreadProfile> thread = ThreadLocal.withInitial(this::newThreadProfile);
+
+    private static final class Node {
+        final Object frame;
+        final Map<Object, Node> children = new HashMap<>(4);
+        long count;
+        long nanos;
+        long bytes;
+        long startNanos;
+        long startBytes;
+
+        Node(Object frame) {
+            this.frame = frame;
+        }
+    }
+
+    private final class ThreadProfile {
+        final Node root = new Node(null);
+        final Deque<Node> stack = new ArrayDeque<>();
+        final long threadId = Thread.currentThread().getId();
+
+        ThreadProfile() {
+            stack.push(root);
+        }
+
+        synchronized void enter(Object frame) {
+            Node node = stack.peek().children.computeIfAbsent(frame, Node::new);
+            node.count++;
+            stack.push(node);
+            node.startBytes = allocatedBytes(threadId);
+            node.startNanos = System.nanoTime();
+        }
+
+        synchronized void exit() {
+            Node node = stack.pop();
+            node.nanos += System.nanoTime() - node.startNanos;
+            node.bytes += allocatedBytes(threadId) - node.startBytes;
+        }
+    }
+
+    /**
+     * @param file the file to write the profile to when the JVM exits, or null to disable profiling.
+     */
+    public RuleProfiler(String file) {
+        this.enabled = file != null;
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        this.allocationBean = bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+                ? (com.sun.management.ThreadMXBean) bean
+                : null;
+        if (enabled) {
+            if (allocationBean != null) {
+                allocationBean.setThreadAllocatedMemoryEnabled(true);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> write(file)));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private ThreadProfile newThreadProfile() {
+        ThreadProfile profile = new ThreadProfile();
+        synchronized (threads) {
+            threads.add(profile);
+        }
+        return profile;
+    }
+
+    private long allocatedBytes(long threadId) {
+        return allocationBean == null ? 0 : allocationBean.getThreadAllocatedBytes(threadId);
+    }
+
+    /**
+     * Starts a profiled operation on the current thread. Must be followed by {@link #exit}, in a finally block.
+     */
+    public void enter(Object frame) {
+        if (enabled) {
+            thread.get().enter(frame);
+        }
+    }
+
+    /**
+     * Ends the last profiled operation started on the current thread.
+     */
+    public void exit() {
+        if (enabled) {
+            thread.get().exit();
+        }
+    }
+
+    private static String frameName(Object frame) {
+        if (frame instanceof Rule) {
+            Rule rule = (Rule) frame;
+            Location location = rule.getLocation();
+            if (rule.getSource() == null || location == null) {
+                return "rule <no source>";
+            }
+            return String.format("rule %s:%d:%d", new File(rule.getSource().source()).getName(),
+                    location.startLine(), location.startColumn());
+        } else if (frame instanceof KLabelConstant) {
+            return "function " + ((KLabelConstant) frame).label();
+        } else {
+            return frame.toString();
+        }
+    }
+
+    /**
+     * The profile of the frames with the same name, merged over all threads and contexts.
+     */
+    private static final class Summary {
+        long count;
+        long selfNanos;
+        long totalNanos;
+        long selfBytes;
+        long totalBytes;
+    }
+
+    private Node mergedTree() {
+        Node merged = new Node(null);
+        synchronized (threads) {
+            for (ThreadProfile profile : threads) {
+                synchronized (profile) {
+                    merge(profile.root, merged);
+                }
+            }
+        }
+        return merged;
+    }
+
+    private static void merge(Node from, Node into) {
+        into.count += from.count;
+        into.nanos += from.nanos;
+        into.bytes += from.bytes;
+        for (Node child : from.children.values()) {
+            merge(child, into.children.computeIfAbsent(frameName(child.frame), Node::new));
+        }
+    }
+
+    /**
+     * Appends, for each stack under {@code node}, a line with the stack and its self time or allocated bytes.
+     */
+    private static void collapse(Node node, String path, boolean bytes, Map<String, Long> out) {
+        long self = bytes ? node.bytes : node.nanos;
+        for (Node child : node.children.values()) {
+            String childPath = (path.isEmpty() ? "" : path + ";") + ((String) child.frame).replace(';', ',');
+            collapse(child, childPath, bytes, out);
+            self -= bytes ? child.bytes : child.nanos;
+        }
+        if (!path.isEmpty()) {
+            long value = bytes ? self : self / 1000;
+            if (value > 0) {
+                out.merge(path, value, Long::sum);
+            }
+        }
+    }
+
+    private static void summarize(Node node, Deque<String> active, Map<String, Summary> out) {
+        for (Node child : node.children.values()) {
+            String name = (String) child.frame;
+            Summary summary = out.computeIfAbsent(name, n -> new Summary());
+            summary.count += child.count;
+            summary.selfNanos += child.nanos;
+            summary.selfBytes += child.bytes;
+            if (!active.contains(name)) {
+                summary.totalNanos += child.nanos;
+                summary.totalBytes += child.bytes;
+            }
+            for (Node grandchild : child.children.values()) {
+                summary.selfNanos -= grandchild.nanos;
+                summary.selfBytes -= grandchild.bytes;
+            }
+            active.push(name);
+            summarize(child, active, out);
+            active.pop();
+        }
+    }
+
+    private void write(String file) {
+        Node tree = mergedTree();
+        Map<String, Long> time = new LinkedHashMap<>();
+        collapse(tree, "", false, time);
+        Map<String, Long> allocations = new LinkedHashMap<>();
+        collapse(tree, "", true, allocations);
+        Map<String, Summary> summaries = new HashMap<>();
+        summarize(tree, new ArrayDeque<>(), summaries);
+
+        try (PrintWriter out = new PrintWriter(file)) {
+            time.forEach((stack, micros) -> out.println(stack + " " + micros));
+        } catch (FileNotFoundException e) {
+            System.err.println("Could not write rule profile: " + e.getMessage());
+            return;
+        }
+        try (PrintWriter out = new PrintWriter(file + ".alloc")) {
+            allocations.forEach((stack, bytes) -> out.println(stack + " " + bytes));
+        } catch (FileNotFoundException e) {
+            System.err.println("Could not write rule profile: " + e.getMessage());
+            return;
+        }
+        try (PrintWriter out = new PrintWriter(file + ".summary")) {
+            out.format("%12s %12s %12s %12s %12s  %s%n",
+                    "self ms", "total ms", "self MB", "total MB", "count", "frame");
+            summaries.entrySet().stream()
+                    .sorted(Comparator.comparingLong((Map.Entry<String, Summary> e) -> e.getValue().selfNanos)
+                            .reversed())
+                    .forEach(e -> out.format("%12.3f %12.3f %12.3f %12.3f %12d  %s%n",
+                            e.getValue().selfNanos / 1e6, e.getValue().totalNanos / 1e6,
+                            e.getValue().selfBytes / 1e6, e.getValue().totalBytes / 1e6,
+                            e.getValue().count, e.getKey()));
+        } catch (FileNotFoundException e) {
+            System.err.println("Could not write rule profile: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,197 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.kframework.utils.errorsystem.KEMException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * A persistent, content-addressed cache of Z3 query results, shared by all kprove/krun processes pointing to the same
+ * cache directory.
+ * <p>
+ * Entries are keyed by the SHA-256 of the query text, after alpha-normalizing the quoted symbols {@code |...|} used by
+ * {@link org.kframework.backend.java.symbolic.KILtoSMTLib} for variables, so that queries differing only in variable
+ * names share an entry. The key also covers the SMT prelude, the check-sat command and the timeout. "sat" and "unsat"
+ * are cached, and so is "unknown" when the query timed out, since the key only matches queries with the same timeout.
+ * Other "unknown" results, which also stand for Z3 errors, and error or crash output are not cached. Queries checked
+ * through external processes, the process pool and JNI all go through the cache.
+ * <p>
+ * Each entry is a small file, written to a temporary file first and then atomically moved in place, so concurrent
+ * processes never observe partial entries. The last-modified time of an entry is refreshed on every hit, and when the
+ * number of entries exceeds the configured maximum the least recently used ones are deleted.
+ */
+public class SMTQueryCache {
+
+    private static final String ENTRY_SUFFIX = ".smtres";
+
+    /**
+     * Number of insertions between two checks of the cache size.
+     */
+    private static final int EVICTION_CHECK_PERIOD = 1000;
+
+    private final File cacheDir;
+    private final int maxEntries;
+    private final AtomicInteger insertionsSinceCheck = new AtomicInteger();
+
+    public SMTQueryCache(File cacheDir, int maxEntries) {
+        this.cacheDir = cacheDir;
+        this.maxEntries = maxEntries;
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            throw KEMException.criticalError("Could not create SMT query cache directory: " + cacheDir);
+        }
+    }
+
+    public String key(String prelude, String checkSat, int timeout, CharSequence query) {
+        return DigestUtils.sha256Hex(prelude + "\n" + checkSat + "\n" + timeout + "\n" + normalize(query));
+    }
+
+    /**
+     * @return the cached result for the given key, or null if there is none.
+     */
+    public String get(String key) {
+        Path entry = entryFile(key).toPath();
+        try {
+            String result = new String(Files.readAllBytes(entry), StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return Z3Wrapper.Z3_QUERY_RESULTS.contains(result) ? result : null;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            // entry being evicted concurrently or unreadable, treat as a miss
+            return null;
+        }
+    }
+
+    /**
+     * Stores the result of a query, unless it is neither "sat", "unsat", nor a timeout.
+     *
+     * @param timedOut whether the query ran out of time, see {@link Z3Profiler#isLastRunTimeout()}.
+     */
+    public void put(String key, String result, boolean timedOut) {
+        if (!isCacheable(result, timedOut)) {
+            return;
+        }
+        File entry = entryFile(key);
+        try {
+            File dir = entry.getParentFile();
+            dir.mkdirs();
+            Path tmp = Files.createTempFile(dir.toPath(), key, ".tmp");
+            Files.write(tmp, result.getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(tmp, entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, entry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // the cache is an optimization only, a failed write is not an error
+            return;
+        }
+        if (insertionsSinceCheck.incrementAndGet() >= EVICTION_CHECK_PERIOD) {
+            insertionsSinceCheck.set(0);
+            evict();
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until at most {@code maxEntries} remain.
+     */
+    public synchronized void evict() {
+        List<Path> entries = new ArrayList<>();
+        Map<Path, Long> accessTimes = new HashMap<>();
+        try (Stream<Path> files = Files.walk(cacheDir.toPath(), 2)) {
+            files.filter(p -> p.getFileName().toString().endsWith(ENTRY_SUFFIX)).forEach(p -> {
+                try {
+                    accessTimes.put(p, Files.getLastModifiedTime(p).toMillis());
+                    entries.add(p);
+                } catch (IOException e) {
+                    // deleted concurrently
+                }
+            });
+        } catch (IOException e) {
+            return;
+        }
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        entries.sort(Comparator.comparing(accessTimes::get));
+        for (Path p : entries.subList(0, entries.size() - maxEntries)) {
+            try {
+                Files.deleteIfExists(p);
+            } catch (IOException e) {
+                // deleted concurrently
+            }
+        }
+    }
+
+    static boolean isCacheable(String result, boolean timedOut) {
+        return "sat".equals(result) || "unsat".equals(result) || timedOut && "unknown".equals(result);
+    }
+
+    private File entryFile(String key) {
+        return new File(new File(cacheDir, key.substring(0, 2)), key + ENTRY_SUFFIX);
+    }
+
+    /**
+     * Renames every quoted symbol {@code |...|} in {@code query} to {@code |#n|}, where n is the index of its first
+     * occurrence. String literals and comments are left untouched. The result is only used to compute cache keys.
+     */
+    static String normalize(CharSequence query) {
+        StringBuilder sb = new StringBuilder(query.length());
+        Map<String, Integer> names = new HashMap<>();
+        int i = 0;
+        int n = query.length();
+        while (i < n) {
+            char c = query.charAt(i);
+            if (c == '|') {
+                int end = i + 1;
+                while (end < n && query.charAt(end) != '|') {
+                    end++;
+                }
+                String name = query.subSequence(i + 1, end).toString();
+                Integer index = names.computeIfAbsent(name, k -> names.size());
+                sb.append("|#").append(index).append('|');
+                i = end + 1;
+            } else if (c == '"') {
+                int end = i + 1;
+                while (end < n) {
+                    if (query.charAt(end) == '"') {
+                        // "" is an escaped quote inside SMT-LIB string literals
+                        if (end + 1 < n && query.charAt(end + 1) == '"') {
+                            end += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    end++;
+                }
+                end = Math.min(end + 1, n);
+                sb.append(query, i, end);
+                i = end;
+            } else if (c == ';') {
+                while (i < n && query.charAt(i) != '\n') {
+                    i++;
+                }
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+}
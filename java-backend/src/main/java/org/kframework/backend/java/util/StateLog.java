@@ -1,50 +1,83 @@
 // Copyright (c) 2018-2019 K Team. All Rights Reserved.
 package org.kframework.backend.java.util;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.kframework.backend.java.symbolic.JavaExecutionOptions;
 import org.kframework.kore.K;
-import org.kframework.unparser.KPrint;
-import org.kframework.unparser.OutputModes;
 import org.kframework.utils.file.FileUtil;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.PrintWriter;
-import java.math.BigInteger;
-import java.nio.charset.StandardCharsets;
-
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs the events of an execution to {@code <session>.log}, one line per event, and the terms they refer to, pretty
+ * printed to JSON, to the {@link BlobPack} {@code <session>_blobs}.
+ * <p>
+ * Events are written asynchronously: logging an event only puts it into a bounded queue, which a background thread
+ * drains in batches, printing and storing the terms of the events before writing their lines. The log is complete
+ * once {@link #close} returns, or when the JVM exits.
+ * <p>
+ * If the log cannot be opened or written to, it is marked as failed and further events are dropped, so that the
+ * execution is never blocked by a full queue.
+ */
 public class StateLog {
 
+    private static final int QUEUE_CAPACITY = 4096;
+
     // *ALL* `public` methods *MUST* return `void` and have their first line be `if (! this.loggingOn) return;`
     private final boolean        loggingOn;
     private final File           loggingPath;
-    private final File           blobsDir;
     private final List<LogEvent> logEvents;
 
     private String              sessionId;
     private PrintWriter         sessionLog;
     private PrettyPrinter       prettyPrinter;
-    private Map<Integer,String> writtenHashes;
+    private BlobPack            blobs;
+    /**
+     * the blob ids of the terms already written, by identity
+     */
+    private Cache<K, String>    writtenTerms;
+
+    private BlockingQueue<Entry> queue;
+    private Thread               writer;
+    private Thread               shutdownHook;
+    private volatile boolean     closed;
+    private volatile boolean     failed;
 
     private boolean inited;
     private long    startTime;
 
+    /**
+     * An event, or a log line if {@link #terms} is null.
+     */
+    private static final class Entry {
+        final long time;
+        final String text;
+        final K[] terms;
+
+        Entry(long time, String text, K[] terms) {
+            this.time = time;
+            this.text = text;
+            this.terms = terms;
+        }
+    }
+
+    private static final Entry END = new Entry(0, null, null);
+
     public StateLog() {
         this.inited        = false;
         this.loggingOn     = false;
         this.loggingPath   = null;
-        this.blobsDir      = null;
         this.logEvents     = Collections.emptyList();
         this.prettyPrinter = null;
-        this.writtenHashes = new HashMap<Integer,String>();
     }
 
     public StateLog(JavaExecutionOptions javaExecutionOptions, FileUtil files, PrettyPrinter prettyPrinter) {
@@ -57,12 +90,8 @@ public class StateLog {
 
         if (javaExecutionOptions.stateLogId != null) this.sessionId = javaExecutionOptions.stateLogId;
 
-        this.blobsDir = new File(loggingPath, this.sessionId + "_blobs/");
-        this.blobsDir.mkdirs();
-
         this.logEvents     = javaExecutionOptions.stateLogEvents;
         this.prettyPrinter = prettyPrinter;
-        this.writtenHashes = new HashMap<Integer,String>();
     }
 
     public void open(String defaultSessionId) {
@@ -70,14 +99,26 @@ public class StateLog {
         this.inited = true;
         boolean sessionIdNotSet = this.sessionId == null;
         if (sessionIdNotSet) this.sessionId = defaultSessionId;
+        this.loggingPath.mkdirs();
         File logFile = new File(this.loggingPath, this.sessionId + ".log");
-        PrintWriter sessionLog;
         try {
             this.sessionLog = new PrintWriter(logFile);
+            this.blobs = new BlobPack(this.loggingPath, this.sessionId + "_blobs");
             if(sessionIdNotSet) System.out.println("StateLog: " + logFile);
-        } catch (FileNotFoundException e) {
+        } catch (IOException e) {
+            System.err.println("Could not open the state log in " + this.loggingPath.getAbsolutePath());
             e.printStackTrace();
+            if (this.sessionLog != null) this.sessionLog.close();
+            this.failed = true;
+            return;
         }
+        this.writtenTerms = CacheBuilder.newBuilder().weakKeys().build();
+        this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        this.writer = new Thread(this::drain, "StateLog-" + this.sessionId);
+        this.writer.setDaemon(true);
+        this.writer.start();
+        this.shutdownHook = new Thread(this::finish);
+        Runtime.getRuntime().addShutdownHook(this.shutdownHook);
         this.startTime = System.currentTimeMillis();
         this.log(LogEvent.OPEN);
     }
@@ -88,62 +129,126 @@ public class StateLog {
 
     public void log(String logItem) {
         if (! this.loggingOn) return;
-        this.sessionLog.println((System.currentTimeMillis() - this.startTime) + " " + logItem);
-        this.sessionLog.flush();
+        enqueue(new Entry(System.currentTimeMillis() - this.startTime, logItem, null));
     }
 
     public void log(LogEvent logCode, K... terms) {
         if (! (this.loggingOn && this.logEvents.contains(logCode))) return;
-        ArrayList<String> nodeIds = new ArrayList<String>();
-        for (K term: terms) {
-            nodeIds.add(writeNode(term));
-        }
-        String nodeId = String.join("_", nodeIds);
-        this.log(logCode.toString() + " " + nodeId);
+        // Claims may be proved in parallel, see JavaExecutionOptions.parallelClaims; the queue is thread-safe
+        enqueue(new Entry(System.currentTimeMillis() - this.startTime, logCode.toString(), terms));
     }
 
     public void close() {
         if (! this.loggingOn) return;
+        if (this.writer == null) return;
         this.log(LogEvent.CLOSE);
-        this.sessionLog.close();
+        finish();
+        try {
+            Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+        } catch (IllegalStateException e) {
+            // already shutting down
+        }
+    }
+
+    private void enqueue(Entry entry) {
+        if (this.queue == null || this.closed) return;
+        put(entry);
     }
 
-    private static String hash(K in) {
-        MessageDigest m = null;
-        String hashtext = "__";
+    /**
+     * Waits for room in the queue while the writer is running; drops the entry once it has failed or stopped.
+     */
+    private void put(Entry entry) {
         try {
-            m = MessageDigest.getInstance("MD5");
-            m.reset();
-            m.update(KPrint.serialize(in, OutputModes.KAST));
-            byte[] digest = m.digest();
-            BigInteger bigInt = new BigInteger(1,digest);
-            hashtext = bigInt.toString(16);
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
+            while (! this.failed && this.writer.isAlive()) {
+                if (this.queue.offer(entry, 100, TimeUnit.MILLISECONDS)) return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        return hashtext;
     }
 
-    private String writeNode(K contents) {
-        int objectHash = contents.hashCode();
-        if (writtenHashes.containsKey(objectHash)) {
-            return writtenHashes.get(objectHash);
-        } else {
-            String fileCode   = hash(contents);
-            File   outputFile = new File(this.blobsDir, fileCode + "." + OutputModes.JSON.ext());
-            if (! outputFile.exists()) {
-                try {
-                    String out = new String(this.prettyPrinter.prettyPrintBytes(contents), StandardCharsets.UTF_8);
-                    PrintWriter fOut = new PrintWriter(outputFile);
-                    fOut.println(out);
-                    fOut.close();
-                    writtenHashes.put(objectHash,fileCode);
-                } catch (FileNotFoundException e) {
-                    System.err.println("Could not open node output file: " + outputFile.getAbsolutePath());
-                    e.printStackTrace();
+    /**
+     * Waits for the writer to drain the queue, then closes the log.
+     */
+    private synchronized void finish() {
+        if (this.closed || this.writer == null) return;
+        // no entry is accepted after END
+        this.closed = true;
+        put(END);
+        try {
+            this.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return whether the log could not be opened or written to, in which case events are dropped
+     */
+    boolean failed() {
+        return this.failed;
+    }
+
+    /**
+     * The loop of the writer thread. Each batch of entries is flushed to disk before waiting for more.
+     */
+    private void drain() {
+        List<Entry> batch = new ArrayList<>();
+        try {
+            while (true) {
+                batch.add(this.queue.take());
+                this.queue.drainTo(batch);
+                for (Entry entry : batch) {
+                    if (entry == END) {
+                        this.sessionLog.close();
+                        this.blobs.close();
+                        return;
+                    }
+                    write(entry);
+                }
+                batch.clear();
+                this.blobs.flush();
+                this.sessionLog.flush();
+                if (this.sessionLog.checkError()) {
+                    throw new IOException("Could not write " + this.sessionId + ".log");
                 }
             }
-            return fileCode;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not write to the state log in " + this.loggingPath.getAbsolutePath());
+            e.printStackTrace();
+        }
+        // the writer is gone: drop the pending and later events instead of blocking their loggers
+        this.failed = true;
+        this.queue.clear();
+        this.sessionLog.close();
+        try {
+            this.blobs.close();
+        } catch (IOException e) {
+            // already reported
+        }
+    }
+
+    private void write(Entry entry) throws IOException {
+        if (entry.terms == null) {
+            this.sessionLog.println(entry.time + " " + entry.text);
+            return;
+        }
+        ArrayList<String> nodeIds = new ArrayList<String>();
+        for (K term: entry.terms) {
+            nodeIds.add(writeNode(term));
+        }
+        this.sessionLog.println(entry.time + " " + entry.text + " " + String.join("_", nodeIds));
+    }
+
+    private String writeNode(K contents) throws IOException {
+        String id = this.writtenTerms.getIfPresent(contents);
+        if (id == null) {
+            id = this.blobs.write(this.prettyPrinter.prettyPrintBytes(contents));
+            this.writtenTerms.put(contents, id);
         }
+        return id;
     }
 }
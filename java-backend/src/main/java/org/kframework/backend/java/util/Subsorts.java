@@ -1,19 +1,24 @@
 // Copyright (c) 2014-2019 K Team. All Rights Reserved.
 package org.kframework.backend.java.util;
 
-import com.google.common.collect.ArrayTable;
 import com.google.common.collect.Sets;
-import com.google.common.collect.Table;
 import org.kframework.Collections;
+import org.kframework.POSet;
 import org.kframework.backend.java.kil.Sort;
 import org.kframework.definition.Module;
 import org.kframework.utils.errorsystem.KEMException;
+import scala.Tuple2;
 import scala.collection.JavaConversions;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 
 /**
@@ -28,46 +33,83 @@ public class Subsorts implements Serializable {
     private final Set<Sort> sorts;
 
     /**
-     * {@code subsort[sort1][sort2] = true} iff {@code sort1} is bigger than
-     * {@code sort2}.
+     * The sorts, numbered in the topological order of {@link Module#subsorts()}, so that smaller sorts have smaller
+     * numbers.
      */
-    private final Table<Sort, Sort, Boolean> subsort;
+    private final Sort[] sortArray;
+    private final Map<Sort, Integer> ordinals;
+    private final int words;
+
+    /**
+     * Bit matrix in which row {@code i} holds the bits of the sorts less than the sort numbered {@code i}, i.e.,
+     * {@code isSubsorted(sortArray[i], sortArray[j])} iff bit {@code j} of row {@code i} is set.
+     */
+    private final long[] subsortBits;
+
+    /**
+     * Bit matrix in which row {@code i} holds the bits of the sorts greater than the sort numbered {@code i}.
+     */
+    private final long[] supersortBits;
 
     public Subsorts(Module module) {
-        sorts = JavaConversions.asJavaCollection(module.allSorts()).stream()
-                .map(Sort::of)
-                .collect(Collectors.toSet());
-
-        this.subsort = ArrayTable.create(sorts, sorts);
-        for (org.kframework.kore.Sort sort1 : Collections.iterable(module.allSorts())) {
-            for (org.kframework.kore.Sort sort2 : Collections.iterable(module.allSorts())) {
-                subsort.put(
-                        Sort.of(sort1),
-                        Sort.of(sort2),
-                        module.subsorts().$greater(sort1, sort2));
+        POSet<org.kframework.kore.Sort> subsorts = module.subsorts();
+        List<org.kframework.kore.Sort> koreSorts = new ArrayList<>(JavaConversions.asJavaCollection(module.allSorts()));
+        koreSorts.sort(Comparator.comparingInt(subsorts::ordinal));
+
+        sortArray = koreSorts.stream().map(Sort::of).toArray(Sort[]::new);
+        sorts = new HashSet<>(Arrays.asList(sortArray));
+        ordinals = new HashMap<>();
+        for (int i = 0; i < sortArray.length; i++) {
+            ordinals.put(sortArray[i], i);
+        }
+
+        words = (sortArray.length + 63) >>> 6;
+        subsortBits = new long[sortArray.length * words];
+        supersortBits = new long[sortArray.length * words];
+        for (Tuple2<org.kframework.kore.Sort, scala.collection.Set<org.kframework.kore.Sort>> relation
+                : Collections.iterable(subsorts.relations())) {
+            Integer small = ordinals.get(Sort.of(relation._1()));
+            if (small == null) {
+                continue;
+            }
+            for (org.kframework.kore.Sort sort : Collections.iterable(relation._2())) {
+                Integer big = ordinals.get(Sort.of(sort));
+                if (big != null) {
+                    set(subsortBits, big, small);
+                    set(supersortBits, small, big);
+                }
             }
         }
     }
 
+    private void set(long[] bits, int row, int column) {
+        bits[row * words + (column >>> 6)] |= 1L << column;
+    }
+
+    private boolean get(long[] bits, int row, int column) {
+        return (bits[row * words + (column >>> 6)] & (1L << column)) != 0;
+    }
+
     public Set<Sort> allSorts() {
         return sorts;
     }
 
     public boolean isSubsorted(Sort bigSort, Sort smallSort) {
-        Boolean isSubsorted = subsort.get(bigSort, smallSort);
-        if (isSubsorted == null) {
+        Integer big = ordinals.get(bigSort);
+        Integer small = ordinals.get(smallSort);
+        if (big == null || small == null) {
             if (smallSort == Sort.BOTTOM) {
                 return true;
             } else if (bigSort == Sort.BOTTOM) {
                 return false;
             }
-            if (subsort.containsRow(bigSort)) {
+            if (big != null) {
                 throw KEMException.criticalError("Sort " + smallSort.toString() + " is undefined.");
             } else {
                 throw KEMException.criticalError("Sort " + bigSort.toString() + " is undefined.");
             }
         }
-        return isSubsorted;
+        return get(subsortBits, big, small);
     }
 
     public boolean isSubsortedEq(Sort bigSort, Sort smallSort) {
@@ -112,8 +154,36 @@ public class Subsorts implements Serializable {
                 !(lowerBounds.size() == 1 && lowerBounds.iterator().next().equals(Sort.BOTTOM));
     }
 
-    private boolean inRelation(Sort sort1, Sort sort2, boolean direction) {
-        return direction ? isSubsorted(sort2, sort1) : isSubsorted(sort1, sort2);
+    /**
+     * Returns the bits of the sorts which are bounds of all the sorts of the subset, i.e., greater than or equal to
+     * them if {@code direction} is false, and less than or equal to them otherwise.
+     */
+    private long[] getBoundBits(Set<Sort> subset, boolean direction) {
+        long[] bounds = new long[words];
+        Arrays.fill(bounds, -1L);
+        long[] relation = direction ? subsortBits : supersortBits;
+        for (Sort sort : subset) {
+            Integer ordinal = ordinals.get(sort);
+            if (ordinal == null) {
+                if (sort != Sort.BOTTOM) {
+                    throw KEMException.criticalError("Sort " + sort.toString() + " is undefined.");
+                }
+                if (direction) {
+                    /* no sort is less than the bottom sort */
+                    Arrays.fill(bounds, 0L);
+                }
+                /* every sort is greater than the bottom sort */
+                continue;
+            }
+            for (int w = 0; w < words; w++) {
+                long self = ordinal >>> 6 == w ? 1L << ordinal : 0L;
+                bounds[w] &= relation[ordinal * words + w] | self;
+            }
+        }
+        if (words > 0 && (sortArray.length & 63) != 0) {
+            bounds[words - 1] &= (1L << sortArray.length) - 1;
+        }
+        return bounds;
     }
 
     private Set<Sort> getBounds(Set<Sort> subset, boolean direction) {
@@ -124,21 +194,14 @@ public class Subsorts implements Serializable {
             return java.util.Collections.singleton(subset.iterator().next());
         }
 
-        Set<Sort> bounds = new HashSet<>();
-        for (Sort candidate : sorts) {
-            boolean isBound = true;
-            for (Sort sort : subset) {
-                if (!(inRelation(candidate, sort, direction) || candidate.equals(sort))) {
-                    isBound = false;
-                    break;
-                }
-            }
-            if (isBound) {
-                bounds.add(candidate);
+        long[] bounds = getBoundBits(subset, direction);
+        Set<Sort> result = new HashSet<>();
+        for (int w = 0; w < words; w++) {
+            for (long word = bounds[w]; word != 0; word &= word - 1) {
+                result.add(sortArray[(w << 6) + Long.numberOfTrailingZeros(word)]);
             }
         }
-
-        return bounds;
+        return result;
     }
 
     public Sort getTopSort(Set<Sort> subset, boolean direction) {
@@ -149,34 +212,31 @@ public class Subsorts implements Serializable {
             return subset.iterator().next();
         }
 
-        Set<Sort> bounds = getBounds(subset, direction);
-        if (bounds.size() == 0) {
-            return null;
-        }
-
-        Sort candidate = null;
-        for (Sort bound : bounds) {
-            if (candidate == null) {
-                candidate = bound;
-            } else {
-                if (inRelation(candidate, bound, direction)) {
-                    candidate = bound;
-                } else if (!inRelation(bound, candidate, direction)) {
-                    /* no relation between bound and candidate; none of them is the top element */
-                    candidate = null;
-                }
+        long[] bounds = getBoundBits(subset, direction);
+        /* the sorts are numbered in topological order, so the least upper bound, if any, is the first bound, and the
+         * greatest lower bound is the last one */
+        int candidate = -1;
+        for (int w = 0; w < words; w++) {
+            int i = direction ? words - 1 - w : w;
+            if (bounds[i] != 0) {
+                candidate = direction
+                        ? (i << 6) + 63 - Long.numberOfLeadingZeros(bounds[i])
+                        : (i << 6) + Long.numberOfTrailingZeros(bounds[i]);
+                break;
             }
         }
+        if (candidate < 0) {
+            return null;
+        }
         /* if there is a top element, it must be candidate */
-        if (candidate != null) {
-            for (Sort bound : bounds) {
-                if (bound != candidate && !inRelation(bound, candidate, direction)) {
-                    candidate = null;
-                    break;
-                }
+        long[] relation = direction ? subsortBits : supersortBits;
+        for (int w = 0; w < words; w++) {
+            long self = candidate >>> 6 == w ? 1L << candidate : 0L;
+            if ((bounds[w] & ~(relation[candidate * words + w] | self)) != 0) {
+                return null;
             }
         }
-        return candidate;
+        return sortArray[candidate];
     }
 
 }
@@ -5,27 +5,45 @@ import org.kframework.backend.java.kil.KItem;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Denis Bogdanas
  * Created on 31-Jan-19.
  */
 public class ToStringCache {
-    private Map<KItem, String> toStringCache = new HashMap<>();
+    private final Map<KItem, String> toStringCache;
+    // read by the metrics exporter, which must not read the map of a cache that is not concurrent
+    private final AtomicInteger entries = new AtomicInteger();
+
+    public ToStringCache() {
+        this(false);
+    }
+
+    /**
+     * @param concurrent Whether the cache is shared between threads, e.g. when proving claims in parallel.
+     */
+    public ToStringCache(boolean concurrent) {
+        toStringCache = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+    }
 
     public String get(KItem kItem) {
         return toStringCache.get(kItem);
     }
 
     public void put(KItem kItem, String str) {
-        toStringCache.put(kItem, str);
+        if (toStringCache.put(kItem, str) == null) {
+            entries.incrementAndGet();
+        }
     }
 
     public void clear() {
         toStringCache.clear();
+        entries.set(0);
     }
 
     public int size() {
-        return toStringCache.size();
+        return entries.get();
     }
 }
@@ -0,0 +1,87 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.kframework.backend.java.z3.Z3Context;
+
+/**
+ * Long-lived in-process Z3 contexts used with {@code --z3-jni}, one per thread. Each context evaluates the SMT prelude
+ * once, when it is created. Every query is then evaluated inside a {@code (push)}/{@code (pop)} scope, so that the
+ * declarations and assertions of one query do not leak into the next one.
+ * <p>
+ * A context is discarded and recreated after a fixed number of queries, to bound the memory held by Z3, and after a
+ * query that did not produce one of {@link Z3Wrapper#Z3_QUERY_RESULTS}, since its state is then unknown.
+ */
+public class Z3ContextManager {
+
+    private final String prelude;
+    private final int maxQueries;
+    private final ThreadLocal<Session> sessions = new ThreadLocal<>();
+
+    public Z3ContextManager(String prelude, int maxQueries) {
+        this.prelude = prelude;
+        this.maxQueries = maxQueries;
+    }
+
+    /**
+     * Checks {@code query} on the context of the current thread.
+     *
+     * @return the trimmed output of Z3 for the query, normally one of {@link Z3Wrapper#Z3_QUERY_RESULTS}.
+     */
+    public String check(CharSequence query, String checkSat, int timeout, Z3Profiler profiler) {
+        Session session = sessions.get();
+        if (session != null && session.queries >= maxQueries) {
+            session.context.close();
+            session = null;
+        }
+        if (session == null) {
+            session = open(profiler);
+        }
+        sessions.set(session);
+        boolean healthy = false;
+        try {
+            if (timeout != session.timeout) {
+                session.context.evalSmtlib2("(set-option :timeout " + timeout + ")");
+                session.timeout = timeout;
+            }
+            profiler.startRun();
+            String result;
+            try {
+                result = session.context.evalSmtlib2("(push)\n" + query + "\n" + checkSat + "\n(pop)\n").trim();
+            } finally {
+                profiler.endRun(timeout);
+            }
+            session.queries++;
+            healthy = Z3Wrapper.Z3_QUERY_RESULTS.contains(result);
+            return result;
+        } finally {
+            if (!healthy) {
+                session.context.close();
+                sessions.remove();
+            }
+        }
+    }
+
+    private Session open(Z3Profiler profiler) {
+        profiler.startSpawn();
+        Z3Context context = new Z3Context();
+        try {
+            context.evalSmtlib2(prelude);
+            return new Session(context);
+        } catch (RuntimeException e) {
+            context.close();
+            throw e;
+        } finally {
+            profiler.endSpawn();
+        }
+    }
+
+    private static class Session {
+        private final Z3Context context;
+        private int queries = 0;
+        private int timeout = -1;
+
+        Session(Z3Context context) {
+            this.context = context;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.kframework.utils.OS;
+import org.kframework.utils.errorsystem.KEMException;
+import org.kframework.utils.file.FileUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of long-lived {@code z3 -in -smt2} processes. Each process receives the SMT prelude once, when it is spawned.
+ * Every query is then sent inside a {@code (push)}/{@code (pop)} scope, so that the declarations and assertions of one
+ * query do not leak into the next one.
+ * <p>
+ * The end of the answer to a query is detected through an {@code (echo)} marker. Timeouts are enforced both by Z3,
+ * through the {@code :timeout} option, and by the pool itself: a process that does not answer in time is killed and
+ * the query is reported as "unknown", the same result Z3 gives on a soft timeout.
+ * <p>
+ * Pools are shared across all {@link Z3Wrapper} instances using the same prelude and environment, and their processes
+ * are destroyed when the JVM exits, including those still checked out by a query.
+ * <p>
+ * A query first takes one of {@code maxSize} permits, then an idle process, or a new one if none is idle. A process
+ * killed after a query gives its permit back, so a waiting query spawns its replacement.
+ */
+public class Z3ProcessPool {
+
+    private static final String END_MARKER = "k-z3-query-end";
+    private static final String EOF = new String("<EOF>");
+
+    /**
+     * Extra time given to a process to answer, on top of the Z3 timeout, before it is considered stuck.
+     */
+    private static final int GRACE_PERIOD_MILLIS = 1000;
+
+    private static final ConcurrentMap<String, Z3ProcessPool> pools = new ConcurrentHashMap<>();
+
+    private final String prelude;
+    private final FileUtil files;
+    private final BlockingQueue<Z3Process> idle = new LinkedBlockingQueue<>();
+    /**
+     * every live process of the pool, idle or checked out
+     */
+    private final Set<Z3Process> all = ConcurrentHashMap.newKeySet();
+    /**
+     * maxSize minus the number of processes checked out by queries
+     */
+    private final Semaphore permits;
+
+    Z3ProcessPool(String prelude, int maxSize, FileUtil files) {
+        this.prelude = prelude;
+        this.permits = new Semaphore(maxSize);
+        this.files = files;
+        Runtime.getRuntime().addShutdownHook(new Thread(this::destroyAll));
+    }
+
+    public static Z3ProcessPool of(String prelude, int maxSize, FileUtil files) {
+        return pools.computeIfAbsent(prelude + "\0" + files.getEnv(),
+                key -> new Z3ProcessPool(prelude, maxSize, files));
+    }
+
+    /**
+     * Checks {@code query} on a pooled process.
+     *
+     * @return the trimmed output of Z3 for the query, normally one of {@link Z3Wrapper#Z3_QUERY_RESULTS}.
+     */
+    public String check(CharSequence query, String checkSat, int timeout, Z3Profiler profiler) {
+        Z3Process z3 = acquire(profiler);
+        boolean healthy = false;
+        try {
+            profiler.startRun();
+            String result;
+            try {
+                result = z3.check(query, checkSat, timeout);
+            } finally {
+                profiler.endRun(timeout);
+            }
+            healthy = result != null && Z3Wrapper.Z3_QUERY_RESULTS.contains(result);
+            return result != null ? result : "unknown";
+        } finally {
+            release(z3, healthy);
+        }
+    }
+
+    private Z3Process acquire(Z3Profiler profiler) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw KEMException.criticalError("Interrupted while waiting for a Z3 process", e);
+        }
+        Z3Process z3 = idle.poll();
+        if (z3 != null) {
+            return z3;
+        }
+        try {
+            return spawn(profiler);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(Z3Process z3, boolean healthy) {
+        if (healthy) {
+            idle.add(z3);
+        } else {
+            destroy(z3);
+        }
+        permits.release();
+    }
+
+    private void destroy(Z3Process z3) {
+        all.remove(z3);
+        z3.destroy();
+    }
+
+    private Z3Process spawn(Z3Profiler profiler) {
+        profiler.startSpawn();
+        try {
+            ProcessBuilder pb = files.getProcessBuilder().command(
+                    OS.current().getNativeExecutable("z3"),
+                    "-in",
+                    "-smt2");
+            pb.redirectInput(ProcessBuilder.Redirect.PIPE);
+            pb.redirectOutput(ProcessBuilder.Redirect.PIPE);
+            pb.redirectErrorStream(true);
+            Z3Process z3 = new Z3Process(pb.start(), prelude);
+            all.add(z3);
+            return z3;
+        } catch (IOException e) {
+            throw KEMException.criticalError("Exception while invoking Z3", e);
+        } finally {
+            profiler.endSpawn();
+        }
+    }
+
+    private void destroyAll() {
+        idle.clear();
+        for (Z3Process z3 : all) {
+            destroy(z3);
+        }
+    }
+
+    private static class Z3Process {
+        private final Process process;
+        private final PrintWriter input;
+        private final BlockingQueue<String> output = new LinkedBlockingQueue<>();
+        private int timeout = -1;
+
+        Z3Process(Process process, String prelude) {
+            this.process = process;
+            this.input = new PrintWriter(process.getOutputStream());
+            Thread reader = new Thread(this::readOutput, "z3-reader");
+            reader.setDaemon(true);
+            reader.start();
+            input.format("%s\n", prelude);
+            input.flush();
+        }
+
+        private void readOutput() {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    output.add(line);
+                }
+            } catch (IOException e) {
+                // process destroyed, nothing to read anymore
+            } finally {
+                output.add(EOF);
+            }
+        }
+
+        /**
+         * @return the trimmed output of Z3, or null if the process did not answer in time.
+         */
+        String check(CharSequence query, String checkSat, int timeout) {
+            if (timeout != this.timeout) {
+                input.format("(set-option :timeout %d)\n", timeout);
+                this.timeout = timeout;
+            }
+            input.format("(push)\n%s\n%s\n(pop)\n(echo \"%s\")\n", query, checkSat, END_MARKER);
+            input.flush();
+
+            StringBuilder result = new StringBuilder();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos((long) timeout + GRACE_PERIOD_MILLIS);
+            try {
+                while (true) {
+                    String line = output.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (line == null) {
+                        return null;
+                    }
+                    //noinspection StringEquality
+                    if (line == EOF) {
+                        return result.length() == 0 ? "Z3 error: ended with no output" : result.toString().trim();
+                    }
+                    if (line.trim().equals(END_MARKER)) {
+                        return result.toString().trim();
+                    }
+                    result.append(line).append('\n');
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw KEMException.criticalError("Interrupted while waiting for Z3", e);
+            }
+        }
+
+        void destroy() {
+            input.close();
+            process.destroy();
+        }
+    }
+}
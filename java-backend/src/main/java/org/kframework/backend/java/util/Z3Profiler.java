@@ -10,33 +10,53 @@ import java.util.Map;
  */
 public class Z3Profiler {
     private CounterStopwatch sw;
+    private CounterStopwatch spawnSw;
     private int requestCount;
     private int queryCount;
     private int queryBuildFailureCount;
     private int totalTimeouts;
     private int nonTimeouts;
-    private boolean lastRunTimeout;
+    /**
+     * whether the last query of the calling thread timed out, as queries of parallel workers overlap
+     */
+    private final ThreadLocal<Boolean> lastRunTimeout = ThreadLocal.withInitial(() -> false);
     private Map<String, Integer> queryResultCounts = new HashMap<>();
+    private final LatencyHistogram latency = new LatencyHistogram();
 
     Z3Profiler(String name) {
         sw = new CounterStopwatch(name + " time");
+        spawnSw = new CounterStopwatch(name + " process spawn time");
     }
 
     public void startRun() {
         sw.start();
     }
 
-    public void endRun(int timeout) {
+    public synchronized void endRun(int timeout) {
         long durationNano = sw.stopAndGetDuration();
-        lastRunTimeout = (durationNano / 1000000.d) >= timeout;
-        if (lastRunTimeout) {
+        latency.record(durationNano);
+        boolean timedOut = (durationNano / 1000000.d) >= timeout;
+        lastRunTimeout.set(timedOut);
+        if (timedOut) {
             totalTimeouts++;
         } else {
             nonTimeouts++;
         }
     }
 
-    public void queryResult(String result) {
+    /**
+     * Spawning Z3 processes, or creating Z3 contexts with {@code --z3-jni}, is measured separately from running
+     * queries, see {@link Z3ProcessPool} and {@link Z3ContextManager}.
+     */
+    public void startSpawn() {
+        spawnSw.start();
+    }
+
+    public void endSpawn() {
+        spawnSw.stop();
+    }
+
+    public synchronized void queryResult(String result) {
         Integer cnt = queryResultCounts.get(result);
         cnt = cnt != null ? cnt : 0;
         queryResultCounts.put(result, cnt + 1);
@@ -45,23 +65,43 @@ public class Z3Profiler {
     /**
      * Not all requests result in actual SMT query. Some might have the results already cached.
      */
-    public void newRequest() {
+    public synchronized void newRequest() {
         requestCount++;
     }
 
-    public void newQueryBuildFailure() {
+    public synchronized void newQueryBuildFailure() {
         queryBuildFailureCount++;
     }
 
-    public void startQuery() {
+    public synchronized void startQuery() {
         queryCount++;
     }
 
     public boolean isLastRunTimeout() {
-        return lastRunTimeout;
+        return lastRunTimeout.get();
     }
 
-    public void print() {
+    /**
+     * Adds the counts and query latencies of this profiler to {@code metrics}, labelled with {@code kind}.
+     */
+    public synchronized void addMetrics(Metrics metrics, String kind) {
+        metrics.histogram("z3_query_duration_seconds", "Duration of Z3 queries.", latency, "kind", kind);
+        metrics.counter("z3_requests_total", "Requests to check a formula with Z3, including cached ones.",
+                requestCount, "kind", kind);
+        metrics.counter("z3_queries_total", "Queries actually sent to Z3.", queryCount, "kind", kind);
+        metrics.counter("z3_query_build_failures_total", "Formulas that could not be translated to SMT-LIB.",
+                queryBuildFailureCount, "kind", kind);
+        metrics.counter("z3_timeouts_total", "Z3 queries that timed out, including retried ones.",
+                totalTimeouts, "kind", kind);
+        for (Map.Entry<String, Integer> entry : queryResultCounts.entrySet()) {
+            metrics.counter("z3_results_total", "Z3 query results.", entry.getValue(),
+                    "kind", kind, "result", entry.getKey());
+        }
+        metrics.timer(sw, "");
+        metrics.timer(spawnSw, "");
+    }
+
+    public synchronized void print() {
         if (queryCount == 0) {
             return;
         }
@@ -69,6 +109,9 @@ public class Z3Profiler {
         int unrecoveredTimeouts = queryCount - nonTimeouts;
         int recoveredTimeouts = totalTimeouts - unrecoveredTimeouts;
         Profiler2.printTimer("  ", sw, null, true);
+        if (spawnSw.getCountTop() != 0) {
+            Profiler2.printTimer("  ", spawnSw, null, true);
+        }
         if (queryCount != 0) {
             if (queryCount != sw.getCountTop()) {
                 System.err.format("    executed queries:     %d\n", queryCount);
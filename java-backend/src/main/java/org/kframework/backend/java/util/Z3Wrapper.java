@@ -5,11 +5,7 @@ import com.google.common.collect.ImmutableSet;
 import org.apache.commons.io.IOUtils;
 import org.kframework.backend.java.kil.GlobalContext;
 import org.kframework.backend.java.symbolic.JavaExecutionOptions;
-import org.kframework.backend.java.z3.Z3Context;
 import org.kframework.backend.java.z3.Z3Exception;
-import org.kframework.backend.java.z3.Z3Params;
-import org.kframework.backend.java.z3.Z3Solver;
-import org.kframework.backend.java.z3.Z3Status;
 import org.kframework.builtin.Sorts;
 import org.kframework.utils.OS;
 import org.kframework.utils.errorsystem.KEMException;
@@ -38,6 +34,8 @@ public class Z3Wrapper {
     private final FileUtil files;
     private final StateLog stateLog;
     private final GlobalContext global;
+    private final SMTQueryCache queryCache;
+    private final Z3ContextManager contextManager;
 
     public Z3Wrapper(
             SMTOptions options,
@@ -58,27 +56,51 @@ public class Z3Wrapper {
 
         SMT_PRELUDE = options.smtPrelude == null ? defaultPrelude : files.loadFromWorkingDirectory(options.smtPrelude);
         CHECK_SAT = options.z3Tactic == null ? "(check-sat)" : "(check-sat-using " + options.z3Tactic + ")";
+        queryCache = options.smtCacheDir == null
+                     ? null
+                     : new SMTQueryCache(files.resolveWorkingDirectory(options.smtCacheDir), options.smtCacheSize);
+        contextManager = options.z3JNI ? new Z3ContextManager(SMT_PRELUDE, options.z3JNIContextQueries) : null;
     }
 
-    public synchronized boolean isUnsat(CharSequence query, int timeout, Z3Profiler timer) {
+    public boolean isUnsat(CharSequence query, int timeout, Z3Profiler timer) {
         stateLog.log(StateLog.LogEvent.Z3QUERY,
                 KToken(SMT_PRELUDE + "\n" + query + "\n" + CHECK_SAT + "\n", Sorts.Z3Query()));
-        if (options.z3JNI) {
-            return checkQueryWithLibrary(query, timeout);
-        } else {
-            return checkQueryWithExternalProcess(query, timeout, timer);
+        String cacheKey = null;
+        if (queryCache != null) {
+            cacheKey = queryCache.key(SMT_PRELUDE, CHECK_SAT, timeout, query);
+            String cachedResult = queryCache.get(cacheKey);
+            if (cachedResult != null) {
+                stateLog.log(StateLog.LogEvent.Z3RESULT, KToken(cachedResult, Sorts.Z3Result()));
+                if (javaExecutionOptions.debugZ3) {
+                    global.log().format("\nZ3 query result (from persistent cache): %s\n", cachedResult);
+                }
+                return "unsat".equals(cachedResult);
+            }
+        }
+        String result = options.z3JNI
+                        ? checkQueryWithLibrary(query, timeout, timer)
+                        : options.z3PoolSize > 0
+                        ? checkQueryWithProcessPool(query, timeout, timer)
+                        : checkQueryWithExternalProcess(query, timeout, timer);
+        boolean unsat = processResult(query, result, timer);
+        if (queryCache != null) {
+            queryCache.put(cacheKey, result, timer.isLastRunTimeout());
         }
+        return unsat;
     }
 
-    private boolean checkQueryWithLibrary(CharSequence query, int timeout) {
-        boolean result = false;
-        try (Z3Context context = new Z3Context()) {
-            Z3Solver solver = new Z3Solver(context);
-            Z3Params params = new Z3Params(context);
-            params.add("timeout", timeout);
-            solver.setParams(params);
-            solver._assert(context.parseSmtlib2(SMT_PRELUDE + query));
-            result = solver.check() == Z3Status.UNSAT;
+    /**
+     * @return the result of the query, as output by Z3, or "unknown" if Z3 reported an error.
+     */
+    private String checkQueryWithLibrary(CharSequence query, int timeout, Z3Profiler profiler) {
+        profiler.startQuery();
+        try {
+            String result = contextManager.check(query, CHECK_SAT, timeout, profiler);
+            if (Z3_QUERY_RESULTS.contains(result)) {
+                return result;
+            }
+            kem.registerCriticalWarning(ExceptionType.PROOF_LINT,
+                    "failed to check smtlib expression:\n" + SMT_PRELUDE + query + "\nresult:\n" + result);
         } catch (Z3Exception e) {
             kem.registerCriticalWarning(ExceptionType.PROOF_LINT,
                     "failed to translate smtlib expression:\n" + SMT_PRELUDE + query, e);
@@ -86,13 +108,27 @@ public class Z3Wrapper {
             System.err.println(System.getProperty("java.library.path"));
             throw e;
         }
+        return "unknown";
+    }
+
+    /**
+     * @return the result of the query, as output by Z3.
+     */
+    private String checkQueryWithProcessPool(CharSequence query, int timeout, Z3Profiler profiler) {
+        profiler.startQuery();
+        String result = Z3ProcessPool.of(SMT_PRELUDE, options.z3PoolSize, files)
+                .check(query, CHECK_SAT, timeout, profiler);
+        if (javaExecutionOptions.debugZ3 && profiler.isLastRunTimeout()) {
+            //In case of timeout, result is "unknown", so evaluation can proceed.
+            global.log().format("\nZ3 likely timeout\n");
+        }
         return result;
     }
 
     /**
-     * @return true if query result is unsat, false otherwise.
+     * @return the result of the query, as output by Z3.
      */
-    private boolean checkQueryWithExternalProcess(CharSequence query, int timeout, Z3Profiler profiler) {
+    private synchronized String checkQueryWithExternalProcess(CharSequence query, int timeout, Z3Profiler profiler) {
         String result;
         profiler.startQuery();
         try {
@@ -125,6 +161,13 @@ public class Z3Wrapper {
                 global.log().format("\nZ3 likely timeout\n");
             }
         }
+        return result;
+    }
+
+    /**
+     * @return true if query result is unsat, false otherwise.
+     */
+    private boolean processResult(CharSequence query, String result, Z3Profiler profiler) {
         stateLog.log(StateLog.LogEvent.Z3RESULT, KToken(result, Sorts.Z3Result()));
         if (!Z3_QUERY_RESULTS.contains(result)) {
             throw KEMException.criticalError("Z3 crashed on input query:\n" + query + "\nresult:\n" + result);
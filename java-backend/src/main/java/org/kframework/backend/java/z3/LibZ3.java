@@ -7,10 +7,12 @@ import com.sun.jna.Pointer;
 import org.kframework.backend.java.util.Z3Wrapper;
 
 interface LibZ3 extends Library {
+    /**
+     * Not synchronized, so that distinct contexts can be used concurrently; each context is guarded by its own lock.
+     */
     LibZ3 INSTANCE = (LibZ3)
-            Native.synchronizedLibrary(
-                Native.loadLibrary("z3",
-                    LibZ3.class));
+            Native.loadLibrary("z3",
+                LibZ3.class);
 
     interface Z3_error_handler extends Callback {
         void invoke(Pointer context, int errorCode);
@@ -34,6 +36,7 @@ interface LibZ3 extends Library {
     void Z3_dec_ref(Pointer context, Pointer ast);
     void Z3_solver_assert(Pointer context, Pointer solver, Pointer ast);
     int Z3_solver_check(Pointer context, Pointer solver);
+    String Z3_eval_smtlib2_string(Pointer context, String str);
 
     void Z3_set_error_handler(Pointer context, Z3_error_handler handler);
     String Z3_get_error_msg(Pointer context, int errno);
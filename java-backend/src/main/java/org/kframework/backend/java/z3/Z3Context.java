@@ -27,12 +27,24 @@ public class Z3Context implements AutoCloseable {
         close();
     }
 
-    public Z3AST parseSmtlib2(String query) {
+    public synchronized Z3AST parseSmtlib2(String query) {
         Pointer ast = LibZ3.INSTANCE.Z3_parse_smtlib2_string(context, query, 0, Pointer.NULL, Pointer.NULL, 0, Pointer.NULL, Pointer.NULL);
         checkError();
         return new Z3AST(ast, this);
     }
 
+    /**
+     * Evaluates SMT-LIB 2 commands in the command interpreter of this context. Declarations, assertions and options
+     * are kept between calls, and {@code (push)}/{@code (pop)} scope them as in an interactive Z3 session.
+     *
+     * @return the output of the commands, e.g. the answers to {@code (check-sat)}
+     */
+    public synchronized String evalSmtlib2(String commands) {
+        String output = LibZ3.INSTANCE.Z3_eval_smtlib2_string(context, commands);
+        checkError();
+        return output;
+    }
+
     @Override
     public synchronized void close() {
         if (!closed) {
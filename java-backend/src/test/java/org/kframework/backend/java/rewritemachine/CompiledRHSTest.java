@@ -0,0 +1,58 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+
+package org.kframework.backend.java.rewritemachine;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.kil.BuiltinList;
+import org.kframework.backend.java.kil.Sort;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.java.kil.Variable;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CompiledRHSTest {
+
+    @Mock
+    TermContext termContext;
+
+    private final Variable x = new Variable("X", Sort.INT);
+    private final Variable y = new Variable("Y", Sort.INT);
+
+    private Term rhs() {
+        return BuiltinList.builder(Sort.LIST, null, null, termContext.global())
+                .addAll(x, IntToken.of(1), y, x)
+                .build();
+    }
+
+    @Test
+    public void testConstruct() {
+        CompiledRHS compiledRHS = CompiledRHS.compile(rhs());
+
+        Assert.assertTrue(compiledRHS.isCompiled());
+        Assert.assertEquals(2, compiledRHS.variables().length);
+        BuiltinList result = (BuiltinList) compiledRHS.construct(ImmutableMap.of(x, IntToken.of(0)), termContext);
+        Assert.assertEquals(ImmutableList.of(IntToken.of(0), IntToken.of(1), y, IntToken.of(0)), result.children);
+    }
+
+    @Test
+    public void testUnchangedSubtermIsShared() {
+        Term rhs = rhs();
+        CompiledRHS compiledRHS = CompiledRHS.compile(rhs);
+
+        Assert.assertSame(rhs, compiledRHS.construct(ImmutableMap.of(), termContext));
+    }
+
+    @Test
+    public void testGroundRHSIsPushed() {
+        Term rhs = IntToken.of(42);
+
+        Assert.assertSame(rhs, CompiledRHS.compile(rhs).construct(ImmutableMap.of(x, IntToken.of(0)), termContext));
+    }
+}
@@ -0,0 +1,47 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import org.junit.Test;
+import org.kframework.backend.java.symbolic.InitializeRewriter.DefinitionCacheKey;
+import org.kframework.builtin.BooleanUtils;
+import org.kframework.definition.Module;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.kframework.Collections.*;
+import static org.kframework.definition.Constructors.*;
+import static org.kframework.kore.KORE.*;
+
+public class DefinitionCacheKeyTest {
+
+    private static Module module(String rhs) {
+        return Module("TEST", Set(), Set(Rule(KRewrite(KApply(KLabel("foo")), KApply(KLabel(rhs))),
+                BooleanUtils.TRUE, BooleanUtils.TRUE)), Att());
+    }
+
+    private static DefinitionCacheKey key(Module module) {
+        return new DefinitionCacheKey(module, Collections.singletonList("transition"), Collections.singleton("INT.add"));
+    }
+
+    @Test
+    public void testSameModule() {
+        assertEquals(key(module("bar")), key(module("bar")));
+    }
+
+    @Test
+    public void testChangedRule() {
+        // a module kompiled again with a changed rule has the same name and hash code, but must not hit the cache
+        assertEquals(module("bar").hashCode(), module("baz").hashCode());
+        assertNotEquals(key(module("bar")), key(module("baz")));
+    }
+
+    @Test
+    public void testChangedOptions() {
+        Module module = module("bar");
+        assertNotEquals(key(module),
+                new DefinitionCacheKey(module, Collections.singletonList("step"), Collections.singleton("INT.add")));
+        assertNotEquals(key(module),
+                new DefinitionCacheKey(module, Collections.singletonList("transition"), Collections.emptySet()));
+    }
+}
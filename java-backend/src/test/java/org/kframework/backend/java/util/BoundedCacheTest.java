@@ -0,0 +1,47 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BoundedCacheTest {
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(2, false, false);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+        cache.put("c", 3);
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+        assertEquals(Integer.valueOf(3), cache.get("c"));
+        assertEquals(1, cache.evictions());
+    }
+
+    @Test
+    public void testCountLookupsOnce() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(0, true, true);
+        cache.put("a", 1);
+        cache.get("a");
+        cache.get("b");
+        cache.get("a");
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    public void testCountEntries() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(2, false, false);
+        cache.put("a", 1);
+        cache.put("a", 2);
+        assertEquals(1, cache.size());
+        cache.put("b", 3);
+        cache.put("c", 4);
+        assertEquals(2, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,84 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class FingerprintSetTest {
+
+    private static long low(long high) {
+        // some fingerprints share their low half, so that long probe sequences occur
+        return high % 64 == 0 ? 0 : high * 0x9E3779B97F4A7C15L;
+    }
+
+    private static void testAgreesWithHashSet(long inMemoryLimit) {
+        Random random = new Random(0);
+        Set<Long> expected = new HashSet<>();
+        FingerprintSet set = new FingerprintSet(inMemoryLimit, new File(System.getProperty("java.io.tmpdir")));
+        for (int i = 0; i < 100000; i++) {
+            long high = random.nextInt(50000);
+            assertEquals(expected.add(high), set.add(high, low(high)));
+        }
+        assertEquals(expected.size(), set.size());
+        for (long high = 0; high < 50000; high++) {
+            assertEquals(expected.contains(high), set.contains(high, low(high)));
+        }
+        assertFalse(set.contains(50000, low(50000)));
+    }
+
+    @Test
+    public void testInMemory() {
+        FingerprintSet set = new FingerprintSet(Long.MAX_VALUE, null);
+        assertTrue(set.add(0, 0));
+        assertFalse(set.add(0, 0));
+        assertTrue(set.contains(0, 0));
+        assertFalse(set.contains(0, 1));
+        assertFalse(set.isSpilled());
+        testAgreesWithHashSet(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testSpilled() {
+        FingerprintSet set = new FingerprintSet(0, new File(System.getProperty("java.io.tmpdir")));
+        assertTrue(set.isSpilled());
+        testAgreesWithHashSet(1 << 16);
+    }
+
+    @Test
+    public void testInMemoryLimitCappedByDirectMemory() {
+        FingerprintSet set = new FingerprintSet(Long.MAX_VALUE, new File(System.getProperty("java.io.tmpdir")), 3 << 14);
+        assertFalse(set.isSpilled());
+        for (int i = 1; i <= 1000; i++) {
+            set.add(i, i);
+        }
+        assertTrue(set.isSpilled());
+        for (int i = 1; i <= 1000; i++) {
+            assertTrue(set.contains(i, i));
+        }
+    }
+
+    @Test
+    public void testParseSize() {
+        assertEquals(512L << 20, FingerprintSet.parseSize("512m", -1));
+        assertEquals(2L << 30, FingerprintSet.parseSize("2G", -1));
+        assertEquals(4096, FingerprintSet.parseSize("4096", -1));
+        assertEquals(-1, FingerprintSet.parseSize("lots", -1));
+        assertEquals(-1, FingerprintSet.parseSize("", -1));
+    }
+
+    @Test
+    public void testCollisionProbability() {
+        FingerprintSet set = new FingerprintSet(Long.MAX_VALUE, null);
+        assertEquals(0.0, set.collisionProbability(), 0.0);
+        for (int i = 1; i <= 1000; i++) {
+            set.add(i, i);
+        }
+        assertEquals(1000 * 999 / 2 * Math.pow(2, -128), set.collisionProbability(), 1e-50);
+    }
+}
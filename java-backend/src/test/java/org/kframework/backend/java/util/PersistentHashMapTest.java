@@ -0,0 +1,113 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PersistentHashMapTest {
+
+    /**
+     * A key with a configurable hash code, used to force hash collisions.
+     */
+    private static final class Key {
+        final int id;
+        final int hash;
+
+        Key(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    @Test
+    public void testRandomUpdatesAgreeWithHashMap() {
+        Random random = new Random(0);
+        Map<Key, Integer> expected = new HashMap<>();
+        PersistentHashMap<Key, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 20000; i++) {
+            int id = random.nextInt(2000);
+            // few distinct hashes, so that both deep paths and collisions occur
+            Key key = new Key(id, id % 3 == 0 ? id % 7 : id * 0x9E3779B9);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                expected.put(key, i);
+                map = map.plus(key, i);
+            }
+            if (i % 1000 == 0) {
+                assertEquals(expected, map);
+                assertEquals(expected.hashCode(), map.hashCode());
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertEquals(map, PersistentHashMap.copyOf(expected));
+    }
+
+    @Test
+    public void testStructuralSharing() {
+        PersistentHashMap<Integer, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 1000; i++) {
+            map = map.plus(i, i);
+        }
+        assertSame(map, map.plus(1, map.get(1)));
+        assertSame(map, map.minus(1000));
+
+        PersistentHashMap<Integer, Integer> updated = map.plus(1, 2);
+        assertEquals(Integer.valueOf(1), map.get(1));
+        assertEquals(Integer.valueOf(2), updated.get(1));
+        assertNotEquals(map, updated);
+        assertEquals(map, updated.plus(1, 1));
+        assertEquals(map.hashCode(), updated.plus(1, 1).hashCode());
+    }
+
+    @Test
+    public void testRemovalRestoresCanonicalShape() {
+        PersistentHashMap<Key, Integer> map = PersistentHashMap.empty();
+        PersistentHashMap<Key, Integer> larger = map;
+        for (int i = 0; i < 100; i++) {
+            larger = larger.plus(new Key(i, i % 5), i);
+            if (i < 50) {
+                map = map.plus(new Key(i, i % 5), i);
+            }
+        }
+        for (int i = 50; i < 100; i++) {
+            larger = larger.minus(new Key(i, i % 5));
+        }
+        assertEquals(map, larger);
+        assertTrue(larger.minus(new Key(0, 0)).plus(new Key(0, 0), 0).equals(map));
+    }
+
+    @Test
+    public void testSet() {
+        PersistentHashSet<Integer> set = PersistentHashSet.empty();
+        for (int i = 0; i < 100; i++) {
+            set = set.plus(i);
+        }
+        assertSame(set, set.plus(5));
+        assertEquals(100, set.size());
+        assertTrue(set.contains(42));
+        assertFalse(set.minus(42).contains(42));
+        assertEquals(set, set.minus(42).plus(42));
+        assertEquals(new java.util.HashSet<>(set), set);
+        assertEquals(new java.util.HashSet<>(set).hashCode(), set.hashCode());
+    }
+}
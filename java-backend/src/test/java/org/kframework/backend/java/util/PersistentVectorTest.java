@@ -0,0 +1,79 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PersistentVectorTest {
+
+    @Test
+    public void testRandomOperationsAgreeWithArrayList() {
+        Random random = new Random(0);
+        List<Integer> expected = new ArrayList<>();
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        for (int i = 0; i < 5000; i++) {
+            switch (random.nextInt(4)) {
+            case 0:
+                expected.add(i);
+                vector = vector.concat(PersistentVector.of(i));
+                break;
+            case 1:
+                List<Integer> chunk = new ArrayList<>();
+                for (int j = random.nextInt(100); j > 0; j--) {
+                    chunk.add(random.nextInt());
+                }
+                if (random.nextBoolean()) {
+                    expected.addAll(chunk);
+                    vector = vector.concat(PersistentVector.copyOf(chunk));
+                } else {
+                    expected.addAll(0, chunk);
+                    vector = PersistentVector.copyOf(chunk).concat(vector);
+                }
+                break;
+            case 2:
+                if (!expected.isEmpty()) {
+                    int from = random.nextInt(expected.size());
+                    int to = from + random.nextInt(expected.size() - from + 1);
+                    expected = new ArrayList<>(expected.subList(from, to));
+                    vector = vector.subList(from, to);
+                }
+                break;
+            default:
+                if (!expected.isEmpty()) {
+                    int index = random.nextInt(expected.size());
+                    expected.set(index, -i);
+                    vector = vector.with(index, -i);
+                }
+            }
+            assertEquals(expected.size(), vector.size());
+            if (i % 100 == 0) {
+                assertEquals(expected, vector);
+                assertEquals(vector, expected);
+                assertEquals(expected.hashCode(), vector.hashCode());
+                for (int j = 0; j < expected.size(); j++) {
+                    assertEquals(expected.get(j), vector.get(j));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEqualsAcrossShapes() {
+        List<Integer> elements = new ArrayList<>();
+        PersistentVector<Integer> appended = PersistentVector.empty();
+        for (int i = 0; i < 1000; i++) {
+            elements.add(i);
+            appended = appended.concat(PersistentVector.of(i));
+        }
+        PersistentVector<Integer> copied = PersistentVector.copyOf(elements);
+        assertEquals(copied, appended);
+        assertEquals(copied.hashCode(), appended.hashCode());
+        assertEquals(copied.subList(10, 500), appended.subList(0, 600).subList(10, 500));
+        assertNotEquals(copied, appended.with(999, 0));
+    }
+}
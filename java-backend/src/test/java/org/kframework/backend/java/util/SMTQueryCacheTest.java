@@ -0,0 +1,102 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class SMTQueryCacheTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("smt-cache").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testStoreDefiniteResults() {
+        SMTQueryCache cache = new SMTQueryCache(dir, 100);
+        String unsat = cache.key("prelude", "(check-sat)", 100, "(assert false)");
+        String sat = cache.key("prelude", "(check-sat)", 100, "(assert true)");
+        assertNull(cache.get(unsat));
+        cache.put(unsat, "unsat", false);
+        cache.put(sat, "sat", false);
+        assertEquals("unsat", cache.get(unsat));
+        assertEquals("sat", new SMTQueryCache(dir, 100).get(sat));
+    }
+
+    @Test
+    public void testErrorsAreNotStored() {
+        SMTQueryCache cache = new SMTQueryCache(dir, 100);
+        String key = cache.key("prelude", "(check-sat)", 100, "(assert (> |_1_X| 0))");
+        cache.put(key, "unknown", false);
+        assertNull(cache.get(key));
+        cache.put(key, "(error \"line 1 column 2: invalid command\")", true);
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    public void testStoreTimeouts() {
+        SMTQueryCache cache = new SMTQueryCache(dir, 100);
+        String key = cache.key("prelude", "(check-sat)", 100, "(assert (> |_1_X| 0))");
+        cache.put(key, "unknown", true);
+        assertEquals("unknown", cache.get(key));
+        assertNull(cache.get(cache.key("prelude", "(check-sat)", 200, "(assert (> |_1_X| 0))")));
+    }
+
+    @Test
+    public void testKeyCoversTimeout() {
+        SMTQueryCache cache = new SMTQueryCache(dir, 100);
+        cache.put(cache.key("prelude", "(check-sat)", 100, "(assert false)"), "unsat", false);
+        assertNull(cache.get(cache.key("prelude", "(check-sat)", 200, "(assert false)")));
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() throws IOException {
+        SMTQueryCache cache = new SMTQueryCache(dir, 1);
+        String old = cache.key("prelude", "(check-sat)", 100, "(assert false)");
+        String recent = cache.key("prelude", "(check-sat)", 100, "(assert true)");
+        cache.put(old, "unsat", false);
+        cache.put(recent, "sat", false);
+        File oldEntry = new File(new File(dir, old.substring(0, 2)), old + ".smtres");
+        assertTrue(oldEntry.setLastModified(oldEntry.lastModified() - 60000));
+        cache.evict();
+        assertNull(cache.get(old));
+        assertEquals("sat", cache.get(recent));
+    }
+
+    @Test
+    public void testNormalizeRenamesVariables() {
+        String q1 = "(declare-fun |_1_X| () Int)\n(declare-fun |_2_Y| () Int)\n(assert (< |_1_X| |_2_Y|))";
+        String q2 = "(declare-fun |_7_A| () Int)\n(declare-fun |_9_B| () Int)\n(assert (< |_7_A| |_9_B|))";
+        assertEquals(SMTQueryCache.normalize(q1), SMTQueryCache.normalize(q2));
+    }
+
+    @Test
+    public void testNormalizeKeepsStructure() {
+        String q1 = "(assert (< |_1_X| |_2_Y|))";
+        String q2 = "(assert (< |_2_Y| |_1_X|))";
+        String q3 = "(assert (< |_1_X| |_1_X|))";
+        assertEquals(SMTQueryCache.normalize(q1), SMTQueryCache.normalize(q2));
+        assertNotEquals(SMTQueryCache.normalize(q1), SMTQueryCache.normalize(q3));
+    }
+
+    @Test
+    public void testNormalizeStringsAndComments() {
+        assertEquals("(assert (= |#0| \"a|b\"\"|\")) \n",
+                SMTQueryCache.normalize("(assert (= |_1_X| \"a|b\"\"|\")) ; |_2_Y|\n"));
+    }
+}
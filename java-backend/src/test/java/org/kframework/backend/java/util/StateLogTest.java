@@ -0,0 +1,58 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.junit.Test;
+import org.kframework.backend.java.symbolic.JavaExecutionOptions;
+import org.kframework.kore.K;
+import org.kframework.kore.KORE;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class StateLogTest {
+
+    private static JavaExecutionOptions options(File path) {
+        JavaExecutionOptions options = new JavaExecutionOptions();
+        options.stateLog = true;
+        options.stateLogPath = path.getAbsolutePath();
+        options.stateLogId = "test";
+        options.stateLogEvents = Collections.singletonList(StateLog.LogEvent.NODE);
+        return options;
+    }
+
+    @Test(timeout = 30000)
+    public void testOpenFailure() throws IOException {
+        // a regular file where the log directory should be
+        File path = File.createTempFile("stateLog", ".txt");
+        path.deleteOnExit();
+        StateLog log = new StateLog(options(path), null, mock(PrettyPrinter.class));
+        log.open("session");
+        assertTrue(log.failed());
+        log.log(StateLog.LogEvent.NODE, KORE.KToken("1", KORE.Sort("Int")));
+        log.close();
+    }
+
+    @Test(timeout = 30000)
+    public void testWriterFailure() throws IOException {
+        File path = Files.createTempDirectory("stateLog").toFile();
+        path.deleteOnExit();
+        PrettyPrinter prettyPrinter = mock(PrettyPrinter.class);
+        when(prettyPrinter.prettyPrintBytes(any(K.class))).thenThrow(new RuntimeException("cannot print"));
+        StateLog log = new StateLog(options(path), null, prettyPrinter);
+        log.open("session");
+        // many more events than the queue holds: logging must not block once the writer has failed
+        for (int i = 0; i < 100000; i++) {
+            log.log(StateLog.LogEvent.NODE, KORE.KToken(Integer.toString(i), KORE.Sort("Int")));
+        }
+        assertTrue(log.failed());
+        log.close();
+        for (File file : path.listFiles()) {
+            file.deleteOnExit();
+        }
+    }
+}
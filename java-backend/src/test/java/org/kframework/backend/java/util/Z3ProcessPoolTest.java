@@ -0,0 +1,53 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.kframework.utils.file.FileUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class Z3ProcessPoolTest {
+
+    private static boolean hasZ3() {
+        try {
+            Process z3 = new ProcessBuilder("z3", "-version").start();
+            return z3.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testDestroyedProcessWakesWaiters() throws InterruptedException, ExecutionException {
+        Assume.assumeTrue(hasZ3());
+        Z3ProcessPool pool = new Z3ProcessPool("", 1, FileUtil.testFileUtil());
+        Z3Profiler profiler = new Z3Profiler("test");
+        // z3 reports an error before answering, so every process is destroyed after its query while the other
+        // threads wait for the only permit
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                results.add(threads.submit(() -> pool.check("(assert undeclared)", "(check-sat)", 1000, profiler)));
+            }
+            for (Future<String> result : results) {
+                assertFalse(Z3Wrapper.Z3_QUERY_RESULTS.contains(result.get()));
+            }
+            assertEquals("unsat", pool.check("(assert false)", "(check-sat)", 1000, profiler));
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+}
@@ -92,7 +92,7 @@ public class KoreBackend extends AbstractBackend {
     }
 
     protected String getKompiledString(CompiledDefinition def) {
-        Module mainModule = getKompiledModule(def.kompiledDefinition.mainModule());
+        Module mainModule = getKompiledModule(def.getKompiledDefinition().mainModule());
         ModuleToKORE converter = new ModuleToKORE(mainModule, def.topCellInitializer, def.kompileOptions);
         return getKompiledString(converter, files, heatCoolEquations, tool);
     }
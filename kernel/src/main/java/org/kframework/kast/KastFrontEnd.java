@@ -109,10 +109,10 @@ public class KastFrontEnd extends FrontEnd {
                         unparsingMod = def.languageParsingModule();
                         break;
                     default:
-                        unparsingMod = def.kompiledDefinition.getModule(def.mainSyntaxModuleName()).get();
+                        unparsingMod = def.getKompiledDefinition().getModule(def.mainSyntaxModuleName()).get();
                 }
             } else {
-                Option<Module> maybeUnparsingMod = def.kompiledDefinition.getModule(options.module);
+                Option<Module> maybeUnparsingMod = def.getKompiledDefinition().getModule(options.module);
                 if (maybeUnparsingMod.isEmpty()) {
                     throw KEMException.innerParserError("Module " + options.module + " not found.");
                 }
@@ -144,7 +144,7 @@ public class KastFrontEnd extends FrontEnd {
                     sort = Sorts.KItem();
                 }
 
-                kprint.get().prettyPrint(def.kompiledDefinition, unparsingMod, s -> kprint.get().outputFile(s), parsed, sort);
+                kprint.get().prettyPrint(def.getKompiledDefinition(), unparsingMod, s -> kprint.get().outputFile(s), parsed, sort);
             }
 
             sw.printTotal("Total");
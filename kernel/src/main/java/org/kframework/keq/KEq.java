@@ -26,7 +26,7 @@ public class KEq {
                    ProofDefinitionBuilder pdb1,
                    ProofDefinitionBuilder pdb2,
                    FileUtil files) {
-        Rewriter commonRewriter = commonGen.apply(commonDef.kompiledDefinition);
+        Rewriter commonRewriter = commonGen.apply(commonDef.getKompiledDefinition());
 
         Tuple2<Definition, Module> compiled1 = pdb1.build(
                 files.resolveWorkingDirectory(keqOptions.spec1), keqOptions.defModule1, keqOptions.specModule1);
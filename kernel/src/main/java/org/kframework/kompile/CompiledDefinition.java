@@ -22,6 +22,8 @@ import org.kframework.parser.TreeNodesToKORE;
 import org.kframework.parser.inner.ParseInModule;
 import org.kframework.parser.inner.generator.RuleGrammarGenerator;
 import org.kframework.parser.outer.Outer;
+import org.kframework.utils.BinaryLoader;
+import org.kframework.utils.BinarySections;
 import org.kframework.utils.errorsystem.KEMException;
 import org.kframework.utils.errorsystem.KExceptionManager;
 import org.kframework.utils.file.FileUtil;
@@ -29,8 +31,15 @@ import scala.Option;
 import scala.Tuple2;
 import scala.util.Either;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -46,13 +55,22 @@ import static org.kframework.kore.KORE.*;
  */
 
 public class CompiledDefinition implements Serializable {
+    private static final String HEADER_SECTION = "header";
+    private static final String PARSED_DEFINITION_SECTION = "parsedDefinition";
+    private static final String KOMPILED_DEFINITION_SECTION = "kompiledDefinition";
+
     public final KompileOptions kompileOptions;
-    private final Definition parsedDefinition;
-    public final Definition kompiledDefinition;
+    /**
+     * The definitions are serialized by {@link #writeObject}, or in their own sections by {@link #save}. In the
+     * latter case they are null until first accessed.
+     */
+    private transient Definition parsedDefinition;
+    private transient Definition kompiledDefinition;
+    private transient Module languageParsingModule;
+    private transient BinarySections sections;
     public final Sort programStartSymbol;
-    public final HashMap<String, Sort> configurationVariableDefaultSorts = new HashMap<>();
+    public final HashMap<String, Sort> configurationVariableDefaultSorts;
     public final KLabel topCellInitializer;
-    private final Module languageParsingModule;
     public final Rule exitCodePattern;
     private Map<String, Rule> cachedcompiledPatterns = new ConcurrentHashMap<>();
     private Map<String, Rule> cachedParsedPatterns = new ConcurrentHashMap<>();
@@ -62,6 +80,7 @@ public class CompiledDefinition implements Serializable {
         this.kompileOptions = kompileOptions;
         this.parsedDefinition = parsedDefinition;
         this.kompiledDefinition = kompiledDefinition;
+        this.configurationVariableDefaultSorts = new HashMap<>();
         initializeConfigurationVariableDefaultSorts(files);
         this.programStartSymbol = configurationVariableDefaultSorts.getOrDefault("$PGM", Sorts.K());
         this.topCellInitializer = topCellInitializer;
@@ -79,6 +98,80 @@ public class CompiledDefinition implements Serializable {
         }
     }
 
+    /**
+     * Creates a compiled definition whose definitions are loaded from {@code sections} on first access.
+     */
+    private CompiledDefinition(Header header, BinarySections sections) {
+        this.kompileOptions = header.kompileOptions;
+        this.programStartSymbol = header.programStartSymbol;
+        this.configurationVariableDefaultSorts = header.configurationVariableDefaultSorts;
+        this.topCellInitializer = header.topCellInitializer;
+        this.exitCodePattern = header.exitCodePattern;
+        this.sections = sections;
+    }
+
+    /**
+     * The fields of a compiled definition other than the definitions themselves.
+     */
+    private static class Header implements Serializable {
+        private final KompileOptions kompileOptions;
+        private final Sort programStartSymbol;
+        private final HashMap<String, Sort> configurationVariableDefaultSorts;
+        private final KLabel topCellInitializer;
+        private final Rule exitCodePattern;
+
+        Header(CompiledDefinition def) {
+            this.kompileOptions = def.kompileOptions;
+            this.programStartSymbol = def.programStartSymbol;
+            this.configurationVariableDefaultSorts = def.configurationVariableDefaultSorts;
+            this.topCellInitializer = def.topCellInitializer;
+            this.exitCodePattern = def.exitCodePattern;
+        }
+    }
+
+    /**
+     * Saves this definition to {@code file}, with the header, the kompiled and the parsed definitions in separate
+     * sections, so that {@link #load} only deserializes the definitions when they are used. The parsed definition
+     * shares most of its modules with the kompiled one; they are written once, with the kompiled definition, so that
+     * loading the kompiled definition does not load the parsed one, and the shared modules keep their identity.
+     */
+    public void save(BinaryLoader loader, File file) {
+        Map<String, Object> sections = new LinkedHashMap<>();
+        sections.put(HEADER_SECTION, new Header(this));
+        sections.put(KOMPILED_DEFINITION_SECTION, getKompiledDefinition());
+        sections.put(PARSED_DEFINITION_SECTION, getParsedDefinition());
+        List<Object> kompiledObjects = new ArrayList<>();
+        kompiledObjects.add(getKompiledDefinition());
+        kompiledObjects.addAll(mutable(getKompiledDefinition().modules()));
+        Map<String, List<Object>> shared = new HashMap<>();
+        shared.put(KOMPILED_DEFINITION_SECTION, kompiledObjects);
+        loader.saveSectionsOrDie(file, sections, shared);
+    }
+
+    /**
+     * Loads a definition saved by {@link #save}.
+     */
+    public static CompiledDefinition load(BinaryLoader loader, File file) {
+        if (!BinarySections.isSectioned(file)) {
+            throw KEMException.criticalError("Kompiled definition is out of date with "
+                    + "the latest version of the K tool. Please re-run kompile and try again.");
+        }
+        BinarySections sections = loader.loadSectionsOrDie(file);
+        return new CompiledDefinition(sections.load(HEADER_SECTION, Header.class), sections);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(getParsedDefinition());
+        out.writeObject(getKompiledDefinition());
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        parsedDefinition = (Definition) in.readObject();
+        kompiledDefinition = (Definition) in.readObject();
+    }
+
     private Rule getExitCodeRule(Definition parsedDefinition) {
         Module mainMod = parsedDefinition.mainModule();
         Set<Production> exitProds = stream(mainMod.productions()).filter(p -> p.att().contains("exit")).collect(Collectors.toSet());
@@ -132,18 +225,31 @@ public class CompiledDefinition implements Serializable {
     /**
      * The parsed but uncompiled definition
      */
-    public Definition getParsedDefinition() {
+    public synchronized Definition getParsedDefinition() {
+        if (parsedDefinition == null) {
+            parsedDefinition = sections.load(PARSED_DEFINITION_SECTION, Definition.class);
+        }
         return parsedDefinition;
     }
 
+    /**
+     * The compiled definition
+     */
+    public synchronized Definition getKompiledDefinition() {
+        if (kompiledDefinition == null) {
+            kompiledDefinition = sections.load(KOMPILED_DEFINITION_SECTION, Definition.class);
+        }
+        return kompiledDefinition;
+    }
+
     /**
      * A module containing the compiled definition
      */
     public Module executionModule() {
-        return kompiledDefinition.mainModule();
+        return getKompiledDefinition().mainModule();
     }
 
-    public String mainSyntaxModuleName() { return parsedDefinition.att().<String>getOptional(Att.SYNTAX_MODULE()).get(); }
+    public String mainSyntaxModuleName() { return getParsedDefinition().att().<String>getOptional(Att.SYNTAX_MODULE()).get(); }
 
     /**
      * @return the module used for generating the program (i.e. ground) parser for the module named moduleName
@@ -151,13 +257,13 @@ public class CompiledDefinition implements Serializable {
      * {@link RuleGrammarGenerator#POSTFIX}. In latter case, it uses the user-defined module.
      */
     public Option<Module> programParsingModuleFor(String moduleName, KExceptionManager kem) {
-        RuleGrammarGenerator gen = new RuleGrammarGenerator(parsedDefinition);
+        RuleGrammarGenerator gen = new RuleGrammarGenerator(getParsedDefinition());
 
-        Option<Module> userProgramParsingModule = parsedDefinition.getModule(moduleName + RuleGrammarGenerator.POSTFIX);
+        Option<Module> userProgramParsingModule = getParsedDefinition().getModule(moduleName + RuleGrammarGenerator.POSTFIX);
         if (userProgramParsingModule.isDefined()) {
             return userProgramParsingModule;
         } else {
-            Option<Module> moduleOption = parsedDefinition.getModule(moduleName);
+            Option<Module> moduleOption = getParsedDefinition().getModule(moduleName);
             Option<Module> programParsingModuleOption = moduleOption.isDefined() ?
                     Option.apply(gen.getProgramsGrammar(moduleOption.get())) :
                     Option.empty();
@@ -165,7 +271,12 @@ public class CompiledDefinition implements Serializable {
         }
     }
 
-    public Module languageParsingModule() { return languageParsingModule; }
+    public synchronized Module languageParsingModule() {
+        if (languageParsingModule == null) {
+            languageParsingModule = getKompiledDefinition().getModule("LANGUAGE-PARSING").get();
+        }
+        return languageParsingModule;
+    }
 
     /**
      * Creates a parser for a module and use it to parse a term.
@@ -33,11 +33,11 @@ import org.kframework.parser.ParserUtils;
 import org.kframework.parser.TreeNodesToKORE;
 import org.kframework.parser.inner.ParseCache;
 import org.kframework.parser.inner.ParseCache.ParsedSentence;
+import org.kframework.parser.inner.ParseCacheStore;
 import org.kframework.parser.inner.ParseInModule;
 import org.kframework.parser.inner.generator.RuleGrammarGenerator;
 import org.kframework.parser.inner.kernel.Scanner;
 import org.kframework.parser.outer.Outer;
-import org.kframework.utils.BinaryLoader;
 import org.kframework.utils.Stopwatch;
 import org.kframework.utils.errorsystem.KEMException;
 import org.kframework.utils.errorsystem.KExceptionManager;
@@ -48,10 +48,10 @@ import scala.collection.Set;
 import scala.util.Either;
 
 import java.io.File;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -82,7 +82,6 @@ public class DefinitionParsing {
     private final FileUtil files;
     private final ParserUtils parser;
     private final boolean cacheParses;
-    private final BinaryLoader loader;
     private final Stopwatch sw;
 
     public final AtomicInteger parsedBubbles = new AtomicInteger(0);
@@ -109,7 +108,6 @@ public class DefinitionParsing {
         this.cacheFile = cacheFile;
         this.autoImportDomains = !options.outerParsing.noPrelude;
         this.kore = options.isKore();
-        this.loader = new BinaryLoader(this.kem);
         this.isStrict = options.strict();
         this.profileRules = options.profileRules;
         this.sw = sw;
@@ -145,7 +143,8 @@ public class DefinitionParsing {
         def = Kompile.excludeModulesByTag(excludeModules).apply(def);
 
         errors = java.util.Collections.synchronizedSet(Sets.newHashSet());
-        caches = loadCaches();
+        store = loadCaches();
+        caches = new ConcurrentHashMap<>();
 
         try {
           def = resolveConfigBubbles(def);
@@ -162,14 +161,8 @@ public class DefinitionParsing {
         return mutable(def.entryModules());
     }
 
-    public Map<String, ParseCache> loadCaches() {
-        Map<String, ParseCache> result;
-        //noinspection unchecked
-        result = cacheParses ? loader.loadCache(Map.class, cacheFile) : null;
-        if (result == null) {
-            result = new HashMap<>();
-        }
-        return result;
+    public ParseCacheStore loadCaches() {
+        return cacheParses ? ParseCacheStore.open(cacheFile, kem) : ParseCacheStore.inMemory(kem);
     }
 
     private void saveCachesAndReportParsingErrors() {
@@ -179,7 +172,7 @@ public class DefinitionParsing {
 
     private void saveCaches() {
         if (cacheParses) {
-            loader.saveOrDie(cacheFile, caches);
+            store.save();
         }
     }
 
@@ -259,7 +252,8 @@ public class DefinitionParsing {
         }, "adding MAP to modules with configs").apply(definitionWithConfigBubble);
 
         errors = java.util.Collections.synchronizedSet(Sets.newHashSet());
-        caches = loadCaches();
+        store = loadCaches();
+        caches = new ConcurrentHashMap<>();
 
         Definition result;
         try {
@@ -273,6 +267,7 @@ public class DefinitionParsing {
         return result;
     }
 
+    ParseCacheStore store;
     Map<String, ParseCache> caches;
     private java.util.Set<KEMException> errors;
 
@@ -303,7 +298,7 @@ public class DefinitionParsing {
                         .filter(s -> s instanceof Bubble && ((Bubble) s).sentenceType().equals(configuration))
                         .map(b -> (Bubble) b)
                         .parallel()
-                        .flatMap(b -> parseBubble(parser, cache.getCache(), b)
+                        .flatMap(b -> parseBubble(parser, cache, b)
                                 .map(p -> upSentence(p, b.sentenceType())))
                         .collect(Collectors.toSet());
                 Set<Sentence> allSent = m.localSentences().$bar(immutable(parsedSet)).filter(s -> !(s instanceof Bubble && ((Bubble) s).sentenceType().equals(configuration))).seq();
@@ -378,7 +373,7 @@ public class DefinitionParsing {
                     .parallel()
                     .filter(s -> s instanceof Bubble)
                     .map(b -> (Bubble) b)
-                    .flatMap(b -> parseBubble(parser, cache.getCache(), b)
+                    .flatMap(b -> parseBubble(parser, cache, b)
                             .map(p -> upSentence(p, b.sentenceType())))
                     .collect(Collections.toSet());
 
@@ -408,8 +403,9 @@ public class DefinitionParsing {
                     .filter(s -> s instanceof Bubble && (isRule || ((Bubble) s).sentenceType().equals(configuration)))
                     .map(b -> (Bubble) b)
                     .flatMap(b -> {
-                        if (cache.getCache().containsKey(b.contents())) {
-                            ParsedSentence parse = updateLocation(cache.getCache().get(b.contents()), b);
+                        ParsedSentence cached = cache.get(b.contents());
+                        if (cached != null) {
+                            ParsedSentence parse = updateLocation(cached, b);
                             Att termAtt = parse.getParse().att().remove(Source.class).remove(Location.class).remove(Production.class);
                             Att bubbleAtt = b.att().remove(Source.class).remove(Location.class).remove("contentStartLine", Integer.class).remove("contentStartColumn", Integer.class);
                             if (!termAtt.equals(bubbleAtt)) // invalidate cache if attributes changed
@@ -477,10 +473,10 @@ public class DefinitionParsing {
 
     public Rule parseRule(CompiledDefinition compiledDef, String contents, Source source) {
         errors = java.util.Collections.synchronizedSet(Sets.newHashSet());
-        RuleGrammarGenerator gen = new RuleGrammarGenerator(compiledDef.kompiledDefinition);
+        RuleGrammarGenerator gen = new RuleGrammarGenerator(compiledDef.getKompiledDefinition());
         try (ParseInModule parser = RuleGrammarGenerator
                 .getCombinedGrammar(gen.getRuleGrammar(compiledDef.executionModule()), isStrict, profileRules, files)) {
-            java.util.Set<K> res = parseBubble(parser, new HashMap<>(),
+            java.util.Set<K> res = parseBubble(parser, null,
                     new Bubble(rule, contents, Att().add("contentStartLine", 1)
                             .add("contentStartColumn", 1).add(Source.class, source)))
                     .collect(Collectors.toSet());
@@ -578,7 +574,7 @@ public class DefinitionParsing {
     private ParseCache loadCache(Module parser) {
         ParseCache cachedParser = caches.get(parser.name());
         if (cachedParser == null || !equalsSyntax(cachedParser.getModule(), parser) || cachedParser.isStrict() != isStrict) {
-            cachedParser = new ParseCache(parser, isStrict, java.util.Collections.synchronizedMap(new HashMap<>()));
+            cachedParser = new ParseCache(parser, isStrict, store);
             caches.put(parser.name(), cachedParser);
         }
         return cachedParser;
@@ -592,7 +588,7 @@ public class DefinitionParsing {
         return _this.sortDeclarations().equals(that.sortDeclarations());
     }
 
-    private Stream<? extends K> parseBubble(ParseInModule pim, Map<String, ParsedSentence> cache, Bubble b) {
+    private Stream<? extends K> parseBubble(ParseInModule pim, ParseCache cache, Bubble b) {
         int startLine = b.att().get("contentStartLine", Integer.class);
         int startColumn = b.att().get("contentStartColumn", Integer.class);
         Source source = b.att().get(Source.class);
@@ -605,7 +601,9 @@ public class DefinitionParsing {
             KApply k = (KApply) new TreeNodesToKORE(Outer::parseSort, isStrict).down(result._1().right().get());
             k = KApply(k.klabel(), k.klist(), k.att().addAll(b.att().remove("contentStartLine", Integer.class)
                     .remove("contentStartColumn", Integer.class).remove(Source.class).remove(Location.class)));
-            cache.put(b.contents(), new ParsedSentence(k, new HashSet<>(result._2())));
+            if (cache != null) {
+                cache.put(b.contents(), new ParsedSentence(k, new HashSet<>(result._2())));
+            }
             return Stream.of(k);
         } else {
             errors.addAll(result._1().left().get());
@@ -336,7 +336,7 @@ public class Kompile {
 
     public Rule parseAndCompileRule(CompiledDefinition compiledDef, String contents, Source source, Optional<Rule> parsedRule) {
         Rule parsed = parsedRule.orElse(parseRule(compiledDef, contents, source));
-        return compileRule(compiledDef.kompiledDefinition, parsed);
+        return compileRule(compiledDef.getKompiledDefinition(), parsed);
     }
 
     public Rule parseRule(CompiledDefinition compiledDef, String contents, Source source) {
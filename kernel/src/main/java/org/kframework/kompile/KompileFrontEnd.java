@@ -71,7 +71,7 @@ public class KompileFrontEnd extends FrontEnd {
         files.get().saveToKompiled("mainModule.txt", def.executionModule().name());
         files.get().saveToKompiled("mainSyntaxModule.txt", def.mainSyntaxModuleName());
         sw.printIntermediate("Kompile to kore");
-        loader.saveOrDie(files.get().resolveKompiled("compiled.bin"), def);
+        def.save(loader, files.get().resolveKompiled("compiled.bin"));
         files.get().saveToKompiled("backend.txt", options.backend); // used by the krun script
         sw.printIntermediate("Save to disk");
         Backend.Holder h = new Backend.Holder(def);
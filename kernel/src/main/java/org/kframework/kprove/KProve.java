@@ -97,7 +97,7 @@ public class KProve {
         Path proveKompiledDir = Paths.get(kproveOptions.saveProofDefinitionTo).resolve("prove-spec-kompiled");
         try {
             Files.createDirectories(proveKompiledDir);
-            loader.saveOrDie(proveKompiledDir.resolve("compiled.bin").toFile(), fullCompiledDefinition);
+            fullCompiledDefinition.save(loader, proveKompiledDir.resolve("compiled.bin").toFile());
         } catch (IOException e) {
             throw KEMException.criticalError(
                     "Could not create proof output directory " + proveKompiledDir.toAbsolutePath(), e);
@@ -61,7 +61,7 @@ public class ProofDefinitionBuilder {
 
     public Tuple2<Definition, Module> build(File specFile, String defModuleName, String specModuleName, boolean readOnlyCache) {
         String defModuleNameUpdated =
-                defModuleName == null ? compiledDefinition.kompiledDefinition.mainModule().name() : defModuleName;
+                defModuleName == null ? compiledDefinition.getKompiledDefinition().mainModule().name() : defModuleName;
         String specModuleNameUpdated =
                 specModuleName == null ? FilenameUtils.getBaseName(specFile.getName()).toUpperCase() : specModuleName;
         File absSpecFile = files.resolveWorkingDirectory(specFile).getAbsoluteFile();
@@ -80,7 +80,7 @@ public class ProofDefinitionBuilder {
         Definition compiledExtendedDef = compileDefinition(backend, rawExtendedDef); //also resolves imports
         compiledExtendedDef = backend.proofDefinitionNonCachedSteps(extraConcreteRuleLabels).apply(compiledExtendedDef);
 
-        specModule = backend.specificationSteps(compiledDefinition.kompiledDefinition).apply(specModule);
+        specModule = backend.specificationSteps(compiledDefinition.getKompiledDefinition()).apply(specModule);
 
         return Tuple2.apply(compiledExtendedDef, specModule);
     }
@@ -153,7 +153,7 @@ public class KRun {
 
     private K parseConfigVars(KRunOptions options, CompiledDefinition compiledDef) {
         HashMap<KToken, K> output = new HashMap<>();
-        scala.collection.Set<KToken> expectedConfigVars = new ConfigurationInfoFromModule(compiledDef.kompiledDefinition.mainModule()).configVars();
+        scala.collection.Set<KToken> expectedConfigVars = new ConfigurationInfoFromModule(compiledDef.getKompiledDefinition().mainModule()).configVars();
         for (Map.Entry<String, Pair<String, String>> entry
                 : options.configurationCreation.configVars(compiledDef.getParsedDefinition().mainModule().name(), files).entrySet()) {
             String name = entry.getKey();
@@ -172,7 +172,7 @@ public class KRun {
                 output.put(KToken(configVarName, Sorts.KConfigVar()), configVar);
             }
         }
-        if (compiledDef.kompiledDefinition.mainModule().allSorts().contains(Sorts.String())) {
+        if (compiledDef.getKompiledDefinition().mainModule().allSorts().contains(Sorts.String())) {
             if (options.io()) {
                 output.put(KToken("$STDIN", Sorts.KConfigVar()), KToken("\"\"", Sorts.String()));
                 output.put(KToken("$IO", Sorts.KConfigVar()), KToken("\"on\"", Sorts.String()));
@@ -213,7 +213,7 @@ public class KRun {
     }
 
     public KApply plugConfigVars(CompiledDefinition compiledDef, Map<KToken, K> output) {
-        if (compiledDef.kompiledDefinition.mainModule().productionsFor().apply(compiledDef.topCellInitializer).head().nonterminals().isEmpty()) {
+        if (compiledDef.getKompiledDefinition().mainModule().productionsFor().apply(compiledDef.topCellInitializer).head().nonterminals().isEmpty()) {
             return KApply(compiledDef.topCellInitializer);
         }
         return KApply(compiledDef.topCellInitializer, output.entrySet().stream().map(e -> KApply(KLabel("_|->_"), e.getKey(), e.getValue())).reduce(KApply(KLabel(".Map")), (a, b) -> KApply(KLabel("_Map_"), a, b)));
@@ -151,6 +151,11 @@ public final class KRunOptions {
         return io;
     }
 
+    @Parameter(names="--io-mmap", description="Memory-map the files that the definition opens for reading only, " +
+            "instead of reading them through a buffer. Faster for large input files. Files larger than 2GB are " +
+            "always read through a buffer.")
+    public boolean ioMmap = false;
+
     @ParametersDelegate
     public PrintOptions print = new PrintOptions();
 
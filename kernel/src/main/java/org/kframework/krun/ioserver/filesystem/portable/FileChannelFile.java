@@ -0,0 +1,224 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.krun.ioserver.filesystem.portable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * A file opened for random access, read and written through a {@link FileChannel} and a buffer of its own, so that
+ * {@link #getc} and {@link #putc} only make a system call once per buffer.
+ * <p>
+ * The buffer holds either bytes read ahead from the file, or bytes written but not yet flushed to it. Either way,
+ * the position of the file as seen by {@link #tell} is the start of the buffer in the file plus the position in the
+ * buffer. Written bytes are flushed before reading, before seeking outside of the buffer, on close and on exit.
+ */
+public class FileChannelFile extends File {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Files with unflushed writes, flushed when the JVM exits in case they were not closed.
+     */
+    private static final Set<FileChannelFile> unflushed = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            FileChannelFile[] files;
+            synchronized (unflushed) {
+                files = unflushed.toArray(new FileChannelFile[0]);
+            }
+            for (FileChannelFile file : files) {
+                try {
+                    file.flush();
+                } catch (IOException e) {
+                    // nowhere left to report it
+                }
+            }
+        }));
+    }
+
+    private final FileChannel channel;
+    private final boolean writable;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    /**
+     * the position in the file of the start of {@link #buffer}
+     */
+    private long bufferStart;
+    /**
+     * whether {@link #buffer} holds written bytes, between its start and its position
+     */
+    private boolean writing = false;
+
+    public FileChannelFile(FileChannel channel, boolean writable) throws IOException {
+        this.channel = channel;
+        this.writable = writable;
+        this.bufferStart = channel.position();
+        buffer.limit(0);
+    }
+
+    public synchronized long tell() {
+        return bufferStart + buffer.position();
+    }
+
+    public synchronized void seek(long pos) throws IOException {
+        if (pos < 0) {
+            throw new IOException("EINVAL");
+        }
+        if (!writing && pos >= bufferStart && pos <= bufferStart + buffer.limit()) {
+            buffer.position((int) (pos - bufferStart));
+            return;
+        }
+        flush();
+        bufferStart = pos;
+        buffer.clear().limit(0);
+    }
+
+    public synchronized void putc(byte b) throws IOException {
+        startWriting();
+        if (!buffer.hasRemaining()) {
+            flush();
+            startWriting();
+        }
+        buffer.put(b);
+    }
+
+    public synchronized byte getc() throws IOException {
+        flush();
+        if (!buffer.hasRemaining() && fill() <= 0) {
+            throw new IOException("EOF");
+        }
+        return buffer.get();
+    }
+
+    public synchronized byte[] read(int n) throws IOException {
+        flush();
+        byte[] bytes;
+        try {
+            bytes = new byte[(int) Math.max(0, Math.min(n, channel.size() - tell()))];
+        } catch (IOException e) {
+            PortableFileSystem.processIOException(e);
+            throw e; //unreachable
+        }
+        int read = Math.min(bytes.length, buffer.remaining());
+        buffer.get(bytes, 0, read);
+        if (bytes.length - read >= BUFFER_SIZE) {
+            // large reads go straight to the result
+            bufferStart += buffer.position();
+            buffer.clear().limit(0);
+            ByteBuffer rest = ByteBuffer.wrap(bytes, read, bytes.length - read);
+            try {
+                int count;
+                while (rest.hasRemaining() && (count = channel.read(rest, bufferStart)) > 0) {
+                    bufferStart += count;
+                }
+            } catch (IOException e) {
+                PortableFileSystem.processIOException(e);
+            }
+            read = rest.position();
+        } else {
+            while (read < bytes.length && fill() > 0) {
+                int count = Math.min(bytes.length - read, buffer.remaining());
+                buffer.get(bytes, read, count);
+                read += count;
+            }
+        }
+        if (read == 0 && n > 0) {
+            throw new IOException("EOF");
+        }
+        return read == bytes.length ? bytes : Arrays.copyOf(bytes, read);
+    }
+
+    public synchronized void write(byte[] b) throws IOException {
+        startWriting();
+        if (b.length > buffer.remaining()) {
+            flush();
+            startWriting();
+        }
+        if (b.length < buffer.capacity()) {
+            buffer.put(b);
+            return;
+        }
+        // large writes go straight to the file
+        ByteBuffer bytes = ByteBuffer.wrap(b);
+        try {
+            while (bytes.hasRemaining()) {
+                bufferStart += channel.write(bytes, bufferStart);
+            }
+        } catch (IOException e) {
+            PortableFileSystem.processIOException(e);
+        }
+    }
+
+    synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                PortableFileSystem.processIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Drops the bytes read ahead, if any, so that {@link #buffer} can hold the bytes written from the current
+     * position.
+     */
+    private void startWriting() throws IOException {
+        if (!writable) {
+            throw new IOException("EBADF");
+        }
+        if (!writing) {
+            bufferStart += buffer.position();
+            buffer.clear();
+            writing = true;
+            unflushed.add(this);
+        }
+    }
+
+    /**
+     * Writes the bytes held by {@link #buffer}, if any, and empties it.
+     */
+    private synchronized void flush() throws IOException {
+        if (!writing) {
+            return;
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                bufferStart += channel.write(buffer, bufferStart);
+            }
+        } catch (IOException e) {
+            PortableFileSystem.processIOException(e);
+        } finally {
+            buffer.clear().limit(0);
+            writing = false;
+            unflushed.remove(this);
+        }
+    }
+
+    /**
+     * Reads the bytes following those of {@link #buffer} into it.
+     *
+     * @return the number of bytes read, or -1 at the end of the file.
+     */
+    private int fill() throws IOException {
+        bufferStart += buffer.position();
+        buffer.clear();
+        try {
+            return channel.read(buffer, bufferStart);
+        } catch (IOException e) {
+            PortableFileSystem.processIOException(e);
+            throw e; //unreachable
+        } finally {
+            buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.krun.ioserver.filesystem.portable;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A file opened for reading only, whose contents are memory-mapped when it is opened, so that reading from it does
+ * not make any system call. The file is expected not to change while it is open.
+ */
+public class MemoryMappedFile extends File {
+
+    private final FileChannel channel;
+    private final MappedByteBuffer contents;
+    private long position = 0;
+
+    /**
+     * @param channel a channel of a file smaller than 2GB.
+     */
+    public MemoryMappedFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.contents = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    public synchronized long tell() {
+        return position;
+    }
+
+    public synchronized void seek(long pos) throws IOException {
+        if (pos < 0) {
+            throw new IOException("EINVAL");
+        }
+        position = pos;
+    }
+
+    public void putc(byte b) throws IOException {
+        throw new IOException("EBADF");
+    }
+
+    public synchronized byte getc() throws IOException {
+        if (position >= contents.limit()) {
+            throw new IOException("EOF");
+        }
+        return contents.get((int) position++);
+    }
+
+    public synchronized byte[] read(int n) throws IOException {
+        if (n > 0 && position >= contents.limit()) {
+            throw new IOException("EOF");
+        }
+        byte[] bytes = new byte[(int) Math.max(0, Math.min(n, contents.limit() - position))];
+        if (bytes.length > 0) {
+            contents.position((int) position);
+            contents.get(bytes);
+            position += bytes.length;
+        }
+        return bytes;
+    }
+
+    public void write(byte[] b) throws IOException {
+        throw new IOException("EBADF");
+    }
+
+    void close() throws IOException {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            PortableFileSystem.processIOException(e);
+        }
+    }
+}
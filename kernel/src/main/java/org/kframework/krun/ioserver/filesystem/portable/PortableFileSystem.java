@@ -3,6 +3,7 @@ package org.kframework.krun.ioserver.filesystem.portable;
 
 import org.apache.commons.collections4.BidiMap;
 import org.apache.commons.collections4.bidimap.DualHashBidiMap;
+import org.kframework.krun.KRunOptions;
 import org.kframework.krun.api.io.File;
 import org.kframework.krun.api.io.FileSystem;
 import org.kframework.utils.errorsystem.KEMException;
@@ -17,6 +18,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -29,11 +31,17 @@ public class PortableFileSystem implements FileSystem {
 
     private final FileUtil fileUtil;
     private final KExceptionManager kem;
+    private final boolean mmap;
 
-    @Inject
     public PortableFileSystem(KExceptionManager kem, FileUtil fileUtil) {
+        this(kem, fileUtil, new KRunOptions());
+    }
+
+    @Inject
+    public PortableFileSystem(KExceptionManager kem, FileUtil fileUtil, KRunOptions krunOptions) {
         this.fileUtil = fileUtil;
         this.kem = kem;
+        this.mmap = krunOptions.ioMmap;
         descriptors.put(0L, FileDescriptor.in);
         descriptors.put(1L, FileDescriptor.out);
         descriptors.put(2L, FileDescriptor.err);
@@ -68,7 +76,12 @@ public class PortableFileSystem implements FileSystem {
             } else {
                 RandomAccessFile f = new RandomAccessFile(fileUtil.resolveWorkingDirectory(path), mode);
                 fileFD = f.getFD();
-                file = new RandomAccessFileFile(f);
+                FileChannel channel = f.getChannel();
+                if (mmap && mode.equals("r") && channel.size() <= Integer.MAX_VALUE) {
+                    file = new MemoryMappedFile(channel);
+                } else {
+                    file = new FileChannelFile(channel, mode.equals("rw"));
+                }
             }
             long fd = fdCounter++;
             descriptors.put(fd, fileFD);
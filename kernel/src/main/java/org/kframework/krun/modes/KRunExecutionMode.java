@@ -39,7 +39,7 @@ public class KRunExecutionMode implements ExecutionMode {
 
     @Override
     public Tuple2<K, Integer> execute(KRun.InitialConfiguration config, Function<Definition, Rewriter> rewriterGenerator, CompiledDefinition compiledDefinition) {
-        Rewriter rewriter = rewriterGenerator.apply(compiledDefinition.kompiledDefinition);
+        Rewriter rewriter = rewriterGenerator.apply(compiledDefinition.getKompiledDefinition());
         K k = config.theConfig;
         Rule pattern = null, parsedPattern = null;
         if (kRunOptions.pattern != null) {
@@ -148,6 +148,10 @@ public final class GlobalOptions {
     @Parameter(names={"--no-exc-wrap"}, description="Do not wrap exception messages to 80 chars. Keep long lines.")
     public boolean noExcWrap = false;
 
+    @Parameter(names={"--flex-scanner"}, description="Tokenize with a scanner generated by flex and run as a separate " +
+            "process instead of an in-process DFA.")
+    public boolean flexScanner = false;
+
     public boolean debug() {
         return debug || debugWarnings;
     }
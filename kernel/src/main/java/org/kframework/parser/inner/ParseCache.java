@@ -1,30 +1,48 @@
 // Copyright (c) 2015-2019 K Team. All Rights Reserved.
 package org.kframework.parser.inner;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import org.kframework.definition.Module;
+import org.kframework.definition.NonTerminal;
+import org.kframework.definition.Production;
+import org.kframework.definition.ProductionItem;
+import org.kframework.definition.RegexTerminal;
+import org.kframework.definition.SyntaxSort;
+import org.kframework.definition.Tag;
+import org.kframework.definition.Terminal;
 import org.kframework.kore.K;
 import org.kframework.utils.errorsystem.KEMException;
+import scala.Tuple2;
 
 import java.io.Serializable;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
+import static org.kframework.Collections.*;
+
 /**
+ * The parses of the bubbles of a module, stored in a {@link ParseCacheStore} under the hash of the contents of each
+ * bubble and of a fingerprint of the syntax of the parser module. Since the parser module only holds the productions
+ * reachable from the module of the bubbles, editing a module does not invalidate the parses of the modules which do
+ * not import it.
+ *
  * Created by dwightguth on 4/20/15.
  */
-public class ParseCache implements Serializable {
+public class ParseCache {
     private final Module module;
     private final boolean strict;
-    private final Map<String, ParsedSentence> cache;
+    private final String fingerprint;
+    private final ParseCacheStore store;
 
-    public ParseCache(Module module, boolean strict, Map<String, ParsedSentence> cache) {
+    public ParseCache(Module module, boolean strict, ParseCacheStore store) {
         this.module = module;
         this.strict = strict;
-        this.cache = cache;
-    }
-
-    public Map<String, ParsedSentence> getCache() {
-        return cache;
+        this.fingerprint = fingerprint(module, strict);
+        this.store = store;
     }
 
     public Module getModule() {
@@ -35,6 +53,83 @@ public class ParseCache implements Serializable {
         return strict;
     }
 
+    /**
+     * Returns the cached parse of a bubble, or null if it was not parsed with the same syntax before.
+     */
+    public ParsedSentence get(String contents) {
+        return store.get(key(contents));
+    }
+
+    public void put(String contents, ParsedSentence parse) {
+        store.put(key(contents), parse);
+    }
+
+    private String key(String contents) {
+        return Hashing.sha256().newHasher()
+                .putString(fingerprint, StandardCharsets.UTF_8)
+                .putString(contents, StandardCharsets.UTF_8)
+                .hash().toString();
+    }
+
+    /**
+     * Hashes the parts of the syntax of a module compared by {@link Production#equals} and the other sentences
+     * affecting parsing, leaving out their locations, so that moving a declaration does not change the fingerprint.
+     */
+    private static String fingerprint(Module module, boolean strict) {
+        List<String> syntax = new ArrayList<>();
+        for (Production p : iterable(module.productions())) {
+            syntax.add("syntax " + p.klabel() + " " + p.params() + " " + p.sort() + " ::= " + items(p)
+                    + " " + p.klabelAtt() + " " + p.att().getOption("function") + " " + p.att().getOption("symbol"));
+        }
+        for (Tuple2<Tag, scala.collection.Set<Tag>> relation : iterable(module.priorities().relations())) {
+            for (Tag greater : iterable(relation._2())) {
+                syntax.add("priority " + relation._1() + " > " + greater);
+            }
+        }
+        for (Tuple2<Tag, Tag> assoc : iterable(module.leftAssoc())) {
+            syntax.add("left " + assoc._1() + " " + assoc._2());
+        }
+        for (Tuple2<Tag, Tag> assoc : iterable(module.rightAssoc())) {
+            syntax.add("right " + assoc._1() + " " + assoc._2());
+        }
+        for (SyntaxSort s : iterable(module.sortDeclarations())) {
+            syntax.add("sort " + s.params() + " " + s.sort());
+        }
+        Collections.sort(syntax);
+        Hasher hasher = Hashing.sha256().newHasher().putBoolean(strict);
+        for (String item : syntax) {
+            hasher.putInt(item.length()).putString(item, StandardCharsets.UTF_8);
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Spells out the fields of the items of a production. Their string forms are not enough: that of a
+     * {@link RegexTerminal} leaves out its follow regex.
+     */
+    private static String items(Production p) {
+        StringBuilder sb = new StringBuilder();
+        for (ProductionItem item : iterable(p.items())) {
+            if (item instanceof Terminal) {
+                append(sb.append('T'), ((Terminal) item).value());
+            } else if (item instanceof NonTerminal) {
+                NonTerminal nt = (NonTerminal) item;
+                append(sb.append('N'), nt.sort().toString());
+                append(sb, nt.name().isDefined() ? nt.name().get() : "");
+            } else {
+                RegexTerminal t = (RegexTerminal) item;
+                append(sb.append('R'), t.precedeRegex());
+                append(sb, t.regex());
+                append(sb, t.followRegex());
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void append(StringBuilder sb, String s) {
+        sb.append(s.length()).append(':').append(s);
+    }
+
     public static class ParsedSentence implements Serializable {
         private K parse;
         private final Set<KEMException> warnings;
@@ -0,0 +1,276 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.parser.inner;
+
+import com.google.common.hash.HashCode;
+import org.kframework.parser.inner.ParseCache.ParsedSentence;
+import org.kframework.utils.errorsystem.KEMException;
+import org.kframework.utils.errorsystem.KException.ExceptionType;
+import org.kframework.utils.errorsystem.KExceptionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A content-addressed store of the parses of bubbles, keyed by the SHA-256 hashes computed by {@link ParseCache}.
+ * <p>
+ * The parses are kept in an append-only segment file which is memory-mapped when opened. Only the headers of the
+ * records are read then, and each parse is deserialized the first time its key is looked up. Saving appends the new
+ * parses to the file and stamps the records used by the run with its generation. Records which were not used in the
+ * last {@link #KEEP_GENERATIONS} runs are garbage, and the file is compacted once they take up more space than the
+ * rest. The file is never truncated, since it is memory-mapped while it is saved; a file with a truncated last record
+ * is compacted instead of appended to.
+ * <p>
+ * Layout: an 8-byte magic number and the generation of the last run which saved the file, then the records one
+ * after the other: the 32-byte key, the generation of the last run which used the record, the length of the parse,
+ * and the parse in {@link ObjectOutputStream} format. A truncated last record is ignored.
+ */
+public class ParseCacheStore {
+
+    private static final byte[] MAGIC = "KPARSES1".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = MAGIC.length + Integer.BYTES;
+    private static final int KEY_SIZE = 32;
+    private static final int RECORD_HEADER_SIZE = KEY_SIZE + 2 * Integer.BYTES;
+    /**
+     * the number of runs after which an unused record is garbage
+     */
+    private static final int KEEP_GENERATIONS = 5;
+
+    private static final class Record {
+        private final int offset;
+        private final int generation;
+        private final int length;
+
+        private Record(int offset, int generation, int length) {
+            this.offset = offset;
+            this.generation = generation;
+            this.length = length;
+        }
+
+        private int size() {
+            return RECORD_HEADER_SIZE + length;
+        }
+    }
+
+    private final File file;
+    private final KExceptionManager kem;
+    private final MappedByteBuffer buffer;
+    private final long fileSize;
+    private final int validSize;
+    private final int generation;
+    private final Map<String, Record> records;
+    private final Map<String, byte[]> added = new ConcurrentHashMap<>();
+    private final Set<String> used = ConcurrentHashMap.newKeySet();
+
+    private ParseCacheStore(File file, KExceptionManager kem, MappedByteBuffer buffer, long fileSize, int validSize,
+                            int generation, Map<String, Record> records) {
+        this.file = file;
+        this.kem = kem;
+        this.buffer = buffer;
+        this.fileSize = fileSize;
+        this.validSize = validSize;
+        this.generation = generation;
+        this.records = records;
+    }
+
+    /**
+     * Returns a store which is not backed by a file, and whose {@link #save} does nothing.
+     */
+    public static ParseCacheStore inMemory(KExceptionManager kem) {
+        return new ParseCacheStore(null, kem, null, 0, 0, 1, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Opens the store saved in a file. If the file does not exist or is not a segment file, the store starts empty
+     * and overwrites it when saved.
+     */
+    public static ParseCacheStore open(File file, KExceptionManager kem) {
+        if (!file.exists()) {
+            return new ParseCacheStore(file, kem, null, 0, 0, 1, new ConcurrentHashMap<>());
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                return new ParseCacheStore(file, kem, null, size, 0, 1, new ConcurrentHashMap<>());
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                return new ParseCacheStore(file, kem, null, size, 0, 1, new ConcurrentHashMap<>());
+            }
+            int lastGeneration = buffer.getInt();
+            Map<String, Record> records = new ConcurrentHashMap<>();
+            byte[] key = new byte[KEY_SIZE];
+            int offset = HEADER_SIZE;
+            while (size - offset >= RECORD_HEADER_SIZE) {
+                buffer.position(offset);
+                buffer.get(key);
+                int recordGeneration = buffer.getInt();
+                int length = buffer.getInt();
+                if (length < 0 || size - offset - RECORD_HEADER_SIZE < length) {
+                    break;
+                }
+                Record record = new Record(offset, recordGeneration, length);
+                records.put(HashCode.fromBytes(key).toString(), record);
+                offset += record.size();
+            }
+            return new ParseCacheStore(file, kem, buffer, size, offset, lastGeneration + 1, records);
+        } catch (IOException e) {
+            kem.registerInternalWarning(ExceptionType.INVALIDATED_CACHE, "Invalidating serialized cache due to corruption.", e);
+            return new ParseCacheStore(file, kem, null, file.length(), 0, 1, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Returns the parse stored under a key, or null if there is none.
+     */
+    public ParsedSentence get(String key) {
+        byte[] bytes = added.get(key);
+        if (bytes == null) {
+            Record record = records.get(key);
+            if (record == null) {
+                return null;
+            }
+            bytes = new byte[record.length];
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(record.offset + RECORD_HEADER_SIZE);
+            slice.get(bytes);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            ParsedSentence parse = (ParsedSentence) in.readObject();
+            used.add(key);
+            return parse;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            kem.registerInternalWarning(ExceptionType.INVALIDATED_CACHE, "Invalidating serialized cache due to corruption.", e);
+            records.remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * Stores a parse under a key. It is only written to the file by {@link #save}.
+     */
+    public void put(String key, ParsedSentence parse) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(parse);
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not serialize the parse of a bubble.", e);
+        }
+        added.put(key, bytes.toByteArray());
+        used.add(key);
+    }
+
+    /**
+     * Writes the parses added since the store was opened to its file, and stamps the records used since then with the
+     * generation of this run. The file is rewritten without its garbage if that takes up more space than the rest.
+     * Nothing is written if another run saved the file since it was opened.
+     */
+    public void save() {
+        if (file == null || (added.isEmpty() && used.isEmpty())) {
+            return;
+        }
+        long live = 0;
+        long garbage = 0;
+        for (Map.Entry<String, Record> entry : records.entrySet()) {
+            if (isLive(entry.getKey(), entry.getValue())) {
+                live += entry.getValue().size();
+            } else {
+                garbage += entry.getValue().size();
+            }
+        }
+        try {
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Could not create directory " + dir);
+            }
+            if (buffer == null || garbage > live || validSize != fileSize) {
+                compact(dir);
+            } else {
+                append();
+            }
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not write to " + file.getAbsolutePath(), e);
+        }
+    }
+
+    private boolean isLive(String key, Record record) {
+        return used.contains(key) || record.generation > generation - KEEP_GENERATIONS;
+    }
+
+    private void append() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            if (channel.size() != fileSize) {
+                return;
+            }
+            channel.position(fileSize);
+            for (Map.Entry<String, byte[]> entry : added.entrySet()) {
+                if (!records.containsKey(entry.getKey())) {
+                    channel.write(record(entry.getKey(), entry.getValue()));
+                }
+            }
+            for (String key : used) {
+                Record record = records.get(key);
+                if (record != null && record.generation != generation) {
+                    channel.write(intBuffer(generation), record.offset + KEY_SIZE);
+                }
+            }
+            channel.write(intBuffer(generation), MAGIC.length);
+        }
+    }
+
+    private void compact(File dir) throws IOException {
+        Path tempFile = Files.createTempFile(dir.toPath(), "tmp", ".seg");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.put(MAGIC).putInt(generation).flip();
+            channel.write(header);
+            for (Map.Entry<String, Record> entry : records.entrySet()) {
+                Record record = entry.getValue();
+                if (isLive(entry.getKey(), record) && !added.containsKey(entry.getKey())) {
+                    ByteBuffer slice = buffer.duplicate();
+                    slice.position(record.offset + KEY_SIZE + Integer.BYTES).limit(record.offset + record.size());
+                    ByteBuffer recordHeader = ByteBuffer.allocate(KEY_SIZE + Integer.BYTES);
+                    recordHeader.put(HashCode.fromString(entry.getKey()).asBytes())
+                            .putInt(used.contains(entry.getKey()) ? generation : record.generation).flip();
+                    channel.write(recordHeader);
+                    channel.write(slice);
+                }
+            }
+            for (Map.Entry<String, byte[]> entry : added.entrySet()) {
+                channel.write(record(entry.getKey(), entry.getValue()));
+            }
+        }
+        Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private ByteBuffer record(String key, byte[] parse) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + parse.length);
+        record.put(HashCode.fromString(key).asBytes()).putInt(generation).putInt(parse.length).put(parse).flip();
+        return record;
+    }
+
+    private static ByteBuffer intBuffer(int value) {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+        buffer.putInt(value).flip();
+        return buffer;
+    }
+}
@@ -182,13 +182,13 @@ public class ParseInModule implements Serializable, AutoCloseable {
 
     public Scanner getScanner(GlobalOptions go) {
         if (scanner == null) {
-            scanner = new Scanner(this, go);
+            scanner = new Scanner(this, go, files);
         }
         return scanner;
     }
     public Scanner getScanner() {
         if (scanner == null) {
-            scanner = new Scanner(this);
+            scanner = new Scanner(this, new GlobalOptions(), files);
         }
         return scanner;
     }
@@ -0,0 +1,392 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.parser.inner.disambiguation;
+
+import org.kframework.POSet;
+import org.kframework.definition.Module;
+import org.kframework.kore.Sort;
+import org.kframework.kore.SortHead;
+
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.kframework.Collections.*;
+import static org.kframework.kore.KORE.*;
+
+/**
+ * Solves the sort constraints generated by {@link TypeInferencer} without z3, for terms whose constraints do not
+ * mention sort parameters.
+ *
+ * The sorts z3 could assign to a variable are numbered, and the subsort relations are stored as bit matrices, so that
+ * the set of sorts a variable can still take is a {@link BitSet}. The constraints of a term are an and/or formula over
+ * upper bounds and equalities on variables. They are solved by propagating the bounds through the formula, which
+ * yields a union of boxes, i.e., products of the sets of sorts of each variable. The maximal solutions of a box are
+ * the products of the maximal sorts of each variable, and the maximal solutions of the term are the maximal ones among
+ * these. These are exactly the models left by the enumeration of {@link TypeInferenceVisitor} with z3.
+ */
+final class SortConstraintSolver {
+
+  /**
+   * The maximal number of boxes or solutions to compute before giving up and letting z3 solve the constraints.
+   */
+  private static final int MAX_BOXES = 4096;
+
+  private final List<Sort> sorts = new ArrayList<>();
+  private final Map<Sort, Integer> ordinals = new HashMap<>();
+  /**
+   * for each sort, the sorts less than or equal to it in the subsort relation
+   */
+  private final BitSet[] lessThanEq;
+  /**
+   * for each sort, the sorts strictly greater than it in the syntactic subsort relation
+   */
+  private final BitSet[] syntacticGreaterThan;
+  private final BitSet allSorts;
+
+  /**
+   * @param mod the module whose subsort relations constrain the sorts.
+   * @param realSorts the sorts declared to z3 by the {@link TypeInferencer}.
+   */
+  SortConstraintSolver(Module mod, Set<SortHead> realSorts) {
+    for (SortHead head : realSorts) {
+      if (head.params() == 0) {
+        add(Sort(head));
+      }
+    }
+    for (Sort s : iterable(mod.allSorts())) {
+      if (s.params().nonEmpty() && realSorts.contains(s.head())) {
+        add(s);
+      }
+    }
+    lessThanEq = relation(mod.subsorts(), false);
+    syntacticGreaterThan = relation(mod.syntacticSubsorts(), true);
+    // like in z3, the reflexive relations are those of the sorts of the module
+    for (Sort s : iterable(mod.allSorts())) {
+      Integer ordinal = ordinals.get(s);
+      if (ordinal != null) {
+        lessThanEq[ordinal].set(ordinal);
+      }
+    }
+    allSorts = new BitSet();
+    allSorts.set(0, sorts.size());
+  }
+
+  private void add(Sort s) {
+    if (!ordinals.containsKey(s)) {
+      ordinals.put(s, sorts.size());
+      sorts.add(s);
+    }
+  }
+
+  private BitSet[] relation(POSet<Sort> poset, boolean upwards) {
+    BitSet[] matrix = new BitSet[sorts.size()];
+    for (int i = 0; i < matrix.length; i++) {
+      matrix[i] = new BitSet();
+    }
+    for (Tuple2<Sort, scala.collection.Set<Sort>> relation : iterable(poset.relations())) {
+      Integer lesser = ordinals.get(relation._1());
+      if (lesser == null) {
+        continue;
+      }
+      for (Sort s : iterable(relation._2())) {
+        Integer greater = ordinals.get(s);
+        if (greater == null) {
+          continue;
+        }
+        if (upwards) {
+          matrix[lesser].set(greater);
+        } else {
+          matrix[greater].set(lesser);
+        }
+      }
+    }
+    return matrix;
+  }
+
+  /**
+   * Returns the number of a sort, or -1 if z3 could not assign it to a variable.
+   */
+  int ordinal(Sort s) {
+    return ordinals.getOrDefault(s, -1);
+  }
+
+  /**
+   * A constraint on the sorts of the variables of a term.
+   */
+  abstract static class Formula {
+  }
+
+  private static final class Literal extends Formula {
+    private final boolean value;
+
+    private Literal(boolean value) {
+      this.value = value;
+    }
+  }
+
+  private static final class Connective extends Formula {
+    private final boolean isAnd;
+    private final Formula[] children;
+
+    private Connective(boolean isAnd, List<Formula> children) {
+      this.isAnd = isAnd;
+      this.children = children.toArray(new Formula[children.size()]);
+    }
+  }
+
+  private static final class Bound extends Formula {
+    private final String variable;
+    private final int sort;
+    private final boolean isEquality;
+
+    private Bound(String variable, int sort, boolean isEquality) {
+      this.variable = variable;
+      this.sort = sort;
+      this.isEquality = isEquality;
+    }
+  }
+
+  static final Formula TRUE = new Literal(true);
+  static final Formula FALSE = new Literal(false);
+
+  static Formula and(List<Formula> children) {
+    return connective(true, children);
+  }
+
+  static Formula or(List<Formula> children) {
+    return connective(false, children);
+  }
+
+  private static Formula connective(boolean isAnd, List<Formula> children) {
+    Formula unit = isAnd ? TRUE : FALSE;
+    Formula zero = isAnd ? FALSE : TRUE;
+    List<Formula> operands = new ArrayList<>();
+    for (Formula child : children) {
+      if (child == zero) {
+        return zero;
+      } else if (child != unit) {
+        operands.add(child);
+      }
+    }
+    if (operands.isEmpty()) {
+      return unit;
+    } else if (operands.size() == 1) {
+      return operands.get(0);
+    }
+    return new Connective(isAnd, operands);
+  }
+
+  /**
+   * Returns the constraint that a variable is less than or equal to, or equal to, a sort given by its ordinal.
+   */
+  static Formula bound(String variable, int sort, boolean isEquality) {
+    return new Bound(variable, sort, isEquality);
+  }
+
+  /**
+   * Returns the constraint that a sort is less than or equal to, or equal to, another, given by their ordinals.
+   */
+  Formula compare(int actualSort, int expectedSort, boolean isEquality) {
+    boolean holds = isEquality ? actualSort == expectedSort : lessThanEq[expectedSort].get(actualSort);
+    return holds ? TRUE : FALSE;
+  }
+
+  private static final class TooManySolutions extends RuntimeException {
+    TooManySolutions() {
+      super(null, null, false, false);
+    }
+  }
+
+  /**
+   * Computes the maximal solutions of a formula with respect to the syntactic subsort relation.
+   *
+   * @param formula the formula to solve.
+   * @param variables the variables of the formula.
+   * @return the maximal assignments of sorts to variables satisfying the formula, or null if there are too many of
+   * them to enumerate.
+   */
+  List<Map<String, Sort>> maximalSolutions(Formula formula, List<String> variables) {
+    Map<String, Integer> indices = new HashMap<>();
+    for (String var : variables) {
+      indices.put(var, indices.size());
+    }
+    BitSet[] initial = new BitSet[variables.size()];
+    Arrays.fill(initial, allSorts);
+
+    List<int[]> candidates = new ArrayList<>();
+    try {
+      for (BitSet[] box : solve(formula, initial, indices)) {
+        addMaximal(box, candidates);
+      }
+    } catch (TooManySolutions e) {
+      return null;
+    }
+
+    List<Map<String, Sort>> solutions = new ArrayList<>();
+    outer:
+    for (int i = 0; i < candidates.size(); i++) {
+      int[] candidate = candidates.get(i);
+      for (int j = 0; j < candidates.size(); j++) {
+        int[] other = candidates.get(j);
+        if (syntacticLessThan(candidate, other) || (j < i && Arrays.equals(candidate, other))) {
+          continue outer;
+        }
+      }
+      Map<String, Sort> solution = new HashMap<>();
+      for (int i = 0; i < candidate.length; i++) {
+        solution.put(variables.get(i), sorts.get(candidate[i]));
+      }
+      solutions.add(solution);
+    }
+    return solutions;
+  }
+
+  /**
+   * Propagates the bounds of a formula through a box.
+   *
+   * @return the boxes within the given one whose union is the set of solutions of the formula, none of them included
+   * in another.
+   */
+  private List<BitSet[]> solve(Formula formula, BitSet[] box, Map<String, Integer> indices) {
+    if (formula instanceof Literal) {
+      return ((Literal) formula).value ? singletonList(box) : new ArrayList<>();
+    } else if (formula instanceof Bound) {
+      Bound bound = (Bound) formula;
+      int var = indices.get(bound.variable);
+      BitSet domain = (BitSet) box[var].clone();
+      if (bound.isEquality) {
+        boolean contains = domain.get(bound.sort);
+        domain.clear();
+        if (contains) {
+          domain.set(bound.sort);
+        }
+      } else {
+        domain.and(lessThanEq[bound.sort]);
+      }
+      if (domain.isEmpty()) {
+        return new ArrayList<>();
+      } else if (domain.equals(box[var])) {
+        return singletonList(box);
+      }
+      BitSet[] restricted = box.clone();
+      restricted[var] = domain;
+      return singletonList(restricted);
+    }
+    Connective connective = (Connective) formula;
+    if (connective.isAnd) {
+      List<BitSet[]> boxes = singletonList(box);
+      for (Formula child : connective.children) {
+        List<BitSet[]> next = new ArrayList<>();
+        for (BitSet[] b : boxes) {
+          next.addAll(solve(child, b, indices));
+        }
+        boxes = removeIncluded(next);
+        if (boxes.isEmpty()) {
+          break;
+        }
+      }
+      return boxes;
+    } else {
+      List<BitSet[]> boxes = new ArrayList<>();
+      for (Formula child : connective.children) {
+        boxes.addAll(solve(child, box, indices));
+      }
+      return removeIncluded(boxes);
+    }
+  }
+
+  private static List<BitSet[]> singletonList(BitSet[] box) {
+    List<BitSet[]> boxes = new ArrayList<>();
+    boxes.add(box);
+    return boxes;
+  }
+
+  private static List<BitSet[]> removeIncluded(List<BitSet[]> boxes) {
+    if (boxes.size() > MAX_BOXES) {
+      throw new TooManySolutions();
+    }
+    if (boxes.size() < 2) {
+      return boxes;
+    }
+    List<BitSet[]> result = new ArrayList<>();
+    outer:
+    for (int i = 0; i < boxes.size(); i++) {
+      for (int j = 0; j < boxes.size(); j++) {
+        // of two equal boxes, keep the first one
+        if (i != j && included(boxes.get(i), boxes.get(j)) && (j < i || !included(boxes.get(j), boxes.get(i)))) {
+          continue outer;
+        }
+      }
+      result.add(boxes.get(i));
+    }
+    return result;
+  }
+
+  private static boolean included(BitSet[] box1, BitSet[] box2) {
+    for (int i = 0; i < box1.length; i++) {
+      if (box1[i] != box2[i]) {
+        BitSet difference = (BitSet) box1[i].clone();
+        difference.andNot(box2[i]);
+        if (!difference.isEmpty()) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Adds the maximal solutions of a box, i.e., the products of the maximal sorts of each variable, to the candidates.
+   */
+  private void addMaximal(BitSet[] box, List<int[]> candidates) {
+    int[][] maximal = new int[box.length][];
+    long count = 1;
+    for (int i = 0; i < box.length; i++) {
+      BitSet domain = box[i];
+      List<Integer> sortsOfVar = new ArrayList<>();
+      for (int s = domain.nextSetBit(0); s >= 0; s = domain.nextSetBit(s + 1)) {
+        if (!syntacticGreaterThan[s].intersects(domain)) {
+          sortsOfVar.add(s);
+        }
+      }
+      maximal[i] = sortsOfVar.stream().mapToInt(s -> s).toArray();
+      count *= maximal[i].length;
+      if (count + candidates.size() > MAX_BOXES) {
+        throw new TooManySolutions();
+      }
+    }
+    int[] digits = new int[box.length];
+    for (long n = 0; n < count; n++) {
+      int[] candidate = new int[box.length];
+      for (int i = 0; i < box.length; i++) {
+        candidate[i] = maximal[i][digits[i]];
+      }
+      candidates.add(candidate);
+      for (int i = 0; i < box.length && ++digits[i] == maximal[i].length; i++) {
+        digits[i] = 0;
+      }
+    }
+  }
+
+  /**
+   * Returns true if the first solution is less than or equal to the second, and distinct from it.
+   */
+  private boolean syntacticLessThan(int[] solution1, int[] solution2) {
+    boolean equal = true;
+    for (int i = 0; i < solution1.length; i++) {
+      if (solution1[i] != solution2[i]) {
+        if (!syntacticGreaterThan[solution1[i]].get(solution2[i])) {
+          return false;
+        }
+        equal = false;
+      }
+    }
+    return !equal;
+  }
+}
@@ -56,6 +56,9 @@ import static org.kframework.kore.KORE.*;
  *     parse forest for which that solution is not well typed.
  * 10. Disjunct the substituted solutions together and return them.
  *
+ * When the constraints do not mention sort parameters, steps 1-8 are performed by {@link SortConstraintSolver}
+ * instead of z3, which directly computes the maximal solutions of step 8, and z3 is only used to explain type errors.
+ *
  */
 public class TypeInferenceVisitor extends SetsTransformerWithErrors<KEMException> {
   private final TypeInferencer inferencer;
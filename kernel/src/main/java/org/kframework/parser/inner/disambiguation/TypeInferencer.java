@@ -50,6 +50,10 @@ import static org.kframework.Collections.*;
  * {@link TypeInferenceVisitor} and handles all the communication to/from z3 as well as construction of constraints.
  *
  * For a description of the algorithm, see the companion class's javadoc.
+ *
+ * Constraints which do not mention sort parameters are solved by {@link SortConstraintSolver} instead, which computes
+ * the same maximal models without z3. The z3 process is only started once a term needs it, i.e., when its constraints
+ * mention sort parameters, or to explain a type error.
  */
 public class TypeInferencer implements AutoCloseable {
 
@@ -72,7 +76,17 @@ public class TypeInferencer implements AutoCloseable {
   private static final String PRELUDE1 =
     "(set-logic QF_DT)\n";
 
-  private final boolean destroyOnReset;
+  private boolean destroyOnReset;
+
+  private final SortConstraintSolver solver;
+  // false to solve all constraints with z3, only for tests comparing the solver with z3
+  static volatile boolean useSolver = true;
+  // the maximal models of the current term if it was solved by the solver, or null if it is being solved by z3
+  private List<Map<String, Sort>> nativeModels;
+  // the index of the current model in nativeModels
+  private int nativeModel;
+  // the number of scopes pushed to z3 which have not been popped yet
+  private int z3Scopes = 0;
 
   private void initProcess() {
     try {
@@ -86,10 +100,19 @@ public class TypeInferencer implements AutoCloseable {
   }
 
   /**
-   * Create a new z3 process and write the sorts and subsort relation to it.
+   * Create a new inferencer. The z3 process is started lazily.
    * @param mod the module to create an inferencer for.
    */
   public TypeInferencer(Module mod) {
+    this.mod = mod;
+    this.sorts = stream(mod.definedSorts()).filter(this::isRealSort).collect(Collectors.toSet());
+    this.solver = new SortConstraintSolver(mod, sorts);
+  }
+
+  /**
+   * Create a new z3 process and write the sorts and subsort relation to it.
+   */
+  private void initZ3() {
     initProcess();
     println("(get-info :version)");
     try {
@@ -111,8 +134,6 @@ public class TypeInferencer implements AutoCloseable {
       throw KEMException.internalError("Could not read from z3 process", e);
     }
     println(PRELUDE1);
-    this.mod = mod;
-    this.sorts = stream(mod.definedSorts()).filter(this::isRealSort).collect(Collectors.toSet());
     push(mod);
   }
 
@@ -279,7 +300,8 @@ public class TypeInferencer implements AutoCloseable {
    */
   private KEMException push() {
     level++;
-    println("(push)");
+    nativeModels = null;
+    pushZ3();
     // compute constraints in incremental mode
     ExpectedSortsVisitor viz = new ExpectedSortsVisitor(currentTopSort, isAnywhere, true);
     viz.apply(currentTerm);
@@ -313,7 +335,7 @@ public class TypeInferencer implements AutoCloseable {
     currentTopSort = topSort;
     this.isAnywhere = isAnywhere;
     level+=2;
-    println("(push)");
+    nativeModels = null;
     // compute constraints in non-incremental mode
     ExpectedSortsVisitor viz = new ExpectedSortsVisitor(topSort, isAnywhere, false);
     String id = viz.apply(t);
@@ -321,6 +343,15 @@ public class TypeInferencer implements AutoCloseable {
         // there are no variables. so return as there is nothing to infer.
         return;
     }
+    // solve the constraints without z3 if they do not mention sort parameters
+    if (useSolver && parameters.isEmpty() && viz.formula(id) != null) {
+      nativeModels = solver.maximalSolutions(viz.formula(id), variables);
+      nativeModel = 0;
+      if (nativeModels != null) {
+        return;
+      }
+    }
+    pushZ3();
     // declare variables and sort parameters
     for (String var : variables) {
       println("(declare-const |" + var + "| Sort)");
@@ -333,7 +364,7 @@ public class TypeInferencer implements AutoCloseable {
     println(viz.toString());
     // assert top constraint
     println("(assert " + id + ")");
-    println("(push)");
+    pushZ3();
     // soft assertions to cut down search space
     for (String var : variables) {
       if (mod.allSorts().contains(Sorts.K()))
@@ -489,6 +520,13 @@ public class TypeInferencer implements AutoCloseable {
     // cache for sharing ambiguity nodes
     private Map<Ambiguity, Map<String, Integer>> ambCache = new IdentityHashMap<>();
 
+    // the constraints of each function generated in non-incremental mode, for the SortConstraintSolver
+    private final Map<String, SortConstraintSolver.Formula> formulas = new HashMap<>();
+    // the local constraints of the current term
+    private List<SortConstraintSolver.Formula> localFormulas;
+    // false if some constraint cannot be expressed for the SortConstraintSolver
+    private boolean isSolvable = true;
+
     /**
      *
      * @param topSort Expected sort at top of term.
@@ -534,6 +572,7 @@ public class TypeInferencer implements AutoCloseable {
             sb.append(i).append(" ");
           }
           sb.append("))\n");
+          formulas.put("amb" + id, SortConstraintSolver.or(ids.stream().map(this::formulaOf).collect(Collectors.toList())));
         }
         // return name of created or cached function
         return "amb" + id;
@@ -610,6 +649,7 @@ public class TypeInferencer implements AutoCloseable {
         // define a new function with a conjunction of each of the children of the term and the constraints of the
         // current term.
         sb.append("(define-fun |constraint").append(id).append("_").append(expected).append("| () Bool (and true ");
+        localFormulas = new ArrayList<>();
       }
       if (isIncremental || !shared || !cached) {
         // if we are in incremental mode or this is the first time reaching this term under this expected sort,
@@ -642,8 +682,10 @@ public class TypeInferencer implements AutoCloseable {
       if (!isIncremental && (!shared ||  !cached)) {
         for (String i : ids) {
           sb.append(i).append(" ");
+          localFormulas.add(formulaOf(i));
         }
         sb.append("))\n");
+        formulas.put("|constraint" + id + "_" + expected + "|", SortConstraintSolver.and(localFormulas));
       }
       // return name of created or cached constraint.
       return "|constraint" + id + "_" + expected + "|";
@@ -664,6 +706,7 @@ public class TypeInferencer implements AutoCloseable {
       }
       if (isBadNatSort(actualSort)) {
         sb.append("false ");
+        addFormula(SortConstraintSolver.FALSE);
       } else {
         if (isStrictEquality) {
           sb.append("(= ");
@@ -677,6 +720,13 @@ public class TypeInferencer implements AutoCloseable {
         }
         sb.append(printSort(expectedSort, expectedParams, isIncremental));
         sb.append(") ");
+        int actual = solver.ordinal(actualSort);
+        int expected = solver.ordinal(expectedSort);
+        if (actual < 0 || expected < 0) {
+          isSolvable = false;
+        } else {
+          addFormula(solver.compare(actual, expected, isStrictEquality));
+        }
       }
       if (isIncremental) {
         saveConstraint(actualSort, actualParams);
@@ -700,11 +750,42 @@ public class TypeInferencer implements AutoCloseable {
       }
       sb.append(printSort(expectedSort, expectedParams, isIncremental));
       sb.append(") ");
+      int expected = solver.ordinal(expectedSort);
+      if (expected < 0) {
+        isSolvable = false;
+      } else {
+        addFormula(SortConstraintSolver.bound(name, expected, isStrictEquality));
+      }
       if (isIncremental) {
         saveConstraint(name, loc);
       }
     }
 
+    private void addFormula(SortConstraintSolver.Formula formula) {
+      if (!isIncremental) {
+        localFormulas.add(formula);
+      }
+    }
+
+    /**
+     * Returns the constraints of a function generated in non-incremental mode, or null if they cannot be solved
+     * without z3.
+     * @param id the name of the function.
+     */
+    SortConstraintSolver.Formula formula(String id) {
+      return isSolvable ? formulas.get(id) : null;
+    }
+
+    private SortConstraintSolver.Formula formulaOf(String id) {
+      SortConstraintSolver.Formula formula = formulas.get(id);
+      if (formula == null) {
+        // defined by another visitor
+        isSolvable = false;
+        return SortConstraintSolver.TRUE;
+      }
+      return formula;
+    }
+
     List<Constraint> constraints = new ArrayList<>();
 
     private void saveConstraint(String name, Constant loc) {
@@ -811,7 +892,11 @@ public class TypeInferencer implements AutoCloseable {
    */
   public Status status() {
     if (status == null) {
-     status = computeStatus();
+      if (nativeModels != null) {
+        status = nativeModel < nativeModels.size() ? Status.SATISFIABLE : Status.UNSATISFIABLE;
+      } else {
+        status = computeStatus();
+      }
     }
     return status;
   }
@@ -822,6 +907,10 @@ public class TypeInferencer implements AutoCloseable {
   }
 
   void computeModel() {
+    if (nativeModels != null) {
+      model.putAll(nativeModels.get(nativeModel));
+      return;
+    }
     for (String var : variables) {
       model.put(var, computeValue(var));
     }
@@ -837,6 +926,12 @@ public class TypeInferencer implements AutoCloseable {
   }
 
   void pushNotModel() {
+    if (nativeModels != null) {
+      // the models of the solver are all maximal, so the next one is the next solution
+      nativeModel++;
+      status = null;
+      return;
+    }
     print("(assert (not (and true");
     java.util.Set<String> realVariables = new HashSet<>(variables);
     realVariables.removeAll(parameters);
@@ -900,8 +995,10 @@ public class TypeInferencer implements AutoCloseable {
 
   public void close() {
     reset();
-    z3.close();
-    process.destroy();
+    if (process != null) {
+      z3.close();
+      process.destroy();
+    }
   }
 
   private void reset() {
@@ -912,13 +1009,14 @@ public class TypeInferencer implements AutoCloseable {
       sb = new StringBuilder();
     }
     status = null;
+    nativeModels = null;
     model.clear();
     variables.clear();
     parameters.clear();
     variablesById.clear();
     cacheById.clear();
     nextId = 0;
-    if (destroyOnReset) {
+    if (process != null && destroyOnReset) {
       z3.close();
       process.destroy();
       initProcess();
@@ -944,6 +1042,9 @@ public class TypeInferencer implements AutoCloseable {
   private StringBuilder sb = new StringBuilder();
 
   private void println(String s) {
+    if (process == null) {
+      initZ3();
+    }
     if (DEBUG) {
       sb.append(s).append('\n');
     }
@@ -952,6 +1053,9 @@ public class TypeInferencer implements AutoCloseable {
   }
 
   private void print(String s) {
+    if (process == null) {
+      initZ3();
+    }
     if (DEBUG) {
       sb.append(s);
     }
@@ -960,8 +1064,17 @@ public class TypeInferencer implements AutoCloseable {
 
   private int level = 0;
 
+  private void pushZ3() {
+    println("(push)");
+    z3Scopes++;
+  }
+
   public void pop() {
-    println("(pop)");
+    // terms solved without z3 did not push any scope to it
+    if (z3Scopes > 0) {
+      println("(pop)");
+      z3Scopes--;
+    }
     status = null;
     level--;
     if (level == 0) {
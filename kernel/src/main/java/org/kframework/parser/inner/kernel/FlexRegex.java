@@ -0,0 +1,355 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.parser.inner.kernel;
+
+import dk.brics.automaton.Automaton;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Translates the flex regular expressions used for tokens in {@link Scanner} to dk.brics automata.
+ * <p>
+ * Like a scanner generated by flex, the automata work on the bytes of the UTF-8 encoding of the input: each byte is
+ * represented by the char of the same value. Raw non-ASCII characters in a regex stand for their UTF-8 encoding, while
+ * escapes and character classes stand for single bytes.
+ * <p>
+ * Trailing context, anchors, start conditions and pattern options have no equivalent and are rejected with an
+ * {@link IllegalArgumentException}, and so is whitespace outside of strings and character classes, which flex takes
+ * as the end of the pattern.
+ */
+final class FlexRegex {
+
+    static final char MAX_BYTE = '\u00ff';
+
+    private final String regex;
+    private final Definitions definitions;
+    private int pos = 0;
+
+    private FlexRegex(String regex, Definitions definitions) {
+        this.regex = regex;
+        this.definitions = definitions;
+    }
+
+    /**
+     * The named definitions of a flex file, referred to as {@code {name}}.
+     */
+    static final class Definitions {
+        private final Map<String, String> regexes;
+        private final Map<String, Automaton> automata = new HashMap<>();
+        private final Set<String> translating = new HashSet<>();
+
+        Definitions(Map<String, String> regexes) {
+            this.regexes = regexes;
+        }
+
+        private Automaton get(String name) {
+            Automaton automaton = automata.get(name);
+            if (automaton == null) {
+                String regex = regexes.get(name);
+                if (regex == null || !translating.add(name)) {
+                    throw new IllegalArgumentException("undefined or recursive definition {" + name + "}");
+                }
+                automaton = toAutomaton(regex, this);
+                translating.remove(name);
+                automata.put(name, automaton);
+            }
+            return automaton;
+        }
+    }
+
+    static Automaton toAutomaton(String regex, Definitions definitions) {
+        FlexRegex parser = new FlexRegex(regex, definitions);
+        Automaton automaton = parser.parseUnion();
+        if (parser.pos != regex.length()) {
+            throw parser.unsupported("unbalanced parenthesis");
+        }
+        return automaton;
+    }
+
+    private Automaton parseUnion() {
+        List<Automaton> branches = new ArrayList<>();
+        branches.add(parseConcatenation());
+        while (peek('|')) {
+            pos++;
+            branches.add(parseConcatenation());
+        }
+        return branches.size() == 1 ? branches.get(0) : Automaton.union(branches);
+    }
+
+    private Automaton parseConcatenation() {
+        List<Automaton> items = new ArrayList<>();
+        while (pos < regex.length() && !peek('|') && !peek(')')) {
+            items.add(parseRepetition());
+        }
+        return items.isEmpty() ? Automaton.makeEmptyString() : Automaton.concatenate(items);
+    }
+
+    private Automaton parseRepetition() {
+        Automaton automaton = parseAtom();
+        while (pos < regex.length()) {
+            if (peek('*')) {
+                pos++;
+                automaton = automaton.repeat();
+            } else if (peek('+')) {
+                pos++;
+                automaton = automaton.repeat(1);
+            } else if (peek('?')) {
+                pos++;
+                automaton = automaton.optional();
+            } else if (peek('{') && pos + 1 < regex.length() && Character.isDigit(regex.charAt(pos + 1))) {
+                pos++;
+                int min = parseNumber();
+                int max = min;
+                if (peek(',')) {
+                    pos++;
+                    max = peek('}') ? -1 : parseNumber();
+                }
+                expect('}');
+                automaton = max == -1 ? automaton.repeat(min) : automaton.repeat(min, max);
+            } else {
+                break;
+            }
+        }
+        return automaton;
+    }
+
+    private Automaton parseAtom() {
+        char c = regex.charAt(pos);
+        switch (c) {
+        case '(':
+            pos++;
+            if (peek('?')) {
+                throw unsupported("pattern options");
+            }
+            Automaton group = parseUnion();
+            expect(')');
+            return group;
+        case '[':
+            pos++;
+            return parseClass();
+        case '"':
+            pos++;
+            return parseString();
+        case '.':
+            pos++;
+            return anyByte().minus(Automaton.makeChar('\n'));
+        case '\\':
+            pos++;
+            return Automaton.makeChar(parseEscape());
+        case '{':
+            int end = regex.indexOf('}', pos);
+            if (end < 0) {
+                throw unsupported("unterminated definition");
+            }
+            String name = regex.substring(pos + 1, end);
+            pos = end + 1;
+            return definitions.get(name);
+        case '^':
+        case '$':
+        case '/':
+        case '<':
+            throw unsupported("anchors, trailing context and start conditions");
+        case ' ':
+        case '\t':
+        case '\n':
+        case '\r':
+        case '\f':
+            throw unsupported("unquoted whitespace");
+        default:
+            return Automaton.makeString(toBytes(parseCodePoint()));
+        }
+    }
+
+    private Automaton parseString() {
+        StringBuilder bytes = new StringBuilder();
+        while (!peek('"')) {
+            if (pos >= regex.length()) {
+                throw unsupported("unterminated string");
+            }
+            if (peek('\\')) {
+                pos++;
+                bytes.append(parseEscape());
+            } else {
+                bytes.append(toBytes(parseCodePoint()));
+            }
+        }
+        pos++;
+        return Automaton.makeString(bytes.toString());
+    }
+
+    private Automaton parseClass() {
+        boolean negated = peek('^');
+        if (negated) {
+            pos++;
+        }
+        boolean[] members = new boolean[MAX_BYTE + 1];
+        boolean first = true;
+        while (first || !peek(']')) {
+            if (pos >= regex.length()) {
+                throw unsupported("unterminated character class");
+            }
+            first = false;
+            if (regex.startsWith("[:", pos)) {
+                int end = regex.indexOf(":]", pos);
+                if (end < 0) {
+                    throw unsupported("unterminated character class expression");
+                }
+                addPosixClass(regex.substring(pos + 2, end), members);
+                pos = end + 2;
+                continue;
+            }
+            char low = parseClassChar();
+            char high = low;
+            if (peek('-') && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                pos++;
+                high = parseClassChar();
+            }
+            for (char b = low; b <= high; b++) {
+                members[b] = true;
+            }
+        }
+        pos++;
+
+        List<Automaton> ranges = new ArrayList<>();
+        for (char b = 0; b <= MAX_BYTE; b++) {
+            if (members[b] != negated) {
+                char start = b;
+                while (b < MAX_BYTE && members[b + 1] != negated) {
+                    b++;
+                }
+                ranges.add(Automaton.makeCharRange(start, b));
+            }
+        }
+        return ranges.isEmpty() ? Automaton.makeEmpty() : Automaton.union(ranges);
+    }
+
+    private char parseClassChar() {
+        if (peek('\\')) {
+            pos++;
+            return parseEscape();
+        }
+        char c = regex.charAt(pos++);
+        if (c > 0x7f) {
+            throw unsupported("non-ASCII character in character class");
+        }
+        return c;
+    }
+
+    private static void addPosixClass(String name, boolean[] members) {
+        for (char b = 0; b <= 0x7f; b++) {
+            boolean member;
+            switch (name) {
+            case "alnum": member = Character.isLetterOrDigit(b); break;
+            case "alpha": member = Character.isLetter(b); break;
+            case "blank": member = b == ' ' || b == '\t'; break;
+            case "cntrl": member = b < 0x20 || b == 0x7f; break;
+            case "digit": member = b >= '0' && b <= '9'; break;
+            case "graph": member = b > 0x20 && b < 0x7f; break;
+            case "lower": member = b >= 'a' && b <= 'z'; break;
+            case "print": member = b >= 0x20 && b < 0x7f; break;
+            case "punct": member = b > 0x20 && b < 0x7f && !Character.isLetterOrDigit(b); break;
+            case "space": member = b == ' ' || (b >= '\t' && b <= '\r'); break;
+            case "upper": member = b >= 'A' && b <= 'Z'; break;
+            case "xdigit": member = Character.digit(b, 16) >= 0; break;
+            default: throw new IllegalArgumentException("unknown character class [:" + name + ":]");
+            }
+            members[b] |= member;
+        }
+    }
+
+    /**
+     * Parses the escape following a backslash, which stands for a single byte.
+     */
+    private char parseEscape() {
+        if (pos >= regex.length()) {
+            throw unsupported("trailing backslash");
+        }
+        char c = regex.charAt(pos++);
+        switch (c) {
+        case 'n': return '\n';
+        case 't': return '\t';
+        case 'r': return '\r';
+        case 'f': return '\f';
+        case 'v': return '\u000b';
+        case 'a': return '\u0007';
+        case 'b': return '\b';
+        case 'x':
+            return (char) parseDigits(16, 2);
+        default:
+            if (c >= '0' && c <= '7') {
+                pos--;
+                return (char) (parseDigits(8, 3) & MAX_BYTE);
+            }
+            if (c > 0x7f) {
+                throw unsupported("escaped non-ASCII character");
+            }
+            return c;
+        }
+    }
+
+    private int parseDigits(int radix, int maxDigits) {
+        int value = 0;
+        int digits = 0;
+        while (digits < maxDigits && pos < regex.length() && Character.digit(regex.charAt(pos), radix) >= 0) {
+            value = value * radix + Character.digit(regex.charAt(pos++), radix);
+            digits++;
+        }
+        if (digits == 0) {
+            throw unsupported("missing digits in escape");
+        }
+        return value;
+    }
+
+    private int parseNumber() {
+        int start = pos;
+        while (pos < regex.length() && Character.isDigit(regex.charAt(pos))) {
+            pos++;
+        }
+        return Integer.parseInt(regex.substring(start, pos));
+    }
+
+    private int parseCodePoint() {
+        int codePoint = regex.codePointAt(pos);
+        pos += Character.charCount(codePoint);
+        return codePoint;
+    }
+
+    /**
+     * Returns the UTF-8 encoding of a code point, one char per byte.
+     */
+    private static String toBytes(int codePoint) {
+        if (codePoint <= 0x7f) {
+            return String.valueOf((char) codePoint);
+        }
+        byte[] utf8 = new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8);
+        char[] bytes = new char[utf8.length];
+        for (int i = 0; i < utf8.length; i++) {
+            bytes[i] = (char) (utf8[i] & MAX_BYTE);
+        }
+        return new String(bytes);
+    }
+
+    static Automaton anyByte() {
+        return Automaton.makeCharRange('\0', MAX_BYTE);
+    }
+
+    private boolean peek(char c) {
+        return pos < regex.length() && regex.charAt(pos) == c;
+    }
+
+    private void expect(char c) {
+        if (!peek(c)) {
+            throw unsupported("expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    private IllegalArgumentException unsupported(String reason) {
+        return new IllegalArgumentException("Cannot translate flex regex " + regex + " at offset " + pos + ": " + reason);
+    }
+}
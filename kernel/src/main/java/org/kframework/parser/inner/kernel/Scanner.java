@@ -1,8 +1,12 @@
 // Copyright (c) 2016-2019 K Team. All Rights Reserved.
 package org.kframework.parser.inner.kernel;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.kframework.attributes.Location;
@@ -19,17 +23,21 @@ import org.kframework.utils.OS;
 import org.kframework.utils.Stopwatch;
 import org.kframework.utils.StringUtil;
 import org.kframework.utils.errorsystem.KEMException;
+import org.kframework.utils.file.FileUtil;
+import org.kframework.utils.file.JarInfo;
 import scala.Tuple2;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.Semaphore;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
@@ -43,23 +51,38 @@ import static org.kframework.Collections.*;
 public class Scanner implements AutoCloseable {
 
     private final Map<TerminalLike, Tuple2<Integer, Integer>> tokens;
+    /**
+     * the in-process scanner, or null if the tokens are scanned by the external {@link #scanner}
+     */
+    private final ScannerDFA dfa;
     private final File scanner;
     private final Module module;
     private GlobalOptions go = new GlobalOptions();
 
     private static final String EXE_EXTENSION = OS.current().equals(OS.WINDOWS) ? ".exe" : "";
+    /**
+     * The scanners compiled or loaded in this JVM by the digest of their tokens, shared by the modules and
+     * definitions with the same tokens. Bounded, since a server may process many definitions.
+     */
+    private static final Cache<String, ScannerDFA> dfaCache = CacheBuilder.newBuilder()
+            .maximumSize(64)
+            .softValues()
+            .build();
 
-    public Scanner(ParseInModule module, GlobalOptions go) {
+    public Scanner(ParseInModule module, GlobalOptions go, FileUtil files) {
         this.go = go;
         this.tokens  = KSyntax2GrammarStatesFilter.getTokens(module.getParsingModule());
         this.module  = module.seedModule();
-        this.scanner = getScanner();
+        this.dfa     = go.flexScanner ? null : getDFA(files);
+        this.scanner = dfa == null ? getScanner() : null;
+    }
+
+    public Scanner(ParseInModule module, GlobalOptions go) {
+        this(module, go, null);
     }
 
     public Scanner(ParseInModule module) {
-        this.tokens  = KSyntax2GrammarStatesFilter.getTokens(module.getParsingModule());
-        this.module  = module.seedModule();
-        this.scanner = getScanner();
+        this(module, new GlobalOptions(), null);
     }
 
     public Module getModule() {
@@ -79,19 +102,85 @@ public class Scanner implements AutoCloseable {
         if (this.module.allSorts().contains(Sorts.Layout())) {
             flex.append(this.module.layout() + " ;\n");
         }
-        List<TerminalLike> ordered = tokens.keySet().stream().sorted((t1, t2) -> tokens.get(t2)._2() - tokens.get(t1)._2()).collect(Collectors.toList());
-        for (TerminalLike key : ordered) {
-            if (key instanceof Terminal) {
-                Terminal t = (Terminal) key;
-                flex.append(StringUtil.enquoteCString(t.value()));
-            } else {
-                RegexTerminal t = (RegexTerminal) key;
-                flex.append(t.regex());
-            }
+        for (TerminalLike key : orderedTokens()) {
+            flex.append(pattern(key));
             writeAction.accept(flex, key);
         }
     }
 
+    private List<TerminalLike> orderedTokens() {
+        return tokens.keySet().stream().sorted((t1, t2) -> tokens.get(t2)._2() - tokens.get(t1)._2()).collect(Collectors.toList());
+    }
+
+    private static String pattern(TerminalLike key) {
+        if (key instanceof Terminal) {
+            Terminal t = (Terminal) key;
+            return StringUtil.enquoteCString(t.value());
+        } else {
+            RegexTerminal t = (RegexTerminal) key;
+            return t.regex();
+        }
+    }
+
+    /**
+     * Compiles the flex specification of {@link #getScanner()} to a DFA run in-process, or returns null if it uses
+     * flex constructs which the DFA cannot express. The DFA is cached by the digest of the specification and of the
+     * version of the DFA code, in memory and, if {@code files} is not null, in the kompiled directory.
+     */
+    private ScannerDFA getDFA(FileUtil files) {
+        Stopwatch sw = new Stopwatch(go);
+        Map<String, String> definitions = new TreeMap<>();
+        for (SyntaxLexical ident : iterable(module.lexicalIdentifiers())) {
+            definitions.put(ident.name(), ident.regex());
+        }
+        List<String> patterns = new ArrayList<>();
+        List<Integer> kinds = new ArrayList<>();
+        if (this.module.allSorts().contains(Sorts.Layout())) {
+            patterns.add(this.module.layout());
+            kinds.add(ScannerDFA.SKIP);
+        }
+        for (TerminalLike key : orderedTokens()) {
+            patterns.add(pattern(key));
+            kinds.add(tokens.get(key)._1());
+        }
+
+        // the version of the code is part of the digest, so that DFAs compiled by another version of K are not reused
+        String codeVersion = JarInfo.getCodeVersion(ScannerDFA.class);
+        Hasher hasher = Hashing.sha256().newHasher().putInt(ScannerDFA.FORMAT_VERSION)
+                .putInt(codeVersion.length()).putString(codeVersion, StandardCharsets.UTF_8);
+        definitions.forEach((name, regex) -> hasher.putInt(name.length()).putString(name, StandardCharsets.UTF_8)
+                .putInt(regex.length()).putString(regex, StandardCharsets.UTF_8));
+        for (int i = 0; i < patterns.size(); i++) {
+            hasher.putInt(kinds.get(i)).putInt(patterns.get(i).length()).putString(patterns.get(i), StandardCharsets.UTF_8);
+        }
+        String digest = hasher.hash().toString();
+
+        ScannerDFA dfa = dfaCache.getIfPresent(digest);
+        if (dfa != null) {
+            return dfa;
+        }
+        File file = files == null ? null : files.resolveKompiled("scanners/" + digest + ".dfa");
+        if (file != null) {
+            dfa = ScannerDFA.load(file);
+        }
+        if (dfa == null) {
+            try {
+                dfa = ScannerDFA.compile(definitions, patterns, kinds.stream().mapToInt(k -> k).toArray());
+            } catch (IllegalArgumentException e) {
+                if (go.debug()) {
+                    System.err.println("Falling back to flex for the scanner of " + module.name() + ": " + e.getMessage());
+                }
+                return null;
+            }
+            if (file != null) {
+                dfa.save(file);
+            }
+        }
+        dfaCache.put(digest, dfa);
+        sw.printIntermediate("New scanner: " + module.name());
+        return dfa;
+    }
+
     public void writeStandaloneScanner(File path) {
         StringBuilder flex  = new StringBuilder();
         flex.append("%{\n" +
@@ -323,6 +412,9 @@ public class Scanner implements AutoCloseable {
     };
 
     public Token[] tokenize(String input, Source source, int[] lines, int[] columns) {
+        if (dfa != null) {
+            return dfa.tokenize(input, source, lines, columns);
+        }
         try {
             runningScanners.acquire();
 
@@ -0,0 +1,220 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.parser.inner.kernel;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.MinimizationOperations;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+import org.kframework.attributes.Location;
+import org.kframework.attributes.Source;
+import org.kframework.utils.errorsystem.KEMException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A table-driven DFA tokenizing the input in-process with the semantics of the flex scanner generated by
+ * {@link Scanner}: the longest match wins, and among the patterns matching the longest prefix, the earliest one.
+ * <p>
+ * The DFA works on the bytes of the UTF-8 encoding of the input, so the positions of the tokens are byte offsets, as
+ * with the flex scanner. Bytes are mapped to equivalence classes to keep the transition table small.
+ */
+final class ScannerDFA implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Version of the way patterns are compiled to a DFA and of its saved form. Increment it whenever either changes,
+     * so that the DFAs saved by previous versions are not reused.
+     */
+    static final int FORMAT_VERSION = 1;
+
+    /**
+     * The kind of a pattern whose matches are skipped, i.e., layout.
+     */
+    static final int SKIP = -1;
+    private static final int REJECT = -2;
+
+    private final int[] byteClasses;
+    private final int classCount;
+    /**
+     * the next state for each state and byte class, or -1 if the DFA gets stuck
+     */
+    private final int[] transitions;
+    /**
+     * the kind of the token accepted by each state, {@link #SKIP}, or {@link #REJECT}
+     */
+    private final int[] accepts;
+
+    private ScannerDFA(int[] byteClasses, int classCount, int[] transitions, int[] accepts) {
+        this.byteClasses = byteClasses;
+        this.classCount = classCount;
+        this.transitions = transitions;
+        this.accepts = accepts;
+    }
+
+    /**
+     * Compiles the patterns, given in decreasing order of priority, into a DFA.
+     *
+     * @param definitions the flex definitions referred to by the patterns
+     * @param patterns    the flex regular expressions of the tokens
+     * @param kinds       the kind of the token of each pattern, or {@link #SKIP}
+     * @throws IllegalArgumentException if a pattern uses a flex construct that cannot be compiled
+     */
+    static ScannerDFA compile(Map<String, String> definitions, List<String> patterns, int[] kinds) {
+        FlexRegex.Definitions flexDefinitions = new FlexRegex.Definitions(definitions);
+        /* each pattern is followed by a marker char above the byte range encoding its index, so that the union can
+         * be minimized without merging the states accepting different patterns */
+        List<Automaton> marked = new ArrayList<>();
+        for (int i = 0; i < patterns.size(); i++) {
+            marked.add(FlexRegex.toAutomaton(patterns.get(i), flexDefinitions)
+                    .concatenate(Automaton.makeChar(marker(i))));
+        }
+        Automaton union = Automaton.union(marked);
+        union.determinize();
+        MinimizationOperations.minimizeHopcroft(union);
+
+        TreeSet<Integer> boundaries = new TreeSet<>();
+        boundaries.add(0);
+        for (State state : union.getStates()) {
+            for (Transition transition : state.getTransitions()) {
+                if (transition.getMin() <= FlexRegex.MAX_BYTE) {
+                    boundaries.add((int) transition.getMin());
+                    boundaries.add(Math.min(transition.getMax(), FlexRegex.MAX_BYTE) + 1);
+                }
+            }
+        }
+        int[] byteClasses = new int[FlexRegex.MAX_BYTE + 1];
+        int classCount = 0;
+        for (int b = 0; b <= FlexRegex.MAX_BYTE; b++) {
+            if (b > 0 && boundaries.contains(b)) {
+                classCount++;
+            }
+            byteClasses[b] = classCount;
+        }
+        classCount++;
+
+        Map<State, Integer> stateNumbers = new HashMap<>();
+        List<State> states = new ArrayList<>();
+        states.add(union.getInitialState());
+        stateNumbers.put(union.getInitialState(), 0);
+        for (State state : union.getStates()) {
+            if (stateNumbers.putIfAbsent(state, states.size()) == null) {
+                states.add(state);
+            }
+        }
+
+        int[] transitions = new int[states.size() * classCount];
+        int[] accepts = new int[states.size()];
+        Arrays.fill(transitions, -1);
+        for (int i = 0; i < states.size(); i++) {
+            int acceptedPattern = Integer.MAX_VALUE;
+            for (Transition transition : states.get(i).getTransitions()) {
+                for (int b = transition.getMin(); b <= Math.min(transition.getMax(), FlexRegex.MAX_BYTE); b++) {
+                    transitions[i * classCount + byteClasses[b]] = stateNumbers.get(transition.getDest());
+                }
+                if (transition.getMax() > FlexRegex.MAX_BYTE) {
+                    acceptedPattern = Math.min(acceptedPattern,
+                            Math.max(transition.getMin(), marker(0)) - marker(0));
+                }
+            }
+            accepts[i] = acceptedPattern == Integer.MAX_VALUE ? REJECT : kinds[acceptedPattern];
+        }
+        return new ScannerDFA(byteClasses, classCount, transitions, accepts);
+    }
+
+    private static char marker(int pattern) {
+        assert FlexRegex.MAX_BYTE + 1 + pattern <= Character.MAX_VALUE;
+        return (char) (FlexRegex.MAX_BYTE + 1 + pattern);
+    }
+
+    Scanner.Token[] tokenize(String input, Source source, int[] lines, int[] columns) {
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        List<Scanner.Token> result = new ArrayList<>();
+        int start = 0;
+        while (start < bytes.length) {
+            int state = 0;
+            int end = -1;
+            int kind = REJECT;
+            for (int pos = start; pos < bytes.length; pos++) {
+                state = transitions[state * classCount + byteClasses[bytes[pos] & 0xff]];
+                if (state < 0) {
+                    break;
+                }
+                if (accepts[state] != REJECT) {
+                    end = pos + 1;
+                    kind = accepts[state];
+                }
+            }
+
+            if (end < 0) {
+                /* report the whole UTF-8 sequence of the character */
+                end = start + 1;
+                while (end < bytes.length && (bytes[end] & 0xc0) == 0x80) {
+                    end++;
+                }
+                String value = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+                String msg = "Scanner error: unexpected character sequence '" + value + "'.";
+                Location loc = new Location(lines[start], columns[start], lines[end], columns[end]);
+                throw KEMException.innerParserError(msg, source, loc);
+            }
+            if (kind != SKIP) {
+                result.add(new Scanner.Token(kind, new String(bytes, start, end - start, StandardCharsets.UTF_8),
+                        start, end));
+            }
+            start = end;
+        }
+        return result.toArray(new Scanner.Token[result.size()]);
+    }
+
+    /**
+     * Loads a DFA saved by {@link #save}, or returns null if the file does not exist or cannot be read.
+     */
+    static ScannerDFA load(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return (ScannerDFA) in.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Saves the DFA atomically, so that concurrent readers see either no file or a complete one. Failures are
+     * ignored since the file is only a cache.
+     */
+    void save(File file) {
+        try {
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (!dir.exists() && !dir.mkdirs()) {
+                return;
+            }
+            Path tempFile = Files.createTempFile(dir.toPath(), "tmp", ".dfa");
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile.toFile())))) {
+                out.writeObject(this);
+            }
+            Files.move(tempFile, file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the DFA is compiled again next time
+        }
+    }
+}
@@ -24,8 +24,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.channels.OverlappingFileLockException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -51,6 +53,70 @@ public class BinaryLoader {
         }
     }
 
+    /**
+     * Saves {@code sections} to {@code file} in the {@link BinarySections} format, in iteration order.
+     */
+    public void saveSectionsOrDie(File file, Map<String, ?> sections) {
+        saveSectionsOrDie(file, sections, Collections.emptyMap());
+    }
+
+    /**
+     * Saves {@code sections} to {@code file} in the {@link BinarySections} format, in iteration order. The objects
+     * in {@code shared.get(name)} are written with section {@code name}, and only referred to by the sections after
+     * it.
+     */
+    public void saveSectionsOrDie(File file, Map<String, ?> sections, Map<String, ? extends Collection<?>> shared) {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw KEMException.criticalError("Could not create directory " + dir);
+        }
+        try {
+            saveSectionsImpl(file, sections, shared);
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not write to " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Like {@link #saveSectionsOrDie(File, Map)}, for files which only cache results that can be computed again: if
+     * the file cannot be written, registers a warning instead of failing.
+     */
+    public void saveSectionsCache(File file, Map<String, ?> sections) {
+        File dir = file.getAbsoluteFile().getParentFile();
+        try {
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Could not create directory " + dir);
+            }
+            saveSectionsImpl(file, sections, Collections.emptyMap());
+        } catch (IOException e) {
+            kem.registerInternalWarning(ExceptionType.INVALIDATED_CACHE, "Could not write serialized cache to "
+                    + file.getAbsolutePath() + ".", e);
+        }
+    }
+
+    private void saveSectionsImpl(File file, Map<String, ?> sections, Map<String, ? extends Collection<?>> shared)
+            throws IOException {
+        Path tempFile = Files.createTempFile(file.getCanonicalFile().getParentFile().toPath(), "tmp", ".bin");
+        try (FileOutputStream out = new FileOutputStream(tempFile.toFile())) {
+            BinarySections.write(out, sections, shared);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        Files.move(tempFile, file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Opens a file saved by {@link #saveSectionsOrDie}. Sections are deserialized on first access.
+     */
+    public BinarySections loadSectionsOrDie(File file) {
+        try {
+            return BinarySections.open(file);
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not read from " + file.getAbsolutePath(), e);
+        }
+    }
+
     public <T> T loadOrDie(Class<T> cls, File file) {
         try {
             return loadImpl(file, cls);
@@ -0,0 +1,277 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.utils;
+
+import org.kframework.utils.errorsystem.KEMException;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A binary file made of named sections, each holding one independently serialized object. The file is memory-mapped
+ * when opened, and each section is deserialized only when it is first requested, so readers only pay for the
+ * sections they use.
+ * <p>
+ * Since each section is serialized on its own, objects reachable from several sections would be written once per
+ * section and no longer be shared once read back. A section can therefore declare shared objects: they are written
+ * with that section, and the sections written after it refer to them instead of writing them again. Loading a
+ * section which refers to shared objects also loads the sections they belong to, and the objects keep their identity.
+ * <p>
+ * Layout: an 8-byte magic number, the sections one after the other, each in its own {@link ObjectOutputStream}
+ * format holding the object of the section and then the array of its shared objects, then the index (the number of
+ * sections, then the name, offset and length of each), then the offset of the index as the last 8 bytes of the file.
+ */
+public class BinarySections {
+
+    private static final byte[] MAGIC = "KSECTNS2".getBytes(StandardCharsets.US_ASCII);
+
+    private final File file;
+    private final Map<String, ByteBuffer> index;
+    private final Map<String, Object> loaded = new LinkedHashMap<>();
+    private final Map<String, Object[]> shared = new LinkedHashMap<>();
+
+    private BinarySections(File file, Map<String, ByteBuffer> index) {
+        this.file = file;
+        this.index = index;
+    }
+
+    /**
+     * Written in place of an object shared by an earlier section.
+     */
+    private static final class SharedObject implements Serializable {
+        private final String section;
+        private final int index;
+
+        SharedObject(String section, int index) {
+            this.section = section;
+            this.index = index;
+        }
+    }
+
+    /**
+     * @return whether {@code file} starts with the magic number of this format.
+     */
+    public static boolean isSectioned(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            byte[] magic = new byte[MAGIC.length];
+            return raf.length() >= MAGIC.length && raf.read(magic) == MAGIC.length && Arrays.equals(magic, MAGIC);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes {@code sections} to {@code out}, in iteration order.
+     *
+     * @param shared the objects shared by each section with the sections after it.
+     */
+    static void write(FileOutputStream out, Map<String, ?> sections, Map<String, ? extends Collection<?>> shared)
+            throws IOException {
+        FileChannel channel = out.getChannel();
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.write(MAGIC);
+        data.flush();
+        Map<String, long[]> index = new LinkedHashMap<>();
+        Map<Object, SharedObject> references = new IdentityHashMap<>();
+        for (Map.Entry<String, ?> section : sections.entrySet()) {
+            long offset = channel.position();
+            Object[] sectionShared = shared.containsKey(section.getKey())
+                    ? shared.get(section.getKey()).toArray()
+                    : new Object[0];
+            ObjectOutputStream serializer = new SectionOutputStream(
+                    new BufferedOutputStream(new NonClosingOutputStream(out)), references);
+            serializer.writeObject(section.getValue());
+            serializer.writeObject(sectionShared);
+            serializer.close();
+            index.put(section.getKey(), new long[]{offset, channel.position() - offset});
+            for (int i = 0; i < sectionShared.length; i++) {
+                references.putIfAbsent(sectionShared[i], new SharedObject(section.getKey(), i));
+            }
+        }
+        long indexOffset = channel.position();
+        data.writeInt(index.size());
+        for (Map.Entry<String, long[]> entry : index.entrySet()) {
+            data.writeUTF(entry.getKey());
+            data.writeLong(entry.getValue()[0]);
+            data.writeLong(entry.getValue()[1]);
+        }
+        data.writeLong(indexOffset);
+        data.flush();
+    }
+
+    /**
+     * Opens {@code file}, reads its index and maps each section; no section is deserialized yet. The file is closed
+     * before returning, mapped sections stay readable.
+     */
+    static BinarySections open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            ByteBuffer trailer = channel.map(FileChannel.MapMode.READ_ONLY, size - Long.BYTES, Long.BYTES);
+            long indexOffset = trailer.getLong();
+            DataInputStream in = new DataInputStream(new ByteBufferInputStream(
+                    channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, size - Long.BYTES - indexOffset)));
+            int count = in.readInt();
+            Map<String, ByteBuffer> index = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                long offset = in.readLong();
+                long length = in.readLong();
+                index.put(name, channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+            }
+            return new BinarySections(file, index);
+        }
+    }
+
+    public Set<String> sectionNames() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    public boolean hasSection(String name) {
+        return index.containsKey(name);
+    }
+
+    /**
+     * Returns the object of section {@code name}, deserializing it on the first call.
+     */
+    public synchronized <T> T load(String name, Class<T> cls) {
+        Object obj = loaded.get(name);
+        if (obj == null) {
+            ByteBuffer buffer = index.get(name);
+            if (buffer == null) {
+                throw KEMException.criticalError("Section " + name + " not found in " + file.getAbsolutePath()
+                        + ". Please re-run kompile and try again.");
+            }
+            try (ObjectInputStream deserializer = new SectionInputStream(
+                    new ByteBufferInputStream(buffer.duplicate()))) {
+                obj = deserializer.readObject();
+                shared.put(name, (Object[]) deserializer.readObject());
+            } catch (ClassNotFoundException e) {
+                throw new AssertionError("Something wrong with deserialization", e);
+            } catch (ObjectStreamException e) {
+                throw KEMException.criticalError("Kompiled definition is out of date with "
+                        + "the latest version of the K tool. Please re-run kompile and try again.", e);
+            } catch (IOException e) {
+                throw KEMException.criticalError("Could not read from " + file.getAbsolutePath(), e);
+            }
+            loaded.put(name, obj);
+        }
+        return cls.cast(obj);
+    }
+
+    /**
+     * Writes references in place of the objects shared by earlier sections.
+     */
+    private static class SectionOutputStream extends ObjectOutputStream {
+        private final Map<Object, SharedObject> references;
+
+        SectionOutputStream(OutputStream out, Map<Object, SharedObject> references) throws IOException {
+            super(out);
+            this.references = references;
+            enableReplaceObject(!references.isEmpty());
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) {
+            SharedObject reference = references.get(obj);
+            return reference != null ? reference : obj;
+        }
+    }
+
+    /**
+     * Resolves the references written by {@link SectionOutputStream}, loading the sections they belong to.
+     */
+    private class SectionInputStream extends ObjectInputStream {
+        SectionInputStream(InputStream in) throws IOException {
+            super(in);
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Object resolveObject(Object obj) {
+            if (obj instanceof SharedObject) {
+                SharedObject reference = (SharedObject) obj;
+                load(reference.section, Object.class);
+                return shared.get(reference.section)[reference.index];
+            }
+            return obj;
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(bytes, off, len);
+            return len;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /**
+     * Lets each section be written through its own {@link ObjectOutputStream} without closing the file.
+     */
+    private static class NonClosingOutputStream extends OutputStream {
+        private final OutputStream out;
+
+        NonClosingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            out.write(bytes, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -10,12 +10,19 @@ import com.google.inject.Inject;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.net.*;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.CodeSource;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.Manifest;
+import java.util.stream.Stream;
 
 public class JarInfo {
     private static final String JAR_PATH = "k-distribution/target/release/k/lib/kframework/java/JAR_FILENAME_PLACEHOLDER.jar";
@@ -65,6 +72,44 @@ public class JarInfo {
         }
     }
 
+    private static final Map<String, String> codeVersions = new ConcurrentHashMap<>();
+
+    /**
+     * Returns a string which changes whenever the code {@code cls} is loaded from changes, for the keys of caches of
+     * data derived by that code. It is made of the path, size and modification time of the jar, or, when running
+     * from a directory of classes, of the number of files under it and their latest modification time.
+     */
+    public static String getCodeVersion(Class<?> cls) {
+        CodeSource source = cls.getProtectionDomain().getCodeSource();
+        if (source == null) {
+            return "";
+        }
+        URL location = source.getLocation();
+        return codeVersions.computeIfAbsent(location.toString(), l -> computeCodeVersion(location));
+    }
+
+    private static String computeCodeVersion(URL location) {
+        try {
+            Path path = Paths.get(location.toURI());
+            if (!Files.isDirectory(path)) {
+                return path + ":" + Files.size(path) + ":" + Files.getLastModifiedTime(path).toMillis();
+            }
+            long count = 0;
+            long lastModified = 0;
+            try (Stream<Path> files = Files.walk(path)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (Files.isRegularFile(file)) {
+                        count++;
+                        lastModified = Math.max(lastModified, Files.getLastModifiedTime(file).toMillis());
+                    }
+                }
+            }
+            return path + ":" + count + ":" + lastModified;
+        } catch (URISyntaxException | IOException | UncheckedIOException | IllegalArgumentException | FileSystemNotFoundException e) {
+            return location.toString();
+        }
+    }
+
     private final KExceptionManager kem;
 
     @Inject
@@ -28,7 +28,7 @@ public class DefinitionLoadingModule extends AbstractModule {
 
     @Provides @DefinitionScoped
     CompiledDefinition koreDefinition(BinaryLoader loader, FileUtil files) {
-        return loader.loadOrDie(CompiledDefinition.class, files.resolveKompiled("compiled.bin"));
+        return CompiledDefinition.load(loader, files.resolveKompiled("compiled.bin"));
     }
 
 
@@ -42,15 +42,35 @@ public class SMTOptions implements Serializable {
     public String smtPrelude;
 
     @Parameter(names="--z3-jni", description="Invokes Z3 as JNI library. Default is external process. " +
-            "JNI is slightly faster, but can potentially lead to JVM crash.")
+            "Each thread keeps a Z3 context with the SMT prelude loaded between queries. " +
+            "JNI is faster, but can potentially lead to JVM crash.")
     public boolean z3JNI = false;
 
+    @Parameter(names="--z3-jni-context-queries", description="The number of queries after which the Z3 context " +
+            "of a thread is discarded and recreated with --z3-jni, to bound the memory held by Z3. " +
+            "A context is also recreated after an error.")
+    public int z3JNIContextQueries = 10000;
+
     @Parameter(names="--z3-cnstr-timeout", description="The default soft timeout (in milli seconds) of Z3 for checking constraint satisfiability.")
     public int z3CnstrTimeout = 50;
 
     @Parameter(names="--z3-impl-timeout", description="The default soft timeout (in milli seconds) of Z3 for checking implication.")
     public int z3ImplTimeout = 5000;
 
+    @Parameter(names="--z3-pool-size", description="The maximum number of long-lived Z3 processes used to check " +
+            "queries concurrently. Each process keeps the SMT prelude loaded between queries. " +
+            "Default is 0, which starts a new Z3 process for every query.")
+    public int z3PoolSize = 0;
+
+    @Parameter(names="--smt-cache-dir", description="Directory of a persistent cache of Z3 query results, keyed by " +
+            "the query text with variables renamed. The cache can be shared by concurrent runs. " +
+            "Disabled if not specified.")
+    public String smtCacheDir;
+
+    @Parameter(names="--smt-cache-size", description="The maximum number of entries in the persistent cache of Z3 " +
+            "query results. Least recently used entries are evicted first.")
+    public int smtCacheSize = 1000000;
+
     @Parameter(names="--z3-tactic", description="The solver tactic to use to check satisfiability in Z3.")
     public String z3Tactic;
 }
@@ -0,0 +1,112 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.krun.ioserver.filesystem.portable;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FileChannelFileTest {
+
+    private static java.io.File tempFile(byte[] contents) throws IOException {
+        java.io.File file = java.io.File.createTempFile("channel", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), contents);
+        return file;
+    }
+
+    private static void assertEOF(File file) {
+        try {
+            file.getc();
+            fail();
+        } catch (IOException e) {
+            assertEquals("EOF", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testReadAcrossBuffers() throws IOException {
+        byte[] contents = new byte[FileChannelFile.BUFFER_SIZE * 3 + 17];
+        new Random(42).nextBytes(contents);
+        FileChannelFile file = new FileChannelFile(new RandomAccessFile(tempFile(contents), "r").getChannel(), false);
+        assertEquals(contents[0], file.getc());
+        assertArrayEquals(Arrays.copyOfRange(contents, 1, 101), file.read(100));
+        assertArrayEquals(Arrays.copyOfRange(contents, 101, 101 + FileChannelFile.BUFFER_SIZE * 2),
+                file.read(FileChannelFile.BUFFER_SIZE * 2));
+        assertEquals(101 + FileChannelFile.BUFFER_SIZE * 2, file.tell());
+        assertArrayEquals(Arrays.copyOfRange(contents, 101 + FileChannelFile.BUFFER_SIZE * 2, contents.length),
+                file.read(contents.length));
+        assertEOF(file);
+        file.seek(5);
+        assertEquals(contents[5], file.getc());
+        assertEquals(6, file.tell());
+        try {
+            file.putc((byte) 0);
+            fail();
+        } catch (IOException e) {
+            assertEquals("EBADF", e.getMessage());
+        }
+        file.close();
+    }
+
+    @Test
+    public void testInterleavedReadsWritesAndSeeks() throws IOException {
+        byte[] expected = "hello, world".getBytes();
+        java.io.File path = tempFile(expected);
+        FileChannelFile file = new FileChannelFile(new RandomAccessFile(path, "rw").getChannel(), true);
+        Random random = new Random(7);
+        for (int i = 0; i < 100000; i++) {
+            int pos = (int) file.tell();
+            switch (random.nextInt(5)) {
+            case 0:
+                byte b = (byte) random.nextInt();
+                file.putc(b);
+                if (pos == expected.length) {
+                    expected = Arrays.copyOf(expected, pos + 1);
+                }
+                expected[pos] = b;
+                break;
+            case 1:
+                if (pos < expected.length) {
+                    assertEquals(expected[pos], file.getc());
+                } else {
+                    assertEOF(file);
+                }
+                break;
+            case 2:
+                file.seek(random.nextInt(expected.length + 1));
+                break;
+            case 3:
+                int n = random.nextInt(10);
+                byte[] read = Arrays.copyOfRange(expected, Math.min(pos, expected.length),
+                        Math.min(pos + n, expected.length));
+                if (read.length > 0 || n == 0) {
+                    assertArrayEquals(read, file.read(n));
+                }
+                break;
+            default:
+                assertEquals(pos, file.tell());
+            }
+        }
+        file.close();
+        assertArrayEquals(expected, Files.readAllBytes(path.toPath()));
+    }
+
+    @Test
+    public void testMemoryMappedFile() throws IOException {
+        byte[] contents = "foo\nbar\n".getBytes();
+        MemoryMappedFile file = new MemoryMappedFile(new RandomAccessFile(tempFile(contents), "r").getChannel());
+        assertArrayEquals("foo\n".getBytes(), file.read(4));
+        assertEquals('b', file.getc());
+        file.seek(1);
+        assertArrayEquals("oo\nbar\n".getBytes(), file.read(100));
+        assertEquals(contents.length, file.tell());
+        assertEOF(file);
+        file.close();
+    }
+}
@@ -0,0 +1,103 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.parser.inner;
+
+import com.google.common.hash.Hashing;
+import org.junit.Test;
+import org.kframework.parser.inner.ParseCache.ParsedSentence;
+import org.kframework.utils.errorsystem.KExceptionManager;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+import static org.kframework.kore.KORE.*;
+
+public class ParseCacheStoreTest {
+
+    private final KExceptionManager kem = new KExceptionManager(null);
+
+    private static File tempFile() throws IOException {
+        File file = File.createTempFile("parses", ".bin");
+        file.delete();
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static String key(String contents) {
+        return Hashing.sha256().hashString(contents, StandardCharsets.UTF_8).toString();
+    }
+
+    private static ParsedSentence parse(String token) {
+        return new ParsedSentence(KToken(token, Sort("Int")), new HashSet<>());
+    }
+
+    @Test
+    public void testAppend() throws IOException {
+        File file = tempFile();
+        ParseCacheStore store = ParseCacheStore.open(file, kem);
+        assertNull(store.get(key("a")));
+        store.put(key("a"), parse("1"));
+        assertEquals(parse("1").getParse(), store.get(key("a")).getParse());
+        store.save();
+
+        store = ParseCacheStore.open(file, kem);
+        assertEquals(parse("1").getParse(), store.get(key("a")).getParse());
+        store.put(key("b"), parse("2"));
+        store.save();
+
+        store = ParseCacheStore.open(file, kem);
+        assertEquals(parse("1").getParse(), store.get(key("a")).getParse());
+        assertEquals(parse("2").getParse(), store.get(key("b")).getParse());
+        assertNull(store.get(key("c")));
+    }
+
+    @Test
+    public void testTruncatedRecord() throws IOException {
+        File file = tempFile();
+        ParseCacheStore store = ParseCacheStore.open(file, kem);
+        store.put(key("a"), parse("1"));
+        store.save();
+        // the start of a record whose write was interrupted
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[20]);
+        }
+
+        store = ParseCacheStore.open(file, kem);
+        assertEquals(parse("1").getParse(), store.get(key("a")).getParse());
+        store.put(key("b"), parse("2"));
+        store.save();
+
+        store = ParseCacheStore.open(file, kem);
+        assertEquals(parse("1").getParse(), store.get(key("a")).getParse());
+        assertEquals(parse("2").getParse(), store.get(key("b")).getParse());
+    }
+
+    @Test
+    public void testGarbageCollection() throws IOException {
+        File file = tempFile();
+        ParseCacheStore store = ParseCacheStore.open(file, kem);
+        store.put(key("unused"), parse("123456789"));
+        store.put(key("used"), parse("1"));
+        store.save();
+        for (int run = 0; run < 5; run++) {
+            store = ParseCacheStore.open(file, kem);
+            assertNotNull(store.get(key("used")));
+            store.save();
+        }
+
+        store = ParseCacheStore.open(file, kem);
+        assertNull(store.get(key("unused")));
+        assertEquals(parse("1").getParse(), store.get(key("used")).getParse());
+    }
+
+    @Test
+    public void testInMemory() {
+        ParseCacheStore store = ParseCacheStore.inMemory(kem);
+        store.put(key("a"), parse("1"));
+        store.save();
+        assertEquals(parse("1").getParse(), store.get(key("a")).getParse());
+    }
+}
@@ -0,0 +1,47 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.parser.inner;
+
+import org.junit.Test;
+import org.kframework.definition.Module;
+import org.kframework.definition.ProductionItem;
+import org.kframework.parser.inner.ParseCache.ParsedSentence;
+import org.kframework.utils.errorsystem.KExceptionManager;
+
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+import static org.kframework.Collections.*;
+import static org.kframework.definition.Constructors.*;
+import static org.kframework.kore.KORE.*;
+
+public class ParseCacheTest {
+
+    private final ParseCacheStore store = ParseCacheStore.inMemory(new KExceptionManager(null));
+
+    private static Module module(ProductionItem item) {
+        return Module("TEST", Set(), Set(SyntaxSort(Seq(), Sort("Id")), Production(Seq(), Sort("Id"), Seq(item))), Att());
+    }
+
+    private boolean sameSyntax(ProductionItem first, ProductionItem second) {
+        new ParseCache(module(first), true, store).put("x", new ParsedSentence(KToken("x", Sort("Id")), new HashSet<>()));
+        return new ParseCache(module(second), true, store).get("x") != null;
+    }
+
+    @Test
+    public void testSameSyntax() {
+        assertTrue(sameSyntax(RegexTerminal("#", "[a-z]+", "[0-9]"), RegexTerminal("#", "[a-z]+", "[0-9]")));
+    }
+
+    @Test
+    public void testRegexTerminals() {
+        assertFalse(sameSyntax(RegexTerminal("#", "[a-z]+", "#"), RegexTerminal("#", "[a-z]+", "[0-9]")));
+        assertFalse(sameSyntax(RegexTerminal("#", "[a-z]+", "#"), RegexTerminal("[0-9]", "[a-z]+", "#")));
+        assertFalse(sameSyntax(RegexTerminal("#", "[a-z]+", "#"), RegexTerminal("#", "[a-y]+", "#")));
+    }
+
+    @Test
+    public void testItemKinds() {
+        assertFalse(sameSyntax(Terminal("Id"), NonTerminal(Sort("Id"))));
+        assertFalse(sameSyntax(NonTerminal(Sort("Id")), NonTerminal(Sort("Id"), scala.Option.apply("x"))));
+    }
+}
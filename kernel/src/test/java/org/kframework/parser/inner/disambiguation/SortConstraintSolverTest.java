@@ -0,0 +1,216 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.parser.inner.disambiguation;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.kframework.attributes.Source;
+import org.kframework.definition.Definition;
+import org.kframework.definition.Module;
+import org.kframework.kompile.DefinitionParsing;
+import org.kframework.kompile.Kompile;
+import org.kframework.kore.K;
+import org.kframework.kore.Sort;
+import org.kframework.main.GlobalOptions;
+import org.kframework.parser.ParserUtils;
+import org.kframework.parser.inner.ParseInModule;
+import org.kframework.parser.inner.disambiguation.SortConstraintSolver.Formula;
+import org.kframework.parser.inner.generator.RuleGrammarGenerator;
+import org.kframework.utils.errorsystem.KEMException;
+import org.kframework.utils.errorsystem.KExceptionManager;
+import org.kframework.utils.file.FileUtil;
+import scala.Tuple2;
+import scala.util.Either;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.kframework.Collections.*;
+import static org.kframework.kore.KORE.*;
+
+public class SortConstraintSolverTest {
+
+    // A < B < C, A < E, and D unrelated
+    private static final String DEF = "" +
+            "module TEST " +
+            "syntax A ::= \"a\" " +
+            "syntax B ::= A " +
+            "syntax C ::= B " +
+            "syntax E ::= A " +
+            "syntax D ::= \"d\" " +
+            "syntax {Sort} Sort ::= \"id\" \"(\" Sort \")\" [klabel(id)] " +
+            "endmodule";
+
+    private SortConstraintSolver solver;
+
+    @Before
+    public void setUp() {
+        Module mod = ParserUtils.parseMainModuleOuterSyntax(DEF, Source.apply("generated by SortConstraintSolverTest"), "TEST");
+        solver = new SortConstraintSolver(mod, stream(mod.definedSorts()).collect(Collectors.toSet()));
+    }
+
+    private Formula le(String variable, String sort) {
+        return SortConstraintSolver.bound(variable, solver.ordinal(Sort(sort)), false);
+    }
+
+    private Formula eq(String variable, String sort) {
+        return SortConstraintSolver.bound(variable, solver.ordinal(Sort(sort)), true);
+    }
+
+    private Set<Map<String, Sort>> solve(Formula formula, String... variables) {
+        List<Map<String, Sort>> solutions = solver.maximalSolutions(formula, Arrays.asList(variables));
+        assertNotNull(solutions);
+        Set<Map<String, Sort>> result = new HashSet<>(solutions);
+        assertEquals("duplicate solutions", solutions.size(), result.size());
+        return result;
+    }
+
+    private static Map<String, Sort> solution(String... varsAndSorts) {
+        ImmutableMap.Builder<String, Sort> solution = ImmutableMap.builder();
+        for (int i = 0; i < varsAndSorts.length; i += 2) {
+            solution.put(varsAndSorts[i], Sort(varsAndSorts[i + 1]));
+        }
+        return solution.build();
+    }
+
+    @SafeVarargs
+    private static Set<Map<String, Sort>> solutions(Map<String, Sort>... solutions) {
+        return new HashSet<>(Arrays.asList(solutions));
+    }
+
+    @Test
+    public void testUpperBound() {
+        assertEquals(solutions(solution("X", "B")), solve(le("X", "B"), "X"));
+        assertEquals(solutions(solution("X", "A")), solve(SortConstraintSolver.and(Arrays.asList(le("X", "C"), le("X", "E"))), "X"));
+    }
+
+    @Test
+    public void testOr() {
+        assertEquals(solutions(solution("X", "B"), solution("X", "E")),
+                solve(SortConstraintSolver.or(Arrays.asList(le("X", "B"), le("X", "E"))), "X"));
+    }
+
+    @Test
+    public void testAndOfOr() {
+        // the boxes are X = A with any Y, and X <= E with Y <= D; (A, D) is below (E, D)
+        Formula formula = SortConstraintSolver.and(Arrays.asList(
+                SortConstraintSolver.or(Arrays.asList(le("X", "B"), le("Y", "D"))),
+                le("X", "E")));
+        assertEquals(solutions(solution("X", "A", "Y", "C"), solution("X", "A", "Y", "E"), solution("X", "E", "Y", "D")),
+                solve(formula, "X", "Y"));
+    }
+
+    @Test
+    public void testEquality() {
+        assertEquals(solutions(solution("X", "B")), solve(eq("X", "B"), "X"));
+        assertEquals(solutions(solution("X", "A")), solve(SortConstraintSolver.and(Arrays.asList(le("X", "E"), eq("X", "A"))), "X"));
+        assertEquals(solutions(), solve(SortConstraintSolver.and(Arrays.asList(le("X", "E"), eq("X", "B"))), "X"));
+    }
+
+    @Test
+    public void testCompare() {
+        int a = solver.ordinal(Sort("A"));
+        int c = solver.ordinal(Sort("C"));
+        assertSame(SortConstraintSolver.TRUE, solver.compare(a, c, false));
+        assertSame(SortConstraintSolver.FALSE, solver.compare(c, a, false));
+        assertSame(SortConstraintSolver.FALSE, solver.compare(a, c, true));
+        assertSame(SortConstraintSolver.TRUE, solver.compare(a, a, true));
+        assertEquals(solutions(), solve(SortConstraintSolver.and(Arrays.asList(le("X", "C"), solver.compare(c, a, false))), "X"));
+    }
+
+    @Test
+    public void testParametricSorts() {
+        // sort variables and undeclared sorts have no ordinal, which makes TypeInferencer fall back to z3
+        assertTrue(solver.ordinal(Sort("A")) >= 0);
+        assertEquals(-1, solver.ordinal(Sort("Sort")));
+        assertEquals(-1, solver.ordinal(Sort("Undeclared")));
+    }
+
+    @Test
+    public void testTooManySolutions() {
+        // each unconstrained variable has the 3 maximal sorts C, E and D
+        String[] variables = new String[7];
+        for (int i = 0; i < variables.length; i++) {
+            variables[i] = "X" + i;
+        }
+        assertEquals(2187, solve(SortConstraintSolver.TRUE, variables).size());
+        List<String> more = new ArrayList<>(Arrays.asList(variables));
+        more.add("X7");
+        assertNull(solver.maximalSolutions(SortConstraintSolver.TRUE, more));
+    }
+
+    private static boolean hasZ3() {
+        try {
+            Process z3 = new ProcessBuilder("z3", "-version").start();
+            return z3.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static Tuple2<Either<Set<KEMException>, K>, Set<KEMException>> parse(
+            RuleGrammarGenerator gen, Module module, String rule, boolean useSolver) {
+        TypeInferencer.useSolver = useSolver;
+        try {
+            ParseInModule parser = RuleGrammarGenerator.getCombinedGrammar(gen.getRuleGrammar(module), true);
+            return parser.parseString(rule, DefinitionParsing.START_SYMBOL, Source.apply("generated by SortConstraintSolverTest"));
+        } finally {
+            TypeInferencer.useSolver = true;
+        }
+    }
+
+    @Test
+    public void testSameResultsAsZ3() {
+        Assume.assumeTrue(hasZ3());
+        FileUtil files = FileUtil.testFileUtil();
+        ParserUtils parser = new ParserUtils(files, new KExceptionManager(new GlobalOptions()));
+        File definitionFile = new File(Kompile.BUILTIN_DIRECTORY.toString() + "/prelude.md");
+        Definition baseK = parser.loadDefinition("K", "K", files.loadFromWorkingDirectory(definitionFile.getPath()),
+                definitionFile, definitionFile.getParentFile(), Lists.newArrayList(Kompile.BUILTIN_DIRECTORY),
+                false, false, false, false);
+        RuleGrammarGenerator gen = new RuleGrammarGenerator(baseK);
+        String def = "" +
+                "module TEST " +
+                "syntax Exp ::= Exp \"+\" Exp [klabel('Plus)] " +
+                "| Int " +
+                "syntax Int ::= r\"[0-9]+\" [token] " +
+                "syntax Exps ::= Exp \",\" Exps [klabel('Exps)] " +
+                "| Exp " +
+                "syntax Stmt ::= Exp \";\" [klabel('Stmt)] " +
+                "syntax {Sort} Sort ::= \"id\" \"(\" Sort \")\" [klabel('id)] " +
+                "endmodule";
+        Module module = ParserUtils.parseMainModuleOuterSyntax(def, Source.apply("generated by SortConstraintSolverTest"), "TEST");
+        for (String rule : Arrays.asList(
+                "X + Y => Y + X",
+                "X => X + 1",
+                "X , Xs => Xs",
+                "X ; => X",
+                "X:Int + Y => Y",
+                "(X => Y) + Z",
+                "id(X) => X + 1",
+                "X ; => 1 , X",
+                "X:Stmt + Y => Y")) {
+            Tuple2<Either<Set<KEMException>, K>, Set<KEMException>> nativeResult = parse(gen, module, rule, true);
+            Tuple2<Either<Set<KEMException>, K>, Set<KEMException>> z3Result = parse(gen, module, rule, false);
+            assertEquals(rule, z3Result._1().isLeft(), nativeResult._1().isLeft());
+            if (z3Result._1().isRight()) {
+                assertEquals(rule, z3Result._1().right().get(), nativeResult._1().right().get());
+            }
+            assertEquals(rule, Collections.emptySet().equals(z3Result._2()), Collections.emptySet().equals(nativeResult._2()));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.parser.inner.kernel;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kframework.attributes.Source;
+import org.kframework.utils.errorsystem.KEMException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+public class ScannerDFATest {
+
+    private final ScannerDFA dfa = ScannerDFA.compile(ImmutableMap.of("Digit", "[0-9]"),
+            ImmutableList.of("[\\ \\n]+", "\"if\"", "[a-z][a-z0-9]*", "{Digit}+", "\"\\342\\206\\222\""),
+            new int[] {ScannerDFA.SKIP, 0, 1, 2, 3});
+
+    private String tokenize(String input) {
+        int length = input.getBytes(StandardCharsets.UTF_8).length + 1;
+        Scanner.Token[] tokens = dfa.tokenize(input, Source.apply("generated by ScannerDFATest"), new int[length], new int[length]);
+        return Arrays.stream(tokens).map(t -> t + "@" + t.startLoc + "-" + t.endLoc).collect(Collectors.joining(" "));
+    }
+
+    @Test
+    public void testLongestMatch() {
+        Assert.assertEquals("1:iff@0-3 2:12@4-6", tokenize("iff 12"));
+    }
+
+    @Test
+    public void testPriority() {
+        Assert.assertEquals("0:if@0-2 1:if2@3-6", tokenize("if if2"));
+    }
+
+    @Test
+    public void testByteOffsets() {
+        Assert.assertEquals("1:x@0-1 3:\u2192@2-5 1:y@6-7", tokenize("x \u2192 y"));
+    }
+
+    @Test(expected = KEMException.class)
+    public void testUnexpectedCharacter() {
+        tokenize("x + y");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTrailingContext() {
+        ScannerDFA.compile(ImmutableMap.of(), ImmutableList.of("a/b"), new int[] {0});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnquotedWhitespace() {
+        // flex ends the pattern at the space
+        ScannerDFA.compile(ImmutableMap.of(), ImmutableList.of("a b"), new int[] {0});
+    }
+
+    @Test
+    public void testQuotedWhitespace() {
+        ScannerDFA.compile(ImmutableMap.of(), ImmutableList.of("\"a b\"", "[ \t]"), new int[] {0, 1});
+    }
+}
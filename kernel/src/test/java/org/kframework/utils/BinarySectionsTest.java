@@ -0,0 +1,90 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.utils;
+
+import org.junit.Test;
+import org.kframework.main.GlobalOptions;
+import org.kframework.utils.errorsystem.KException.ExceptionType;
+import org.kframework.utils.errorsystem.KExceptionManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BinarySectionsTest {
+
+    private static File tempFile() throws IOException {
+        File file = File.createTempFile("sections", ".bin");
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        List<Integer> large = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            large.add(i);
+        }
+        Map<String, Object> sections = new LinkedHashMap<>();
+        sections.put("header", "a header");
+        sections.put("large", large);
+        sections.put("empty", new ArrayList<>());
+
+        BinaryLoader loader = new BinaryLoader(null);
+        File file = tempFile();
+        loader.saveSectionsOrDie(file, sections);
+        assertTrue(BinarySections.isSectioned(file));
+
+        BinarySections loaded = loader.loadSectionsOrDie(file);
+        assertEquals(Arrays.asList("header", "large", "empty"), new ArrayList<>(loaded.sectionNames()));
+        assertFalse(loaded.hasSection("missing"));
+        assertEquals("a header", loaded.load("header", String.class));
+        assertEquals(large, loaded.load("large", List.class));
+        assertSame(loaded.load("large", List.class), loaded.load("large", List.class));
+        assertEquals(new ArrayList<>(), loaded.load("empty", List.class));
+    }
+
+    @Test
+    public void testSharedObjects() throws IOException {
+        List<String> shared = new ArrayList<>(Arrays.asList("shared"));
+        List<Object> later = new ArrayList<>(Arrays.asList(shared, "own"));
+        Map<String, Object> sections = new LinkedHashMap<>();
+        sections.put("first", shared);
+        sections.put("later", later);
+
+        BinaryLoader loader = new BinaryLoader(null);
+        File file = tempFile();
+        loader.saveSectionsOrDie(file, sections, Collections.singletonMap("first", Collections.singletonList(shared)));
+
+        BinarySections loaded = loader.loadSectionsOrDie(file);
+        List<?> loadedLater = loaded.load("later", List.class);
+        assertEquals(later, loadedLater);
+        assertSame(loaded.load("first", List.class), loadedLater.get(0));
+    }
+
+    @Test
+    public void testCacheWriteFailureIsAWarning() throws IOException {
+        GlobalOptions options = new GlobalOptions();
+        options.warnings = GlobalOptions.Warnings.ALL;
+        KExceptionManager kem = new KExceptionManager(options);
+        // the parent of the file is a regular file, so the file cannot be created
+        File file = new File(tempFile(), "sections.bin");
+        new BinaryLoader(kem).saveSectionsCache(file, Collections.singletonMap("header", "a header"));
+        assertFalse(file.exists());
+        assertEquals(1, kem.getExceptions().size());
+        assertEquals(ExceptionType.INVALIDATED_CACHE, kem.getExceptions().get(0).getType());
+    }
+
+    @Test
+    public void testPlainSerializationIsNotSectioned() throws IOException {
+        File file = tempFile();
+        new BinaryLoader(null).saveOrDie(file, "not sectioned");
+        assertFalse(BinarySections.isSectioned(file));
+    }
+}
@@ -5,10 +5,15 @@ import org.kframework.utils.errorsystem.KEMException
 
 import java.util
 import java.util.Optional
+import java.util.concurrent.ConcurrentHashMap
 import collection._
 
 /**
  * A partially ordered set based on an initial set of direct relations.
+ *
+ * The elements are numbered in topological order and the transitive closure is stored as bit matrices, so that
+ * comparisons are bit tests and [[maximal]] and [[minimal]] work on whole words. Least upper bounds and greatest lower
+ * bounds of pairs of elements are memoized.
  */
 class POSet[T](val directRelations: Set[(T, T)]) extends Serializable {
 
@@ -58,8 +63,56 @@ class POSet[T](val directRelations: Set[(T, T)]) extends Serializable {
    */
   val relations = transitiveClosure(directRelationsMap)
 
-  def <(x: T, y: T): Boolean = relations.get(x).exists(_.contains(y))
-  def >(x: T, y: T): Boolean = relations.get(y).exists(_.contains(x))
+  /**
+   * The elements in topological order, i.e., each element is numbered after the elements less than it.
+   */
+  @transient private lazy val ordered: IndexedSeq[T] = sortedElements.toIndexedSeq
+
+  @transient private lazy val ordinals: util.HashMap[T, Integer] = {
+    val map = new util.HashMap[T, Integer]()
+    ordered.indices foreach { i => map.put(ordered(i), i) }
+    map
+  }
+
+  @transient private lazy val words: Int = (ordered.size + 63) >>> 6
+
+  /**
+   * Row i holds the bits of the elements greater than the element numbered i.
+   */
+  @transient private lazy val greaterBits: Array[Long] = bitMatrix(upwards = true)
+  /**
+   * Row i holds the bits of the elements less than the element numbered i.
+   */
+  @transient private lazy val lesserBits: Array[Long] = bitMatrix(upwards = false)
+
+  @transient private lazy val lubs = new ConcurrentHashMap[java.lang.Long, Integer]()
+  @transient private lazy val glbs = new ConcurrentHashMap[java.lang.Long, Integer]()
+
+  private def bitMatrix(upwards: Boolean): Array[Long] = {
+    val bits = new Array[Long](ordered.size * words)
+    for ((x, greater) <- relations; y <- greater) {
+      val (row, column) = if (upwards) (ordinal(x), ordinal(y)) else (ordinal(y), ordinal(x))
+      bits(row * words + (column >>> 6)) |= 1L << column
+    }
+    bits
+  }
+
+  /**
+   * Returns the number of an element, or -1 if it is in no relation. Smaller elements have smaller numbers.
+   */
+  def ordinal(x: T): Int = {
+    val i = ordinals.get(x)
+    if (i == null) -1 else i
+  }
+
+  /**
+   * Returns true if the element numbered i is less than the element numbered j.
+   */
+  def lessThanOrdinal(i: Int, j: Int): Boolean =
+    i >= 0 && j >= 0 && (greaterBits(i * words + (j >>> 6)) & (1L << j)) != 0
+
+  def <(x: T, y: T): Boolean = lessThanOrdinal(ordinal(x), ordinal(y))
+  def >(x: T, y: T): Boolean = lessThanOrdinal(ordinal(y), ordinal(x))
   def ~(x: T, y: T) = <(x, y) || <(y, x)
 
   /**
@@ -109,12 +162,88 @@ class POSet[T](val directRelations: Set[(T, T)]) extends Serializable {
 
   lazy val asOrdering: Ordering[T] = (x: T, y: T) => if (lessThanEq(x, y)) -1 else if (lessThanEq(y, x)) 1 else 0
 
+  /**
+   * Returns the least upper bound of two elements, if it exists.
+   */
+  def leastUpperBoundOf(x: T, y: T): Option[T] = bound(x, y, lubs, greaterBits, upwards = true)
+
+  /**
+   * Returns the greatest lower bound of two elements, if it exists.
+   */
+  def greatestLowerBoundOf(x: T, y: T): Option[T] = bound(x, y, glbs, lesserBits, upwards = false)
+
+  private def bound(x: T, y: T, table: ConcurrentHashMap[java.lang.Long, Integer], bits: Array[Long], upwards: Boolean): Option[T] = {
+    if (x == y) {
+      return Some(x)
+    }
+    val i = ordinal(x)
+    val j = ordinal(y)
+    if (i < 0 || j < 0) {
+      return None
+    }
+    val key = math.min(i, j).toLong * ordered.size + math.max(i, j)
+    var k: Integer = table.get(key)
+    if (k == null) {
+      k = computeBound(i, j, bits, upwards)
+      table.put(key, k)
+    }
+    if (k < 0) None else Some(ordered(k))
+  }
+
+  /**
+   * Computes the least (or greatest) of the common upper (or lower) bounds of the elements numbered i and j. If it
+   * exists, it is the bound numbered first (or last), since the elements are numbered in topological order.
+   */
+  private def computeBound(i: Int, j: Int, bits: Array[Long], upwards: Boolean): Int = {
+    val common = new Array[Long](words)
+    for (w <- 0 until words) {
+      common(w) = (bits(i * words + w) | bit(i, w)) & (bits(j * words + w) | bit(j, w))
+    }
+    val candidates = if (upwards) common.indices else common.indices.reverse
+    val word = candidates.find(common(_) != 0)
+    if (word.isEmpty) {
+      return -1
+    }
+    val w = word.get
+    val k = if (upwards) (w << 6) + java.lang.Long.numberOfTrailingZeros(common(w))
+            else (w << 6) + 63 - java.lang.Long.numberOfLeadingZeros(common(w))
+    if (common.indices.forall(v => (common(v) & ~(bits(k * words + v) | bit(k, v))) == 0)) k else -1
+  }
+
+  private def bit(i: Int, w: Int): Long = if (i >>> 6 == w) 1L << i else 0L
+
+  /**
+   * Returns the elements related to one of the given elements by the bit matrix.
+   */
+  private def related(elements: Iterable[T], bits: Array[Long]): Array[Long] = {
+    val result = new Array[Long](words)
+    for (x <- elements) {
+      val i = ordinal(x)
+      if (i >= 0) {
+        for (w <- 0 until words) {
+          result(w) |= bits(i * words + w)
+        }
+      }
+    }
+    result
+  }
+
+  /**
+   * Returns true if the element is in the set of bits.
+   */
+  private def contains(bits: Array[Long], x: T): Boolean = {
+    val i = ordinal(x)
+    i >= 0 && (bits(i >>> 6) & (1L << i)) != 0
+  }
+
   /**
     * Return the subset of items from the argument which are not
     * less than any other item.
     */
-  def maximal(sorts : Iterable[T]) : Set[T] =
-    sorts.filter(s1 => !sorts.exists(s2 => lessThan(s1,s2))).toSet
+  def maximal(sorts : Iterable[T]) : Set[T] = {
+    val lessThanSome = related(sorts, lesserBits)
+    sorts.filter(s => !contains(lessThanSome, s)).toSet
+  }
 
   def maximal(sorts : util.Collection[T]) : util.Set[T] = {
     import scala.collection.JavaConversions._
@@ -125,8 +254,10 @@ class POSet[T](val directRelations: Set[(T, T)]) extends Serializable {
     * Return the subset of items from the argument which are not
     * greater than any other item.
     */
-  def minimal(sorts : Iterable[T]) : Set[T] =
-    sorts.filter(s1 => !sorts.exists(s2 => >(s1,s2))).toSet
+  def minimal(sorts : Iterable[T]) : Set[T] = {
+    val greaterThanSome = related(sorts, greaterBits)
+    sorts.filter(s => !contains(greaterThanSome, s)).toSet
+  }
 
   def minimal(sorts : util.Collection[T]) : util.Set[T] = {
     import scala.collection.JavaConversions._
@@ -44,4 +44,30 @@ class POSetTest {
     assertEquals(None, POSet(b1 -> b2, b2 -> b3, b4 -> b5).lub)
     assertEquals(None, POSet(b1 -> b2, b2 -> b3, b2 -> b4).lub)
   }
+
+  @Test def leastUpperBoundOf() {
+    val p = POSet(b1 -> b3, b2 -> b3, b3 -> b4, b2 -> b5)
+
+    assertEquals(Some(b3), p.leastUpperBoundOf(b1, b2))
+    assertEquals(Some(b3), p.leastUpperBoundOf(b2, b1))
+    assertEquals(Some(b4), p.leastUpperBoundOf(b1, b4))
+    assertEquals(Some(b1), p.leastUpperBoundOf(b1, b1))
+    assertEquals(None, p.leastUpperBoundOf(b3, b5))
+  }
+
+  @Test def greatestLowerBoundOf() {
+    val p = POSet(b1 -> b2, b1 -> b3, b2 -> b4, b3 -> b4)
+
+    assertEquals(Some(b1), p.greatestLowerBoundOf(b2, b3))
+    assertEquals(Some(b2), p.greatestLowerBoundOf(b2, b4))
+    assertEquals(None, p.greatestLowerBoundOf(b1, b5))
+  }
+
+  @Test def maximalAndMinimal() {
+    val p = POSet(b1 -> b2, b2 -> b3, b4 -> b5)
+
+    assertEquals(Set(b3, b5), p.maximal(Seq(b1, b2, b3, b5)))
+    assertEquals(Set(b1, b4), p.minimal(Seq(b1, b2, b3, b4, b5)))
+    assertEquals(Set(b2, b4), p.maximal(Seq(b1, b2, b4)))
+  }
 }